@@ -0,0 +1,474 @@
+package com.example.chess.bench;
+
+import com.example.chess.archive.GameArchive;
+import com.example.chess.archive.GameRecord;
+import com.example.chess.archive.PgnGame;
+import com.example.chess.archive.PgnReader;
+import com.example.chess.game.Board;
+import com.example.chess.game.Moves;
+import com.example.chess.game.Position;
+import com.example.chess.game.San;
+import com.example.chess.game.Type;
+import com.example.chess.metrics.Histogram;
+import com.example.chess.metrics.Metrics;
+import com.example.server.ServerApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Load test over loopback: starts the server in this JVM on a free port, then plays games in
+ * many rooms at once through {@code /ws/chess/{roomId}}, two players and some spectators per
+ * room, each on its own WebSocket. Players join, then replay real games move by move with a
+ * think time between moves; when a game ends its room's sessions leave and a new room starts,
+ * until the run is over. Rooms are started evenly over the ramp-up.
+ * <p>
+ * Measured: join latency (connect until the welcome snapshot arrives), move-to-broadcast
+ * latency (a player sending a move until each session in the room has its delta), messages per
+ * second each way, heap and GC. The report ends with the SLOs and whether each held; the exit
+ * status is 1 when one did not. Server and clients share the JVM, so heap and GC figures cover
+ * both.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.chess.bench.LoadTest [--rooms=1000] [--spectators=1]
+ *     [--duration-s=60] [--ramp-s=10] [--think-ms=200] [--games=file.pgn|file.archive]
+ *     [--slo-join-p99-ms=250] [--slo-move-p99-ms=50] [--slo-move-p999-ms=250] [--report=file]
+ * </pre>
+ */
+public final class LoadTest {
+    private static final Logger QUIET = Logger.getLogger("com.example.chess"); // held so the level sticks
+
+    private final Options options;
+    private final List<String[]> games;
+    private final URI base;
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final ScheduledExecutorService timer = Executors.newScheduledThreadPool(2, r -> {
+        Thread t = new Thread(r, "load-timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Histogram joins = new Histogram();
+    private final Histogram moves = new Histogram();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder live = new LongAdder();
+    private final LongAdder failed = new LongAdder(); // connections that never opened
+    private final LongAdder dropped = new LongAdder(); // closed by the server or the network mid-game
+    private final LongAdder errors = new LongAdder(); // error frames
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder played = new LongAdder();
+    private volatile boolean stopping;
+
+    record Options(int rooms, int spectators, int durationSeconds, int rampSeconds, long thinkMillis, String games,
+                   double sloJoinP99Millis, double sloMoveP99Millis, double sloMoveP999Millis, String report) {
+
+        static Options parse(String[] args) {
+            Map<String, String> m = new HashMap<>();
+            for (String a : args) {
+                if (!a.startsWith("--") || a.indexOf('=') < 0) throw new IllegalArgumentException("Expected --name=value: " + a);
+                m.put(a.substring(2, a.indexOf('=')), a.substring(a.indexOf('=') + 1));
+            }
+            Options o = new Options(
+                    Integer.parseInt(m.getOrDefault("rooms", "1000")),
+                    Integer.parseInt(m.getOrDefault("spectators", "1")),
+                    Integer.parseInt(m.getOrDefault("duration-s", "60")),
+                    Integer.parseInt(m.getOrDefault("ramp-s", "10")),
+                    Long.parseLong(m.getOrDefault("think-ms", "200")),
+                    m.get("games"),
+                    Double.parseDouble(m.getOrDefault("slo-join-p99-ms", "250")),
+                    Double.parseDouble(m.getOrDefault("slo-move-p99-ms", "50")),
+                    Double.parseDouble(m.getOrDefault("slo-move-p999-ms", "250")),
+                    m.get("report"));
+            m.keySet().removeAll(List.of("rooms", "spectators", "duration-s", "ramp-s", "think-ms", "games",
+                    "slo-join-p99-ms", "slo-move-p99-ms", "slo-move-p999-ms", "report"));
+            if (!m.isEmpty()) throw new IllegalArgumentException("Unknown options " + m.keySet());
+            return o;
+        }
+    }
+
+    private LoadTest(Options options, List<String[]> games, int port) {
+        this.options = options;
+        this.games = games;
+        this.base = URI.create("ws://127.0.0.1:" + port + "/ws/chess/");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        List<String[]> games = loadGames(options.games());
+        if (games.isEmpty()) throw new IllegalStateException("No playable games in " + options.games());
+        QUIET.setLevel(Level.WARNING);
+        // As arguments, which take precedence over application.properties
+        ConfigurableApplicationContext server = new SpringApplicationBuilder(ServerApplication.class)
+                .run("--server.port=0", "--chess.metrics.port=-1", "--logging.level.com.example.chess=WARN",
+                        "--chess.rooms.max=" + Math.max(10_000, 4 * options.rooms()));
+        int breaches;
+        try {
+            int port = ((WebServerApplicationContext) server).getWebServer().getPort();
+            breaches = new LoadTest(options, games, port).run();
+        } finally {
+            server.close();
+        }
+        System.exit(breaches == 0 ? 0 : 1);
+    }
+
+    // ---- Games
+
+    /**
+     * Each game as the move frames its players send, in order. Reads a PGN file or a game
+     * archive; without one, the few classic games bundled as {@code games.pgn}.
+     */
+    static List<String[]> loadGames(String file) throws IOException {
+        List<String[]> out = new ArrayList<>();
+        if (file != null && file.endsWith(".archive")) {
+            try (GameArchive archive = GameArchive.open(Path.of(file))) {
+                for (GameRecord g : archive) {
+                    String[] frames = new String[g.moves().length];
+                    for (int i = 0; i < frames.length; i++) frames[i] = frame(g.moves()[i]);
+                    if (frames.length > 0) out.add(frames);
+                }
+            }
+            return out;
+        }
+        Reader in = file != null ? Files.newBufferedReader(Path.of(file))
+                : new InputStreamReader(LoadTest.class.getResourceAsStream("/games.pgn"), StandardCharsets.UTF_8);
+        San san = new San();
+        try (PgnReader pgn = new PgnReader(in)) {
+            for (PgnGame g; (g = pgn.next()) != null; ) {
+                Board board = Board.initial();
+                List<String> frames = new ArrayList<>();
+                for (String text : g.moves()) {
+                    int m = san.parse(board, text);
+                    if (m == Moves.NONE) break; // keep the legal prefix
+                    frames.add(frame(m));
+                    board.makeMove(m);
+                }
+                if (!frames.isEmpty()) out.add(frames.toArray(new String[0]));
+            }
+        }
+        return out;
+    }
+
+    private static String frame(int move) {
+        Type promotion = Moves.promotion(move);
+        return "{\"type\":\"move\",\"from\":\"" + Position.of(Moves.from(move)).toAlgebraic()
+                + "\",\"to\":\"" + Position.of(Moves.to(move)).toAlgebraic() + "\""
+                + (promotion != null ? ",\"promotion\":\"" + promotion.name() + "\"" : "") + "}";
+    }
+
+    // ---- Run
+
+    private int run() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        long[] gcCounts = new long[collectors.size()];
+        long[] gcMillis = new long[collectors.size()];
+        for (int i = 0; i < collectors.size(); i++) {
+            gcCounts[i] = collectors.get(i).getCollectionCount();
+            gcMillis[i] = collectors.get(i).getCollectionTime();
+        }
+        long[] maxHeap = new long[1];
+        timer.scheduleAtFixedRate(() -> maxHeap[0] = Math.max(maxHeap[0], memory.getHeapMemoryUsage().getUsed()),
+                0, 100, TimeUnit.MILLISECONDS);
+
+        List<Room> rooms = new ArrayList<>();
+        long rampNanos = TimeUnit.SECONDS.toNanos(options.rampSeconds());
+        for (int i = 0; i < options.rooms(); i++) {
+            Room room = new Room(i);
+            rooms.add(room);
+            timer.schedule(room::start, rampNanos * i / Math.max(1, options.rooms()), TimeUnit.NANOSECONDS);
+        }
+        long start = System.nanoTime();
+        long lastSent = 0, lastReceived = 0;
+        for (int s = 5; s <= options.durationSeconds(); s += 5) {
+            TimeUnit.NANOSECONDS.sleep(start + TimeUnit.SECONDS.toNanos(s) - System.nanoTime());
+            long nowSent = sent.sum(), nowReceived = received.sum();
+            System.out.printf(Locale.ROOT, "%4ds  %6d sessions  %6d moves  %8.0f msg/s out  %8.0f msg/s in  p99 move %s%n",
+                    s, live.sum(), played.sum(), (nowSent - lastSent) / 5.0,
+                    (nowReceived - lastReceived) / 5.0, millis(moves.quantile(0.99)));
+            lastSent = nowSent;
+            lastReceived = nowReceived;
+        }
+        TimeUnit.NANOSECONDS.sleep(Math.max(0, start + TimeUnit.SECONDS.toNanos(options.durationSeconds()) - System.nanoTime()));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long totalSent = sent.sum(), totalReceived = received.sum();
+        stopping = true;
+        for (Room room : rooms) room.close();
+
+        StringBuilder gc = new StringBuilder();
+        for (int i = 0; i < collectors.size(); i++) {
+            if (gc.length() > 0) gc.append(", ");
+            gc.append(collectors.get(i).getName()).append(' ')
+                    .append(collectors.get(i).getCollectionCount() - gcCounts[i]).append(" collections ")
+                    .append(collectors.get(i).getCollectionTime() - gcMillis[i]).append(" ms");
+        }
+        return report(seconds, totalSent, totalReceived, maxHeap[0], memory.getHeapMemoryUsage().getMax(), gc.toString());
+    }
+
+    // ---- Report
+
+    private int report(double seconds, long totalSent, long totalReceived, long maxHeap, long heapLimit, String gc) {
+        StringBuilder r = new StringBuilder();
+        line(r, "Load test: %d rooms, 2 players + %d spectators each, %.0f s (ramp-up %d s), think time %d ms, %d games",
+                options.rooms(), options.spectators(), seconds, options.rampSeconds(), options.thinkMillis(), games.size());
+        line(r, "Sessions        %d opened, %d failed to connect, %d dropped", opened.sum(), failed.sum(), dropped.sum());
+        line(r, "Games           %d finished, %d moves, %d error frames", finished.sum(), played.sum(), errors.sum());
+        line(r, "Join            %s", distribution(joins));
+        line(r, "Move->broadcast %s", distribution(moves));
+        line(r, "Messages        %.0f/s sent, %.0f/s received", totalSent / seconds, totalReceived / seconds);
+        line(r, "Heap            max %d MB used of %d MB", maxHeap >> 20, heapLimit >> 20);
+        line(r, "GC              %s", gc);
+        Metrics server = Metrics.getInstance();
+        line(r, "Server          room handling %s", distribution(server.histogram("chess_room_message_seconds", "")));
+        line(r, "                mailbox wait  %s", distribution(server.histogram("chess_room_queue_seconds", "")));
+        line(r, "                ws send       %s", distribution(server.histogram("chess_ws_send_seconds", "")));
+        line(r, "SLOs");
+        int breaches = 0;
+        breaches += slo(r, "join p99", joins.quantile(0.99), options.sloJoinP99Millis());
+        breaches += slo(r, "move-to-broadcast p99", moves.quantile(0.99), options.sloMoveP99Millis());
+        breaches += slo(r, "move-to-broadcast p99.9", moves.quantile(0.999), options.sloMoveP999Millis());
+        long faults = failed.sum() + dropped.sum() + errors.sum();
+        line(r, "  %-26s %10d   <= %-10d %s", "failed/dropped/errors", faults, 0, faults == 0 ? "ok" : "BREACH");
+        if (faults > 0) breaches++;
+        line(r, breaches == 0 ? "PASS" : "FAIL: %d SLO breach(es)", breaches);
+
+        System.out.print(r);
+        if (options.report() != null) {
+            try {
+                Files.writeString(Path.of(options.report()), r);
+            } catch (IOException e) {
+                System.err.println("Cannot write the report to " + options.report() + ": " + e);
+            }
+        }
+        return breaches;
+    }
+
+    private static int slo(StringBuilder r, String name, long nanos, double limitMillis) {
+        boolean ok = nanos / 1e6 <= limitMillis;
+        line(r, "  %-26s %10s   <= %-10s %s", name, millis(nanos), limitMillis + " ms", ok ? "ok" : "BREACH");
+        return ok ? 0 : 1;
+    }
+
+    private static String distribution(Histogram h) {
+        return String.format(Locale.ROOT, "n=%d  p50 %s  p99 %s  p99.9 %s  max %s", h.count(), millis(h.quantile(0.5)),
+                millis(h.quantile(0.99)), millis(h.quantile(0.999)), millis(h.quantile(1)));
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f ms", nanos / 1e6);
+    }
+
+    private static void line(StringBuilder r, String format, Object... args) {
+        r.append(String.format(Locale.ROOT, format, args)).append('\n');
+    }
+
+    // ---- Simulated rooms
+
+    /** One room's players and spectators; restarted under a new id whenever its game ends. */
+    private final class Room {
+        private final int index;
+        private int generation;
+        private String[] game;
+        private List<Client> clients = List.of();
+        private final Client[] players = new Client[2]; // by color, once their snapshots say which
+        private final AtomicInteger waiting = new AtomicInteger(); // clients not yet joined
+        private int next; // index of the next move to send
+        private long sentAt; // System.nanoTime() the last move was sent
+
+        Room(int index) {
+            this.index = index;
+        }
+
+        synchronized void start() {
+            if (stopping) return;
+            generation++;
+            game = games.get(ThreadLocalRandom.current().nextInt(games.size()));
+            next = 0;
+            players[0] = players[1] = null;
+            int count = 2 + options.spectators();
+            waiting.set(count);
+            List<Client> list = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) list.add(new Client(this, generation, "player-" + index + "-" + i));
+            clients = list;
+            URI uri = base.resolve("load-" + index + "-" + generation);
+            for (Client c : list) c.connect(uri);
+        }
+
+        synchronized void joined(Client c, String self) {
+            if (c.generation != generation) return;
+            if (self.equals("WHITE")) players[0] = c;
+            else if (self.equals("BLACK")) players[1] = c;
+            if (waiting.decrementAndGet() == 0) scheduleMove();
+        }
+
+        /** A delta for move {@code seq} arrived at {@code c}. */
+        synchronized void delta(Client c, long seq, String turn, String status) {
+            if (c.generation != generation || seq != next) return; // a previous game's, or not the move in flight
+            moves.record(System.nanoTime() - sentAt);
+            Client mover = turn.equals("WHITE") ? players[0] : players[1];
+            if (c != mover) return; // the player to move answers; everyone else just watches
+            if (!status.equals("ONGOING") || next == game.length) {
+                finish();
+            } else {
+                scheduleMove();
+            }
+        }
+
+        private void scheduleMove() {
+            timer.schedule(this::sendMove, options.thinkMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void sendMove() {
+            if (stopping) return;
+            Client mover = players[next & 1];
+            if (mover == null) { // a seat went to someone else; not expected with fresh room ids
+                finish();
+                return;
+            }
+            sentAt = System.nanoTime();
+            mover.send(game[next++]);
+            played.increment();
+        }
+
+        synchronized void finish() {
+            finished.increment();
+            close();
+            start();
+        }
+
+        synchronized void close() {
+            for (Client c : clients) c.close();
+        }
+    }
+
+    private final class Client implements WebSocket.Listener {
+        private final Room room;
+        private final int generation;
+        private final String name;
+        private final StringBuilder partial = new StringBuilder();
+        private long connectStart;
+        private boolean joined;
+        private volatile boolean closing;
+        private CompletableFuture<WebSocket> tail; // sends are chained: one in flight per socket
+
+        Client(Room room, int generation, String name) {
+            this.room = room;
+            this.generation = generation;
+            this.name = name;
+        }
+
+        void connect(URI uri) {
+            connectStart = System.nanoTime();
+            http.newWebSocketBuilder().buildAsync(uri, this).whenComplete((ws, e) -> {
+                if (e != null) failed.increment();
+            });
+        }
+
+        @Override
+        public void onOpen(WebSocket ws) {
+            opened.increment();
+            live.increment();
+            synchronized (this) {
+                tail = CompletableFuture.completedFuture(ws);
+                if (closing) { // the room moved on while this socket was connecting
+                    tail = tail.thenCompose(w -> w.sendClose(WebSocket.NORMAL_CLOSURE, "done"));
+                    return;
+                }
+            }
+            send("{\"type\":\"join\",\"name\":\"" + name + "\"}");
+            ws.request(1);
+        }
+
+        synchronized void send(String text) {
+            if (tail == null || closing) return;
+            sent.increment();
+            tail = tail.thenCompose(ws -> ws.sendText(text, true));
+        }
+
+        synchronized void close() {
+            closing = true;
+            if (tail != null) tail = tail.thenCompose(ws -> ws.sendClose(WebSocket.NORMAL_CLOSURE, "done"));
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                String text = partial.toString();
+                partial.setLength(0);
+                received.increment();
+                handle(text);
+            }
+            ws.request(1);
+            return null;
+        }
+
+        private void handle(String text) {
+            switch (field(text, "type")) {
+                case "state" -> {
+                    if (joined) return;
+                    joined = true;
+                    joins.recordSince(connectStart);
+                    room.joined(this, field(text, "self"));
+                }
+                case "delta" -> room.delta(this, Long.parseLong(field(text, "seq")), field(text, "turn"), field(text, "status"));
+                case "error" -> errors.increment();
+                default -> { } // info
+            }
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket ws, int status, String reason) {
+            live.decrement();
+            if (!closing && !stopping) dropped.increment();
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket ws, Throwable error) {
+            live.decrement();
+            if (!closing && !stopping) dropped.increment();
+        }
+    }
+
+    /** The value of a top-level string or number field in one of the server's frames, or "". */
+    static String field(String json, String name) {
+        String key = "\"" + name + "\":";
+        int i = json.indexOf(key);
+        if (i < 0) return "";
+        i += key.length();
+        if (json.charAt(i) == '"') return json.substring(i + 1, json.indexOf('"', i + 1));
+        int end = i;
+        while (end < json.length() && (Character.isDigit(json.charAt(end)) || json.charAt(end) == '-')) end++;
+        return json.substring(i, end);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.chess.bench;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonValue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files, such as the {@code jmh-result.json} of two builds, and
+ * prints each benchmark's score and allocation per operation side by side. A change counts as
+ * a regression when it is worse by more than the tolerance and the two scores' error margins
+ * do not overlap; the exit status is then 1, so a build can fail on it.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.chess.bench.ResultDiff base.json new.json [tolerancePercent=10]
+ * </pre>
+ */
+public final class ResultDiff {
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    record Score(double value, double error, String unit, boolean higherIsBetter) {}
+
+    private ResultDiff() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ResultDiff <base.json> <new.json> [tolerancePercent=10]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.10;
+        Map<String, Score> base = read(Path.of(args[0]));
+        Map<String, Score> next = read(Path.of(args[1]));
+        int regressions = 0;
+        System.out.printf(Locale.ROOT, "%-90s %14s %14s %8s%n", "benchmark", "base", "new", "change");
+        for (Map.Entry<String, Score> e : next.entrySet()) {
+            Score b = base.get(e.getKey());
+            Score n = e.getValue();
+            if (b == null) {
+                System.out.printf(Locale.ROOT, "%-90s %14s %14.3f %8s%n", e.getKey(), "-", n.value(), "new");
+                continue;
+            }
+            double change = b.value() == 0 ? 0 : (n.value() - b.value()) / b.value();
+            boolean worse = n.higherIsBetter() ? change < -tolerance : change > tolerance;
+            boolean separated = Math.abs(n.value() - b.value()) > b.error() + n.error();
+            boolean regressed = worse && separated;
+            if (regressed) regressions++;
+            System.out.printf(Locale.ROOT, "%-90s %14.3f %14.3f %+7.1f%% %s%s%n", e.getKey(), b.value(), n.value(),
+                    change * 100, n.unit(), regressed ? "  REGRESSION" : "");
+        }
+        System.out.println(regressions == 0 ? "No regressions." : regressions + " regression(s).");
+        if (regressions > 0) System.exit(1);
+    }
+
+    /** Scores by benchmark, parameters and metric: the primary score, and allocation per operation when profiled. */
+    static Map<String, Score> read(Path file) throws IOException {
+        Map<String, Score> out = new TreeMap<>();
+        try (Reader in = Files.newBufferedReader(file); JsonReader reader = Json.createReader(in)) {
+            JsonArray runs = reader.readArray();
+            for (JsonValue v : runs) {
+                JsonObject run = v.asJsonObject();
+                String name = run.getString("benchmark") + params(run) + " [" + run.getString("mode") + "]";
+                boolean throughput = run.getString("mode").equals("thrpt");
+                out.put(name, score(run.getJsonObject("primaryMetric"), throughput));
+                JsonObject secondary = run.getJsonObject("secondaryMetrics");
+                if (secondary == null) continue;
+                for (String metric : secondary.keySet()) {
+                    // Older JMH versions prefix profiler metrics with a middle dot
+                    if (metric.replace("·", "").equals(ALLOCATION)) {
+                        out.put(name + " " + ALLOCATION, score(secondary.getJsonObject(metric), false));
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    private static String params(JsonObject run) {
+        JsonObject params = run.getJsonObject("params");
+        if (params == null || params.isEmpty()) return "";
+        Map<String, String> sorted = new LinkedHashMap<>();
+        for (String k : new TreeMap<>(params).keySet()) sorted.put(k, params.getString(k));
+        return sorted.toString();
+    }
+
+    private static Score score(JsonObject metric, boolean higherIsBetter) {
+        double error = metric.get("scoreError").getValueType() == JsonValue.ValueType.NUMBER
+                ? metric.getJsonNumber("scoreError").doubleValue() : 0; // "NaN" with a single iteration
+        return new Score(metric.getJsonNumber("score").doubleValue(), error, metric.getString("scoreUnit"), higherIsBetter);
+    }
+}
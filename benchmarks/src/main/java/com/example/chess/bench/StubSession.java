@@ -0,0 +1,54 @@
+package com.example.chess.bench;
+
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WebSocket sessions without a network: every async send completes at once, on the sending
+ * thread, and is only counted. What a benchmark measures is then the server's own work per
+ * frame, not a socket's.
+ */
+public final class StubSession {
+    private StubSession() {}
+
+    /** An open session called {@code id} whose sends add to {@code sent}. */
+    public static Session open(String id, LongAdder sent) {
+        Map<String, Object> properties = new ConcurrentHashMap<>();
+        RemoteEndpoint.Async remote = (RemoteEndpoint.Async) Proxy.newProxyInstance(
+                StubSession.class.getClassLoader(), new Class<?>[]{RemoteEndpoint.Async.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("sendText") && args.length == 2) {
+                        sent.increment();
+                        ((SendHandler) args[1]).onResult(new SendResult());
+                        return null;
+                    }
+                    return identity(proxy, method.getName(), args);
+                });
+        return (Session) Proxy.newProxyInstance(
+                StubSession.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "getUserProperties" -> properties;
+                    case "getAsyncRemote" -> remote;
+                    case "isOpen" -> true;
+                    case "close" -> null;
+                    default -> identity(proxy, method.getName(), args);
+                });
+    }
+
+    private static Object identity(Object proxy, String method, Object[] args) {
+        return switch (method) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "toString" -> "StubSession@" + Integer.toHexString(System.identityHashCode(proxy));
+            default -> throw new UnsupportedOperationException(method);
+        };
+    }
+}
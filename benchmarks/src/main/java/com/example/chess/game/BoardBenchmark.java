@@ -0,0 +1,98 @@
+package com.example.chess.game;
+
+import com.example.chess.engine.Engine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move validation on middlegame positions. Each position is played out for up to
+ * {@value #LINE_PLIES} plies by the engine at a shallow depth, and the benchmarks replay that
+ * line: {@code applyMoveIfLegal} plays its next move (starting over from a copy of the position
+ * once the line is used up, one copy per line), and {@code isKingInCheck} asks about each
+ * position of the line in turn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+    private static final int LINE_PLIES = 40;
+    private static final Map<String, String> POSITIONS = Map.of(
+            "kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "italian", "r1bq1rk1/ppp2ppp/2np1n2/2b1p3/2B1P3/2PP1N2/PP3PPP/RNBQ1RK1 w - - 0 7",
+            "perft6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10");
+
+    @Param({"kiwipete", "italian", "perft6"})
+    public String position;
+
+    private Board start;
+    private Position[] from;
+    private Position[] to;
+    private Type[] promotion;
+    private Board[] line; // the position before each move of the line
+    private Board board;
+    private int next;
+    private int probe;
+
+    @Setup
+    public void setup() {
+        start = Board.fromFen(POSITIONS.get(position));
+        Engine engine = new Engine(1);
+        Board b = start.copy();
+        List<Integer> moves = new ArrayList<>();
+        List<Board> before = new ArrayList<>();
+        while (moves.size() < LINE_PLIES && b.status() == GameStatus.ONGOING) {
+            int m = engine.search(b, 3).move();
+            if (m == Moves.NONE) break;
+            before.add(b.copy());
+            moves.add(m);
+            b.applyMoveIfLegal(Position.of(Moves.from(m)), Position.of(Moves.to(m)), Moves.promotion(m));
+        }
+        int n = moves.size();
+        from = new Position[n];
+        to = new Position[n];
+        promotion = new Type[n];
+        for (int i = 0; i < n; i++) {
+            int m = moves.get(i);
+            from[i] = Position.of(Moves.from(m));
+            to[i] = Position.of(Moves.to(m));
+            promotion[i] = Moves.promotion(m);
+        }
+        line = before.toArray(new Board[0]);
+        board = start.copy();
+        next = 0;
+    }
+
+    @Benchmark
+    public boolean applyMoveIfLegal() {
+        if (next == from.length) {
+            board = start.copy();
+            next = 0;
+        }
+        int i = next++;
+        return board.applyMoveIfLegal(from[i], to[i], promotion[i]);
+    }
+
+    @Benchmark
+    public boolean isKingInCheck() {
+        Board b = line[probe];
+        if (++probe == line.length) probe = 0;
+        return b.isKingInCheck(b.getTurn());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.chess.service;
+
+import com.example.chess.bench.StubSession;
+import com.example.chess.clock.TimingWheel;
+import com.example.chess.cluster.Cluster;
+import com.example.chess.game.Position;
+import com.example.chess.journal.Journal;
+import jakarta.websocket.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link GameRoom#broadcastState} for a room with 1, 100 and 10,000 sessions: diffing the board,
+ * encoding the delta once and handing it to every session's outbox. The room runs on a direct
+ * executor and its sessions are {@link StubSession}s, so a send is the outbox's bookkeeping
+ * alone. Setup joins the sessions one by one and plays 1.e4; the 10,000-session room takes a
+ * while to fill, since every join is announced to everyone already there.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+    @Param({"1", "100", "10000"})
+    public int sessions;
+
+    private final LongAdder sent = new LongAdder();
+    private GameRoom room;
+    private final Position from = Position.fromAlgebraic("e2");
+    private final Position to = Position.fromAlgebraic("e4");
+
+    @Setup
+    public void setup() {
+        room = new GameRoom("bench", Runnable::run, Journal.disabled().create("bench"), game -> {}, null,
+                new MoveHints(64), Cluster.standalone(), TimingWheel.start(10));
+        Session white = StubSession.open("white", sent);
+        room.join(white);
+        for (int i = 1; i < sessions; i++) room.join(StubSession.open("session-" + i, sent));
+        room.handleMessage(white, "{\"type\":\"move\",\"from\":\"e2\",\"to\":\"e4\"}");
+        if (room.state() != RoomState.ACTIVE && sessions > 1) throw new IllegalStateException("1.e4 was not played");
+    }
+
+    @Benchmark
+    public long broadcastState() {
+        room.broadcastState(from, to, "Player (WHITE) played e2-e4.");
+        return sent.sum();
+    }
+}
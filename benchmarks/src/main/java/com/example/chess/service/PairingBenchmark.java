@@ -0,0 +1,103 @@
+package com.example.chess.service;
+
+import com.example.chess.bench.StubSession;
+import com.example.chess.clock.TimeControl;
+import com.example.chess.clock.TimingWheel;
+import com.example.chess.cluster.Cluster;
+import com.example.chess.journal.Journal;
+import jakarta.websocket.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Seeks through the {@link Matchmaker} from four threads at once, ratings normally spread
+ * around 1500 over three popular time controls, so most seeks find an opponent waiting and
+ * pair on the spot. Sampled, the scores are the latency of one seek, pairing included; pairs
+ * per second are half the seeks per second. {@code seek} hands pairs to a callback that does
+ * nothing; {@code seekIntoRoom} opens a room through {@link GameRoomManager#startMatch}, seats
+ * the pair, and closes it again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PairingBenchmark {
+    private static final TimeControl[] CONTROLS = {TimeControl.parse("3+2"), TimeControl.parse("5+3"),
+            TimeControl.parse("10+0")};
+    private static final int SAMPLES = 1 << 16;
+
+    private Matchmaker alone;
+    private Matchmaker rooms;
+    private GameRoomManager manager;
+
+    @State(Scope.Thread)
+    public static class Seeker {
+        final Session[] sessions = new Session[64]; // a pair may be two seeks from one thread, so not one session
+        final int[] ratings = new int[SAMPLES];
+        int next;
+
+        @Setup
+        public void setup() {
+            Random random = new Random(Thread.currentThread().getId());
+            for (int i = 0; i < sessions.length; i++) {
+                sessions[i] = StubSession.open("seeker-" + Thread.currentThread().getId() + "-" + i, new LongAdder());
+            }
+            for (int i = 0; i < SAMPLES; i++) {
+                ratings[i] = (int) Math.max(0, Math.min(Matchmaker.MAX_RATING - 1, 1500 + 300 * random.nextGaussian()));
+            }
+        }
+
+        int rating() {
+            next = (next + 1) & (SAMPLES - 1);
+            return ratings[next];
+        }
+
+        Session session() {
+            return sessions[next & (sessions.length - 1)];
+        }
+    }
+
+    @Setup
+    public void setup() {
+        alone = new Matchmaker(100, 50, 400, 250, (white, black) -> {});
+        manager = new GameRoomManager(new RoomExecutor(1), Journal.disabled(), null, null, new MoveHints(64),
+                Cluster.standalone(), TimingWheel.start(10), 1_000_000, 3_600_000, 3_600_000, 3_600_000);
+        rooms = new Matchmaker(100, 50, 400, 250, (white, black) -> {
+            GameRoom room = manager.startMatch(white, black);
+            manager.leave(room, white.session);
+            manager.leave(room, black.session);
+        });
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Seek seek(Seeker seeker) {
+        return alone.seek(seeker.session(), null, seeker.rating(), control());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Seek seekIntoRoom(Seeker seeker) {
+        return rooms.seek(seeker.session(), null, seeker.rating(), control());
+    }
+
+    private static TimeControl control() {
+        return CONTROLS[ThreadLocalRandom.current().nextInt(CONTROLS.length)];
+    }
+}
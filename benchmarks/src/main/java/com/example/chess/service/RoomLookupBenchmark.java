@@ -0,0 +1,89 @@
+package com.example.chess.service;
+
+import com.example.chess.bench.StubSession;
+import com.example.chess.clock.TimingWheel;
+import com.example.chess.cluster.Cluster;
+import com.example.chess.journal.Journal;
+import jakarta.websocket.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Room lookup in {@link GameRoomManager} across {@value #ROOMS} live rooms, from four threads at
+ * once: {@code find} alone, and {@code find} while another thread joins and leaves the same rooms,
+ * which takes their ids' locks in the map. Joins and leaves are handled by the rooms on a
+ * {@link RoomExecutor} of their own, as in the server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomLookupBenchmark {
+    private static final int ROOMS = 10_000;
+    private static final int STRIDE = 7_919; // prime, so a cursor visits every room before repeating
+
+    private final LongAdder sent = new LongAdder();
+    private GameRoomManager manager;
+    private String[] ids;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = ThreadLocalRandom.current().nextInt(ROOMS);
+        final Session session = StubSession.open("churn-" + Thread.currentThread().getId(), new LongAdder());
+
+        int advance() {
+            next = (next + STRIDE) % ROOMS;
+            return next;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        manager = new GameRoomManager(new RoomExecutor(1), Journal.disabled(), null, null, new MoveHints(64),
+                Cluster.standalone(), TimingWheel.start(10), 2 * ROOMS, 3_600_000, 3_600_000, 3_600_000);
+        ids = new String[ROOMS];
+        for (int i = 0; i < ROOMS; i++) {
+            ids[i] = "room-" + i;
+            manager.join(ids[i], StubSession.open("player-" + i, sent));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public GameRoom find(Cursor cursor) {
+        return manager.find(ids[cursor.advance()]);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public GameRoom contendedFind(Cursor cursor) {
+        return manager.find(ids[cursor.advance()]);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public GameRoom contendedJoinLeave(Cursor cursor) {
+        GameRoom room = manager.join(ids[cursor.advance()], cursor.session);
+        manager.leave(room, cursor.session);
+        return room;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.chess.util;
+
+import com.example.chess.game.Board;
+import com.example.chess.game.Moves;
+import com.example.chess.game.Position;
+import com.example.chess.ws.dto.ClientMessage;
+import com.example.chess.ws.dto.ServerMessage;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Json} on the frames the server handles: a client's move, and the state and delta
+ * frames of a game in its middlegame, legal-move hints included. The server only encodes
+ * server frames; their round trips decode them with Yasson, as a Java client would. The
+ * {@code yasson} benchmarks are the baselines {@link MessageCodec} replaced: a shared Yasson
+ * instance, and a new one per call as {@code Json} once built.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonRoundTripBenchmark {
+    private static final String FEN = "r1bq1rk1/ppp2ppp/2np1n2/2b1p3/2B1P3/2PP1N2/PP3PPP/RNBQ1RK1 w - - 0 7";
+
+    private ClientMessage move;
+    private String moveJson;
+    private ServerMessage state;
+    private ServerMessage delta;
+    private Jsonb yasson;
+
+    @Setup
+    public void setup() {
+        yasson = JsonbBuilder.create();
+        move = new ClientMessage();
+        move.type = "move";
+        move.from = "f3";
+        move.to = "g5";
+        moveJson = Json.toJson(move);
+        Board board = Board.fromFen(FEN);
+        String[][] legal = legal(board);
+        state = ServerMessage.state(12, board.toStringBoard(), "WHITE", "WHITE", "ONGOING", legal,
+                "Player (BLACK) played d7-d6.");
+        delta = ServerMessage.delta(13, "f3", "g5", null, null, new String[][]{{"f3", null}, {"g5", "wN"}},
+                "BLACK", "ONGOING", legal, "Player (WHITE) played f3-g5.");
+    }
+
+    /** The hints {@code MoveHints} would send: each movable piece's square, then its destinations. */
+    private static String[][] legal(Board board) {
+        int[] buffer = new int[Moves.MAX_MOVES];
+        int n = board.generateLegalMoves(buffer);
+        List<String[]> hints = new ArrayList<>();
+        for (int sq = 0; sq < 64; sq++) {
+            List<String> hint = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (Moves.from(buffer[i]) != sq) continue;
+                String target = Position.of(Moves.to(buffer[i])).toAlgebraic();
+                if (hint.isEmpty()) hint.add(Position.of(sq).toAlgebraic());
+                if (!hint.contains(target)) hint.add(target);
+            }
+            if (!hint.isEmpty()) hints.add(hint.toArray(new String[0]));
+        }
+        return hints.toArray(new String[0][]);
+    }
+
+    @Benchmark
+    public ClientMessage decodeClientMove() throws Exception {
+        return Json.fromJson(moveJson, ClientMessage.class);
+    }
+
+    @Benchmark
+    public ClientMessage clientMoveRoundTrip() throws Exception {
+        return Json.fromJson(Json.toJson(move), ClientMessage.class);
+    }
+
+    @Benchmark
+    public String encodeState() {
+        return Json.toJson(state);
+    }
+
+    @Benchmark
+    public String encodeDelta() {
+        return Json.toJson(delta);
+    }
+
+    @Benchmark
+    public ServerMessage stateRoundTrip() throws Exception {
+        return Json.fromJson(Json.toJson(state), ServerMessage.class);
+    }
+
+    @Benchmark
+    public ServerMessage deltaRoundTrip() throws Exception {
+        return Json.fromJson(Json.toJson(delta), ServerMessage.class);
+    }
+
+    @Benchmark
+    public ClientMessage decodeClientMoveSharedYasson() {
+        return yasson.fromJson(moveJson, ClientMessage.class);
+    }
+
+    @Benchmark
+    public ClientMessage decodeClientMoveYassonPerCall() throws Exception {
+        try (Jsonb jsonb = JsonbBuilder.create()) {
+            return jsonb.fromJson(moveJson, ClientMessage.class);
+        }
+    }
+
+    @Benchmark
+    public String encodeStateSharedYasson() {
+        return yasson.toJson(state);
+    }
+
+    @Benchmark
+    public String encodeStateYassonPerCall() throws Exception {
+        try (Jsonb jsonb = JsonbBuilder.create()) {
+            return jsonb.toJson(state);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        yasson.close();
+    }
+}
@@ -8,15 +8,20 @@ interface ChessBoardProps {
   onMove: (from: string, to: string, promotion?: string) => void;
   game: Chess;
   isMyTurn: boolean;
+  // Server-sent legal destinations by origin square; preferred over local move generation
+  legal?: Record<string, string[]> | null;
 }
 
-const ChessBoard: React.FC<ChessBoardProps> = ({ onMove, game, isMyTurn }) => {
+const ChessBoard: React.FC<ChessBoardProps> = ({ onMove, game, isMyTurn, legal }) => {
   const [selectedSquare, setSelectedSquare] = useState<string | null>(null);
   const [validMoves, setValidMoves] = useState<string[]>([]);
 
   const files = ['a', 'b', 'c', 'd', 'e', 'f', 'g', 'h'];
   const ranks = ['8', '7', '6', '5', '4', '3', '2', '1'];
 
+  const destinations = (square: string): string[] =>
+    legal ? legal[square] ?? [] : game.moves({ square: square as Square, verbose: true }).map(move => move.to);
+
   const getPieceSymbol = (piece: any) => {
     const symbols: { [key: string]: string } = {
       'k': '♔', 'q': '♕', 'r': '♖', 'b': '♗', 'n': '♘', 'p': '♙',
@@ -64,8 +69,7 @@ const ChessBoard: React.FC<ChessBoardProps> = ({ onMove, game, isMyTurn }) => {
         const piece = game.get(square as Square);
         if (piece && piece.color === game.turn()) {
           setSelectedSquare(square);
-          const moves = game.moves({ square: square as Square, verbose: true });
-          setValidMoves(moves.map(move => move.to));
+          setValidMoves(destinations(square));
         } else {
           // Invalid selection, clear selection
           setSelectedSquare(null);
@@ -82,9 +86,9 @@ const ChessBoard: React.FC<ChessBoardProps> = ({ onMove, game, isMyTurn }) => {
       if (piece && piece.color === game.turn()) {
         console.log('Selecting piece, getting valid moves');
         setSelectedSquare(square);
-        const moves = game.moves({ square: square as Square, verbose: true });
+        const moves = destinations(square);
         console.log('Valid moves:', moves);
-        setValidMoves(moves.map(move => move.to));
+        setValidMoves(moves);
       } else {
         console.log('Cannot select this piece - wrong color or no piece');
       }
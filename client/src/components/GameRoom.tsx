@@ -16,7 +16,7 @@ const GameRoom: React.FC<GameRoomProps> = ({ roomId, playerName, onDisconnect })
   const [game, setGame] = useState(new Chess('rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1'));
   const [gameHistory, setGameHistory] = useState<string[]>([]);
   
-  const { isConnected, role, turn, messages, boardFen, sendMove, disconnect: wsDisconnect } = useWebSocket(roomId, playerName);
+  const { isConnected, role, turn, messages, boardFen, legal, sendMove, disconnect: wsDisconnect } = useWebSocket(roomId, playerName);
 
   // Debug role changes
   useEffect(() => {
@@ -236,6 +236,7 @@ const GameRoom: React.FC<GameRoomProps> = ({ roomId, playerName, onDisconnect })
                 onMove={handleMove}
                 game={game}
                 isMyTurn={isMyTurn}
+                legal={legal}
               />
             </div>
           </div>
@@ -14,15 +14,25 @@ export interface ChessGameState {
   turn: string;
   messages: string[];
   boardFen: string;
+  // Legal destinations by origin square for the side to move, from the server's state and
+  // delta frames; null until the server has sent any
+  legal: Record<string, string[]> | null;
 }
 
+const toLegalMap = (legal?: string[][]): Record<string, string[]> => {
+  const map: Record<string, string[]> = {};
+  for (const [square, ...targets] of legal ?? []) map[square] = targets;
+  return map;
+};
+
 export const useWebSocket = (roomId: string, playerName: string) => {
   const [gameState, setGameState] = useState<ChessGameState>({
     isConnected: false,
     role: '-',
     turn: 'white',
     messages: [],
-    boardFen: 'rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1'
+    boardFen: 'rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1',
+    legal: null
   });
   
   const wsRef = useRef<WebSocket | null>(null);
@@ -77,6 +87,11 @@ export const useWebSocket = (roomId: string, playerName: string) => {
         const data = JSON.parse(event.data);
         console.log('Received message:', data);
         
+        if (data.type === 'state' || data.type === 'delta') {
+          // A frame without hints means the game is over: nothing is movable
+          setGameState(prev => ({ ...prev, legal: toLegalMap(data.legal) }));
+        }
+
         // Handle different message types from server
         if (data.type === 'gameState') {
           console.log('Received gameState message:', data);
@@ -163,7 +178,8 @@ export const useWebSocket = (roomId: string, playerName: string) => {
       role: '-',
       turn: 'white',
       messages: [],
-      boardFen: 'rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1'
+      boardFen: 'rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1',
+      legal: null
     });
   }, []);
 
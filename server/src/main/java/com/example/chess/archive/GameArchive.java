@@ -0,0 +1,201 @@
+package com.example.chess.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static com.example.chess.archive.GameArchiveWriter.BLOCK_HEADER_BYTES;
+import static com.example.chess.archive.GameArchiveWriter.HEADER_BYTES;
+import static com.example.chess.archive.GameArchiveWriter.INDEX_ENTRY_BYTES;
+import static com.example.chess.archive.GameArchiveWriter.MAGIC;
+import static com.example.chess.archive.GameArchiveWriter.TRAILER_BYTES;
+import static com.example.chess.archive.GameArchiveWriter.VERSION;
+
+/**
+ * Reads an archive written by {@link GameArchiveWriter}. {@link #get} decompresses only the
+ * block holding the game (the last block read is kept), and iteration streams the file one
+ * block at a time, so neither needs more than a block of the file in memory. The index is
+ * memory-mapped; for an archive that was never closed it is rebuilt by scanning the blocks,
+ * and a block cut short by a crash is ignored. Not thread-safe.
+ */
+public final class GameArchive implements Closeable, Iterable<GameRecord> {
+    private static final String[] RESULTS = {GameRecord.WHITE_WINS, GameRecord.BLACK_WINS, GameRecord.DRAW,
+            GameRecord.UNKNOWN};
+
+    private final FileChannel channel;
+    private final ByteBuffer index; // INDEX_ENTRY_BYTES per game
+    private final long blocksEnd;   // first byte after the last complete block
+    private final Inflater inflater = new Inflater();
+    private long cachedOffset = -1;
+    private byte[] cached;
+
+    private GameArchive(FileChannel channel, ByteBuffer index, long blocksEnd) {
+        this.channel = channel;
+        this.index = index;
+        this.blocksEnd = blocksEnd;
+    }
+
+    public static GameArchive open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = readAt(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getShort() != VERSION) throw new IOException("Not a game archive: " + file);
+            long size = channel.size();
+            if (size >= HEADER_BYTES + TRAILER_BYTES) {
+                ByteBuffer trailer = readAt(channel, size - TRAILER_BYTES, TRAILER_BYTES);
+                long indexOffset = trailer.getLong();
+                long games = trailer.getLong();
+                if (trailer.getInt() == MAGIC && indexOffset + games * INDEX_ENTRY_BYTES == size - TRAILER_BYTES) {
+                    ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, games * INDEX_ENTRY_BYTES);
+                    return new GameArchive(channel, index, indexOffset);
+                }
+            }
+            return rebuild(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Number of games; ids run from 0 to {@code size() - 1}. */
+    public long size() {
+        return index.capacity() / INDEX_ENTRY_BYTES;
+    }
+
+    public GameRecord get(long id) throws IOException {
+        if (id < 0 || id >= size()) throw new IllegalArgumentException("No game " + id);
+        int at = Math.toIntExact(id * INDEX_ENTRY_BYTES);
+        long blockOffset = index.getLong(at);
+        int position = index.getInt(at + 8);
+        if (blockOffset != cachedOffset) {
+            cached = readBlock(blockOffset);
+            cachedOffset = blockOffset;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(cached, position, cached.length - position));
+        return decode(in);
+    }
+
+    /** Streams every game in id order. I/O errors surface as {@link UncheckedIOException}. */
+    @Override
+    public Iterator<GameRecord> iterator() {
+        return new Iterator<>() {
+            private long offset = HEADER_BYTES; // next block
+            private ByteArrayInputStream block;
+            private DataInputStream in;
+
+            @Override
+            public boolean hasNext() {
+                while (block == null || block.available() == 0) {
+                    if (offset >= blocksEnd) return false;
+                    try {
+                        byte[] raw = readBlock(offset);
+                        offset += BLOCK_HEADER_BYTES + readAt(channel, offset + 4, 4).getInt();
+                        block = new ByteArrayInputStream(raw);
+                        in = new DataInputStream(block);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public GameRecord next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                try {
+                    return decode(in);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+
+    private static GameRecord decode(DataInputStream in) throws IOException {
+        String result = RESULTS[in.readUnsignedByte() & 3];
+        long startedAt = in.readLong();
+        String white = in.readUTF();
+        String black = in.readUTF();
+        int[] moves = new int[in.readUnsignedShort()];
+        for (int i = 0; i < moves.length; i++) moves[i] = in.readUnsignedShort();
+        return new GameRecord(white, black, startedAt, result, moves);
+    }
+
+    private byte[] readBlock(long offset) throws IOException {
+        ByteBuffer header = readAt(channel, offset, BLOCK_HEADER_BYTES);
+        int rawLength = header.getInt();
+        int compressedLength = header.getInt();
+        ByteBuffer compressed = readAt(channel, offset + BLOCK_HEADER_BYTES, compressedLength);
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                int got = inflater.inflate(raw, n, rawLength - n);
+                if (got == 0 && inflater.needsInput()) break;
+                n += got;
+            }
+            if (n != rawLength) throw new IOException("Corrupt archive block at " + offset);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive block at " + offset, e);
+        }
+        return raw;
+    }
+
+    /** Builds the index of an archive without one by walking its blocks. */
+    private static GameArchive rebuild(FileChannel channel) throws IOException {
+        GameArchive scan = new GameArchive(channel, ByteBuffer.allocate(0), Long.MAX_VALUE);
+        ByteBuffer index = ByteBuffer.allocate(64 * INDEX_ENTRY_BYTES);
+        long offset = HEADER_BYTES;
+        long size = channel.size();
+        while (offset + BLOCK_HEADER_BYTES <= size) {
+            int compressedLength = readAt(channel, offset + 4, 4).getInt();
+            if (compressedLength < 0 || offset + BLOCK_HEADER_BYTES + compressedLength > size) break;
+            byte[] raw;
+            try {
+                raw = scan.readBlock(offset);
+            } catch (IOException e) {
+                break; // torn final block
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+            int position = 0;
+            while (position < raw.length) {
+                if (index.remaining() < INDEX_ENTRY_BYTES) {
+                    index = ByteBuffer.allocate(index.capacity() * 2).put(index.flip());
+                }
+                index.putLong(offset).putInt(position);
+                decode(in);
+                position = raw.length - in.available();
+            }
+            offset += BLOCK_HEADER_BYTES + compressedLength;
+        }
+        scan.inflater.end();
+        return new GameArchive(channel, index.flip().slice(), offset);
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) throw new EOFException();
+        }
+        return buf.flip();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.chess.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a game archive. Games are encoded back to back (a small header, then two bytes per
+ * move) into blocks of about {@value #BLOCK_BYTES} bytes, and each block is deflated on its own
+ * so a reader can decompress just the block holding the game it wants. Ids are assigned in
+ * order from 0.
+ * <p>
+ * File layout: {@code [int magic][short version]}, then blocks of {@code [int rawLength]
+ * [int compressedLength][deflated bytes]}, then the index (per game: {@code [long blockOffset]
+ * [int offsetInBlock]}) and a trailer {@code [long indexOffset][long games][int magic]}. An
+ * archive that was never closed has no index; {@link GameArchive} rebuilds it from the blocks.
+ */
+public final class GameArchiveWriter implements Closeable {
+    static final int MAGIC = 0x43484741; // "CHGA"
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 6;
+    static final int BLOCK_HEADER_BYTES = 8;
+    static final int INDEX_ENTRY_BYTES = 12;
+    static final int TRAILER_BYTES = 20;
+    static final int BLOCK_BYTES = 64 * 1024;
+
+    private final FileChannel channel;
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    private final ByteArrayOutputStream raw = new ByteArrayOutputStream(BLOCK_BYTES + 4096);
+    private final DataOutputStream out = new DataOutputStream(raw);
+    private byte[] compressed = new byte[BLOCK_BYTES];
+    private long[] blockOffsets = new long[1024]; // per game
+    private int[] blockPositions = new int[1024]; // per game, within its block
+    private int games;
+    private boolean closed;
+
+    public GameArchiveWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putShort(VERSION).flip();
+        writeFully(header);
+    }
+
+    /** Appends a game and returns its id. */
+    public synchronized long append(GameRecord game) throws IOException {
+        if (closed) throw new IOException("Archive is closed");
+        if (games == blockOffsets.length) {
+            blockOffsets = Arrays.copyOf(blockOffsets, games * 2);
+            blockPositions = Arrays.copyOf(blockPositions, games * 2);
+        }
+        blockOffsets[games] = channel.position();
+        blockPositions[games] = raw.size();
+        encode(game, out);
+        if (raw.size() >= BLOCK_BYTES) flushBlock();
+        return games++;
+    }
+
+    public synchronized long size() {
+        return games;
+    }
+
+    /** Writes the last block and the index. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            flushBlock();
+            long indexOffset = channel.position();
+            ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+            for (int i = 0; i < games; i++) {
+                if (buf.remaining() < INDEX_ENTRY_BYTES) {
+                    writeFully(buf.flip());
+                    buf.clear();
+                }
+                buf.putLong(blockOffsets[i]).putInt(blockPositions[i]);
+            }
+            writeFully(buf.flip());
+            writeFully(ByteBuffer.allocate(TRAILER_BYTES).putLong(indexOffset).putLong(games).putInt(MAGIC).flip());
+            channel.force(true);
+        } finally {
+            deflater.end();
+            channel.close();
+        }
+    }
+
+    static void encode(GameRecord game, DataOutputStream out) throws IOException {
+        out.writeByte(resultCode(game.result()));
+        out.writeLong(game.startedAtMillis());
+        out.writeUTF(game.white() == null ? "" : game.white());
+        out.writeUTF(game.black() == null ? "" : game.black());
+        int[] moves = game.moves();
+        if (moves.length > 0xFFFF) throw new IOException("Game too long to archive: " + moves.length + " moves");
+        out.writeShort(moves.length);
+        for (int m : moves) out.writeShort(m & 0x7FFF); // from, to, promotion; the move flag is not kept
+    }
+
+    static int resultCode(String result) {
+        if (result == null) return 3;
+        return switch (result) {
+            case GameRecord.WHITE_WINS -> 0;
+            case GameRecord.BLACK_WINS -> 1;
+            case GameRecord.DRAW -> 2;
+            default -> 3;
+        };
+    }
+
+    private void flushBlock() throws IOException {
+        if (raw.size() == 0) return;
+        byte[] input = raw.toByteArray();
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        int len = 0;
+        while (!deflater.finished()) {
+            if (len == compressed.length) compressed = Arrays.copyOf(compressed, len * 2);
+            len += deflater.deflate(compressed, len, compressed.length - len);
+        }
+        writeFully(ByteBuffer.allocate(BLOCK_HEADER_BYTES).putInt(input.length).putInt(len).flip());
+        writeFully(ByteBuffer.wrap(compressed, 0, len));
+        raw.reset();
+    }
+
+    private void writeFully(ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) channel.write(buf);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.chess.archive;
+
+import com.example.chess.game.Color;
+import com.example.chess.game.GameStatus;
+
+/**
+ * A finished game as stored in a {@link GameArchiveWriter archive}. {@code moves} are packed
+ * as in {@link com.example.chess.game.Moves} without a flag (from, to and promotion), so each
+ * fits in 15 bits; {@code result} is the PGN result tag.
+ */
+public record GameRecord(String white, String black, long startedAtMillis, String result, int[] moves) {
+
+    public static final String WHITE_WINS = "1-0";
+    public static final String BLACK_WINS = "0-1";
+    public static final String DRAW = "1/2-1/2";
+    public static final String UNKNOWN = "*";
+
+    /** PGN result of a game that ended in {@code status} after {@code lastMover} moved. */
+    public static String result(GameStatus status, Color lastMover) {
+        return switch (status) {
+            case CHECKMATE, TIMEOUT -> lastMover == Color.WHITE ? WHITE_WINS : BLACK_WINS;
+            case STALEMATE, THREEFOLD_REPETITION, FIFTY_MOVE_RULE -> DRAW;
+            case ONGOING -> UNKNOWN;
+        };
+    }
+}
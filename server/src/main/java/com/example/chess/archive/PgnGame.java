@@ -0,0 +1,14 @@
+package com.example.chess.archive;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One game as read by {@link PgnReader}: its tag pairs, the SAN tokens of the main line (move
+ * numbers, comments, variations and glyphs removed), the result token, and the game's original
+ * text so a rejected game can be written out unchanged. {@code error} says why the reader gave
+ * up on the game, or is {@code null}; such a game has no moves and only its tag pairs as text.
+ */
+public record PgnGame(long number, Map<String, String> tags, List<String> moves, String result, String text,
+                      String error) {
+}
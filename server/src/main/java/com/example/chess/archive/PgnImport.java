@@ -0,0 +1,162 @@
+package com.example.chess.archive;
+
+import com.example.chess.game.Board;
+import com.example.chess.game.Move;
+import com.example.chess.game.Moves;
+import com.example.chess.game.San;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Bulk PGN import: every game is replayed through {@link Board#applyMoveIfLegal(Move)}, and
+ * valid games go to a {@link GameArchiveWriter} while the rest are copied, with the reason, to
+ * a rejects file.
+ * <p>
+ * One thread reads and splits the input; batches of games are validated in parallel on a
+ * fork-join pool and written back in input order, so archive ids follow the input. At most
+ * {@code 2 * parallelism} batches are in flight, which bounds memory whatever the input size.
+ * <pre>
+ * java -cp target/classes com.example.chess.archive.PgnImport &lt;in.pgn&gt; &lt;out.archive&gt; [rejects.pgn]
+ * </pre>
+ */
+public final class PgnImport {
+    private static final int BATCH_GAMES = 256;
+    private static final DateTimeFormatter PGN_DATE = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+
+    private final ForkJoinPool pool;
+    private final int maxInFlight;
+
+    /** Throughput and outcome of one import. */
+    public record Stats(long games, long accepted, long rejected, long moves, long nanos) {
+        public double gamesPerSecond() {
+            return games * 1e9 / Math.max(nanos, 1);
+        }
+
+        public double movesPerSecond() {
+            return moves * 1e9 / Math.max(nanos, 1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%d games (%d imported, %d rejected), %d moves in %.1f s: %.0f games/s, %.0f moves/s",
+                    games, accepted, rejected, moves, nanos / 1e9, gamesPerSecond(), movesPerSecond());
+        }
+    }
+
+    private record Outcome(PgnGame source, GameRecord game, String error) {}
+
+    public PgnImport(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.maxInFlight = 2 * parallelism;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("usage: PgnImport <in.pgn> <out.archive> [rejects.pgn]");
+            System.exit(2);
+        }
+        Path rejectsPath = Path.of(args.length == 3 ? args[2] : args[1] + ".rejects.pgn");
+        PgnImport importer = new PgnImport(Runtime.getRuntime().availableProcessors());
+        try (Reader in = Files.newBufferedReader(Path.of(args[0]), StandardCharsets.UTF_8);
+             GameArchiveWriter archive = new GameArchiveWriter(Path.of(args[1]));
+             Writer rejects = Files.newBufferedWriter(rejectsPath, StandardCharsets.UTF_8)) {
+            System.out.println(importer.run(in, archive, rejects));
+        } finally {
+            importer.pool.shutdown();
+        }
+    }
+
+    public Stats run(Reader pgn, GameArchiveWriter archive, Writer rejects) throws IOException {
+        long start = System.nanoTime();
+        long[] counts = new long[3]; // accepted, rejected, moves
+        ArrayDeque<ForkJoinTask<List<Outcome>>> inFlight = new ArrayDeque<>();
+        PgnReader reader = new PgnReader(pgn);
+        List<PgnGame> batch = new ArrayList<>(BATCH_GAMES);
+        PgnGame game;
+        while ((game = reader.next()) != null) {
+            batch.add(game);
+            if (batch.size() < BATCH_GAMES) continue;
+            if (inFlight.size() >= maxInFlight) write(inFlight.poll().join(), archive, rejects, counts);
+            List<PgnGame> games = batch;
+            inFlight.add(pool.submit(() -> validate(games)));
+            batch = new ArrayList<>(BATCH_GAMES);
+        }
+        if (!batch.isEmpty()) {
+            List<PgnGame> games = batch;
+            inFlight.add(pool.submit(() -> validate(games)));
+        }
+        while (!inFlight.isEmpty()) write(inFlight.poll().join(), archive, rejects, counts);
+        return new Stats(counts[0] + counts[1], counts[0], counts[1], counts[2], System.nanoTime() - start);
+    }
+
+    private static void write(List<Outcome> outcomes, GameArchiveWriter archive, Writer rejects, long[] counts)
+            throws IOException {
+        for (Outcome o : outcomes) {
+            if (o.game() != null) {
+                archive.append(o.game());
+                counts[0]++;
+                counts[2] += o.game().moves().length;
+            } else {
+                // % lines are PGN's escape mechanism, so the rejects file stays valid PGN
+                rejects.write("% game " + o.source().number() + " rejected: " + o.error() + "\n");
+                rejects.write(o.source().text());
+                rejects.write('\n');
+                counts[1]++;
+            }
+        }
+    }
+
+    private static List<Outcome> validate(List<PgnGame> games) {
+        San san = new San();
+        List<Outcome> out = new ArrayList<>(games.size());
+        for (PgnGame g : games) out.add(validate(g, san));
+        return out;
+    }
+
+    private static Outcome validate(PgnGame g, San san) {
+        if (g.error() != null) return new Outcome(g, null, g.error());
+        if (g.tags().containsKey("FEN") || "1".equals(g.tags().get("SetUp"))) {
+            return new Outcome(g, null, "games from a set-up position are not supported");
+        }
+        List<String> sans = g.moves();
+        if (sans.size() > 0xFFFF) return new Outcome(g, null, "too many moves");
+        Board board = Board.initial();
+        int[] moves = new int[sans.size()];
+        for (int i = 0; i < moves.length; i++) {
+            String text = sans.get(i);
+            int m = san.parse(board, text);
+            if (m == Moves.NONE || !board.applyMoveIfLegal(Moves.toMove(m))) {
+                return new Outcome(g, null, "illegal or ambiguous move " + text + " at ply " + (i + 1));
+            }
+            moves[i] = m & 0x7FFF; // as archived: without the flag
+        }
+        GameRecord record = new GameRecord(g.tags().getOrDefault("White", ""), g.tags().getOrDefault("Black", ""),
+                dateMillis(g.tags().get("Date")), g.result(), moves);
+        return new Outcome(null, record, null);
+    }
+
+    private static long dateMillis(String date) {
+        if (date == null) return 0;
+        try {
+            return LocalDate.parse(date, PGN_DATE).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0; // "????.??.??" and partial dates
+        }
+    }
+}
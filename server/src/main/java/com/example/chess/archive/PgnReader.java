@@ -0,0 +1,212 @@
+package com.example.chess.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits a PGN stream into games, one at a time, reading through a fixed-size buffer so the
+ * input can be any size. Only syntax is handled here; whether the moves are legal is up to
+ * the caller. A game ends at its result token, or where the next game's tags begin.
+ * <p>
+ * Lines and games are capped in length, so memory stays bounded whatever the input: a file
+ * without newlines, or an unterminated comment that hides the next game's tags. A game that
+ * goes over either cap is returned with an {@link PgnGame#error() error}, and reading resumes
+ * at the next {@code [Event} tag.
+ */
+public final class PgnReader implements Closeable {
+    private static final int BUFFER_CHARS = 64 * 1024;
+    private static final int MAX_LINE_CHARS = 64 * 1024;
+    private static final int MAX_GAME_CHARS = 1 << 20;
+
+    private final Reader in;
+    private final int maxLineChars;
+    private final int maxGameChars;
+    private final char[] buf = new char[BUFFER_CHARS];
+    private final StringBuilder lineChars = new StringBuilder(256);
+    private int pos;
+    private int limit;
+    private boolean skipLf;  // the last line ended with '\r'; a '\n' right after belongs to it
+    private boolean lineCut; // the last line read was longer than maxLineChars
+    private String pending; // a line read past the end of the previous game
+    private long games;
+
+    public PgnReader(Reader in) {
+        this(in, MAX_LINE_CHARS, MAX_GAME_CHARS);
+    }
+
+    PgnReader(Reader in, int maxLineChars, int maxGameChars) {
+        this.in = in;
+        this.maxLineChars = maxLineChars;
+        this.maxGameChars = maxGameChars;
+    }
+
+    /** Returns the next game, or {@code null} at the end of the input. */
+    public PgnGame next() throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        List<String> moves = new ArrayList<>();
+        StringBuilder text = new StringBuilder(1024);
+        StringBuilder token = new StringBuilder(16);
+        String result = null;
+        boolean inMovetext = false;
+        int commentDepth = 0;   // inside {...}
+        int variationDepth = 0; // inside (...)
+        int header = 0;         // length of the tag pairs' text
+        String line;
+        while ((line = pending != null ? pending : readLine()) != null) {
+            pending = null;
+            if (lineCut) return skip(tags, text, header, line, "line longer than " + maxLineChars + " characters");
+            if (text.length() + line.length() >= maxGameChars) {
+                return skip(tags, text, header, line, "game longer than " + maxGameChars + " characters");
+            }
+            if (commentDepth == 0 && variationDepth == 0) {
+                String trimmed = line.strip();
+                if (trimmed.startsWith("[")) {
+                    if (inMovetext) { // no result token; the next game starts here
+                        pending = line;
+                        break;
+                    }
+                    tag(trimmed, tags);
+                    text.append(line).append('\n');
+                    header = text.length();
+                    continue;
+                }
+                if (trimmed.startsWith("%")) continue; // escape line
+                if (trimmed.isEmpty()) {
+                    if (inMovetext || !tags.isEmpty()) text.append('\n');
+                    continue;
+                }
+            }
+            inMovetext = true;
+            text.append(line).append('\n');
+            for (int i = 0; i <= line.length(); i++) {
+                char c = i < line.length() ? line.charAt(i) : ' ';
+                if (commentDepth > 0) {
+                    if (c == '}') commentDepth = 0;
+                    continue;
+                }
+                if (c == '{') {
+                    commentDepth = 1;
+                } else if (c == ';' && variationDepth == 0) {
+                    i = line.length() - 1; // rest-of-line comment
+                } else if (c == '(') {
+                    variationDepth++;
+                } else if (c == ')') {
+                    if (variationDepth > 0) variationDepth--;
+                } else if (variationDepth > 0) {
+                    continue;
+                } else if (Character.isWhitespace(c)) {
+                    if (token.length() > 0) {
+                        String t = token.toString();
+                        token.setLength(0);
+                        if (isResult(t)) {
+                            result = t;
+                            break;
+                        }
+                        String move = stripMoveNumber(t);
+                        if (!move.isEmpty() && move.charAt(0) != '$') moves.add(move);
+                    }
+                    continue;
+                } else {
+                    token.append(c);
+                    continue;
+                }
+                // a delimiter ends the current token too
+                if (token.length() > 0) {
+                    String move = stripMoveNumber(token.toString());
+                    token.setLength(0);
+                    if (!move.isEmpty() && move.charAt(0) != '$') moves.add(move);
+                }
+            }
+            if (result != null) break;
+        }
+        if (!inMovetext && tags.isEmpty()) return null;
+        return new PgnGame(++games, tags, moves, result != null ? result : tags.getOrDefault("Result", "*"),
+                text.toString(), null);
+    }
+
+    /**
+     * Gives up on the current game: drops everything after its tag pairs, which may end inside
+     * a comment, and reads on to the next {@code [Event} tag, starting with {@code line}.
+     */
+    private PgnGame skip(Map<String, String> tags, StringBuilder text, int header, String line, String error)
+            throws IOException {
+        text.setLength(header);
+        for (; line != null; line = readLine()) {
+            if (!lineCut && line.strip().startsWith("[Event")) {
+                pending = line;
+                break;
+            }
+        }
+        return new PgnGame(++games, tags, List.of(), "*", text.toString(), error);
+    }
+
+    /**
+     * The next line without its terminator, as {@link java.io.BufferedReader#readLine()} splits
+     * them, or {@code null} at the end of the input. A line over {@code maxLineChars} is cut
+     * there and sets {@link #lineCut}; the rest of it is read and dropped.
+     */
+    private String readLine() throws IOException {
+        lineChars.setLength(0);
+        lineCut = false;
+        boolean read = false;
+        while (true) {
+            if (pos == limit && !fill()) return read ? lineChars.toString() : null;
+            if (skipLf) {
+                skipLf = false;
+                if (buf[pos] == '\n') {
+                    pos++;
+                    continue;
+                }
+            }
+            read = true;
+            int start = pos;
+            while (pos < limit && buf[pos] != '\n' && buf[pos] != '\r') pos++;
+            int room = maxLineChars - lineChars.length();
+            if (pos - start > room) lineCut = true;
+            lineChars.append(buf, start, Math.min(pos - start, room));
+            if (pos < limit) {
+                skipLf = buf[pos++] == '\r';
+                return lineChars.toString();
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) return false;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private static void tag(String line, Map<String, String> tags) {
+        int space = line.indexOf(' ');
+        int open = line.indexOf('"');
+        int close = line.lastIndexOf('"');
+        if (space < 0 || open < 0 || close <= open) return;
+        tags.put(line.substring(1, space), line.substring(open + 1, close).replace("\\\"", "\"").replace("\\\\", "\\"));
+    }
+
+    private static boolean isResult(String t) {
+        return t.equals("1-0") || t.equals("0-1") || t.equals("1/2-1/2") || t.equals("*");
+    }
+
+    /** {@code 12.e4} and {@code 12...e5} become {@code e4} and {@code e5}; a bare {@code 12.} becomes empty. */
+    private static String stripMoveNumber(String t) {
+        int i = 0;
+        while (i < t.length() && Character.isDigit(t.charAt(i))) i++;
+        if (i == 0 || i == t.length() || t.charAt(i) != '.') return i == t.length() ? "" : t;
+        while (i < t.length() && t.charAt(i) == '.') i++;
+        return t.substring(i);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.chess.archive;
+
+import com.example.chess.game.Board;
+import com.example.chess.game.Moves;
+import com.example.chess.game.San;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes games as PGN with SAN movetext, one game at a time, so an archive of any size can be
+ * exported through {@link GameArchive}'s streaming iterator:
+ * <pre>
+ * java -cp target/classes com.example.chess.archive.PgnWriter &lt;archive&gt; [out.pgn]
+ * </pre>
+ */
+public final class PgnWriter {
+    private static final int LINE_WIDTH = 79;
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy.MM.dd").withZone(ZoneOffset.UTC);
+
+    private final Writer out;
+    private final San san = new San();
+    private final StringBuilder line = new StringBuilder(LINE_WIDTH + 16);
+
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("usage: PgnWriter <archive> [out.pgn]");
+            System.exit(2);
+        }
+        Writer target = args.length == 2
+                ? Files.newBufferedWriter(Path.of(args[1]), StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        try (GameArchive archive = GameArchive.open(Path.of(args[0])); Writer w = target) {
+            PgnWriter pgn = new PgnWriter(w);
+            for (GameRecord game : archive) pgn.write(game);
+        }
+    }
+
+    public void write(GameRecord game) throws IOException {
+        tag("Event", "Online game");
+        tag("Site", "?");
+        tag("Date", game.startedAtMillis() > 0 ? DATE.format(Instant.ofEpochMilli(game.startedAtMillis())) : "????.??.??");
+        tag("Round", "-");
+        tag("White", game.white().isEmpty() ? "?" : game.white());
+        tag("Black", game.black().isEmpty() ? "?" : game.black());
+        tag("Result", game.result());
+        out.write('\n');
+
+        Board board = Board.initial();
+        line.setLength(0);
+        int[] moves = game.moves();
+        for (int i = 0; i < moves.length; i++) {
+            int m = moves[i];
+            int move = san.find(board, Moves.from(m), Moves.to(m), Moves.promotion(m));
+            if (move == Moves.NONE) throw new IOException("Illegal move " + Moves.toUci(m) + " at ply " + (i + 1));
+            if (i % 2 == 0) token((i / 2 + 1) + ".");
+            token(san.format(board, move));
+            board.makeMove(move);
+        }
+        token(game.result());
+        out.write(line.toString());
+        out.write("\n\n");
+    }
+
+    /** Player names arrive from clients unchecked, so control characters become spaces and cannot break the line. */
+    private void tag(String name, String value) throws IOException {
+        line.setLength(0);
+        line.append('[').append(name).append(" \"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                line.append('\\').append(c);
+            } else {
+                line.append(Character.isISOControl(c) ? ' ' : c);
+            }
+        }
+        out.write(line.append("\"]\n").toString());
+    }
+
+    private void token(String token) throws IOException {
+        if (line.length() > 0 && line.length() + 1 + token.length() > LINE_WIDTH) {
+            out.write(line.toString());
+            out.write('\n');
+            line.setLength(0);
+        }
+        if (line.length() > 0) line.append(' ');
+        line.append(token);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.chess.clock;
+
+import com.example.chess.game.Color;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Both sides' clocks for one game. At most one side's clock runs at a time; times are in
+ * {@link System#nanoTime()} units and every method takes the current time, so the clock itself
+ * never reads it. Not thread-safe: it belongs to its room's thread.
+ */
+public final class GameClock {
+    private final TimeControl control;
+    private final long perMoveNanos;
+    private final long[] remaining = new long[2]; // by Color.ordinal(), as of the start of the running side's turn
+    private Color running; // null while stopped
+    private long turnStarted;
+
+    public GameClock(TimeControl control) {
+        this.control = control;
+        this.perMoveNanos = TimeUnit.MILLISECONDS.toNanos(control.perMoveMillis());
+        remaining[0] = remaining[1] = TimeUnit.MILLISECONDS.toNanos(control.baseMillis());
+    }
+
+    public TimeControl control() {
+        return control;
+    }
+
+    /** The side whose clock is running, or {@code null}. */
+    public Color running() {
+        return running;
+    }
+
+    /** Starts {@code side}'s clock. */
+    public void start(Color side, long now) {
+        running = side;
+        turnStarted = now;
+    }
+
+    /** Charges the running side for its turn so far and stops the clock. */
+    public void stop(long now) {
+        if (running == null) return;
+        remaining[running.ordinal()] = remainingNanos(running, now);
+        running = null;
+    }
+
+    /**
+     * Ends {@code mover}'s turn: charges it, adds the increment, and starts the other side.
+     * Returns {@code false}, changing nothing, if the mover's time had already run out.
+     */
+    public boolean press(Color mover, long now) {
+        if (running != mover || flagged(now)) return false;
+        long left = remainingNanos(mover, now);
+        if (control.mode() == TimeControl.Mode.INCREMENT) left += perMoveNanos;
+        remaining[mover.ordinal()] = left;
+        start(mover.opposite(), now);
+        return true;
+    }
+
+    /** Time {@code side} has left at {@code now}, never negative. */
+    public long remainingNanos(Color side, long now) {
+        long left = remaining[side.ordinal()];
+        if (side != running) return left;
+        long charged = now - turnStarted;
+        if (control.mode() == TimeControl.Mode.DELAY) charged = Math.max(0, charged - perMoveNanos);
+        return Math.max(0, left - charged);
+    }
+
+    /** How long until the running side's flag falls; {@link Long#MAX_VALUE} while stopped. */
+    public long nanosUntilFlag(long now) {
+        if (running == null) return Long.MAX_VALUE;
+        long allowance = remaining[running.ordinal()] + (control.mode() == TimeControl.Mode.DELAY ? perMoveNanos : 0);
+        return Math.max(0, allowance - (now - turnStarted));
+    }
+
+    /** Whether the running side is out of time. */
+    public boolean flagged(long now) {
+        return running != null && nanosUntilFlag(now) == 0;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.chess.clock;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long each side has: a base time in minutes, plus per move either an increment, added
+ * after the move, or a delay, which must run out before the clock starts counting down.
+ * Written {@code 5+3} (five minutes, three seconds' increment) or {@code 5d3} (three seconds'
+ * delay); fractions of a minute are allowed, as in {@code 0.5+0}.
+ */
+public record TimeControl(long baseMillis, long perMoveMillis, Mode mode) {
+    private static final long MAX_BASE_MILLIS = TimeUnit.HOURS.toMillis(24);
+    private static final long MAX_PER_MOVE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    public enum Mode {
+        /** Fischer: the per-move time is added to the mover's clock after each move. */
+        INCREMENT,
+        /** Simple (US) delay: the clock starts counting down only after the per-move time has passed. */
+        DELAY
+    }
+
+    public TimeControl {
+        Objects.requireNonNull(mode);
+        if (baseMillis <= 0 || baseMillis > MAX_BASE_MILLIS) throw new IllegalArgumentException("Base time out of range");
+        if (perMoveMillis < 0 || perMoveMillis > MAX_PER_MOVE_MILLIS) throw new IllegalArgumentException("Per-move time out of range");
+    }
+
+    /** Parses {@code minutes+seconds} or {@code minutes d seconds}; throws {@link IllegalArgumentException} otherwise. */
+    public static TimeControl parse(String text) {
+        String s = text.trim();
+        int sep = s.indexOf('+');
+        Mode mode = Mode.INCREMENT;
+        if (sep < 0) {
+            sep = s.indexOf('d');
+            mode = Mode.DELAY;
+        }
+        if (sep <= 0 || sep == s.length() - 1) throw new IllegalArgumentException("Expected minutes+seconds or minutesdseconds: " + text);
+        try {
+            long base = new BigDecimal(s.substring(0, sep).trim()).multiply(BigDecimal.valueOf(60_000)).longValueExact();
+            long perMove = new BigDecimal(s.substring(sep + 1).trim()).multiply(BigDecimal.valueOf(1_000)).longValueExact();
+            return new TimeControl(base, perMove, mode);
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new IllegalArgumentException("Bad time control: " + text, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return BigDecimal.valueOf(baseMillis, 3).divide(BigDecimal.valueOf(60), MathContext.DECIMAL64).stripTrailingZeros().toPlainString()
+                + (mode == Mode.INCREMENT ? "+" : "d")
+                + BigDecimal.valueOf(perMoveMillis, 3).stripTrailingZeros().toPlainString();
+    }
+}
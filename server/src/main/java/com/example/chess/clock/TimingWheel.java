@@ -0,0 +1,219 @@
+package com.example.chess.clock;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One timer for every game clock in the server: a hashed hierarchical timing wheel driven by a
+ * single thread, instead of a scheduled task per game and move.
+ * <p>
+ * Time is counted in ticks. Four levels of 256 slots each cover 256, 256², 256³ and 256⁴
+ * ticks; a timeout sits in the lowest level whose span still separates its deadline from the
+ * current tick, in a doubly linked list, and moves down a level each time the level above
+ * wraps into its slot (a cascade), until it expires from level 0. Placing and unlinking a
+ * timeout are O(1); a cascade moves each timeout at most once per level.
+ * <p>
+ * {@link #schedule} and {@link Timeout#cancel} may be called from any thread and only push onto
+ * a lock-free queue; the buckets are touched by the wheel's thread alone, which drains the
+ * queues before each advance. Tasks run on that thread, so they must be short: the rooms'
+ * tasks only post to their mailbox. Timeouts fire on the first tick at or after their
+ * deadline, never before it.
+ */
+public final class TimingWheel implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(TimingWheel.class.getName());
+    private static final int BITS = 8;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_TICKS = 1L << 30; // longer delays are cut short; keeps deadlines within the top level's reach
+
+    private final long tickNanos;
+    private final long origin; // System.nanoTime() of tick 0
+    private final Timeout[][] buckets = new Timeout[LEVELS][SLOTS]; // list heads; wheel thread only
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger(); // scheduled and neither run nor cancelled
+    private long tick; // last tick processed; wheel thread only
+    private volatile boolean closed;
+
+    /** A wheel advanced by hand through {@link #advance}; ticks are counted from {@code origin}. */
+    TimingWheel(long tickNanos, long origin) {
+        if (tickNanos <= 0) throw new IllegalArgumentException("tick must be positive");
+        this.tickNanos = tickNanos;
+        this.origin = origin;
+    }
+
+    /** Starts a wheel with its own daemon thread, advancing every {@code tickMillis}. */
+    public static TimingWheel start(long tickMillis) {
+        TimingWheel wheel = new TimingWheel(TimeUnit.MILLISECONDS.toNanos(tickMillis), System.nanoTime());
+        Thread t = new Thread(wheel::run, "timing-wheel");
+        t.setDaemon(true);
+        t.start();
+        return wheel;
+    }
+
+    /** Runs {@code task} on the wheel's thread once {@code delayNanos} have passed. */
+    public Timeout schedule(Runnable task, long delayNanos) {
+        return schedule(task, delayNanos, System.nanoTime());
+    }
+
+    Timeout schedule(Runnable task, long delayNanos, long now) {
+        long delayTicks = delayNanos <= 0 ? 0 : Math.min(MAX_TICKS, delayNanos / tickNanos + 1);
+        long deadline = ceilDiv(Math.max(0, now - origin), tickNanos) + delayTicks;
+        Timeout t = new Timeout(this, task, deadline);
+        pending.incrementAndGet();
+        added.add(t);
+        return t;
+    }
+
+    /** Timeouts scheduled that have neither fired nor been cancelled. */
+    public int size() {
+        return pending.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    private void run() {
+        while (!closed) {
+            try {
+                advance(System.nanoTime());
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Timing wheel advance failed", e);
+            }
+            LockSupport.parkNanos(tickNanos);
+        }
+    }
+
+    /** Processes every tick up to {@code now}, firing the timeouts that are due. */
+    void advance(long now) {
+        long target = (now - origin) / tickNanos;
+        drainCancelled();
+        for (Timeout t; (t = added.poll()) != null; ) {
+            if (t.state.get() != Timeout.PENDING) continue; // cancelled before it was placed
+            place(t);
+        }
+        while (tick < target) {
+            tick++;
+            if ((tick & MASK) == 0) cascade();
+            drainCancelled();
+            Timeout head = buckets[0][(int) (tick & MASK)];
+            buckets[0][(int) (tick & MASK)] = null;
+            for (Timeout t = head; t != null; ) {
+                Timeout next = t.detach();
+                expire(t);
+                t = next;
+            }
+        }
+    }
+
+    /** Puts the timeout in the lowest level whose slots still tell its deadline from the current tick. */
+    private void place(Timeout t) {
+        if (t.deadline <= tick) {
+            expire(t);
+            return;
+        }
+        long diff = t.deadline ^ tick;
+        int level = 0;
+        while (level < LEVELS - 1 && (diff >>> (BITS * (level + 1))) != 0) level++;
+        int slot = (int) (t.deadline >>> (BITS * level)) & MASK;
+        t.level = level;
+        t.slot = slot;
+        t.next = buckets[level][slot];
+        if (t.next != null) t.next.prev = t;
+        buckets[level][slot] = t;
+    }
+
+    /** The current tick starts a new span of one or more upper levels; their due slots move down. */
+    private void cascade() {
+        int top = 1;
+        while (top < LEVELS - 1 && (tick & ((1L << (BITS * (top + 1))) - 1)) == 0) top++;
+        for (int level = top; level >= 1; level--) {
+            int slot = (int) (tick >>> (BITS * level)) & MASK;
+            Timeout head = buckets[level][slot];
+            buckets[level][slot] = null;
+            for (Timeout t = head; t != null; ) {
+                Timeout next = t.detach();
+                if (t.state.get() == Timeout.PENDING) place(t);
+                t = next;
+            }
+        }
+    }
+
+    private void drainCancelled() {
+        for (Timeout t; (t = cancelled.poll()) != null; ) {
+            if (t.level < 0) continue; // not placed yet, or already taken out of its bucket
+            if (t.prev != null) {
+                t.prev.next = t.next;
+            } else {
+                buckets[t.level][t.slot] = t.next;
+            }
+            if (t.next != null) t.next.prev = t.prev;
+            t.detach();
+        }
+    }
+
+    private void expire(Timeout t) {
+        if (!t.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) return;
+        pending.decrementAndGet();
+        try {
+            t.task.run();
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Timer task failed", e);
+        }
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return (a + b - 1) / b;
+    }
+
+    /** A scheduled task; cancel it when it is no longer wanted. */
+    public static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final TimingWheel wheel;
+        private final Runnable task;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private final long deadline; // in ticks
+        private Timeout prev; // bucket links, level and slot: wheel thread only
+        private Timeout next;
+        private int level = -1;
+        private int slot;
+
+        private Timeout(TimingWheel wheel, Runnable task, long deadline) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /** Stops the task from running; returns {@code false} if it already ran or was cancelled. */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) return false;
+            wheel.pending.decrementAndGet();
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        /** Clears the bucket links and returns the old next. */
+        private Timeout detach() {
+            Timeout n = next;
+            prev = null;
+            next = null;
+            level = -1;
+            return n;
+        }
+    }
+}
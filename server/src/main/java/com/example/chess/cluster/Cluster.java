@@ -0,0 +1,110 @@
+package com.example.chess.cluster;
+
+import com.example.chess.config.ChessSettings;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * This node's view of the cluster: which node owns each room, where the nodes' web servers
+ * are, and the {@link EventBus} they share. Rooms are assigned by a {@link HashRing} over the
+ * node names, which every node computes the same way from the same {@code chess.cluster.nodes},
+ * so no coordination is needed to agree on owners.
+ * <p>
+ * A server running on its own is a cluster of one that owns every room, with an in-memory bus.
+ */
+public final class Cluster {
+    private static final String STANDALONE = "local";
+
+    private final String self;
+    private final Map<String, String> addresses; // node -> host:port of its web server
+    private final HashRing ring;
+    private final EventBus bus;
+
+    public Cluster(String self, Map<String, String> addresses, int virtualNodes, EventBus bus) {
+        if (!addresses.containsKey(self)) throw new IllegalArgumentException("Node " + self + " is not in " + addresses.keySet());
+        this.self = self;
+        this.addresses = Map.copyOf(addresses);
+        this.ring = new HashRing(addresses.keySet(), virtualNodes);
+        this.bus = Objects.requireNonNull(bus);
+    }
+
+    public static Cluster standalone() {
+        return new Cluster(STANDALONE, Map.of(STANDALONE, ""), 1, new InMemoryBus());
+    }
+
+    /**
+     * Builds the cluster from {@code chess.cluster.*} and starts this node's {@link TcpBus};
+     * standalone when {@code chess.cluster.node} is not set. A node that cannot join fails
+     * instead of running on its own, which would serve rooms another node owns.
+     */
+    public static Cluster fromSettings(ChessSettings settings) {
+        if (settings.clusterNode() == null) return standalone();
+        Map<String, String> addresses = parseNodes(settings.clusterNodes());
+        Map<String, InetSocketAddress> buses = new LinkedHashMap<>();
+        addresses.forEach((node, address) -> buses.put(node, busAddress(address, settings.clusterBusPortOffset())));
+        InetSocketAddress listen = buses.get(settings.clusterNode());
+        if (listen == null) {
+            throw new IllegalArgumentException("chess.cluster.node " + settings.clusterNode()
+                    + " is not in chess.cluster.nodes");
+        }
+        try {
+            TcpBus bus = TcpBus.start(settings.clusterNode(), listen, buses);
+            return new Cluster(settings.clusterNode(), addresses, settings.clusterVirtualNodes(), bus);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start the event bus on " + listen, e);
+        }
+    }
+
+    /** Parses {@code name=host:port,name=host:port}. */
+    static Map<String, String> parseNodes(String spec) {
+        if (spec == null || spec.isBlank()) throw new IllegalArgumentException("chess.cluster.nodes is empty");
+        Map<String, String> nodes = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            int eq = entry.indexOf('=');
+            if (eq <= 0 || entry.lastIndexOf(':') < eq) throw new IllegalArgumentException("Expected name=host:port, got " + entry);
+            nodes.put(entry.substring(0, eq).trim(), entry.substring(eq + 1).trim());
+        }
+        return nodes;
+    }
+
+    private static InetSocketAddress busAddress(String address, int offset) {
+        int colon = address.lastIndexOf(':');
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)) + offset);
+    }
+
+    public String self() {
+        return self;
+    }
+
+    public EventBus bus() {
+        return bus;
+    }
+
+    public String owner(String roomId) {
+        return ring.owner(roomId);
+    }
+
+    public boolean isLocal(String roomId) {
+        return addresses.size() == 1 || ring.owner(roomId).equals(self);
+    }
+
+    /** {@code host:port} of the node's web server. */
+    public String address(String node) {
+        return addresses.get(node);
+    }
+
+    /** Where the owner publishes the room's frames. */
+    public static String roomTopic(String roomId) {
+        return "room/" + roomId;
+    }
+
+    /** Where other nodes send a node their requests. */
+    public static String nodeTopic(String node) {
+        return "node/" + node;
+    }
+}
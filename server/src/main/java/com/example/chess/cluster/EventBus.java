@@ -0,0 +1,28 @@
+package com.example.chess.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Publish/subscribe between the nodes of a cluster, by topic. Events published on a topic
+ * reach every subscriber of that topic on any node, this one included, in the order one
+ * node published them, across topics too: a snapshot a room's owner sends to one node's
+ * topic arrives between the same deltas as it was sent. Delivery is at most once: a node that
+ * falls behind or drops off loses events, and the frames' sequence numbers tell spectators to
+ * ask for a snapshot.
+ * <p>
+ * Listeners run on a thread of the bus and must not block.
+ */
+public interface EventBus extends AutoCloseable {
+
+    void publish(String topic, RoomEvent event);
+
+    Subscription subscribe(String topic, Consumer<RoomEvent> listener);
+
+    /** Stops delivering; publishing afterwards does nothing. */
+    @Override
+    void close();
+
+    interface Subscription {
+        void cancel();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.chess.cluster;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A bus inside one JVM: listeners are called on the publisher's thread. It is what a server
+ * running on its own uses, and lets tests run several nodes' managers against each other.
+ */
+public final class InMemoryBus implements EventBus {
+    private final Map<String, List<Consumer<RoomEvent>>> listeners = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    @Override
+    public void publish(String topic, RoomEvent event) {
+        if (closed) return;
+        List<Consumer<RoomEvent>> l = listeners.get(topic);
+        if (l == null) return;
+        for (Consumer<RoomEvent> listener : l) listener.accept(event);
+    }
+
+    @Override
+    public Subscription subscribe(String topic, Consumer<RoomEvent> listener) {
+        listeners.compute(topic, (t, l) -> {
+            if (l == null) l = new CopyOnWriteArrayList<>();
+            l.add(listener);
+            return l;
+        });
+        return () -> listeners.computeIfPresent(topic, (t, l) -> {
+            l.remove(listener);
+            return l.isEmpty() ? null : l;
+        });
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        listeners.clear();
+    }
+}
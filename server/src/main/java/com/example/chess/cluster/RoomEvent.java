@@ -0,0 +1,43 @@
+package com.example.chess.cluster;
+
+import java.util.Objects;
+
+/**
+ * What nodes tell each other about a room. The owner publishes the room's frames on
+ * {@link Cluster#roomTopic(String)}; nodes serving its spectators send requests to the
+ * owner's {@link Cluster#nodeTopic(String)}, and get snapshots back on their own.
+ *
+ * @param room  the room id
+ * @param node  the node that published the event
+ * @param kind  what happened
+ * @param frame the encoded server frame for {@link Kind#STATE}, {@link Kind#DELTA} and
+ *              {@link Kind#INFO}; {@code null} otherwise
+ */
+public record RoomEvent(String room, String node, Kind kind, String frame) {
+
+    public enum Kind {
+        /**
+         * A snapshot for spectators: on the asking node's topic in answer to {@link #SNAPSHOT},
+         * or on the room's topic when it changed for everyone without a move.
+         */
+        STATE,
+        /** A move's delta, as the owner's own sessions got it. */
+        DELTA,
+        /** Any other frame sent to the whole room. */
+        INFO,
+        /** The owner closed the room. */
+        CLOSED,
+        /** A node has spectators for the room, which keeps it open. */
+        WATCH,
+        /** A watching node needs a snapshot; also registers it as watching, should the owner have lost track. */
+        SNAPSHOT,
+        /** A node's last spectator of the room left. */
+        UNWATCH
+    }
+
+    public RoomEvent {
+        Objects.requireNonNull(room);
+        Objects.requireNonNull(node);
+        Objects.requireNonNull(kind);
+    }
+}
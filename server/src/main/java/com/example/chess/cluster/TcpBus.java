@@ -0,0 +1,323 @@
+package com.example.chess.cluster;
+
+import com.example.chess.metrics.Counter;
+import com.example.chess.metrics.Metrics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bus between JVMs over plain TCP, one connection each way between every pair of nodes.
+ * <p>
+ * Events only go where they are wanted: each node announces the topics it has subscribers
+ * for to every peer (again after each reconnect), and a peer's events on a topic are written
+ * to it only while it is subscribed. A room's frames therefore cost the owner one write per
+ * node with spectators of that room, not per node in the cluster.
+ * <p>
+ * Writes go through a bounded queue per peer drained by that peer's writer thread, so
+ * publishing never blocks; when the queue is full the event is dropped. A peer that cannot be
+ * reached is retried every second. Incoming events are delivered on the connection's reader
+ * thread.
+ */
+public final class TcpBus implements EventBus {
+    private static final Logger LOG = Logger.getLogger(TcpBus.class.getName());
+    private static final byte HELLO = 0;
+    private static final byte SUBSCRIBE = 1;
+    private static final byte UNSUBSCRIBE = 2;
+    private static final byte EVENT = 3;
+    private static final int QUEUE = 65_536; // messages waiting per peer
+    private static final int CONNECT_TIMEOUT_MILLIS = 2_000;
+    private static final long RECONNECT_MILLIS = 1_000;
+    private static final RoomEvent.Kind[] KINDS = RoomEvent.Kind.values();
+    private static final Counter SENT = Metrics.getInstance().counter("chess_bus_events_sent_total",
+            "Events written to other nodes.");
+    private static final Counter RECEIVED = Metrics.getInstance().counter("chess_bus_events_received_total",
+            "Events read from other nodes.");
+    private static final Counter DROPPED = Metrics.getInstance().counter("chess_bus_messages_dropped_total",
+            "Events and subscriptions dropped because a peer's queue was full.");
+
+    private record Announce(boolean subscribe, String topic) {}
+
+    private record Event(String topic, RoomEvent event) {}
+
+    private final String self;
+    private final ServerSocket server;
+    private final Map<String, Peer> peers = new HashMap<>(); // fixed once constructed
+    private final Map<String, List<Consumer<RoomEvent>>> listeners = new ConcurrentHashMap<>();
+    private final Set<Socket> inbound = ConcurrentHashMap.newKeySet();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean closed;
+
+    private TcpBus(String self, ServerSocket server, Map<String, InetSocketAddress> peers) {
+        this.self = self;
+        this.server = server;
+        peers.forEach((name, address) -> {
+            if (!name.equals(self)) this.peers.put(name, new Peer(name, address));
+        });
+    }
+
+    /**
+     * Listens on {@code listen} and connects to {@code peers} (node name to bus address; an
+     * entry for {@code self} is ignored).
+     */
+    public static TcpBus start(String self, InetSocketAddress listen, Map<String, InetSocketAddress> peers)
+            throws IOException {
+        ServerSocket server = new ServerSocket();
+        try {
+            server.setReuseAddress(true);
+            server.bind(listen);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        TcpBus bus = new TcpBus(self, server, peers);
+        bus.thread("bus-accept", bus::accept);
+        for (Peer peer : bus.peers.values()) bus.thread("bus-out-" + peer.name, peer::write);
+        LOG.info("Event bus of node " + self + " listening on " + server.getLocalSocketAddress()
+                + ", peers " + bus.peers.keySet());
+        return bus;
+    }
+
+    /** The port the bus listens on. */
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    @Override
+    public void publish(String topic, RoomEvent event) {
+        if (closed) return;
+        deliver(topic, event);
+        Event e = null;
+        for (Peer peer : peers.values()) {
+            if (!peer.interest.contains(topic)) continue;
+            if (e == null) e = new Event(topic, event);
+            peer.send(e);
+        }
+    }
+
+    @Override
+    public Subscription subscribe(String topic, Consumer<RoomEvent> listener) {
+        listeners.compute(topic, (t, l) -> {
+            if (l == null) {
+                l = new CopyOnWriteArrayList<>();
+                announce(true, t); // inside compute, so announcements for one topic stay in order
+            }
+            l.add(listener);
+            return l;
+        });
+        return () -> listeners.computeIfPresent(topic, (t, l) -> {
+            if (!l.remove(listener) || !l.isEmpty()) return l;
+            announce(false, t);
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            server.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+        for (Socket s : inbound) closeQuietly(s);
+        for (Thread t : threads) t.interrupt();
+        listeners.clear();
+    }
+
+    private void announce(boolean subscribe, String topic) {
+        Announce a = new Announce(subscribe, topic);
+        for (Peer peer : peers.values()) peer.send(a);
+    }
+
+    private void deliver(String topic, RoomEvent event) {
+        List<Consumer<RoomEvent>> l = listeners.get(topic);
+        if (l == null) return;
+        for (Consumer<RoomEvent> listener : l) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "A listener on " + topic + " failed", e);
+            }
+        }
+    }
+
+    private void thread(String name, Runnable task) {
+        Thread t = new Thread(task, name);
+        t.setDaemon(true);
+        threads.add(t);
+        t.start();
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                inbound.add(socket);
+                Thread t = new Thread(() -> read(socket), "bus-in");
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException e) {
+                if (!closed) LOG.log(Level.WARNING, "Event bus accept failed", e);
+            }
+        }
+    }
+
+    /** Reads one peer's connection: its subscriptions, and the events it publishes to us. */
+    private void read(Socket socket) {
+        Peer peer = null;
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            if (in.readByte() != HELLO) throw new IOException("no hello");
+            String name = in.readUTF();
+            peer = peers.get(name);
+            if (peer == null) throw new IOException("unknown node " + name);
+            peer.connected(socket);
+            while (!closed) {
+                byte op = in.readByte();
+                switch (op) {
+                    case SUBSCRIBE -> peer.interest.add(in.readUTF());
+                    case UNSUBSCRIBE -> peer.interest.remove(in.readUTF());
+                    case EVENT -> {
+                        String topic = in.readUTF();
+                        String room = in.readUTF();
+                        String node = in.readUTF();
+                        RoomEvent.Kind kind = KINDS[in.readUnsignedByte()];
+                        int length = in.readInt();
+                        String frame = length < 0 ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+                        RECEIVED.increment();
+                        deliver(topic, new RoomEvent(room, node, kind, frame));
+                    }
+                    default -> throw new IOException("unknown operation " + op);
+                }
+            }
+        } catch (EOFException e) {
+            // The peer went away
+        } catch (IOException | RuntimeException e) {
+            if (!closed) LOG.warning("Event bus connection from " + (peer == null ? socket.getRemoteSocketAddress()
+                    : peer.name) + " failed: " + e);
+        } finally {
+            inbound.remove(socket);
+            if (peer != null) peer.disconnected(socket);
+        }
+    }
+
+    private static void closeQuietly(Socket s) {
+        try {
+            s.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    private final class Peer {
+        final String name;
+        final InetSocketAddress address;
+        final Set<String> interest = ConcurrentHashMap.newKeySet(); // topics it subscribed to on its current connection
+        final BlockingQueue<Object> outbound = new ArrayBlockingQueue<>(QUEUE);
+        private Socket reading; // the peer's current connection to us; guarded by this
+
+        Peer(String name, InetSocketAddress address) {
+            this.name = name;
+            this.address = address;
+        }
+
+        void send(Object message) {
+            if (!outbound.offer(message)) DROPPED.increment();
+        }
+
+        /** A new connection re-announces everything, so what the old one said is forgotten. */
+        synchronized void connected(Socket socket) {
+            reading = socket;
+            interest.clear();
+        }
+
+        synchronized void disconnected(Socket socket) {
+            if (reading != socket) return; // already replaced by a newer connection
+            reading = null;
+            interest.clear();
+        }
+
+        /** Writer thread: connects, announces this node's topics, then drains the queue, flushing when it runs dry. */
+        void write() {
+            boolean wasUp = false;
+            while (!closed) {
+                try (Socket socket = new Socket()) {
+                    socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+                    socket.setTcpNoDelay(true);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+                    out.writeByte(HELLO);
+                    out.writeUTF(self);
+                    for (String topic : listeners.keySet()) {
+                        out.writeByte(SUBSCRIBE);
+                        out.writeUTF(topic);
+                    }
+                    out.flush();
+                    LOG.info("Event bus connected to " + name + " at " + address);
+                    wasUp = true;
+                    while (!closed) {
+                        Object message = outbound.poll();
+                        if (message == null) {
+                            out.flush();
+                            message = outbound.take();
+                        }
+                        write(out, message);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IOException e) {
+                    if (wasUp && !closed) LOG.warning("Event bus lost " + name + " at " + address + ": " + e);
+                    wasUp = false;
+                }
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private void write(DataOutputStream out, Object message) throws IOException {
+            if (message instanceof Announce a) {
+                out.writeByte(a.subscribe() ? SUBSCRIBE : UNSUBSCRIBE);
+                out.writeUTF(a.topic());
+            } else if (message instanceof Event e) {
+                RoomEvent event = e.event();
+                out.writeByte(EVENT);
+                out.writeUTF(e.topic());
+                out.writeUTF(event.room());
+                out.writeUTF(event.node());
+                out.writeByte(event.kind().ordinal());
+                if (event.frame() == null) {
+                    out.writeInt(-1);
+                } else {
+                    byte[] bytes = event.frame().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                SENT.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.chess.config;
+
+import com.example.chess.clock.TimeControl;
+
+import java.util.function.Function;
+
+/**
+ * Server tunables under the {@code chess.} prefix. Spring loads them from its environment at
+ * startup (see {@link ChessSettingsConfig}); code running without Spring sees the defaults.
+ */
+public final class ChessSettings {
+    private static volatile ChessSettings instance = new ChessSettings(name -> null);
+
+    private final int outboxHighWatermark;
+    private final int outboxLowWatermark;
+    private final long outboxEvictAfterMillis;
+    private final int maxRooms;
+    private final long roomIdleTtlMillis;
+    private final long roomFinishedTtlMillis;
+    private final long roomSweepIntervalMillis;
+    private final int roomShards;
+    private final boolean virtualThreads;
+    private final String journalDir;
+    private final int journalSegmentBytes;
+    private final long journalFlushIntervalMillis;
+    private final String archiveDir;
+    private final int engineThreads;
+    private final int engineQueue;
+    private final int engineHashMegabytes;
+    private final long engineMoveMillis;
+    private final String engineBook;
+    private final String engineTablebases;
+    private final int hintCacheEntries;
+    private final String metricsAddress;
+    private final int metricsPort;
+    private final String clusterNode;
+    private final String clusterNodes;
+    private final int clusterBusPortOffset;
+    private final int clusterVirtualNodes;
+    private final long clockTickMillis;
+    private final TimeControl clockDefaultControl;
+    private final int matchInitialWindow;
+    private final int matchWidenPerSecond;
+    private final int matchMaxWindow;
+    private final long matchSweepIntervalMillis;
+
+    ChessSettings(Function<String, String> source) {
+        outboxHighWatermark = intValue(source, "chess.outbox.high-watermark", 256);
+        outboxLowWatermark = Math.min(intValue(source, "chess.outbox.low-watermark", 64), outboxHighWatermark);
+        outboxEvictAfterMillis = longValue(source, "chess.outbox.evict-after-ms", 10_000L);
+        maxRooms = intValue(source, "chess.rooms.max", 10_000);
+        roomIdleTtlMillis = longValue(source, "chess.rooms.idle-ttl-ms", 30 * 60_000L);
+        roomFinishedTtlMillis = longValue(source, "chess.rooms.finished-ttl-ms", 5 * 60_000L);
+        roomSweepIntervalMillis = longValue(source, "chess.rooms.sweep-interval-ms", 30_000L);
+        roomShards = intValue(source, "chess.rooms.shards", 0);
+        virtualThreads = Boolean.parseBoolean(source.apply("chess.threads.virtual"));
+        String dir = source.apply("chess.journal.dir");
+        journalDir = dir == null || dir.isBlank() ? null : dir.trim();
+        journalSegmentBytes = intValue(source, "chess.journal.segment-bytes", 64 << 20);
+        journalFlushIntervalMillis = longValue(source, "chess.journal.flush-interval-ms", 10L);
+        String archive = source.apply("chess.archive.dir");
+        archiveDir = archive == null || archive.isBlank() ? null : archive.trim();
+        engineThreads = intValue(source, "chess.engine.threads", 0);
+        engineQueue = intValue(source, "chess.engine.queue", 64);
+        engineHashMegabytes = intValue(source, "chess.engine.hash-mb", 16);
+        engineMoveMillis = longValue(source, "chess.engine.move-ms", 1_000L);
+        String book = source.apply("chess.engine.book");
+        engineBook = book == null || book.isBlank() ? null : book.trim();
+        String tables = source.apply("chess.engine.tablebases");
+        engineTablebases = tables == null || tables.isBlank() ? null : tables.trim();
+        hintCacheEntries = intValue(source, "chess.hints.cache-entries", 4096);
+        String address = source.apply("chess.metrics.address");
+        metricsAddress = address == null || address.isBlank() ? "127.0.0.1" : address.trim();
+        metricsPort = intValue(source, "chess.metrics.port", 9404);
+        String node = source.apply("chess.cluster.node");
+        clusterNode = node == null || node.isBlank() ? null : node.trim();
+        String nodes = source.apply("chess.cluster.nodes");
+        clusterNodes = nodes == null || nodes.isBlank() ? null : nodes.trim();
+        clusterBusPortOffset = intValue(source, "chess.cluster.bus-port-offset", 1000);
+        clusterVirtualNodes = intValue(source, "chess.cluster.virtual-nodes", 160);
+        clockTickMillis = Math.max(1, longValue(source, "chess.clock.tick-ms", 10L));
+        String control = source.apply("chess.clock.default-control");
+        clockDefaultControl = control == null || control.isBlank() ? null : TimeControl.parse(control);
+        matchInitialWindow = intValue(source, "chess.match.initial-window", 100);
+        matchWidenPerSecond = intValue(source, "chess.match.widen-per-second", 50);
+        matchMaxWindow = intValue(source, "chess.match.max-window", 400);
+        matchSweepIntervalMillis = Math.max(1, longValue(source, "chess.match.sweep-interval-ms", 250L));
+    }
+
+    public static ChessSettings getInstance() {
+        return instance;
+    }
+
+    /** Replaces the current settings with values looked up through {@code source}. */
+    public static void load(Function<String, String> source) {
+        instance = new ChessSettings(source);
+    }
+
+    /** Queued frames per session above which deltas are coalesced into a later snapshot. */
+    public int outboxHighWatermark() {
+        return outboxHighWatermark;
+    }
+
+    /** Backlog a coalesced session must drain to before it gets its snapshot. */
+    public int outboxLowWatermark() {
+        return outboxLowWatermark;
+    }
+
+    /** How long a session may stay over the high watermark before it is disconnected. */
+    public long outboxEvictAfterMillis() {
+        return outboxEvictAfterMillis;
+    }
+
+    /** Live rooms above which new room ids are refused. */
+    public int maxRooms() {
+        return maxRooms;
+    }
+
+    /** How long a waiting or active room may go without any activity before it is closed. */
+    public long roomIdleTtlMillis() {
+        return roomIdleTtlMillis;
+    }
+
+    /** How long a finished room is kept (for late joiners and rematch chatter) after its last activity. */
+    public long roomFinishedTtlMillis() {
+        return roomFinishedTtlMillis;
+    }
+
+    public long roomSweepIntervalMillis() {
+        return roomSweepIntervalMillis;
+    }
+
+    /** Worker threads running room mailboxes; 0 means one per available processor. */
+    public int roomShards() {
+        return roomShards;
+    }
+
+    /**
+     * Runs room mailboxes on virtual threads instead of the shard pool (needs Java 21). The
+     * container's request threads follow {@code spring.threads.virtual.enabled}, which the
+     * shipped properties tie to this flag.
+     */
+    public boolean virtualThreads() {
+        return virtualThreads;
+    }
+
+    /** Directory of the move journal, or {@code null} when games are not journaled. */
+    public String journalDir() {
+        return journalDir;
+    }
+
+    /** Size of one journal segment; a snapshot of all live rooms is written each time one fills. */
+    public int journalSegmentBytes() {
+        return journalSegmentBytes;
+    }
+
+    /** How often journal appends are forced to disk; a crash can lose up to this much play. */
+    public long journalFlushIntervalMillis() {
+        return journalFlushIntervalMillis;
+    }
+
+    /** Directory finished games are archived to, one archive file per server run; {@code null} for none. */
+    public String archiveDir() {
+        return archiveDir;
+    }
+
+    /** Engine search threads; 0 means a quarter of the available processors, at least one. */
+    public int engineThreads() {
+        return engineThreads;
+    }
+
+    /** Engine searches that may wait for a thread before rooms fall back to a one-ply move. */
+    public int engineQueue() {
+        return engineQueue;
+    }
+
+    /** Transposition table size per engine thread. */
+    public int engineHashMegabytes() {
+        return engineHashMegabytes;
+    }
+
+    /** Time the engine spends on each move. */
+    public long engineMoveMillis() {
+        return engineMoveMillis;
+    }
+
+    /** Opening book file the engine plays from before it searches; {@code null} for none. */
+    public String engineBook() {
+        return engineBook;
+    }
+
+    /** Directory of endgame tablebase files the engine plays from; {@code null} for none. */
+    public String engineTablebases() {
+        return engineTablebases;
+    }
+
+    /** Positions whose legal-move hints are kept, least recently used dropped first. */
+    public int hintCacheEntries() {
+        return hintCacheEntries;
+    }
+
+    /** Address the metrics endpoint listens on; loopback by default. */
+    public String metricsAddress() {
+        return metricsAddress;
+    }
+
+    /** Port of the metrics endpoint; 0 picks a free one, a negative port turns it off. */
+    public int metricsPort() {
+        return metricsPort;
+    }
+
+    /** This server's name in {@link #clusterNodes()}, or {@code null} to run on its own. */
+    public String clusterNode() {
+        return clusterNode;
+    }
+
+    /** Every node of the cluster as {@code name=host:port,...}, the address being its web server's. */
+    public String clusterNodes() {
+        return clusterNodes;
+    }
+
+    /** Added to each node's web port to get the port its event bus listens on. */
+    public int clusterBusPortOffset() {
+        return clusterBusPortOffset;
+    }
+
+    /** Points each node gets on the consistent-hash ring that assigns rooms to nodes. */
+    public int clusterVirtualNodes() {
+        return clusterVirtualNodes;
+    }
+
+    /** Resolution of the timing wheel that watches the game clocks; flags fall up to one tick late. */
+    public long clockTickMillis() {
+        return clockTickMillis;
+    }
+
+    /** Time control for new rooms, or {@code null} for untimed games unless the players set one. */
+    public TimeControl clockDefaultControl() {
+        return clockDefaultControl;
+    }
+
+    /** Rating difference a seek accepts as soon as it is made. */
+    public int matchInitialWindow() {
+        return matchInitialWindow;
+    }
+
+    /** Rating points a waiting seek's window widens by each second. */
+    public int matchWidenPerSecond() {
+        return matchWidenPerSecond;
+    }
+
+    /** Widest a seek's window gets, however long it waits. */
+    public int matchMaxWindow() {
+        return matchMaxWindow;
+    }
+
+    /** How often seeks still waiting are tried again with their widened windows. */
+    public long matchSweepIntervalMillis() {
+        return matchSweepIntervalMillis;
+    }
+
+    private static int intValue(Function<String, String> source, String name, int defaultValue) {
+        String v = source.apply(name);
+        return v == null || v.isBlank() ? defaultValue : Integer.parseInt(v.trim());
+    }
+
+    private static long longValue(Function<String, String> source, String name, long defaultValue) {
+        String v = source.apply(name);
+        return v == null || v.isBlank() ? defaultValue : Long.parseLong(v.trim());
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.chess.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+public class ChessSettingsConfig {
+
+    /**
+     * Publishes the chess.* properties to {@link ChessSettings}, which the non-Spring parts of the
+     * server (rooms, sessions) read directly.
+     */
+    public ChessSettingsConfig(Environment environment) {
+        ChessSettings.load(environment::getProperty);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.chess.config;
+
+import com.example.chess.service.GameRoomManager;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+@Component
+public class GameRoomLifecycle implements SmartLifecycle {
+    private volatile boolean running;
+
+    /**
+     * Creates the room manager, and so recovers the journaled rooms, as soon as the context is up
+     * rather than on the first connection. This runs in the last phase, after the web server has
+     * started accepting connections; one that comes in first still sees every recovered room,
+     * because the manager is created in a static initializer, which the JVM finishes before any
+     * thread can use the class. A phase before the web server's would also move {@link #stop()}
+     * after the sessions are closed.
+     */
+    @Override
+    public void start() {
+        GameRoomManager.getInstance();
+        running = true;
+    }
+
+    /** Runs in a later phase than the web server's stop, i.e. before sessions are closed. */
+    @Override
+    public void stop() {
+        GameRoomManager.getInstance().shutdown();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
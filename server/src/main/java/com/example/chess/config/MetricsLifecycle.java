@@ -0,0 +1,49 @@
+package com.example.chess.config;
+
+import com.example.chess.metrics.Metrics;
+import com.example.chess.metrics.MetricsServer;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+public class MetricsLifecycle implements SmartLifecycle {
+    private static final Logger LOG = Logger.getLogger(MetricsLifecycle.class.getName());
+
+    private volatile MetricsServer server;
+    private volatile boolean running;
+
+    /**
+     * Serves the metrics on {@code chess.metrics.address}:{@code chess.metrics.port}. A port that
+     * cannot be bound is logged and the server runs on without metrics.
+     */
+    @Override
+    public void start() {
+        ChessSettings settings = ChessSettings.getInstance();
+        running = true;
+        if (settings.metricsPort() < 0) return;
+        try {
+            server = MetricsServer.start(settings.metricsAddress(), settings.metricsPort(), Metrics.getInstance());
+            LOG.info("Serving metrics on http://" + settings.metricsAddress() + ":" + server.port() + "/metrics");
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.SEVERE, "Cannot serve metrics on " + settings.metricsAddress() + ":"
+                    + settings.metricsPort(), e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        MetricsServer s = server;
+        if (s != null) s.stop();
+        server = null;
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
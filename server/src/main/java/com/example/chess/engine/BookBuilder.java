@@ -0,0 +1,109 @@
+package com.example.chess.engine;
+
+import com.example.chess.archive.GameArchive;
+import com.example.chess.archive.GameRecord;
+import com.example.chess.game.Board;
+import com.example.chess.game.Moves;
+import com.example.chess.game.San;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds an {@link OpeningBook} from archived games. Every move of the first {@code maxPly}
+ * plies counts for the position it was played in, scoring 2 for a win of the side that played
+ * it, 1 for a draw and 0 for a loss or an unfinished game; moves played in fewer than
+ * {@code minGames} games are left out. A move's weight is its score, scaled down per position
+ * when it would not fit in 16 bits.
+ * <pre>
+ * java -cp target/classes com.example.chess.engine.BookBuilder &lt;in.archive&gt; &lt;out.bin&gt; [maxPly] [minGames]
+ * </pre>
+ */
+public final class BookBuilder {
+    private final int maxPly;
+    private final int minGames;
+    private final San san = new San();
+    private final Map<Line, int[]> lines = new HashMap<>(); // (games, score) per position and move
+
+    private record Line(long key, int move) {}
+
+    public BookBuilder(int maxPly, int minGames) {
+        this.maxPly = maxPly;
+        this.minGames = minGames;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 4) {
+            System.err.println("usage: BookBuilder <in.archive> <out.bin> [maxPly] [minGames]");
+            System.exit(2);
+        }
+        BookBuilder builder = new BookBuilder(args.length > 2 ? Integer.parseInt(args[2]) : 24,
+                args.length > 3 ? Integer.parseInt(args[3]) : 2);
+        long games = 0;
+        try (GameArchive archive = GameArchive.open(Path.of(args[0]))) {
+            for (GameRecord game : archive) {
+                builder.add(game);
+                games++;
+            }
+        }
+        int entries = builder.write(Path.of(args[1]));
+        System.out.printf("%,d games, %,d book entries%n", games, entries);
+    }
+
+    public void add(GameRecord game) {
+        int whiteScore = switch (game.result()) {
+            case GameRecord.WHITE_WINS -> 2;
+            case GameRecord.DRAW -> 1;
+            default -> 0;
+        };
+        int blackScore = switch (game.result()) {
+            case GameRecord.BLACK_WINS -> 2;
+            case GameRecord.DRAW -> 1;
+            default -> 0;
+        };
+        Board board = Board.initial();
+        int[] moves = game.moves();
+        for (int ply = 0; ply < Math.min(maxPly, moves.length); ply++) {
+            int m = moves[ply];
+            int move = san.find(board, Moves.from(m), Moves.to(m), Moves.promotion(m));
+            if (move == Moves.NONE) return; // archived games are legal; stop quietly if not
+            int[] stats = lines.computeIfAbsent(new Line(PolyglotKey.of(board), OpeningBook.encode(move)), l -> new int[2]);
+            stats[0]++;
+            stats[1] += ply % 2 == 0 ? whiteScore : blackScore;
+            board.makeMove(move);
+        }
+    }
+
+    /** Writes the book, sorted by key and then by descending weight; returns the number of entries. */
+    public int write(Path file) throws IOException {
+        List<Map.Entry<Line, int[]>> kept = new ArrayList<>();
+        Map<Long, Integer> maxScore = new HashMap<>();
+        for (Map.Entry<Line, int[]> e : lines.entrySet()) {
+            if (e.getValue()[0] < minGames) continue;
+            kept.add(e);
+            maxScore.merge(e.getKey().key(), e.getValue()[1], Math::max);
+        }
+        kept.sort(Comparator.<Map.Entry<Line, int[]>, Long>comparing(e -> e.getKey().key(), Long::compareUnsigned)
+                .thenComparing(e -> -e.getValue()[1]));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            for (Map.Entry<Line, int[]> e : kept) {
+                long max = maxScore.get(e.getKey().key());
+                long score = e.getValue()[1];
+                int weight = (int) (max <= 0xFFFF ? score : score * 0xFFFF / max);
+                out.writeLong(e.getKey().key());
+                out.writeShort(e.getKey().move());
+                out.writeShort(weight);
+                out.writeInt(0); // learn
+            }
+        }
+        return kept.size();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.chess.engine;
+
+import com.example.chess.game.Board;
+import com.example.chess.game.Moves;
+import com.example.chess.tablebase.Tablebases;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A chess engine: {@link Search} over its own {@link TranspositionTable}, which is kept
+ * between searches so later moves of a game reuse earlier work. Not thread-safe; searches
+ * run on a copy of the position they are given.
+ * <p>
+ * A search may use several threads (Lazy SMP): helper threads search the same root, every
+ * other one starting a ply deeper so they spread over different depths, and share only the
+ * transposition table, which fills faster and steers the main thread. The main thread decides
+ * when to stop, and the deepest completed iteration of any thread is the result.
+ */
+public final class Engine {
+    /** Deepest search {@link #think} will try within its time budget. */
+    public static final int MAX_DEPTH = 64;
+    /** Most threads a single search may use. */
+    public static final int MAX_THREADS = 64;
+
+    private final TranspositionTable table;
+    private final Tablebases tablebases; // null when there are none
+    private Search[] searches; // [0] runs on the caller's thread, the rest on helpers
+
+    /**
+     * Result of a search; {@code move} is packed as in {@link com.example.chess.game.Moves}. A
+     * move taken from the opening book has depth 0.
+     */
+    public record Result(int move, int score, int depth, long nodes, long nanos) {
+        public long nodesPerSecond() {
+            return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+        }
+
+        /** Whether {@code score} is a forced mate, for the side to move if positive. */
+        public boolean isMate() {
+            return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+        }
+    }
+
+    public Engine(int hashMegabytes) {
+        this(hashMegabytes, null);
+    }
+
+    /** An engine that plays positions covered by {@code tablebases} (may be {@code null}) from the tables. */
+    public Engine(int hashMegabytes, Tablebases tablebases) {
+        table = new TranspositionTable(hashMegabytes);
+        this.tablebases = tablebases;
+        searches = new Search[]{new Search(table, tablebases)};
+    }
+
+    /** Best move found within {@code budgetMillis}; at least a one-ply search is always completed. */
+    public Result think(Board position, long budgetMillis) {
+        return think(position, budgetMillis, 1);
+    }
+
+    /** As {@link #think(Board, long)}, searching on {@code threads} threads. */
+    public Result think(Board position, long budgetMillis, int threads) {
+        return run(position, MAX_DEPTH, System.nanoTime() + budgetMillis * 1_000_000L, threads);
+    }
+
+    /** Searches to exactly {@code depth} plies (plus extensions), however long it takes. */
+    public Result search(Board position, int depth) {
+        return search(position, depth, 1);
+    }
+
+    /** As {@link #search(Board, int)}, searching on {@code threads} threads. */
+    public Result search(Board position, int depth, int threads) {
+        return run(position, depth, System.nanoTime() + Long.MAX_VALUE / 2, threads);
+    }
+
+    /** Forgets everything learned by earlier searches. */
+    public void clear() {
+        table.clear();
+    }
+
+    private Result run(Board position, int maxDepth, long deadline, int threads) {
+        if (threads < 1 || threads > MAX_THREADS) {
+            throw new IllegalArgumentException("threads must be between 1 and " + MAX_THREADS + ": " + threads);
+        }
+        if (threads == 1) return searches[0].run(position.copy(), maxDepth, deadline);
+        if (searches.length < threads) {
+            Search[] grown = Arrays.copyOf(searches, threads);
+            for (int i = searches.length; i < threads; i++) grown[i] = new Search(table, tablebases);
+            searches = grown;
+        }
+
+        AtomicBoolean abort = new AtomicBoolean();
+        Result[] results = new Result[threads];
+        Thread[] helpers = new Thread[threads - 1];
+        for (int i = 1; i < threads; i++) {
+            int id = i;
+            Board copy = position.copy();
+            helpers[i - 1] = new Thread(() -> results[id] =
+                    searches[id].run(copy, 1 + (id & 1), maxDepth, deadline, abort), "engine-helper-" + i);
+            helpers[i - 1].setDaemon(true);
+            helpers[i - 1].start();
+        }
+        results[0] = searches[0].run(position.copy(), maxDepth, deadline);
+        abort.set(true);
+        boolean interrupted = false;
+        for (Thread t : helpers) {
+            while (true) {
+                try {
+                    t.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true; // the helpers are already stopping; wait for them
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        Result best = results[0];
+        long nodes = 0;
+        for (Result r : results) {
+            if (r == null) continue; // a helper that failed; the main result still stands
+            nodes += r.nodes();
+            if (r.depth() > best.depth() && r.move() != Moves.NONE) best = r;
+        }
+        return new Result(best.move(), best.score(), best.depth(), nodes, results[0].nanos());
+    }
+}
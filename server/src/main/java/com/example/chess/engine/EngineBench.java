@@ -0,0 +1,103 @@
+package com.example.chess.engine;
+
+import com.example.chess.game.Board;
+import com.example.chess.game.Moves;
+import com.example.chess.game.Perft;
+
+import java.util.List;
+
+/**
+ * Engine benchmark and tactics check. Searches each perft reference position to a fixed depth
+ * and prints nodes per second, then solves the tactical suite:
+ * <pre>
+ * java -cp target/classes com.example.chess.engine.EngineBench [depth]
+ * </pre>
+ * With {@code smp} it instead measures how the time to reach a fixed depth on the same
+ * positions scales with the number of search threads, from 1 up to {@code maxThreads}:
+ * <pre>
+ * java -cp target/classes com.example.chess.engine.EngineBench smp [depth] [maxThreads]
+ * </pre>
+ */
+public final class EngineBench {
+
+    /** A position with a clear best move; any of {@code best} (UCI) counts as solved. */
+    public record Tactic(String name, String fen, int depth, String... best) {}
+
+    public static final List<Tactic> TACTICS = List.of(
+            new Tactic("back-rank mate", "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1", 2, "d1d8"),
+            new Tactic("scholar's mate", "r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4", 2,
+                    "h5f7"),
+            new Tactic("knight fork", "r3k3/8/8/3N4/8/8/8/4K3 w - - 0 1", 4, "d5c7"),
+            new Tactic("hanging queen", "4k3/8/8/3q4/8/8/8/3QK3 w - - 0 1", 3, "d1d5"),
+            new Tactic("promotion", "8/P7/8/8/8/8/8/k6K w - - 0 1", 3, "a7a8q"),
+            new Tactic("rook ladder mate in 2", "7k/8/8/8/8/8/R7/1R5K w - - 0 1", 4, "a2a7", "b1b7", "b1g1"));
+
+    private EngineBench() {}
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("smp")) {
+            scaling(args.length > 1 ? Integer.parseInt(args[1]) : 7,
+                    args.length > 2 ? Integer.parseInt(args[2]) : 16);
+            return;
+        }
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        Engine engine = new Engine(64);
+        long nodes = 0, nanos = 0;
+        for (Perft.Reference ref : Perft.REFERENCE_POSITIONS) {
+            Engine.Result r = engine.search(Board.fromFen(ref.fen()), depth);
+            nodes += r.nodes();
+            nanos += r.nanos();
+            System.out.printf("%-12s depth %2d  %-6s score %6d  %,12d nodes  %,10d nps%n", ref.name(), r.depth(),
+                    Moves.toUci(r.move()), r.score(), r.nodes(), r.nodesPerSecond());
+        }
+        System.out.printf("total %,d nodes in %.2f s: %,d nps%n", nodes, nanos / 1e9,
+                nodes * 1_000_000_000L / Math.max(nanos, 1));
+
+        int solved = 0;
+        for (Tactic t : TACTICS) {
+            boolean ok = solves(new Engine(16), t);
+            if (ok) solved++;
+            System.out.printf("%-24s %s%n", t.name(), ok ? "solved" : "MISSED");
+        }
+        System.out.printf("tactics: %d/%d solved%n", solved, TACTICS.size());
+        if (solved < TACTICS.size()) System.exit(1);
+    }
+
+    private static void scaling(int depth, int maxThreads) {
+        Engine engine = new Engine(256);
+        search(engine, depth, 1); // warm up the JIT before timing anything
+        long base = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long nodes = 0, nanos = 0;
+            for (int run = 0; run < 3; run++) { // best of three, as thread timing is noisy
+                long start = System.nanoTime();
+                long n = search(engine, depth, threads);
+                long elapsed = System.nanoTime() - start;
+                if (run == 0 || elapsed < nanos) {
+                    nanos = elapsed;
+                    nodes = n;
+                }
+            }
+            if (threads == 1) base = nanos;
+            System.out.printf("%2d threads  depth %2d in %8.3f s  speedup %5.2f  %,12d nodes  %,12d nps%n",
+                    threads, depth, nanos / 1e9, (double) base / nanos, nodes,
+                    nodes * 1_000_000_000L / Math.max(nanos, 1));
+        }
+    }
+
+    /** Searches every reference position from an empty table; returns the nodes searched. */
+    private static long search(Engine engine, int depth, int threads) {
+        long nodes = 0;
+        for (Perft.Reference ref : Perft.REFERENCE_POSITIONS) {
+            engine.clear();
+            nodes += engine.search(Board.fromFen(ref.fen()), depth, threads).nodes();
+        }
+        return nodes;
+    }
+
+    /** Whether a fixed-depth search of the tactic's position finds one of its best moves. */
+    public static boolean solves(Engine engine, Tactic t) {
+        String move = Moves.toUci(engine.search(Board.fromFen(t.fen()), t.depth()).move());
+        return List.of(t.best()).contains(move);
+    }
+}
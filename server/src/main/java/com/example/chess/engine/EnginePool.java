@@ -0,0 +1,87 @@
+package com.example.chess.engine;
+
+import com.example.chess.game.Board;
+import com.example.chess.game.Moves;
+import com.example.chess.tablebase.Tablebases;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs engine searches on a small, fixed set of low-priority threads of its own, separate from
+ * the room shards, so however many engine games are in progress the rooms keep handling human
+ * moves. Requests beyond the threads wait in a bounded queue; when that is full the caller is
+ * told so and can fall back to a cheap move. Each thread keeps one {@link Engine}, so memory
+ * is bounded by threads times the hash size. Positions in the {@link OpeningBook}, when there is
+ * one, are answered straight from the book without a search, and endgames covered by the
+ * {@link Tablebases} are played from the tables.
+ */
+public final class EnginePool {
+    private static final Logger LOG = Logger.getLogger(EnginePool.class.getName());
+
+    private final ThreadPoolExecutor executor;
+    private final ThreadLocal<Engine> engines;
+    private final ThreadLocal<int[]> fallbackMoves = ThreadLocal.withInitial(() -> new int[Moves.MAX_MOVES]);
+    private final long moveMillis;
+    private final OpeningBook book; // null when there is none
+
+    public EnginePool(int threads, int queueCapacity, int hashMegabytes, long moveMillis, OpeningBook book,
+                      Tablebases tablebases) {
+        int n = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(n, n, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread t = new Thread(r, "engine-" + counter.getAndIncrement());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        engines = ThreadLocal.withInitial(() -> new Engine(hashMegabytes, tablebases));
+        this.moveMillis = moveMillis;
+        this.book = book;
+    }
+
+    /**
+     * Searches a copy of {@code position} for the per-move budget and passes the result to
+     * {@code done} on an engine thread. A book move is passed to {@code done} right away, on
+     * the caller's thread, as a result of depth 0. Returns {@code false}, without searching,
+     * when the queue is full.
+     */
+    public boolean submit(Board position, Consumer<Engine.Result> done) {
+        int booked = book == null ? Moves.NONE : book.choose(position, ThreadLocalRandom.current());
+        if (booked != Moves.NONE) {
+            done.accept(new Engine.Result(booked, 0, 0, 0, 0));
+            return true;
+        }
+        Board copy = position.copy(); // taken now, on the caller's thread
+        try {
+            executor.execute(() -> {
+                try {
+                    done.accept(engines.get().think(copy, moveMillis));
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Engine search failed", e);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A random legal move, for when {@link #submit} is refused, as a result of depth 0; or
+     * {@link Moves#NONE} when there is none. It does not search, so it is cheap enough for a
+     * room shard, whose thread also serves human moves in other rooms.
+     */
+    public Engine.Result quickMove(Board position) {
+        int[] moves = fallbackMoves.get();
+        int n = position.generateLegalMoves(moves);
+        return new Engine.Result(n == 0 ? Moves.NONE : moves[ThreadLocalRandom.current().nextInt(n)], 0, 0, 0, 0);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.chess.engine;
+
+import com.example.chess.game.Board;
+import com.example.chess.game.Color;
+import com.example.chess.game.Type;
+
+/**
+ * Static evaluation: material plus piece-square tables (the well-known "simplified evaluation
+ * function" values), with the king table blended from middlegame to endgame by the material
+ * left. Scores are in centipawns from the side to move's point of view.
+ */
+final class Evaluator {
+    static final int[] VALUE = new int[Type.values().length];
+
+    static {
+        VALUE[Type.PAWN.ordinal()] = 100;
+        VALUE[Type.KNIGHT.ordinal()] = 320;
+        VALUE[Type.BISHOP.ordinal()] = 330;
+        VALUE[Type.ROOK.ordinal()] = 500;
+        VALUE[Type.QUEEN.ordinal()] = 900;
+        VALUE[Type.KING.ordinal()] = 20_000;
+    }
+
+    // Tables are laid out as seen from White, rank 8 first; index with sq ^ 56 for White, sq for Black
+    private static final int[] PAWN = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0};
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50};
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20};
+    private static final int[] ROOK = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0};
+    private static final int[] QUEEN = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20};
+    private static final int[] KING_MIDDLE = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20};
+    private static final int[] KING_END = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50};
+    private static final int[][] TABLES = new int[Type.values().length][];
+
+    static {
+        TABLES[Type.PAWN.ordinal()] = PAWN;
+        TABLES[Type.KNIGHT.ordinal()] = KNIGHT;
+        TABLES[Type.BISHOP.ordinal()] = BISHOP;
+        TABLES[Type.ROOK.ordinal()] = ROOK;
+        TABLES[Type.QUEEN.ordinal()] = QUEEN;
+    }
+
+    // Non-pawn material at which the king table is fully the middlegame one
+    private static final int FULL_PHASE = 2 * (2 * 320 + 2 * 330 + 2 * 500 + 900);
+
+    private Evaluator() {}
+
+    static int evaluate(Board board) {
+        int score = 0, phase = 0;
+        for (Type type : Type.values()) {
+            if (type == Type.KING) continue;
+            int[] table = TABLES[type.ordinal()];
+            int value = VALUE[type.ordinal()];
+            for (long bb = board.pieces(Color.WHITE, type); bb != 0; bb &= bb - 1) {
+                score += value + table[Long.numberOfTrailingZeros(bb) ^ 56];
+                if (type != Type.PAWN) phase += value;
+            }
+            for (long bb = board.pieces(Color.BLACK, type); bb != 0; bb &= bb - 1) {
+                score -= value + table[Long.numberOfTrailingZeros(bb)];
+                if (type != Type.PAWN) phase += value;
+            }
+        }
+        phase = Math.min(phase, FULL_PHASE);
+        int wk = Long.numberOfTrailingZeros(board.pieces(Color.WHITE, Type.KING)) ^ 56;
+        int bk = Long.numberOfTrailingZeros(board.pieces(Color.BLACK, Type.KING));
+        score += ((KING_MIDDLE[wk] - KING_MIDDLE[bk]) * phase + (KING_END[wk] - KING_END[bk]) * (FULL_PHASE - phase))
+                / FULL_PHASE;
+        return board.getTurn() == Color.WHITE ? score : -score;
+    }
+}
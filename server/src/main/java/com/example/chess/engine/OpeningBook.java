@@ -0,0 +1,145 @@
+package com.example.chess.engine;
+
+import com.example.chess.game.Board;
+import com.example.chess.game.Move;
+import com.example.chess.game.Moves;
+import com.example.chess.game.Type;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Opening book in the Polyglot file layout: 16-byte big-endian entries of (key, move, weight,
+ * learn) sorted by key, memory-mapped and binary-searched, so a probe touches a handful of
+ * pages and allocates nothing. Moves use Polyglot's encoding (to square in bits 0-5, from in
+ * 6-11, promotion 1-4 for knight to queen in 12-14, castling as the king taking its own rook).
+ * <p>
+ * Keys are Polyglot's own ({@link PolyglotKey}), so third-party {@code .bin} books work as well
+ * as those from {@link BookBuilder}. Every book move is checked against the legal moves of the
+ * position before it is returned, so a stale book or a key collision cannot produce an illegal
+ * move. Safe to share between threads.
+ */
+public final class OpeningBook {
+    static final int ENTRY_BYTES = 16;
+
+    /** A book move and its weight, relative to the other moves of the same position. */
+    public record BookMove(Move move, int weight) {}
+
+    private final MappedByteBuffer map;
+    private final int entries;
+    private final ThreadLocal<int[]> legal = ThreadLocal.withInitial(() -> new int[Moves.MAX_MOVES]);
+    private final ThreadLocal<int[][]> scratch =
+            ThreadLocal.withInitial(() -> new int[][]{new int[Moves.MAX_MOVES], new int[Moves.MAX_MOVES]});
+
+    private OpeningBook(MappedByteBuffer map) {
+        this.map = map;
+        this.entries = map.capacity() / ENTRY_BYTES;
+    }
+
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size % ENTRY_BYTES != 0 || size > Integer.MAX_VALUE) {
+                throw new IOException("Not an opening book (" + size + " bytes): " + file);
+            }
+            return new OpeningBook(ch.map(FileChannel.MapMode.READ_ONLY, 0, size)); // stays valid after close
+        }
+    }
+
+    public int size() {
+        return entries;
+    }
+
+    /**
+     * Writes the book moves for the board's position to {@code moves} (packed as in {@link Moves})
+     * and their weights to {@code weights}, and returns how many there are, at most
+     * {@code moves.length}. Allocation-free.
+     */
+    public int probe(Board board, int[] moves, int[] weights) {
+        long key = PolyglotKey.of(board);
+        int i = lowerBound(key);
+        if (i == entries || keyAt(i) != key) return 0;
+        int[] buffer = legal.get();
+        int legalCount = board.generateLegalMoves(buffer);
+        int n = 0;
+        for (; i < entries && keyAt(i) == key && n < moves.length; i++) {
+            int m = decode(map.getShort(i * ENTRY_BYTES + 8) & 0xFFFF, buffer, legalCount);
+            if (m == Moves.NONE) continue;
+            moves[n] = m;
+            weights[n++] = map.getShort(i * ENTRY_BYTES + 10) & 0xFFFF;
+        }
+        return n;
+    }
+
+    /**
+     * A book move for the position picked at random in proportion to its weight, or
+     * {@link Moves#NONE} when the position is not in the book (or all its weights are zero).
+     * Allocation-free.
+     */
+    public int choose(Board board, RandomGenerator random) {
+        int[][] s = scratch.get();
+        int[] moves = s[0], weights = s[1];
+        int n = probe(board, moves, weights);
+        int total = 0;
+        for (int i = 0; i < n; i++) total += weights[i];
+        if (total == 0) return Moves.NONE;
+        int pick = random.nextInt(total);
+        for (int i = 0; i < n; i++) {
+            pick -= weights[i];
+            if (pick < 0) return moves[i];
+        }
+        return Moves.NONE; // not reached
+    }
+
+    /** The book moves for the board's position, heaviest first as the book stores them. */
+    public List<BookMove> lookup(Board board) {
+        int[] moves = new int[Moves.MAX_MOVES], weights = new int[Moves.MAX_MOVES];
+        int n = probe(board, moves, weights);
+        List<BookMove> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(new BookMove(Moves.toMove(moves[i]), weights[i]));
+        return out;
+    }
+
+    private long keyAt(int i) {
+        return map.getLong(i * ENTRY_BYTES);
+    }
+
+    /** First entry whose key is not below {@code key}, comparing unsigned as Polyglot sorts. */
+    private int lowerBound(long key) {
+        int lo = 0, hi = entries;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(keyAt(mid), key) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** The legal move a Polyglot move stands for, or {@link Moves#NONE}. */
+    private static int decode(int book, int[] legal, int n) {
+        for (int i = 0; i < n; i++) {
+            if (encode(legal[i]) == book) return legal[i];
+        }
+        return Moves.NONE;
+    }
+
+    /** Polyglot encoding of a packed move; castling becomes the king taking its own rook. */
+    static int encode(int move) {
+        int from = Moves.from(move), to = Moves.to(move);
+        if (Moves.flag(move) == Moves.FLAG_CASTLE) to = (to & 7) == 6 ? to + 1 : to - 2;
+        Type p = Moves.promotion(move);
+        int promo = p == null ? 0 : switch (p) {
+            case KNIGHT -> 1;
+            case BISHOP -> 2;
+            case ROOK -> 3;
+            default -> 4;
+        };
+        return to | (from << 6) | (promo << 12);
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.chess.engine;
+
+import com.example.chess.game.Board;
+import com.example.chess.game.Moves;
+import com.example.chess.game.Piece;
+import com.example.chess.game.Type;
+import com.example.chess.tablebase.Tablebases;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Iterative-deepening alpha-beta (negamax) with a quiescence search over captures and
+ * promotions. Moves are tried in the order: transposition-table move, captures by most
+ * valuable victim / least valuable attacker, killer moves, then quiet moves by history score.
+ * Checks extend the search by a ply. One instance searches one position at a time; several
+ * instances sharing a {@link TranspositionTable} make up a parallel (Lazy SMP) search.
+ */
+final class Search {
+    static final int MATE = 30_000;
+    static final int INFINITY = 32_000;
+    static final int MAX_PLY = 96;
+    private static final int CHECK_EVERY = 1 << 11; // nodes between clock checks
+
+    private final TranspositionTable tt;
+    private final Tablebases tablebases; // null when there are none
+    private final int[][] moves = new int[MAX_PLY + 1][Moves.MAX_MOVES];
+    private final int[][] scores = new int[MAX_PLY + 1][Moves.MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[][] history = new int[64][64];
+
+    private Board board;
+    private long deadline;
+    private boolean stopped;
+    private boolean mustFinish; // the first iteration ignores the clock
+    private AtomicBoolean abort; // set by the main thread of a parallel search to stop its helpers
+    private long nodes;
+    private int rootBest;
+
+    Search(TranspositionTable tt, Tablebases tablebases) {
+        this.tt = tt;
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * Searches {@code board} (which is left as it was) until {@code maxDepth} or the deadline, a
+     * {@link System#nanoTime()}; depth 1 always completes, so there is a move whenever one exists.
+     */
+    Engine.Result run(Board board, int maxDepth, long deadline) {
+        return run(board, 1, maxDepth, deadline, null);
+    }
+
+    /**
+     * As a helper of a parallel search: iterates from {@code startDepth} and stops, keeping the
+     * last completed iteration, as soon as {@code abort} is set.
+     */
+    Engine.Result run(Board board, int startDepth, int maxDepth, long deadline, AtomicBoolean abort) {
+        this.board = board;
+        this.deadline = deadline;
+        this.abort = abort;
+        this.stopped = false;
+        this.nodes = 0;
+        for (int[] k : killers) k[0] = k[1] = 0;
+        for (int[] h : history) Arrays.fill(h, 0);
+        long start = System.nanoTime();
+        int bestMove = Moves.NONE, bestScore = 0, completed = 0;
+        for (int depth = startDepth; depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+            mustFinish = depth == 1 && abort == null;
+            int score = negamax(depth, -INFINITY, INFINITY, 0);
+            if (stopped) break;
+            bestMove = rootBest;
+            bestScore = score;
+            completed = depth;
+            if (Math.abs(score) >= MATE - MAX_PLY) break; // a forced mate was found; deeper will not change it
+        }
+        return new Engine.Result(bestMove, bestScore, completed, nodes, System.nanoTime() - start);
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        if (ply > 0) {
+            if (board.isRepetition() || board.getHalfmoveClock() >= 100) return 0;
+            if (tablebases != null) {
+                int v = tablebases.probe(board);
+                if (v != Tablebases.NOT_FOUND) return tablebaseScore(v, ply);
+            }
+            // Mate distance pruning
+            alpha = Math.max(alpha, -MATE + ply);
+            beta = Math.min(beta, MATE - ply - 1);
+            if (alpha >= beta) return alpha;
+        }
+        boolean inCheck = board.isKingInCheck(board.getTurn());
+        if (inCheck) depth++;
+        if (depth <= 0 || ply >= MAX_PLY) return quiesce(alpha, beta, ply);
+        if (++nodes % CHECK_EVERY == 0 && timeUp()) return 0;
+
+        long key = board.getKey();
+        long entry = tt.probe(key);
+        int ttMove = Moves.NONE;
+        if (entry != TranspositionTable.MISS) {
+            ttMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int s = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && s >= beta
+                        || bound == TranspositionTable.UPPER && s <= alpha) {
+                    return s;
+                }
+            }
+        }
+
+        int[] list = moves[ply];
+        int n = board.generateLegalMoves(list);
+        if (n == 0) return inCheck ? -MATE + ply : 0;
+        score(list, scores[ply], n, ttMove, ply);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY, bestMove = Moves.NONE;
+        for (int i = 0; i < n; i++) {
+            int m = pickNext(list, scores[ply], i, n);
+            board.makeMove(m);
+            int s = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            board.unmakeMove();
+            if (stopped) return 0;
+            if (s > best) {
+                best = s;
+                bestMove = m;
+                if (ply == 0) rootBest = m;
+            }
+            if (s > alpha) alpha = s;
+            if (alpha >= beta) {
+                if (!isCapture(m) && Moves.promotion(m) == null) {
+                    if (killers[ply][0] != m) {
+                        killers[ply][1] = killers[ply][0];
+                        killers[ply][0] = m;
+                    }
+                    history[Moves.from(m)][Moves.to(m)] += depth * depth;
+                }
+                break;
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        tt.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /** A table result as a search score: mates count from here, so shorter wins score higher. */
+    private static int tablebaseScore(int value, int ply) {
+        return switch (Tablebases.wdl(value)) {
+            case Tablebases.WIN -> MATE - ply - Tablebases.plies(value);
+            case Tablebases.LOSS -> -MATE + ply + Tablebases.plies(value);
+            default -> 0;
+        };
+    }
+
+    private int quiesce(int alpha, int beta, int ply) {
+        if (++nodes % CHECK_EVERY == 0 && timeUp()) return 0;
+        boolean inCheck = board.isKingInCheck(board.getTurn());
+        int best = -INFINITY;
+        if (!inCheck) {
+            best = Evaluator.evaluate(board);
+            if (best >= beta || ply >= MAX_PLY) return best;
+            if (best > alpha) alpha = best;
+        }
+        int[] list = moves[ply];
+        int n = board.generateLegalMoves(list);
+        if (n == 0) return inCheck ? -MATE + ply : 0;
+        if (ply >= MAX_PLY) return Evaluator.evaluate(board);
+        // Out of check every evasion is tried; otherwise only captures and promotions
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            int m = list[i];
+            if (inCheck || isCapture(m) || Moves.promotion(m) != null) list[kept++] = m;
+        }
+        score(list, scores[ply], kept, Moves.NONE, ply);
+        for (int i = 0; i < kept; i++) {
+            int m = pickNext(list, scores[ply], i, kept);
+            board.makeMove(m);
+            int s = -quiesce(-beta, -alpha, ply + 1);
+            board.unmakeMove();
+            if (stopped) return 0;
+            if (s > best) best = s;
+            if (s > alpha) alpha = s;
+            if (alpha >= beta) break;
+        }
+        return best;
+    }
+
+    private void score(int[] list, int[] out, int n, int ttMove, int ply) {
+        for (int i = 0; i < n; i++) {
+            int m = list[i];
+            int s;
+            if (m == ttMove) {
+                s = 1_000_000;
+            } else if (isCapture(m)) {
+                int to = Moves.to(m), from = Moves.from(m);
+                Piece victim = board.get(to & 7, to >>> 3); // null for en passant
+                Type victimType = victim == null ? Type.PAWN : victim.getType();
+                Type attacker = board.get(from & 7, from >>> 3).getType();
+                s = 500_000 + Evaluator.VALUE[victimType.ordinal()] * 10 - Evaluator.VALUE[attacker.ordinal()] / 100;
+            } else if (Moves.promotion(m) != null) {
+                s = 400_000 + Evaluator.VALUE[Moves.promotion(m).ordinal()];
+            } else if (m == killers[ply][0]) {
+                s = 300_000;
+            } else if (m == killers[ply][1]) {
+                s = 299_000;
+            } else {
+                s = Math.min(history[Moves.from(m)][Moves.to(m)], 200_000);
+            }
+            out[i] = s;
+        }
+    }
+
+    /** Selection sort step: swaps the best-scored of {@code [i, n)} into {@code i} and returns it. */
+    private static int pickNext(int[] list, int[] scores, int i, int n) {
+        int best = i;
+        for (int j = i + 1; j < n; j++) if (scores[j] > scores[best]) best = j;
+        int m = list[best];
+        list[best] = list[i];
+        list[i] = m;
+        int s = scores[best];
+        scores[best] = scores[i];
+        scores[i] = s;
+        return m;
+    }
+
+    private boolean isCapture(int m) {
+        int to = Moves.to(m);
+        return Moves.flag(m) == Moves.FLAG_EN_PASSANT || board.get(to & 7, to >>> 3) != null;
+    }
+
+    private boolean timeUp() {
+        if (abort != null && abort.get() || !mustFinish && System.nanoTime() - deadline > 0) stopped = true;
+        return stopped;
+    }
+
+    // Mate scores are stored relative to the node, not the root, so they stay valid at other plies
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score + ply;
+        if (score <= -MATE + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score - ply;
+        if (score <= -MATE + MAX_PLY) return score + ply;
+        return score;
+    }
+}
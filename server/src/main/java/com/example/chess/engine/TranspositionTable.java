@@ -0,0 +1,76 @@
+package com.example.chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of search results keyed by Zobrist key, preallocated as one
+ * {@code long[]} of (check, entry) pairs and shared without locks by every thread of a
+ * parallel search. The check word is the key XOR the entry, so a slot torn by two threads
+ * writing at once fails verification and reads as a miss instead of handing back another
+ * position's result. A new result replaces the old one unless the old one is a deeper result
+ * for the same position and the new one is only a bound.
+ * <p>
+ * Entry layout: move in bits 0-16, score + 32768 in 17-32, depth in 33-40, bound in 41-42,
+ * and bit 43 set for a used slot.
+ */
+final class TranspositionTable {
+    static final int EXACT = 0;
+    static final int LOWER = 1; // score is at least this (fail high)
+    static final int UPPER = 2; // score is at most this (fail low)
+    static final long MISS = 0;
+
+    private static final long USED = 1L << 43;
+    private static final int MIN_ENTRIES = 1 << 10;
+
+    private final long[] slots; // [2i] = key ^ entry, [2i + 1] = entry
+    private final int mask;
+
+    TranspositionTable(int megabytes) {
+        long wanted = Math.max(MIN_ENTRIES, (long) megabytes * (1 << 20) / 16);
+        int size = Integer.highestOneBit((int) Math.min(wanted, 1 << 29));
+        slots = new long[2 * size];
+        mask = size - 1;
+    }
+
+    /** The entry for {@code key}, or {@link #MISS}. */
+    long probe(long key) {
+        int i = ((int) key & mask) << 1;
+        long entry = slots[i + 1];
+        return (slots[i] ^ entry) == key && entry != MISS ? entry : MISS;
+    }
+
+    void store(long key, int move, int score, int depth, int bound) {
+        int i = ((int) key & mask) << 1;
+        long old = slots[i + 1];
+        boolean same = (slots[i] ^ old) == key && old != MISS;
+        if (same && depth(old) > depth && bound != EXACT) return;
+        if (move == 0 && same) move = move(old); // keep the best move we knew
+        long entry = move
+                | ((long) (score + 32768) << 17)
+                | ((long) depth << 33)
+                | ((long) bound << 41)
+                | USED;
+        slots[i] = key ^ entry;
+        slots[i + 1] = entry;
+    }
+
+    void clear() {
+        Arrays.fill(slots, 0L);
+    }
+
+    static int move(long entry) {
+        return (int) (entry & 0x1FFFF);
+    }
+
+    static int score(long entry) {
+        return (int) ((entry >>> 17) & 0xFFFF) - 32768;
+    }
+
+    static int depth(long entry) {
+        return (int) ((entry >>> 33) & 0xFF);
+    }
+
+    static int bound(long entry) {
+        return (int) ((entry >>> 41) & 3);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.chess.game;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Precomputed attack tables on 64-bit boards. Square index is {@code rank * 8 + file},
+ * so bit 0 is a1 and bit 63 is h8. Sliding pieces use magic bitboards; the magics are
+ * searched once at class initialisation with a fixed seed, so the tables are deterministic.
+ */
+public final class Attacks {
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_8 = RANK_1 << 56;
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64]; // [color][square]
+
+    private static final long[] ROOK_MASK = new long[64];
+    private static final long[] ROOK_MAGIC = new long[64];
+    private static final int[] ROOK_SHIFT = new int[64];
+    private static final long[][] ROOK_TABLE = new long[64][];
+
+    private static final long[] BISHOP_MASK = new long[64];
+    private static final long[] BISHOP_MAGIC = new long[64];
+    private static final int[] BISHOP_SHIFT = new int[64];
+    private static final long[][] BISHOP_TABLE = new long[64][];
+
+    private static final int[][] ROOK_DIRS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    static {
+        int[][] knightSteps = {{1, 2}, {2, 1}, {-1, 2}, {-2, 1}, {1, -2}, {2, -1}, {-1, -2}, {-2, -1}};
+        for (int sq = 0; sq < 64; sq++) {
+            int f = sq & 7, r = sq >>> 3;
+            for (int[] s : knightSteps) KNIGHT[sq] |= bitIfOnBoard(f + s[0], r + s[1]);
+            for (int df = -1; df <= 1; df++) {
+                for (int dr = -1; dr <= 1; dr++) {
+                    if (df != 0 || dr != 0) KING[sq] |= bitIfOnBoard(f + df, r + dr);
+                }
+            }
+            PAWN[Color.WHITE.ordinal()][sq] = bitIfOnBoard(f - 1, r + 1) | bitIfOnBoard(f + 1, r + 1);
+            PAWN[Color.BLACK.ordinal()][sq] = bitIfOnBoard(f - 1, r - 1) | bitIfOnBoard(f + 1, r - 1);
+        }
+        SplittableRandom rnd = new SplittableRandom(0x5EED_C4E55L);
+        for (int sq = 0; sq < 64; sq++) {
+            initMagic(sq, ROOK_DIRS, ROOK_MASK, ROOK_MAGIC, ROOK_SHIFT, ROOK_TABLE, rnd);
+            initMagic(sq, BISHOP_DIRS, BISHOP_MASK, BISHOP_MAGIC, BISHOP_SHIFT, BISHOP_TABLE, rnd);
+        }
+    }
+
+    private Attacks() {}
+
+    public static long bit(int sq) {
+        return 1L << sq;
+    }
+
+    public static long knight(int sq) {
+        return KNIGHT[sq];
+    }
+
+    public static long king(int sq) {
+        return KING[sq];
+    }
+
+    /** Squares attacked by a pawn of {@code color} standing on {@code sq}. */
+    public static long pawn(Color color, int sq) {
+        return PAWN[color.ordinal()][sq];
+    }
+
+    public static long rook(int sq, long occupied) {
+        return ROOK_TABLE[sq][(int) (((occupied & ROOK_MASK[sq]) * ROOK_MAGIC[sq]) >>> ROOK_SHIFT[sq])];
+    }
+
+    public static long bishop(int sq, long occupied) {
+        return BISHOP_TABLE[sq][(int) (((occupied & BISHOP_MASK[sq]) * BISHOP_MAGIC[sq]) >>> BISHOP_SHIFT[sq])];
+    }
+
+    public static long queen(int sq, long occupied) {
+        return rook(sq, occupied) | bishop(sq, occupied);
+    }
+
+    private static long bitIfOnBoard(int f, int r) {
+        return (f >= 0 && f < 8 && r >= 0 && r < 8) ? 1L << (r * 8 + f) : 0L;
+    }
+
+    /** Slow ray walk, used only while building the tables. */
+    private static long slidingAttacks(int sq, long occupied, int[][] dirs) {
+        long attacks = 0L;
+        for (int[] d : dirs) {
+            int f = (sq & 7) + d[0], r = (sq >>> 3) + d[1];
+            while (f >= 0 && f < 8 && r >= 0 && r < 8) {
+                long b = 1L << (r * 8 + f);
+                attacks |= b;
+                if ((occupied & b) != 0) break;
+                f += d[0];
+                r += d[1];
+            }
+        }
+        return attacks;
+    }
+
+    /** Relevant occupancy: the rays without their last square, since an edge blocker changes nothing. */
+    private static long relevantMask(int sq, int[][] dirs) {
+        long mask = 0L;
+        for (int[] d : dirs) {
+            int f = (sq & 7) + d[0], r = (sq >>> 3) + d[1];
+            while (f + d[0] >= 0 && f + d[0] < 8 && r + d[1] >= 0 && r + d[1] < 8) {
+                mask |= 1L << (r * 8 + f);
+                f += d[0];
+                r += d[1];
+            }
+        }
+        return mask;
+    }
+
+    private static void initMagic(int sq, int[][] dirs, long[] masks, long[] magics, int[] shifts,
+                                  long[][] tables, SplittableRandom rnd) {
+        long mask = relevantMask(sq, dirs);
+        int bits = Long.bitCount(mask);
+        int size = 1 << bits;
+        long[] occupancies = new long[size];
+        long[] attacks = new long[size];
+        long subset = 0L;
+        for (int i = 0; i < size; i++) {
+            // Carry-rippler enumeration of every subset of the mask
+            occupancies[i] = subset;
+            attacks[i] = slidingAttacks(sq, subset, dirs);
+            subset = (subset - mask) & mask;
+        }
+        long[] table = new long[size];
+        int shift = 64 - bits;
+        while (true) {
+            long magic = rnd.nextLong() & rnd.nextLong() & rnd.nextLong();
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) continue;
+            Arrays.fill(table, -1L);
+            boolean ok = true;
+            for (int i = 0; i < size && ok; i++) {
+                int idx = (int) ((occupancies[i] * magic) >>> shift);
+                if (table[idx] == -1L) {
+                    table[idx] = attacks[i];
+                } else if (table[idx] != attacks[i]) {
+                    ok = false;
+                }
+            }
+            if (ok) {
+                masks[sq] = mask;
+                magics[sq] = magic;
+                shifts[sq] = shift;
+                tables[sq] = table;
+                return;
+            }
+        }
+    }
+}
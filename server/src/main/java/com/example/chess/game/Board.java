@@ -1,27 +1,157 @@
 package com.example.chess.game;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Objects;
 
+/**
+ * Bitboard position: one 64-bit mask per color and piece type, plus a 64-entry mailbox so
+ * {@link #get} stays a plain array read. Square index is {@code rank * 8 + file}.
+ */
 public class Board {
-    private final Piece[][] grid = new Piece[8][8]; // [rank][file]
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    private static final int PIECE_TYPES = Type.values().length;
+    private static final Type[] PROMOTIONS = {Type.QUEEN, Type.ROOK, Type.BISHOP, Type.KNIGHT};
+
+    // Castling rights that survive a move touching the square (king and rook home squares clear theirs)
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, 15);
+        CASTLING_MASK[0] = ~WHITE_QUEENSIDE & 15;
+        CASTLING_MASK[4] = ~(WHITE_KINGSIDE | WHITE_QUEENSIDE) & 15;
+        CASTLING_MASK[7] = ~WHITE_KINGSIDE & 15;
+        CASTLING_MASK[56] = ~BLACK_QUEENSIDE & 15;
+        CASTLING_MASK[60] = ~(BLACK_KINGSIDE | BLACK_QUEENSIDE) & 15;
+        CASTLING_MASK[63] = ~BLACK_KINGSIDE & 15;
+    }
+
+    private final long[] pieces = new long[2 * PIECE_TYPES]; // [color * 6 + type]
+    private final long[] colors = new long[2];
+    private long occupied;
+    private final Piece[] squares = new Piece[64];
     private Color turn = Color.WHITE;
+    private int castlingRights;
+    private int epSquare = -1;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+
+    // Zobrist key, kept up to date by every change to the position
+    private long key;
+    // Keys of every position so far, oldest first; the last one is the current key
+    private long[] history = new long[128];
+    private int historyLength;
+    // Occurrences of positions reached by accepted moves since the last capture or pawn move
+    private final RepetitionTable repetitions = new RepetitionTable();
+    // The last move applyMoveIfLegal accepted, as the generator encodes it
+    private int lastMove = Moves.NONE;
+
+    // Undo stack for makeMove/unmakeMove, one packed entry per ply (see packUndo)
+    private long[] undo = new long[64];
+    private int ply;
+
+    // Pseudo-legal moves; generateLegalMoves is done with it before any caller recurses
+    private final int[] scratch = new int[Moves.MAX_MOVES];
 
     public Board() {
         setupInitial();
     }
 
+    private Board(Board o) {
+        System.arraycopy(o.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(o.colors, 0, colors, 0, colors.length);
+        System.arraycopy(o.squares, 0, squares, 0, squares.length);
+        occupied = o.occupied;
+        turn = o.turn;
+        castlingRights = o.castlingRights;
+        epSquare = o.epSquare;
+        halfmoveClock = o.halfmoveClock;
+        fullmoveNumber = o.fullmoveNumber;
+        key = o.key;
+        history = o.history.clone();
+        historyLength = o.historyLength;
+        repetitions.copyFrom(o.repetitions);
+        lastMove = o.lastMove;
+        undo = o.undo.clone();
+        ply = o.ply;
+    }
+
+    /** An independent copy of the position and its history, e.g. for a search on another thread. */
+    public Board copy() {
+        return new Board(this);
+    }
+
     public static Board initial() {
         return new Board();
     }
 
+    public static Board fromFen(String fen) {
+        Board b = new Board();
+        b.loadFen(fen);
+        return b;
+    }
+
     public Color getTurn() {
         return turn;
     }
 
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /** En passant target square index, or -1. Only set when an enemy pawn could actually capture. */
+    public int getEnPassantSquare() {
+        return epSquare;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /** Zobrist key of the current position; equal positions (including rights and side to move) share a key. */
+    public long getKey() {
+        return key;
+    }
+
+    /** Whether the current position has occurred at least three times in this game. */
+    public boolean isThreefoldRepetition() {
+        return repetitions.count(key) >= 3;
+    }
+
+    /**
+     * Whether the current position already occurred since the last capture or pawn move,
+     * counting positions reached by {@link #makeMove}; a search scores that as a draw.
+     */
+    public boolean isRepetition() {
+        int stop = Math.max(0, historyLength - 1 - halfmoveClock);
+        for (int i = historyLength - 3; i >= stop; i -= 2) {
+            if (history[i] == key) return true;
+        }
+        return false;
+    }
+
+    public boolean isFiftyMoveRule() {
+        return halfmoveClock >= 100;
+    }
+
+    public GameStatus status() {
+        if (!hasLegalMove()) return isKingInCheck(turn) ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        if (isThreefoldRepetition()) return GameStatus.THREEFOLD_REPETITION;
+        if (isFiftyMoveRule()) return GameStatus.FIFTY_MOVE_RULE;
+        return GameStatus.ONGOING;
+    }
+
     public Piece get(int file, int rank) {
-        return grid[rank][file];
+        return squares[rank * 8 + file];
     }
 
     public Piece get(Position p) {
@@ -29,7 +159,9 @@ public class Board {
     }
 
     public void set(int file, int rank, Piece piece) {
-        grid[rank][file] = piece;
+        int sq = rank * 8 + file;
+        if (squares[sq] != null) removePiece(sq);
+        if (piece != null) putPiece(sq, piece);
     }
 
     public void set(Position p, Piece piece) {
@@ -40,245 +172,502 @@ public class Board {
         String[][] out = new String[8][8];
         for (int r = 0; r < 8; r++) {
             for (int f = 0; f < 8; f++) {
-                out[r][f] = grid[r][f] == null ? null : grid[r][f].toString();
+                Piece p = squares[r * 8 + f];
+                out[r][f] = p == null ? null : p.toString();
             }
         }
         return out;
     }
 
+    /** Copies the mailbox, indexed by {@code rank * 8 + file}, into {@code out}. */
+    public void copySquares(Piece[] out) {
+        System.arraycopy(squares, 0, out, 0, 64);
+    }
+
+    /** Bitboard of the given color's pieces of the given type. */
+    public long pieces(Color color, Type type) {
+        return pieces[index(color, type)];
+    }
+
+    public long pieces(Color color) {
+        return colors[color.ordinal()];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    private static int index(Color color, Type type) {
+        return color.ordinal() * PIECE_TYPES + type.ordinal();
+    }
+
+    private void putPiece(int sq, Piece piece) {
+        long b = 1L << sq;
+        pieces[index(piece.getColor(), piece.getType())] |= b;
+        colors[piece.getColor().ordinal()] |= b;
+        occupied |= b;
+        squares[sq] = piece;
+        key ^= Zobrist.piece(piece.getColor(), piece.getType(), sq);
+    }
+
+    private void removePiece(int sq) {
+        Piece piece = squares[sq];
+        long b = ~(1L << sq);
+        pieces[index(piece.getColor(), piece.getType())] &= b;
+        colors[piece.getColor().ordinal()] &= b;
+        occupied &= b;
+        squares[sq] = null;
+        key ^= Zobrist.piece(piece.getColor(), piece.getType(), sq);
+    }
+
+    private void clear() {
+        Arrays.fill(pieces, 0L);
+        Arrays.fill(colors, 0L);
+        Arrays.fill(squares, null);
+        occupied = 0L;
+        turn = Color.WHITE;
+        castlingRights = 0;
+        epSquare = -1;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        ply = 0;
+        key = 0L;
+        historyLength = 0;
+        repetitions.clear();
+    }
+
+    /** Folds the non-piece state into the key and makes the position the first one of the game. */
+    private void startHistory() {
+        key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(epSquare);
+        if (turn == Color.BLACK) key ^= Zobrist.blackToMove();
+        pushHistory();
+        repetitions.increment(key);
+    }
+
+    private void pushHistory() {
+        if (historyLength == history.length) history = Arrays.copyOf(history, historyLength * 2);
+        history[historyLength++] = key;
+    }
+
+    /** Key computed from scratch; the incremental key must always equal it. */
+    long computeKey() {
+        long k = Zobrist.castling(castlingRights) ^ Zobrist.enPassant(epSquare);
+        if (turn == Color.BLACK) k ^= Zobrist.blackToMove();
+        for (int sq = 0; sq < 64; sq++) {
+            Piece p = squares[sq];
+            if (p != null) k ^= Zobrist.piece(p.getColor(), p.getType(), sq);
+        }
+        return k;
+    }
+
     private void setupInitial() {
-        // Clear
-        for (int r = 0; r < 8; r++) for (int f = 0; f < 8; f++) grid[r][f] = null;
-        // Pawns
+        clear();
+        Type[] backRank = {Type.ROOK, Type.KNIGHT, Type.BISHOP, Type.QUEEN, Type.KING, Type.BISHOP, Type.KNIGHT, Type.ROOK};
         for (int f = 0; f < 8; f++) {
-            grid[1][f] = new Piece(Color.WHITE, Type.PAWN);
-            grid[6][f] = new Piece(Color.BLACK, Type.PAWN);
+            putPiece(f, Piece.of(Color.WHITE, backRank[f]));
+            putPiece(8 + f, Piece.of(Color.WHITE, Type.PAWN));
+            putPiece(48 + f, Piece.of(Color.BLACK, Type.PAWN));
+            putPiece(56 + f, Piece.of(Color.BLACK, backRank[f]));
         }
-        // Rooks
-        grid[0][0] = new Piece(Color.WHITE, Type.ROOK);
-        grid[0][7] = new Piece(Color.WHITE, Type.ROOK);
-        grid[7][0] = new Piece(Color.BLACK, Type.ROOK);
-        grid[7][7] = new Piece(Color.BLACK, Type.ROOK);
-        // Knights
-        grid[0][1] = new Piece(Color.WHITE, Type.KNIGHT);
-        grid[0][6] = new Piece(Color.WHITE, Type.KNIGHT);
-        grid[7][1] = new Piece(Color.BLACK, Type.KNIGHT);
-        grid[7][6] = new Piece(Color.BLACK, Type.KNIGHT);
-        // Bishops
-        grid[0][2] = new Piece(Color.WHITE, Type.BISHOP);
-        grid[0][5] = new Piece(Color.WHITE, Type.BISHOP);
-        grid[7][2] = new Piece(Color.BLACK, Type.BISHOP);
-        grid[7][5] = new Piece(Color.BLACK, Type.BISHOP);
-        // Queens
-        grid[0][3] = new Piece(Color.WHITE, Type.QUEEN);
-        grid[7][3] = new Piece(Color.BLACK, Type.QUEEN);
-        // Kings
-        grid[0][4] = new Piece(Color.WHITE, Type.KING);
-        grid[7][4] = new Piece(Color.BLACK, Type.KING);
+        castlingRights = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+        startHistory();
+    }
 
-        turn = Color.WHITE;
+    private void loadFen(String fen) {
+        String[] parts = Objects.requireNonNull(fen).trim().split("\\s+");
+        if (parts.length < 2) throw new IllegalArgumentException("Invalid FEN: " + fen);
+        clear();
+        int rank = 7, file = 0;
+        for (char ch : parts[0].toCharArray()) {
+            if (ch == '/') {
+                rank--;
+                file = 0;
+            } else if (Character.isDigit(ch)) {
+                file += ch - '0';
+            } else {
+                if (file > 7 || rank < 0) throw new IllegalArgumentException("Invalid FEN: " + fen);
+                Color c = Character.isUpperCase(ch) ? Color.WHITE : Color.BLACK;
+                putPiece(rank * 8 + file, Piece.of(c, Piece.typeOf(ch)));
+                file++;
+            }
+        }
+        turn = parts[1].equals("b") ? Color.BLACK : Color.WHITE;
+        if (parts.length > 2) {
+            for (char ch : parts[2].toCharArray()) {
+                switch (ch) {
+                    case 'K' -> castlingRights |= WHITE_KINGSIDE;
+                    case 'Q' -> castlingRights |= WHITE_QUEENSIDE;
+                    case 'k' -> castlingRights |= BLACK_KINGSIDE;
+                    case 'q' -> castlingRights |= BLACK_QUEENSIDE;
+                    default -> { }
+                }
+            }
+        }
+        if (parts.length > 3 && !parts[3].equals("-")) {
+            Position ep = Position.fromAlgebraic(parts[3]);
+            int sq = ep.rank() * 8 + ep.file();
+            epSquare = enPassantCapturable(sq, turn) ? sq : -1;
+        }
+        if (parts.length > 4) halfmoveClock = Integer.parseInt(parts[4]);
+        if (parts.length > 5) fullmoveNumber = Integer.parseInt(parts[5]);
+        startHistory();
     }
 
-    private boolean inBounds(int f, int r) {
-        return f >= 0 && f < 8 && r >= 0 && r < 8;
+    public String toFen() {
+        StringBuilder sb = new StringBuilder(90);
+        for (int r = 7; r >= 0; r--) {
+            int empty = 0;
+            for (int f = 0; f < 8; f++) {
+                Piece p = squares[r * 8 + f];
+                if (p == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) sb.append(empty);
+                empty = 0;
+                char letter = Piece.letter(p.getType());
+                sb.append(p.getColor() == Color.WHITE ? letter : Character.toLowerCase(letter));
+            }
+            if (empty > 0) sb.append(empty);
+            if (r > 0) sb.append('/');
+        }
+        sb.append(turn == Color.WHITE ? " w " : " b ");
+        if (castlingRights == 0) sb.append('-');
+        if ((castlingRights & WHITE_KINGSIDE) != 0) sb.append('K');
+        if ((castlingRights & WHITE_QUEENSIDE) != 0) sb.append('Q');
+        if ((castlingRights & BLACK_KINGSIDE) != 0) sb.append('k');
+        if ((castlingRights & BLACK_QUEENSIDE) != 0) sb.append('q');
+        sb.append(' ').append(epSquare < 0 ? "-" : Position.of(epSquare).toAlgebraic());
+        sb.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return sb.toString();
     }
 
     public boolean applyMoveIfLegal(Move move) {
         Objects.requireNonNull(move);
-        Piece piece = get(move.from());
+        return applyMoveIfLegal(move.from(), move.to(), move.promotion());
+    }
+
+    /** Same as {@link #applyMoveIfLegal(Move)} without needing a {@link Move} instance. */
+    public boolean applyMoveIfLegal(Position fromPos, Position toPos, Type promotion) {
+        int from = fromPos.square();
+        int to = toPos.square();
+        Piece piece = squares[from];
         if (piece == null) return false;
         if (piece.getColor() != turn) return false;
 
-        if (!isPseudoLegal(move, piece)) return false;
-
-        // simulate
-        Piece captured = get(move.to());
-        Piece movedOriginal = piece;
-        Piece moved = piece.markMoved();
-        set(move.to(), moved);
-        set(move.from(), null);
-
-        boolean illegal = isKingInCheck(turn);
-        if (illegal) {
-            // revert
-            set(move.from(), movedOriginal);
-            set(move.to(), captured);
+        int encoded = encodeIfPseudoLegal(from, to, piece, promotion);
+        if (encoded == Moves.NONE) return false;
+        makeMove(encoded);
+        if (isKingInCheck(piece.getColor())) {
+            unmakeMove();
             return false;
         }
-
-        // handle promotion (simple: if promotion provided and target rank appropriate)
-        if (moved.getType() == Type.PAWN) {
-            int promotionRank = (moved.getColor() == Color.WHITE) ? 7 : 0;
-            if (move.to().rank() == promotionRank) {
-                Type promo = move.promotion() != null ? move.promotion() : Type.QUEEN;
-                set(move.to(), new Piece(moved.getColor(), promo, true));
-            }
-        }
-
-        // Switch turn
-        turn = turn.opposite();
+        ply--; // accepted moves are never taken back
+        // Nothing before an irreversible move can recur, so the table only needs the current stretch
+        if (halfmoveClock == 0) repetitions.clear();
+        repetitions.increment(key);
+        lastMove = encoded;
         return true;
     }
 
-    private boolean isPseudoLegal(Move move, Piece piece) {
-        Position from = move.from();
-        Position to = move.to();
-        if (from.equals(to)) return false;
-        Piece dest = get(to);
-        if (dest != null && dest.getColor() == piece.getColor()) return false;
+    /**
+     * The move {@link #applyMoveIfLegal} last accepted, encoded as {@link #generateLegalMoves}
+     * would: with its castling, en passant or double-push flag, and the promotion piece the
+     * pawn actually became. {@link Moves#NONE} before the first.
+     */
+    public int lastMove() {
+        return lastMove;
+    }
 
-        int df = to.file() - from.file();
-        int dr = to.rank() - from.rank();
-        int af = Math.abs(df);
-        int ar = Math.abs(dr);
+    /** Encodes the request as a generator move if it is pseudo-legal here, else {@link Moves#NONE}. */
+    private int encodeIfPseudoLegal(int from, int to, Piece piece, Type promotion) {
+        if (from == to) return Moves.NONE;
+        long toBit = 1L << to;
+        Color us = piece.getColor();
+        if ((colors[us.ordinal()] & toBit) != 0) return Moves.NONE;
 
         switch (piece.getType()) {
             case PAWN -> {
-                int dir = piece.getColor() == Color.WHITE ? 1 : -1;
-                int startRank = piece.getColor() == Color.WHITE ? 1 : 6;
-                // forward move
-                if (df == 0) {
-                    if (dr == dir && get(to) == null) return true;
-                    if (from.rank() == startRank && dr == 2 * dir) {
-                        int midRank = from.rank() + dir;
-                        if (get(from.file(), midRank) == null && get(to) == null) return true;
+                boolean white = us == Color.WHITE;
+                int dir = white ? 8 : -8;
+                int startRank = white ? 1 : 6;
+                int flag;
+                if ((occupied & toBit) == 0) {
+                    if (to == from + dir) {
+                        flag = Moves.FLAG_NORMAL;
+                    } else if (from >>> 3 == startRank && to == from + 2 * dir && (occupied & (1L << (from + dir))) == 0) {
+                        flag = Moves.FLAG_DOUBLE_PUSH;
+                    } else if (to == epSquare && (Attacks.pawn(us, from) & toBit) != 0) {
+                        flag = Moves.FLAG_EN_PASSANT;
+                    } else {
+                        return Moves.NONE;
                     }
+                } else if ((Attacks.pawn(us, from) & toBit) != 0) {
+                    flag = Moves.FLAG_NORMAL;
+                } else {
+                    return Moves.NONE;
                 }
-                // capture
-                if (ar == 1 && dr == dir) {
-                    if (dest != null && dest.getColor() != piece.getColor()) return true;
-                }
-                return false;
+                boolean promotes = (to >>> 3) == (white ? 7 : 0);
+                if (!promotes) return Moves.of(from, to, null, flag);
+                // Anything but a valid promotion piece falls back to a queen
+                boolean valid = promotion == Type.QUEEN || promotion == Type.ROOK
+                        || promotion == Type.BISHOP || promotion == Type.KNIGHT;
+                return Moves.of(from, to, valid ? promotion : Type.QUEEN, flag);
             }
             case KNIGHT -> {
-                return (af == 1 && ar == 2) || (af == 2 && ar == 1);
+                return (Attacks.knight(from) & toBit) != 0 ? Moves.of(from, to) : Moves.NONE;
             }
             case BISHOP -> {
-                if (af != ar) return false;
-                return pathClear(from, to, Integer.signum(df), Integer.signum(dr));
+                return (Attacks.bishop(from, occupied) & toBit) != 0 ? Moves.of(from, to) : Moves.NONE;
             }
             case ROOK -> {
-                if (!(df == 0 || dr == 0)) return false;
-                return pathClear(from, to, Integer.signum(df), Integer.signum(dr));
+                return (Attacks.rook(from, occupied) & toBit) != 0 ? Moves.of(from, to) : Moves.NONE;
             }
             case QUEEN -> {
-                if (af == ar || df == 0 || dr == 0) {
-                    return pathClear(from, to, Integer.signum(df), Integer.signum(dr));
-                }
-                return false;
+                return (Attacks.queen(from, occupied) & toBit) != 0 ? Moves.of(from, to) : Moves.NONE;
             }
             case KING -> {
-                return af <= 1 && ar <= 1;
+                if ((Attacks.king(from) & toBit) != 0) return Moves.of(from, to);
+                if (to == from + 2 && canCastle(us, true)) return Moves.of(from, to, null, Moves.FLAG_CASTLE);
+                if (to == from - 2 && canCastle(us, false)) return Moves.of(from, to, null, Moves.FLAG_CASTLE);
+                return Moves.NONE;
             }
             default -> {
-                return false;
+                return Moves.NONE;
             }
         }
     }
 
-    private boolean pathClear(Position from, Position to, int stepF, int stepR) {
-        int f = from.file() + stepF;
-        int r = from.rank() + stepR;
-        while (f != to.file() || r != to.rank()) {
-            if (!inBounds(f, r)) return false;
-            if (get(f, r) != null) return false;
-            f += stepF;
-            r += stepR;
+    private boolean canCastle(Color us, boolean kingside) {
+        boolean white = us == Color.WHITE;
+        int right = white ? (kingside ? WHITE_KINGSIDE : WHITE_QUEENSIDE) : (kingside ? BLACK_KINGSIDE : BLACK_QUEENSIDE);
+        if ((castlingRights & right) == 0) return false;
+        int king = white ? 4 : 60;
+        int rook = kingside ? king + 3 : king - 4;
+        // Rights are not revoked by set(), so confirm the pieces are really at home
+        if ((pieces[index(us, Type.KING)] & (1L << king)) == 0) return false;
+        if ((pieces[index(us, Type.ROOK)] & (1L << rook)) == 0) return false;
+        long between = kingside ? (0x60L << (king - 4)) : (0x0EL << (king - 4));
+        if ((occupied & between) != 0) return false;
+        Color them = us.opposite();
+        int step = kingside ? 1 : -1;
+        return !isSquareAttacked(king, them) && !isSquareAttacked(king + step, them)
+                && !isSquareAttacked(king + 2 * step, them);
+    }
+
+    /** Whether a pawn of {@code mover} could capture on the en passant square {@code sq} right now. */
+    private boolean enPassantCapturable(int sq, Color mover) {
+        return (Attacks.pawn(mover.opposite(), sq) & pieces[index(mover, Type.PAWN)]) != 0;
+    }
+
+    /**
+     * Fills {@code buffer} with every legal move in the position, encoded as described in
+     * {@link Moves}, and returns how many were written. The buffer must hold at least
+     * {@link Moves#MAX_MOVES} entries; nothing is allocated per call.
+     */
+    public int generateLegalMoves(int[] buffer) {
+        Color us = turn;
+        int[] pseudo = scratch;
+        int n = generatePseudoLegal(pseudo, 0);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            int m = pseudo[i];
+            makeMove(m);
+            if (!isKingInCheck(us)) buffer[count++] = m;
+            unmakeMove();
         }
-        return true;
+        return count;
     }
 
-    public boolean isKingInCheck(Color color) {
-        Position kingPos = findKing(color);
-        if (kingPos == null) return false; // should not happen
-        return isSquareAttacked(kingPos, color.opposite());
+    private boolean hasLegalMove() {
+        Color us = turn;
+        int n = generatePseudoLegal(scratch, 0);
+        for (int i = 0; i < n; i++) {
+            int m = scratch[i];
+            makeMove(m);
+            boolean legal = !isKingInCheck(us);
+            unmakeMove();
+            if (legal) return true;
+        }
+        return false;
     }
 
-    private Position findKing(Color color) {
-        for (int r = 0; r < 8; r++) {
-            for (int f = 0; f < 8; f++) {
-                Piece p = grid[r][f];
-                if (p != null && p.getType() == Type.KING && p.getColor() == color) {
-                    return new Position(f, r);
+    private int generatePseudoLegal(int[] out, int n) {
+        Color us = turn, them = us.opposite();
+        int u = us.ordinal();
+        long own = colors[u];
+        long enemy = colors[them.ordinal()];
+        long empty = ~occupied;
+
+        // Pawns
+        long pawns = pieces[index(us, Type.PAWN)];
+        boolean white = us == Color.WHITE;
+        int dir = white ? 8 : -8;
+        long startRank = white ? 0xFF00L : 0x00FF000000000000L;
+        long promoRank = white ? Attacks.RANK_8 : Attacks.RANK_1;
+        for (long b = pawns; b != 0; b &= b - 1) {
+            int from = Long.numberOfTrailingZeros(b);
+            int one = from + dir;
+            if ((empty & (1L << one)) != 0) {
+                n = addPawnMove(out, n, from, one, promoRank, Moves.FLAG_NORMAL);
+                int two = one + dir;
+                if ((startRank & (1L << from)) != 0 && (empty & (1L << two)) != 0) {
+                    out[n++] = Moves.of(from, two, null, Moves.FLAG_DOUBLE_PUSH);
                 }
             }
+            long caps = Attacks.pawn(us, from) & enemy;
+            for (; caps != 0; caps &= caps - 1) {
+                n = addPawnMove(out, n, from, Long.numberOfTrailingZeros(caps), promoRank, Moves.FLAG_NORMAL);
+            }
+            if (epSquare >= 0 && (Attacks.pawn(us, from) & (1L << epSquare)) != 0) {
+                out[n++] = Moves.of(from, epSquare, null, Moves.FLAG_EN_PASSANT);
+            }
         }
-        return null;
-    }
-
-    private boolean isSquareAttacked(Position pos, Color byColor) {
-        int f = pos.file();
-        int r = pos.rank();
 
-        // Pawn attacks
-        int pawnDir = byColor == Color.WHITE ? 1 : -1;
-        int pr1f = f - 1, pr1r = r - pawnDir; // a pawn that moved from this square would attack 'pos'
-        int pr2f = f + 1, pr2r = r - pawnDir;
-        if (inBounds(pr1f, pr1r)) {
-            Piece p = get(pr1f, pr1r);
-            if (p != null && p.getColor() == byColor && p.getType() == Type.PAWN) return true;
+        // Pieces
+        for (long b = pieces[index(us, Type.KNIGHT)]; b != 0; b &= b - 1) {
+            int from = Long.numberOfTrailingZeros(b);
+            n = addTargets(out, n, from, Attacks.knight(from) & ~own);
+        }
+        long queens = pieces[index(us, Type.QUEEN)];
+        for (long b = pieces[index(us, Type.BISHOP)] | queens; b != 0; b &= b - 1) {
+            int from = Long.numberOfTrailingZeros(b);
+            n = addTargets(out, n, from, Attacks.bishop(from, occupied) & ~own);
+        }
+        for (long b = pieces[index(us, Type.ROOK)] | queens; b != 0; b &= b - 1) {
+            int from = Long.numberOfTrailingZeros(b);
+            n = addTargets(out, n, from, Attacks.rook(from, occupied) & ~own);
         }
-        if (inBounds(pr2f, pr2r)) {
-            Piece p = get(pr2f, pr2r);
-            if (p != null && p.getColor() == byColor && p.getType() == Type.PAWN) return true;
+        long king = pieces[index(us, Type.KING)];
+        if (king != 0) {
+            int from = Long.numberOfTrailingZeros(king);
+            n = addTargets(out, n, from, Attacks.king(from) & ~own);
+            if (canCastle(us, true)) out[n++] = Moves.of(from, from + 2, null, Moves.FLAG_CASTLE);
+            if (canCastle(us, false)) out[n++] = Moves.of(from, from - 2, null, Moves.FLAG_CASTLE);
         }
+        return n;
+    }
 
-        // Knight attacks
-        int[][] kOffsets = {{1,2},{2,1},{-1,2},{-2,1},{1,-2},{2,-1},{-1,-2},{-2,-1}};
-        for (int[] o : kOffsets) {
-            int nf = f + o[0], nr = r + o[1];
-            if (inBounds(nf, nr)) {
-                Piece p = get(nf, nr);
-                if (p != null && p.getColor() == byColor && p.getType() == Type.KNIGHT) return true;
-            }
+    private static int addTargets(int[] out, int n, int from, long targets) {
+        for (; targets != 0; targets &= targets - 1) {
+            out[n++] = Moves.of(from, Long.numberOfTrailingZeros(targets));
         }
+        return n;
+    }
 
-        // Bishop/Queen diagonals
-        int[][] diagDirs = {{1,1},{1,-1},{-1,1},{-1,-1}};
-        for (int[] d : diagDirs) {
-            int nf = f + d[0], nr = r + d[1];
-            while (inBounds(nf, nr)) {
-                Piece p = get(nf, nr);
-                if (p != null) {
-                    if (p.getColor() == byColor && (p.getType() == Type.BISHOP || p.getType() == Type.QUEEN)) {
-                        return true;
-                    } else {
-                        break;
-                    }
-                }
-                nf += d[0]; nr += d[1];
-            }
+    private static int addPawnMove(int[] out, int n, int from, int to, long promoRank, int flag) {
+        if ((promoRank & (1L << to)) == 0) {
+            out[n++] = Moves.of(from, to, null, flag);
+        } else {
+            for (Type promo : PROMOTIONS) out[n++] = Moves.of(from, to, promo, flag);
         }
+        return n;
+    }
 
-        // Rook/Queen straights
-        int[][] lineDirs = {{1,0},{-1,0},{0,1},{0,-1}};
-        for (int[] d : lineDirs) {
-            int nf = f + d[0], nr = r + d[1];
-            while (inBounds(nf, nr)) {
-                Piece p = get(nf, nr);
-                if (p != null) {
-                    if (p.getColor() == byColor && (p.getType() == Type.ROOK || p.getType() == Type.QUEEN)) {
-                        return true;
-                    } else {
-                        break;
-                    }
-                }
-                nf += d[0]; nr += d[1];
-            }
+    /**
+     * Plays a move produced by {@link #generateLegalMoves} (or any pseudo-legal move from the
+     * same position) in place, pushing one packed entry on the undo stack. Allocation-free.
+     */
+    public void makeMove(int move) {
+        if (ply == undo.length) undo = Arrays.copyOf(undo, ply * 2);
+        int from = Moves.from(move), to = Moves.to(move), flag = Moves.flag(move);
+        Piece piece = squares[from];
+        Piece captured = null;
+
+        if (flag == Moves.FLAG_EN_PASSANT) {
+            int capSq = to + (piece.getColor() == Color.WHITE ? -8 : 8);
+            captured = squares[capSq];
+            removePiece(capSq);
+        } else if (squares[to] != null) {
+            captured = squares[to];
+            removePiece(to);
+        }
+        removePiece(from);
+        Type promo = Moves.promotion(move);
+        putPiece(to, promo != null ? Piece.of(piece.getColor(), promo, true) : piece.markMoved());
+
+        if (flag == Moves.FLAG_CASTLE) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = to > from ? from + 1 : from - 1;
+            Piece rook = squares[rookFrom];
+            captured = rook; // not a capture, but the undo entry needs the rook as it was
+            removePiece(rookFrom);
+            putPiece(rookTo, rook.markMoved());
         }
+        undo[ply++] = packUndo(move, piece, captured);
+
+        key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(epSquare);
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        epSquare = -1;
+        if (flag == Moves.FLAG_DOUBLE_PUSH) {
+            int ep = (from + to) >>> 1;
+            if (enPassantCapturable(ep, piece.getColor().opposite())) epSquare = ep;
+        }
+        key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(epSquare) ^ Zobrist.blackToMove();
+        halfmoveClock = (piece.getType() == Type.PAWN || (captured != null && flag != Moves.FLAG_CASTLE)) ? 0 : halfmoveClock + 1;
+        if (turn == Color.BLACK) fullmoveNumber++;
+        turn = turn.opposite();
+        pushHistory();
+    }
 
-        // King adjacency
-        for (int df = -1; df <= 1; df++) {
-            for (int dr = -1; dr <= 1; dr++) {
-                if (df == 0 && dr == 0) continue;
-                int nf = f + df, nr = r + dr;
-                if (inBounds(nf, nr)) {
-                    Piece p = get(nf, nr);
-                    if (p != null && p.getColor() == byColor && p.getType() == Type.KING) return true;
-                }
-            }
+    /** Reverts the most recent {@link #makeMove}. */
+    public void unmakeMove() {
+        long entry = undo[--ply];
+        historyLength--;
+        turn = turn.opposite();
+        if (turn == Color.BLACK) fullmoveNumber--;
+
+        int move = (int) (entry & 0x1FFFF);
+        Piece mover = Piece.byIndex((int) (entry >>> 17) & 31);
+        int capturedIndex = (int) ((entry >>> 22) & 31) - 1;
+        Piece captured = capturedIndex < 0 ? null : Piece.byIndex(capturedIndex);
+        castlingRights = (int) (entry >>> 27) & 15;
+        epSquare = (int) ((entry >>> 31) & 127) - 1;
+        halfmoveClock = (int) (entry >>> 38) & 0xFFFF;
+
+        int from = Moves.from(move), to = Moves.to(move), flag = Moves.flag(move);
+        removePiece(to);
+        putPiece(from, mover);
+        if (flag == Moves.FLAG_CASTLE) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = to > from ? from + 1 : from - 1;
+            removePiece(rookTo);
+            putPiece(rookFrom, captured);
+        } else if (flag == Moves.FLAG_EN_PASSANT) {
+            putPiece(to + (turn == Color.WHITE ? -8 : 8), captured);
+        } else if (captured != null) {
+            putPiece(to, captured);
         }
+        key = history[historyLength - 1]; // also restores the castling, en passant and side-to-move terms
+    }
 
-        return false;
+    /**
+     * Undo entry layout: move in bits 0-16, mover piece index in 17-21, captured piece index + 1
+     * in 22-26, castling rights in 27-30, en passant square + 1 in 31-37, halfmove clock from 38.
+     */
+    private long packUndo(int move, Piece mover, Piece captured) {
+        return move
+                | ((long) mover.index() << 17)
+                | ((long) (captured == null ? 0 : captured.index() + 1) << 22)
+                | ((long) castlingRights << 27)
+                | ((long) (epSquare + 1) << 31)
+                | ((long) (halfmoveClock & 0xFFFF) << 38);
+    }
+
+    public boolean isKingInCheck(Color color) {
+        long king = pieces[index(color, Type.KING)];
+        if (king == 0L) return false; // should not happen
+        return isSquareAttacked(Long.numberOfTrailingZeros(king), color.opposite());
+    }
+
+    private boolean isSquareAttacked(int sq, Color byColor) {
+        int by = byColor.ordinal() * PIECE_TYPES;
+        // A pawn of the defending color on sq attacks exactly the squares an attacking pawn would attack sq from
+        if ((Attacks.pawn(byColor.opposite(), sq) & pieces[by + Type.PAWN.ordinal()]) != 0) return true;
+        if ((Attacks.knight(sq) & pieces[by + Type.KNIGHT.ordinal()]) != 0) return true;
+        if ((Attacks.king(sq) & pieces[by + Type.KING.ordinal()]) != 0) return true;
+        long queens = pieces[by + Type.QUEEN.ordinal()];
+        if ((Attacks.bishop(sq, occupied) & (pieces[by + Type.BISHOP.ordinal()] | queens)) != 0) return true;
+        return (Attacks.rook(sq, occupied) & (pieces[by + Type.ROOK.ordinal()] | queens)) != 0;
     }
 }
@@ -0,0 +1,15 @@
+package com.example.chess.game;
+
+public enum GameStatus {
+    ONGOING,
+    CHECKMATE,
+    STALEMATE,
+    THREEFOLD_REPETITION,
+    FIFTY_MOVE_RULE,
+    /** The side to move ran out of time; set by the room's clock, never by the board. */
+    TIMEOUT;
+
+    public boolean isDraw() {
+        return this == STALEMATE || this == THREEFOLD_REPETITION || this == FIFTY_MOVE_RULE;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.chess.game;
+
+/**
+ * Helpers for moves packed into an {@code int}, the form used by the move generator.
+ * Bits 0-5 hold the from square, 6-11 the to square, 12-14 the promotion {@link Type}
+ * ordinal (0 means none, since a king is never a promotion) and 15-16 a flag.
+ */
+public final class Moves {
+    public static final int NONE = 0;
+
+    public static final int FLAG_NORMAL = 0;
+    public static final int FLAG_DOUBLE_PUSH = 1;
+    public static final int FLAG_EN_PASSANT = 2;
+    public static final int FLAG_CASTLE = 3;
+
+    /** Upper bound on legal moves in any reachable position, with headroom. */
+    public static final int MAX_MOVES = 256;
+
+    private static final Type[] TYPES = Type.values();
+
+    private Moves() {}
+
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int of(int from, int to, Type promotion, int flag) {
+        int promo = promotion == null ? 0 : promotion.ordinal();
+        return from | (to << 6) | (promo << 12) | (flag << 15);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static Type promotion(int move) {
+        int promo = (move >>> 12) & 7;
+        return promo == 0 ? null : TYPES[promo];
+    }
+
+    public static int flag(int move) {
+        return (move >>> 15) & 3;
+    }
+
+    public static Move toMove(int move) {
+        return new Move(Position.of(from(move)), Position.of(to(move)), promotion(move));
+    }
+
+    /** Long algebraic form as used by UCI, e.g. {@code e2e4} or {@code e7e8q}. */
+    public static String toUci(int move) {
+        String s = Position.of(from(move)).toAlgebraic() + Position.of(to(move)).toAlgebraic();
+        Type promo = promotion(move);
+        return promo == null ? s : s + Character.toLowerCase(Piece.letter(promo));
+    }
+}
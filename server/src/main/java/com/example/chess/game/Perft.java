@@ -0,0 +1,82 @@
+package com.example.chess.game;
+
+import java.util.List;
+
+/**
+ * Counts leaf nodes of the legal move tree. Used as a correctness gate for the move
+ * generator (the reference counts below are the standard published ones) and as a raw
+ * throughput number.
+ *
+ * <pre>
+ * java -cp target/classes com.example.chess.game.Perft [maxDepth]
+ * java -cp target/classes com.example.chess.game.Perft &lt;depth&gt; &lt;fen&gt;
+ * </pre>
+ */
+public final class Perft {
+
+    /** A test position with its known node counts; {@code nodes[d - 1]} is the count at depth d. */
+    public record Reference(String name, String fen, long... nodes) {}
+
+    public static final List<Reference> REFERENCE_POSITIONS = List.of(
+            new Reference("start", Board.START_FEN,
+                    20L, 400L, 8_902L, 197_281L, 4_865_609L, 119_060_324L),
+            new Reference("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    48L, 2_039L, 97_862L, 4_085_603L, 193_690_690L),
+            new Reference("position3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    14L, 191L, 2_812L, 43_238L, 674_624L, 11_030_083L),
+            new Reference("position4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    6L, 264L, 9_467L, 422_333L, 15_833_292L),
+            new Reference("position5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    44L, 1_486L, 62_379L, 2_103_487L, 89_941_194L),
+            new Reference("position6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    46L, 2_079L, 89_890L, 3_894_594L, 164_075_551L)
+    );
+
+    private Perft() {}
+
+    public static long perft(Board board, int depth) {
+        if (depth <= 0) return 1;
+        return perft(board, depth, new int[depth][Moves.MAX_MOVES]);
+    }
+
+    private static long perft(Board board, int depth, int[][] buffers) {
+        int[] moves = buffers[depth - 1];
+        int n = board.generateLegalMoves(moves);
+        if (depth == 1) return n;
+        long nodes = 0;
+        for (int i = 0; i < n; i++) {
+            board.makeMove(moves[i]);
+            nodes += perft(board, depth - 1, buffers);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+
+    public static void main(String[] args) {
+        if (args.length >= 2) {
+            int depth = Integer.parseInt(args[0]);
+            String fen = String.join(" ", List.of(args).subList(1, args.length));
+            run("custom", fen, depth, -1);
+            return;
+        }
+        int maxDepth = args.length == 1 ? Integer.parseInt(args[0]) : 5;
+        boolean ok = true;
+        for (Reference ref : REFERENCE_POSITIONS) {
+            int depth = Math.min(maxDepth, ref.nodes().length);
+            ok &= run(ref.name(), ref.fen(), depth, ref.nodes()[depth - 1]);
+        }
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean run(String name, String fen, int depth, long expected) {
+        Board board = Board.fromFen(fen);
+        long start = System.nanoTime();
+        long nodes = perft(board, depth);
+        long nanos = Math.max(1, System.nanoTime() - start);
+        boolean ok = expected < 0 || nodes == expected;
+        System.out.printf("%-10s depth %d  nodes %,14d  %8.1f ms  %,12d nps  %s%n",
+                name, depth, nodes, nanos / 1e6, nodes * 1_000_000_000L / nanos,
+                expected < 0 ? "" : ok ? "OK" : "MISMATCH (expected " + expected + ")");
+        return ok;
+    }
+}
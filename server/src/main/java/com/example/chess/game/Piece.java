@@ -2,19 +2,48 @@ package com.example.chess.game;
 
 import java.util.Objects;
 
+/**
+ * Immutable piece. All 24 color/type/moved combinations are interned, so pieces are obtained
+ * through {@link #of} and can be compared by identity and stored as a small {@link #index()}.
+ */
 public final class Piece {
+    private static final Type[] TYPES = Type.values();
+    private static final Piece[] INTERNED = new Piece[2 * TYPES.length * 2];
+
+    static {
+        for (Color c : Color.values()) {
+            for (Type t : TYPES) {
+                for (int moved = 0; moved < 2; moved++) {
+                    Piece p = new Piece(c, t, moved == 1);
+                    INTERNED[p.index] = p;
+                }
+            }
+        }
+    }
+
     private final Color color;
     private final Type type;
     private final boolean hasMoved;
+    private final int index;
 
-    public Piece(Color color, Type type) {
-        this(color, type, false);
-    }
-
-    public Piece(Color color, Type type, boolean hasMoved) {
+    private Piece(Color color, Type type, boolean hasMoved) {
         this.color = Objects.requireNonNull(color);
         this.type = Objects.requireNonNull(type);
         this.hasMoved = hasMoved;
+        this.index = ((color.ordinal() * TYPES.length) + type.ordinal()) * 2 + (hasMoved ? 1 : 0);
+    }
+
+    public static Piece of(Color color, Type type) {
+        return of(color, type, false);
+    }
+
+    public static Piece of(Color color, Type type, boolean hasMoved) {
+        return INTERNED[((color.ordinal() * TYPES.length) + type.ordinal()) * 2 + (hasMoved ? 1 : 0)];
+    }
+
+    /** The piece with the given {@link #index()}. */
+    public static Piece byIndex(int index) {
+        return INTERNED[index];
     }
 
     public Color getColor() {
@@ -29,14 +58,24 @@ public final class Piece {
         return hasMoved;
     }
 
+    /** Dense index in {@code 0..23}, usable as a primitive stand-in for the piece. */
+    public int index() {
+        return index;
+    }
+
     public Piece markMoved() {
-        return hasMoved ? this : new Piece(color, type, true);
+        return hasMoved ? this : INTERNED[index | 1];
     }
 
     @Override
     public String toString() {
         char c = color == Color.WHITE ? 'w' : 'b';
-        char t = switch (type) {
+        return "" + c + letter(type);
+    }
+
+    /** Upper-case letter of a piece type, as in FEN and SAN. */
+    public static char letter(Type type) {
+        return switch (type) {
             case KING -> 'K';
             case QUEEN -> 'Q';
             case ROOK -> 'R';
@@ -44,21 +83,24 @@ public final class Piece {
             case KNIGHT -> 'N';
             case PAWN -> 'P';
         };
-        return "" + c + t;
     }
 
-    public static Piece fromString(String s) {
-        if (s == null || s.length() != 2) return null;
-        Color c = s.charAt(0) == 'w' ? Color.WHITE : Color.BLACK;
-        Type t = switch (s.charAt(1)) {
+    /** Inverse of {@link #letter}; accepts either case. */
+    public static Type typeOf(char letter) {
+        return switch (Character.toUpperCase(letter)) {
             case 'K' -> Type.KING;
             case 'Q' -> Type.QUEEN;
             case 'R' -> Type.ROOK;
             case 'B' -> Type.BISHOP;
             case 'N' -> Type.KNIGHT;
             case 'P' -> Type.PAWN;
-            default -> throw new IllegalArgumentException("Unknown piece: " + s);
+            default -> throw new IllegalArgumentException("Unknown piece: " + letter);
         };
-        return new Piece(c, t);
+    }
+
+    public static Piece fromString(String s) {
+        if (s == null || s.length() != 2) return null;
+        Color c = s.charAt(0) == 'w' ? Color.WHITE : Color.BLACK;
+        return of(c, typeOf(s.charAt(1)));
     }
 }
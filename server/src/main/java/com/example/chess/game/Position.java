@@ -1,21 +1,39 @@
 package com.example.chess.game;
 
-import java.util.Objects;
-
+/**
+ * A board square. The 64 instances are interned; obtain them through {@link #of} or
+ * {@link #fromAlgebraic}.
+ */
 public final class Position {
+    private static final Position[] SQUARES = new Position[64];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) SQUARES[sq] = new Position(sq & 7, sq >>> 3);
+    }
+
     private final int file; // 0..7 for a..h
     private final int rank; // 0..7 for 1..8
 
-    public Position(int file, int rank) {
+    private Position(int file, int rank) {
+        this.file = file;
+        this.rank = rank;
+    }
+
+    public static Position of(int file, int rank) {
         if (file < 0 || file > 7 || rank < 0 || rank > 7) {
             throw new IllegalArgumentException("Out of bounds: file=" + file + " rank=" + rank);
         }
-        this.file = file;
-        this.rank = rank;
+        return SQUARES[rank * 8 + file];
+    }
+
+    /** The square with index {@code rank * 8 + file}. */
+    public static Position of(int square) {
+        return SQUARES[square];
     }
 
     public int file() { return file; }
     public int rank() { return rank; }
+    public int square() { return rank * 8 + file; }
 
     public static Position fromAlgebraic(String s) {
         if (s == null || s.length() != 2) {
@@ -23,7 +41,7 @@ public final class Position {
         }
         int f = s.charAt(0) - 'a';
         int r = s.charAt(1) - '1';
-        return new Position(f, r);
+        return of(f, r);
     }
 
     public String toAlgebraic() {
@@ -39,7 +57,7 @@ public final class Position {
 
     @Override
     public int hashCode() {
-        return Objects.hash(file, rank);
+        return square();
     }
 
     @Override
@@ -0,0 +1,75 @@
+package com.example.chess.game;
+
+import java.util.Arrays;
+
+/**
+ * Occurrence count per position key, so repetition checks are a single probe instead of a
+ * scan back through the history. Open addressing with linear probing.
+ */
+final class RepetitionTable {
+    private long[] keys = new long[256];
+    private int[] counts = new int[256];
+    private boolean[] claimed = new boolean[256];
+    private int claimedSlots;
+
+    /** Records one more occurrence of {@code key} and returns the new count. */
+    int increment(long key) {
+        if (claimedSlots * 2 >= keys.length) resize();
+        int i = slot(key);
+        if (!claimed[i]) {
+            claimed[i] = true;
+            keys[i] = key;
+            claimedSlots++;
+        }
+        return ++counts[i];
+    }
+
+    int count(long key) {
+        int i = slot(key);
+        return claimed[i] ? counts[i] : 0;
+    }
+
+    void copyFrom(RepetitionTable o) {
+        keys = o.keys.clone();
+        counts = o.counts.clone();
+        claimed = o.claimed.clone();
+        claimedSlots = o.claimedSlots;
+    }
+
+    void clear() {
+        Arrays.fill(claimed, false);
+        Arrays.fill(counts, 0);
+        claimedSlots = 0;
+    }
+
+    /** The slot holding {@code key}, or the unclaimed slot where it would go. */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int i = (int) (key ^ (key >>> 32)) & mask;
+        while (claimed[i] && keys[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        boolean[] oldClaimed = claimed;
+        int live = 0;
+        for (int i = 0; i < oldKeys.length; i++) if (oldClaimed[i]) live++;
+        int size = oldKeys.length;
+        while (live * 4 >= size) size *= 2;
+        keys = new long[size];
+        counts = new int[size];
+        claimed = new boolean[size];
+        claimedSlots = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldClaimed[i]) {
+                int j = slot(oldKeys[i]);
+                claimed[j] = true;
+                keys[j] = oldKeys[i];
+                counts[j] = oldCounts[i];
+                claimedSlots++;
+            }
+        }
+    }
+}
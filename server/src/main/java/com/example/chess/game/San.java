@@ -0,0 +1,162 @@
+package com.example.chess.game;
+
+/**
+ * Standard Algebraic Notation for moves on a {@link Board}, as used in PGN. An instance keeps
+ * its own move buffers, so formatting allocates only the returned string; it is not thread-safe.
+ */
+public final class San {
+    private final int[] legal = new int[Moves.MAX_MOVES];
+    private final int[] replies = new int[Moves.MAX_MOVES];
+
+    /**
+     * Finds the legal move matching {@code from}, {@code to} and {@code promotion} in the
+     * board's current position, resolving a missing or invalid promotion to a queen the way
+     * {@link Board#applyMoveIfLegal(Position, Position, Type)} does. Returns {@link Moves#NONE}
+     * if there is no such move.
+     */
+    public int find(Board board, int from, int to, Type promotion) {
+        boolean valid = promotion == Type.QUEEN || promotion == Type.ROOK
+                || promotion == Type.BISHOP || promotion == Type.KNIGHT;
+        Type promo = valid ? promotion : Type.QUEEN;
+        int n = board.generateLegalMoves(legal);
+        for (int i = 0; i < n; i++) {
+            int m = legal[i];
+            if (Moves.from(m) != from || Moves.to(m) != to) continue;
+            Type p = Moves.promotion(m);
+            if (p == null || p == promo) return m;
+        }
+        return Moves.NONE;
+    }
+
+    /**
+     * Parses {@code san} (check marks and annotation glyphs allowed, {@code 0-0} accepted for
+     * castling) against the board's current position. Returns the matching legal move, or
+     * {@link Moves#NONE} if the text is malformed, illegal or ambiguous.
+     */
+    public int parse(Board board, String san) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) end--;
+        String s = san.substring(0, end);
+        int n = board.generateLegalMoves(legal);
+        if (s.equals("O-O") || s.equals("0-0") || s.equals("O-O-O") || s.equals("0-0-0")) {
+            int file = s.length() == 3 ? 6 : 2;
+            for (int i = 0; i < n; i++) {
+                int m = legal[i];
+                if (Moves.flag(m) == Moves.FLAG_CASTLE && (Moves.to(m) & 7) == file) return m;
+            }
+            return Moves.NONE;
+        }
+
+        Type promo = null;
+        int eq = s.indexOf('=');
+        if (eq >= 0) {
+            if (eq != s.length() - 2) return Moves.NONE;
+            promo = promotionType(s.charAt(eq + 1));
+            if (promo == null) return Moves.NONE;
+            s = s.substring(0, eq);
+        } else if (s.length() >= 3 && Character.isDigit(s.charAt(s.length() - 2))
+                && promotionType(s.charAt(s.length() - 1)) != null) {
+            promo = promotionType(s.charAt(s.length() - 1)); // e8Q
+            s = s.substring(0, s.length() - 1);
+        }
+        if (s.length() < 2) return Moves.NONE;
+
+        Type type = Type.PAWN;
+        int start = 0;
+        if ("KQRBN".indexOf(s.charAt(0)) >= 0) {
+            type = Piece.typeOf(s.charAt(0));
+            start = 1;
+        }
+        int toFile = s.charAt(s.length() - 2) - 'a', toRank = s.charAt(s.length() - 1) - '1';
+        if (toFile < 0 || toFile > 7 || toRank < 0 || toRank > 7) return Moves.NONE;
+        int to = toRank * 8 + toFile;
+        int fromFile = -1, fromRank = -1;
+        for (int i = start; i < s.length() - 2; i++) {
+            char c = s.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != ':' && c != '-') {
+                return Moves.NONE;
+            }
+        }
+
+        int found = Moves.NONE;
+        for (int i = 0; i < n; i++) {
+            int m = legal[i];
+            int from = Moves.from(m);
+            if (Moves.to(m) != to || Moves.flag(m) == Moves.FLAG_CASTLE) continue;
+            if (fromFile >= 0 && (from & 7) != fromFile || fromRank >= 0 && (from >>> 3) != fromRank) continue;
+            if (board.get(from & 7, from >>> 3).getType() != type) continue;
+            Type p = Moves.promotion(m);
+            if (p != null && p != (promo == null ? Type.QUEEN : promo)) continue;
+            if (p == null && promo != null) continue;
+            if (found != Moves.NONE) return Moves.NONE; // ambiguous
+            found = m;
+        }
+        return found;
+    }
+
+    private static Type promotionType(char c) {
+        return switch (c) {
+            case 'Q', 'q' -> Type.QUEEN;
+            case 'R', 'r' -> Type.ROOK;
+            case 'B', 'b' -> Type.BISHOP;
+            case 'N', 'n' -> Type.KNIGHT;
+            default -> null;
+        };
+    }
+
+    /** SAN of {@code move}, a legal move in the board's current position; the board is left unchanged. */
+    public String format(Board board, int move) {
+        int from = Moves.from(move), to = Moves.to(move);
+        Piece piece = board.get(from & 7, from >>> 3);
+        StringBuilder sb = new StringBuilder(8);
+        if (Moves.flag(move) == Moves.FLAG_CASTLE) {
+            sb.append((to & 7) == 6 ? "O-O" : "O-O-O");
+        } else {
+            boolean capture = board.get(to & 7, to >>> 3) != null || Moves.flag(move) == Moves.FLAG_EN_PASSANT;
+            if (piece.getType() == Type.PAWN) {
+                if (capture) sb.append((char) ('a' + (from & 7)));
+            } else {
+                sb.append(Piece.letter(piece.getType()));
+                disambiguate(board, move, piece, sb);
+            }
+            if (capture) sb.append('x');
+            sb.append(Position.of(to).toAlgebraic());
+            Type promo = Moves.promotion(move);
+            if (promo != null) sb.append('=').append(Piece.letter(promo));
+        }
+        board.makeMove(move);
+        if (board.isKingInCheck(board.getTurn())) {
+            sb.append(board.generateLegalMoves(replies) == 0 ? '#' : '+');
+        }
+        board.unmakeMove();
+        return sb.toString();
+    }
+
+    /** Adds the file, rank or both when another piece of the same kind could also reach the square. */
+    private void disambiguate(Board board, int move, Piece piece, StringBuilder sb) {
+        int from = Moves.from(move), to = Moves.to(move);
+        boolean ambiguous = false, sameFile = false, sameRank = false;
+        int n = board.generateLegalMoves(legal);
+        for (int i = 0; i < n; i++) {
+            int m = legal[i];
+            int other = Moves.from(m);
+            if (Moves.to(m) != to || other == from) continue;
+            if (board.get(other & 7, other >>> 3).getType() != piece.getType()) continue; // same side to move
+            ambiguous = true;
+            if ((other & 7) == (from & 7)) sameFile = true;
+            if ((other >>> 3) == (from >>> 3)) sameRank = true;
+        }
+        if (!ambiguous) return;
+        if (!sameFile) {
+            sb.append((char) ('a' + (from & 7)));
+        } else if (!sameRank) {
+            sb.append((char) ('1' + (from >>> 3)));
+        } else {
+            sb.append(Position.of(from).toAlgebraic());
+        }
+    }
+}
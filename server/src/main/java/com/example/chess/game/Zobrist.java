@@ -0,0 +1,50 @@
+package com.example.chess.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing. A position key is the XOR of one key per (piece, square),
+ * the castling rights, the en passant file and the side to move, so {@link Board} can
+ * update it incrementally as pieces come and go.
+ */
+public final class Zobrist {
+    private static final long[][] PIECE_SQUARE = new long[2 * Type.values().length][64]; // [color * 6 + type][square]
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom rnd = new SplittableRandom(0x2F0B_215DL);
+        for (long[] keys : PIECE_SQUARE) {
+            for (int sq = 0; sq < 64; sq++) keys[sq] = rnd.nextLong();
+        }
+        // Combined rights keys, so a change of rights is a single XOR
+        long[] single = {rnd.nextLong(), rnd.nextLong(), rnd.nextLong(), rnd.nextLong()};
+        for (int rights = 0; rights < 16; rights++) {
+            for (int bit = 0; bit < 4; bit++) {
+                if ((rights & (1 << bit)) != 0) CASTLING[rights] ^= single[bit];
+            }
+        }
+        for (int f = 0; f < 8; f++) EN_PASSANT_FILE[f] = rnd.nextLong();
+        BLACK_TO_MOVE = rnd.nextLong();
+    }
+
+    private Zobrist() {}
+
+    public static long piece(Color color, Type type, int sq) {
+        return PIECE_SQUARE[color.ordinal() * 6 + type.ordinal()][sq];
+    }
+
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    /** Key for an en passant square, or 0 when there is none. */
+    public static long enPassant(int sq) {
+        return sq < 0 ? 0L : EN_PASSANT_FILE[sq & 7];
+    }
+
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+}
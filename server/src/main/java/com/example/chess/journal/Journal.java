@@ -0,0 +1,523 @@
+package com.example.chess.journal;
+
+import com.example.chess.game.Color;
+import com.example.chess.game.GameStatus;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of room events (create, join, move, finish, close) in fixed-size
+ * memory-mapped segments. An append is a copy into the mapped segment under a short lock;
+ * a background thread forces dirty segments to disk every flush interval, so many appends
+ * share one fsync and none of them waits for it. A crash loses at most the last interval.
+ * <p>
+ * Every record is {@code [int length][int crc32][byte type][payload]}; a zero length or a
+ * bad checksum marks the end of a segment's valid data. The same thread keeps the next
+ * segment created and mapped, so an append that fills one only switches to the other.
+ * Whenever a segment fills up, it then writes a snapshot of every live room (its moves so
+ * far, between begin and end markers) to a file of its own, naming the segment and offset it
+ * was taken at, and deletes all older segments and snapshots. Recovery therefore reads at
+ * most the live rooms' moves plus about one segment of tail, however long the server has run.
+ * Startup always writes such a snapshot too.
+ */
+public final class Journal implements Closeable {
+    private static final Logger LOG = Logger.getLogger(Journal.class.getName());
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int HEADER = 8; // length + crc
+    private static final int MIN_SEGMENT_BYTES = 1 << 20;
+
+    private static final byte CREATE = 1;
+    private static final byte JOIN = 2;
+    private static final byte MOVE = 3;
+    private static final byte FINISH = 4;
+    private static final byte CLOSE = 5;
+    private static final byte SNAPSHOT_BEGIN = 6;
+    private static final byte SNAPSHOT_ROOM = 7;
+    private static final byte SNAPSHOT_END = 8;
+
+    private static final GameStatus[] STATUSES = GameStatus.values();
+
+    private final Path dir; // null when journaling is off
+    private final int segmentBytes;
+    private final Map<String, RoomLog> rooms = new LinkedHashMap<>(); // live rooms, in creation order
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer record = ByteBuffer.allocate(4096); // payload being assembled
+    private long lastSeq;       // highest segment number handed out
+    private Segment segment;    // being appended to
+    private Segment spare;      // the next one, created ahead by the flusher
+    private List<Segment> full = new ArrayList<>(); // rolled past; the flusher forces and closes them
+    private boolean dirty;      // appended to since the last force
+    private boolean compactDue; // a segment filled up since the last snapshot
+    private boolean failed;     // an I/O error stopped journaling; games carry on without it
+    private boolean closed;     // shutting down: rooms emptied by departing sessions stay journaled
+    private ScheduledExecutorService flusher;
+
+    private record Segment(long seq, Path file, FileChannel channel, MappedByteBuffer map) {
+        static Segment create(Path dir, long seq, int bytes) throws IOException {
+            Path file = dir.resolve(String.format("%s%016d%s", PREFIX, seq, SUFFIX));
+            FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes); // zero-filled
+                return new Segment(seq, file, channel, map);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        void close() {
+            try {
+                channel.close(); // the mapping stays valid until it is collected
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Closing journal segment failed", e);
+            }
+        }
+    }
+
+    /** A live room as a snapshot records it, copied so the snapshot can be written without the lock. */
+    private record RoomState(String id, GameStatus status, int[] moves) {}
+
+    private Journal(Path dir, int segmentBytes) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /** A journal that records nothing and recovers nothing. */
+    public static Journal disabled() {
+        return new Journal(null, 0);
+    }
+
+    /**
+     * Opens the journal in {@code dir}, replaying whatever is there; the surviving rooms are
+     * available from {@link #rooms()}. Appends are forced to disk every {@code flushIntervalMillis}.
+     */
+    public static Journal open(Path dir, int segmentBytes, long flushIntervalMillis) throws IOException {
+        Files.createDirectories(dir);
+        Journal journal = new Journal(dir, Math.max(segmentBytes, MIN_SEGMENT_BYTES));
+        synchronized (journal) {
+            journal.recover();
+            journal.segment = Segment.create(dir, ++journal.lastSeq, journal.segmentBytes);
+        }
+        journal.compact();
+        journal.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        journal.flusher.scheduleWithFixedDelay(journal::flush, 0, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        return journal;
+    }
+
+    /** The rooms that are live as far as the journal knows, in creation order. */
+    public synchronized List<RoomLog> rooms() {
+        return new ArrayList<>(rooms.values());
+    }
+
+    /** Starts the log of a new room. Anything still recorded under {@code id} is superseded. */
+    public synchronized RoomLog create(String id) {
+        RoomLog log = new RoomLog(this, id);
+        if (dir == null || failed || closed) return log;
+        begin(CREATE, id);
+        if (write()) rooms.put(id, log);
+        return log;
+    }
+
+    /** Waits for the flusher, forces what has been appended and ignores anything appended afterwards. */
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            if (dir == null) return;
+            for (Segment s : full) {
+                if (!failed) s.map().force();
+                s.close();
+            }
+            full.clear();
+            if (!failed) segment.map().force();
+            segment.close();
+            if (spare != null) discard(spare);
+            spare = null;
+        }
+    }
+
+    private synchronized void append(RoomLog log, byte type, int arg) {
+        if (dir == null || failed || closed || rooms.get(log.id) != log) return; // off, or the room was closed
+        begin(type, log.id);
+        if (type == MOVE) {
+            record.putInt(arg);
+        } else if (type == JOIN || type == FINISH) {
+            record.put((byte) arg);
+        }
+        if (!write()) return;
+        switch (type) {
+            case MOVE -> log.add(arg);
+            case FINISH -> log.status = STATUSES[arg];
+            case CLOSE -> rooms.remove(log.id);
+            default -> { }
+        }
+    }
+
+    private void begin(byte type, String id) {
+        record.clear();
+        record.put(type);
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        ensure(2 + bytes.length);
+        record.putShort((short) bytes.length).put(bytes);
+    }
+
+    private void ensure(int more) {
+        if (record.remaining() >= more) return;
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + more));
+        record.flip();
+        record = bigger.put(record);
+    }
+
+    /** Copies the assembled record into the segment; on failure, turns journaling off. */
+    private boolean write() {
+        try {
+            int len = record.position();
+            if (HEADER + len > segmentBytes) throw new IOException("Journal record of " + len + " bytes exceeds a segment");
+            if (segment.map().remaining() < HEADER + len) roll();
+            crc.reset();
+            crc.update(record.array(), 0, len);
+            segment.map().putInt(len).putInt((int) crc.getValue()).put(record.array(), 0, len);
+            dirty = true;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            LOG.log(Level.SEVERE, "Journal write failed; journaling is off until restart", e);
+            return false;
+        }
+    }
+
+    /** Switches to the spare segment and leaves forcing, snapshotting and deleting to the flusher. */
+    private void roll() throws IOException {
+        Segment next = spare != null ? spare : Segment.create(dir, ++lastSeq, segmentBytes); // flusher behind
+        spare = null;
+        full.add(segment);
+        segment = next;
+        compactDue = true;
+        try {
+            flusher.execute(this::flush); // now rather than at the next interval
+        } catch (RejectedExecutionException e) {
+            // shutting down; close() forces what is left
+        }
+    }
+
+    /**
+     * The flusher's round: forces full segments and the current one if dirty, creates the spare
+     * if it was used, and writes a snapshot if a segment filled up since the last one.
+     */
+    private void flush() {
+        List<Segment> toClose;
+        Segment toForce = null;
+        long spareSeq = 0;
+        boolean compact;
+        synchronized (this) {
+            if (failed || closed) return;
+            toClose = full;
+            full = new ArrayList<>();
+            if (dirty) {
+                dirty = false;
+                toForce = segment;
+            }
+            if (spare == null) spareSeq = ++lastSeq;
+            compact = compactDue;
+            compactDue = false;
+        }
+        try { // outside the lock so appends carry on meanwhile
+            for (Segment s : toClose) {
+                s.map().force();
+                s.close();
+            }
+            if (toForce != null) toForce.map().force();
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Journal flush failed", e);
+        }
+        if (spareSeq != 0) prepareSpare(spareSeq);
+        if (compact) {
+            try {
+                compact();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Journal snapshot failed; older segments are kept", e);
+            }
+        }
+    }
+
+    private void prepareSpare(long seq) {
+        Segment created;
+        try {
+            created = Segment.create(dir, seq, segmentBytes);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Creating the next journal segment failed; a full segment will create it", e);
+            return;
+        }
+        synchronized (this) {
+            if (spare == null && !closed && !failed && seq > segment.seq()) { // an append may have created a later one
+                spare = created;
+                return;
+            }
+        }
+        discard(created);
+    }
+
+    private static void discard(Segment unused) {
+        unused.close();
+        try {
+            Files.deleteIfExists(unused.file());
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Deleting unused journal segment failed", e);
+        }
+    }
+
+    /**
+     * Writes a snapshot of every live room as of the current append position, then deletes the
+     * segments and snapshots it supersedes. Only the copy of the rooms is made under the lock.
+     */
+    private void compact() throws IOException {
+        long seq;
+        int offset;
+        List<RoomState> live = new ArrayList<>();
+        synchronized (this) {
+            if (failed || closed) return;
+            seq = segment.seq();
+            offset = segment.map().position();
+            for (RoomLog log : rooms.values()) {
+                live.add(new RoomState(log.id, log.status, Arrays.copyOf(log.moves, log.count)));
+            }
+        }
+        Path tmp = dir.resolve(PREFIX + "snapshot.tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16));
+            CRC32 sum = new CRC32(); // the appenders' is guarded by the lock
+            writeRecord(out, sum, ByteBuffer.allocate(5).put(SNAPSHOT_BEGIN).putInt(offset));
+            for (RoomState room : live) {
+                byte[] id = room.id().getBytes(StandardCharsets.UTF_8);
+                ByteBuffer r = ByteBuffer.allocate(1 + 2 + id.length + 1 + 4 + 4 * room.moves().length);
+                r.put(SNAPSHOT_ROOM).putShort((short) id.length).put(id);
+                r.put((byte) room.status().ordinal()).putInt(room.moves().length);
+                for (int m : room.moves()) r.putInt(m);
+                writeRecord(out, sum, r);
+            }
+            writeRecord(out, sum, ByteBuffer.allocate(1).put(SNAPSHOT_END));
+            out.flush();
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(String.format("%s%016d%s", PREFIX, seq, SNAPSHOT_SUFFIX)),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path p : files(SUFFIX)) {
+            if (seqOf(p, SUFFIX) < seq) Files.deleteIfExists(p);
+        }
+        for (Path p : files(SNAPSHOT_SUFFIX)) {
+            if (seqOf(p, SNAPSHOT_SUFFIX) < seq) Files.deleteIfExists(p);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, CRC32 sum, ByteBuffer payload) throws IOException {
+        int len = payload.position();
+        sum.reset();
+        sum.update(payload.array(), 0, len);
+        out.writeInt(len);
+        out.writeInt((int) sum.getValue());
+        out.write(payload.array(), 0, len);
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> {
+                String n = p.getFileName().toString();
+                return n.startsWith(PREFIX) && n.endsWith(suffix);
+            }).sorted().toList();
+        }
+    }
+
+    private static long seqOf(Path p, String suffix) {
+        String n = p.getFileName().toString();
+        return Long.parseLong(n.substring(PREFIX.length(), n.length() - suffix.length()));
+    }
+
+    private static ByteBuffer map(Path p) throws IOException {
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+    }
+
+    /** Loads the newest snapshot, then replays the segments from the position it was taken at. */
+    private void recover() throws IOException {
+        List<Path> segments = files(SUFFIX);
+        List<Path> snapshots = files(SNAPSHOT_SUFFIX);
+        for (Path p : segments) lastSeq = Math.max(lastSeq, seqOf(p, SUFFIX));
+        for (Path p : snapshots) lastSeq = Math.max(lastSeq, seqOf(p, SNAPSHOT_SUFFIX));
+        long fromSeq = 0;
+        int fromOffset = 0;
+        if (!snapshots.isEmpty()) {
+            Path latest = snapshots.get(snapshots.size() - 1);
+            ByteBuffer buf = map(latest);
+            if (replay(buf)) {
+                fromSeq = seqOf(latest, SNAPSHOT_SUFFIX);
+                fromOffset = buf.getInt(HEADER + 1); // the begin marker's payload
+            } else {
+                LOG.warning("Journal snapshot " + latest + " is damaged; replaying the segments that are left");
+            }
+        }
+        for (Path p : segments) {
+            long seq = seqOf(p, SUFFIX);
+            if (seq < fromSeq) continue; // covered by the snapshot; its deletion was cut short
+            ByteBuffer buf = map(p);
+            if (seq == fromSeq) buf.position(fromOffset);
+            replay(buf);
+        }
+    }
+
+    /** Applies the buffer's valid records; returns whether they held a complete snapshot. */
+    private boolean replay(ByteBuffer buf) {
+        Map<String, RoomLog> snapshot = null; // being read; replaces the rooms once its end marker is seen
+        boolean restored = false;
+        while (buf.remaining() >= HEADER) {
+            int len = buf.getInt();
+            int sum = buf.getInt();
+            if (len <= 0 || len > buf.remaining()) break;
+            byte[] bytes = new byte[len];
+            buf.get(bytes);
+            crc.reset();
+            crc.update(bytes, 0, len);
+            if ((int) crc.getValue() != sum) break; // torn write: nothing after it was acknowledged
+            ByteBuffer r = ByteBuffer.wrap(bytes);
+            byte type = r.get();
+            if (type == SNAPSHOT_BEGIN) {
+                snapshot = new LinkedHashMap<>();
+                continue;
+            }
+            if (type == SNAPSHOT_END) {
+                if (snapshot != null) {
+                    rooms.clear();
+                    rooms.putAll(snapshot);
+                    restored = true;
+                }
+                snapshot = null;
+                continue;
+            }
+            byte[] idBytes = new byte[r.getShort()];
+            r.get(idBytes);
+            String id = new String(idBytes, StandardCharsets.UTF_8);
+            RoomLog log = rooms.get(id);
+            switch (type) {
+                case CREATE -> rooms.put(id, new RoomLog(this, id));
+                case MOVE -> {
+                    if (log != null) log.add(r.getInt());
+                }
+                case FINISH -> {
+                    if (log != null) log.status = STATUSES[r.get()];
+                }
+                case CLOSE -> rooms.remove(id);
+                case SNAPSHOT_ROOM -> {
+                    if (snapshot == null) break;
+                    RoomLog room = new RoomLog(this, id);
+                    room.status = STATUSES[r.get()];
+                    int n = r.getInt();
+                    for (int i = 0; i < n; i++) room.add(r.getInt());
+                    snapshot.put(id, room);
+                }
+                default -> { } // JOIN: sessions do not survive a restart
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * One room's entry in the journal. Its methods are no-ops once the room has been closed
+     * (or when journaling is off), so a room that is being torn down cannot write into the
+     * log of a newer room with the same id.
+     */
+    public static final class RoomLog {
+        private final Journal journal;
+        private final String id;
+        private int[] moves = new int[16]; // packed as in Moves; guarded by the journal
+        private int count;
+        private GameStatus status = GameStatus.ONGOING;
+
+        private RoomLog(Journal journal, String id) {
+            this.journal = journal;
+            this.id = id;
+        }
+
+        public String id() {
+            return id;
+        }
+
+        /** {@code color} is {@code null} for a spectator. */
+        public void joined(Color color) {
+            journal.append(this, JOIN, color == null ? 2 : color.ordinal());
+        }
+
+        /** Records an accepted move, packed as in {@link com.example.chess.game.Moves}. */
+        public void moved(int move) {
+            journal.append(this, MOVE, move);
+        }
+
+        public void finished(GameStatus status) {
+            journal.append(this, FINISH, status.ordinal());
+        }
+
+        public void closed() {
+            journal.append(this, CLOSE, 0);
+        }
+
+        public GameStatus status() {
+            synchronized (journal) {
+                return status;
+            }
+        }
+
+        /** The moves recorded so far, in order. */
+        public int[] moves() {
+            synchronized (journal) {
+                return Arrays.copyOf(moves, count);
+            }
+        }
+
+        private void add(int move) {
+            if (count == moves.length) moves = Arrays.copyOf(moves, count * 2);
+            moves[count++] = move;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.chess.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** A monotonically increasing count. Increments are striped, so contended threads do not share a cache line. */
+public final class Counter {
+    private final LongAdder adder = new LongAdder();
+
+    Counter() {}
+
+    public void increment() {
+        adder.increment();
+    }
+
+    public void add(long n) {
+        adder.add(n);
+    }
+
+    public long get() {
+        return adder.sum();
+    }
+}
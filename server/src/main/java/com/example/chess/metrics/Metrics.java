@@ -0,0 +1,125 @@
+package com.example.chess.metrics;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * The server's counters, latency histograms and gauges, written out in the Prometheus text
+ * format by {@link #scrape()}. Hot paths hold on to their {@link Counter} or {@link Histogram}
+ * in a static field, so recording never looks anything up; the registry is only consulted at
+ * registration and when scraped. Gauges are read when scraped.
+ * <p>
+ * Names follow Prometheus conventions: counters end in {@code _total}, and histograms are
+ * recorded in nanoseconds but exported in {@code _seconds}.
+ */
+public final class Metrics {
+    private static final Metrics INSTANCE = new Metrics();
+    private static final int FIRST_EXPORTED_EXPONENT = 10; // le buckets from 2^10 ns, about a microsecond
+
+    private sealed interface Family permits CounterFamily, HistogramFamily, GaugeFamily, LabeledGaugeFamily {
+        String help();
+    }
+
+    private record CounterFamily(String help, Counter counter) implements Family {}
+
+    private record HistogramFamily(String help, Histogram histogram) implements Family {}
+
+    private record GaugeFamily(String help, LongSupplier value) implements Family {}
+
+    private record LabeledGaugeFamily(String help, String label, Supplier<Map<String, Long>> values) implements Family {}
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    Metrics() {}
+
+    public static Metrics getInstance() {
+        return INSTANCE;
+    }
+
+    /** The counter called {@code name}, registered on first use. */
+    public Counter counter(String name, String help) {
+        return ((CounterFamily) families.computeIfAbsent(name, n -> new CounterFamily(help, new Counter()))).counter();
+    }
+
+    /** The histogram exported as {@code name}, which should end in {@code _seconds}, registered on first use. */
+    public Histogram histogram(String name, String help) {
+        return ((HistogramFamily) families.computeIfAbsent(name, n -> new HistogramFamily(help, new Histogram()))).histogram();
+    }
+
+    /** Registers a gauge read from {@code value} at each scrape, replacing any gauge of that name. */
+    public void gauge(String name, String help, LongSupplier value) {
+        families.put(name, new GaugeFamily(help, value));
+    }
+
+    /**
+     * Registers a gauge with one series per key of the map {@code values} returns at each scrape,
+     * labelled {@code label}; replaces any gauge of that name. Keep the map small: only the keys
+     * worth looking at, such as rooms with a backlog.
+     */
+    public void gauge(String name, String help, String label, Supplier<Map<String, Long>> values) {
+        families.put(name, new LabeledGaugeFamily(help, label, values));
+    }
+
+    /** Every metric in the Prometheus text exposition format, version 0.0.4. */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Map.Entry<String, Family> e : families.entrySet()) {
+            String name = e.getKey();
+            Family f = e.getValue();
+            out.append("# HELP ").append(name).append(' ').append(f.help()).append('\n');
+            if (f instanceof CounterFamily c) {
+                out.append("# TYPE ").append(name).append(" counter\n");
+                out.append(name).append(' ').append(c.counter().get()).append('\n');
+            } else if (f instanceof GaugeFamily g) {
+                out.append("# TYPE ").append(name).append(" gauge\n");
+                out.append(name).append(' ').append(g.value().getAsLong()).append('\n');
+            } else if (f instanceof LabeledGaugeFamily g) {
+                out.append("# TYPE ").append(name).append(" gauge\n");
+                for (Map.Entry<String, Long> v : g.values().get().entrySet()) {
+                    out.append(name).append('{').append(g.label()).append("=\"");
+                    escape(v.getKey(), out);
+                    out.append("\"} ").append(v.getValue()).append('\n');
+                }
+            } else if (f instanceof HistogramFamily h) {
+                out.append("# TYPE ").append(name).append(" histogram\n");
+                writeHistogram(name, h.histogram(), out);
+            }
+        }
+        return out.toString();
+    }
+
+    /** Cumulative buckets at each power of two nanoseconds, then {@code +Inf}, sum and count. */
+    private static void writeHistogram(String name, Histogram h, StringBuilder out) {
+        long[] counts = h.snapshot();
+        long cumulative = 0;
+        for (int i = 0; i < counts.length - 1; i++) {
+            cumulative += counts[i];
+            long bound = Histogram.upperBound(i);
+            if (Long.bitCount(bound) != 1 || bound < 1L << FIRST_EXPORTED_EXPONENT) continue;
+            out.append(name).append("_bucket{le=\"").append(seconds(bound)).append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += counts[counts.length - 1];
+        out.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(name).append("_sum ").append(seconds(h.sum())).append('\n');
+        out.append(name).append("_count ").append(cumulative).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return BigDecimal.valueOf(nanos).movePointLeft(9).stripTrailingZeros().toPlainString();
+    }
+
+    private static void escape(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '"' -> out.append("\\\"");
+                case '\n' -> out.append("\\n");
+                default -> out.append(c);
+            }
+        }
+    }
+}
@@ -1,60 +1,308 @@
 package com.example.chess.service;
 
+import com.example.chess.archive.GameRecord;
+import com.example.chess.clock.GameClock;
+import com.example.chess.clock.TimeControl;
+import com.example.chess.clock.TimingWheel;
+import com.example.chess.cluster.Cluster;
+import com.example.chess.cluster.EventBus;
+import com.example.chess.cluster.RoomEvent;
+import com.example.chess.config.ChessSettings;
 import com.example.chess.game.Board;
+import com.example.chess.engine.Engine;
+import com.example.chess.engine.EnginePool;
 import com.example.chess.game.Color;
-import com.example.chess.game.Move;
+import com.example.chess.game.GameStatus;
+import com.example.chess.game.Moves;
+import com.example.chess.game.Piece;
 import com.example.chess.game.Position;
 import com.example.chess.game.Type;
+import com.example.chess.journal.Journal;
+import com.example.chess.metrics.Counter;
+import com.example.chess.metrics.Histogram;
+import com.example.chess.metrics.Metrics;
 import com.example.chess.ws.dto.ClientMessage;
 import com.example.chess.ws.dto.ServerMessage;
 import com.example.chess.util.Json;
+import jakarta.websocket.CloseReason;
 import jakarta.websocket.Session;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One game and the sessions watching it, run as an actor: the public methods only post to the
+ * room's mailbox, and the room drains it on its shard of the {@link RoomExecutor}, one task at
+ * a time. Everything below the mailbox is therefore confined to a single thread at a time and
+ * needs no locking; messages from one session are handled in the order they arrived.
+ * <p>
+ * In a cluster, while other nodes have spectators of the room, every frame sent to the whole
+ * room is also published on its {@link Cluster#roomTopic(String) topic}. A node that asks for
+ * a spectator snapshot gets it on its own {@link Cluster#nodeTopic(String) topic}, so the other
+ * watching nodes never see it; an untimed game encodes that snapshot once per move.
+ * <p>
+ * A timed game's {@link GameClock} starts once both colors are seated. Its flag is one
+ * {@link TimingWheel} timeout, replaced after every move, which posts to the mailbox when it
+ * fires; a move that arrives after the flag has fallen loses on time instead.
+ */
+public class GameRoom implements Room {
+    private static final Logger LOG = Logger.getLogger(GameRoom.class.getName());
+    private static final int DRAIN_BATCH = 64; // tasks per turn on the shard before yielding to other rooms
+    private static final Histogram QUEUED = Metrics.getInstance().histogram("chess_room_queue_seconds",
+            "Time a client frame waits in its room's mailbox.");
+    private static final Histogram HANDLE = Metrics.getInstance().histogram("chess_room_message_seconds",
+            "Time a room takes to decode and handle a client frame, sends excluded.");
+    private static final Histogram APPLY = Metrics.getInstance().histogram("chess_move_apply_seconds",
+            "Time in Board.applyMoveIfLegal for a move played in a room.");
+    private static final Histogram BROADCAST = Metrics.getInstance().histogram("chess_room_broadcast_seconds",
+            "Time to diff, encode and queue a move's delta frame for everyone in the room.");
+    private static final Counter MOVES = Metrics.getInstance().counter("chess_moves_total",
+            "Moves played, the engine's included.");
+    private static final Counter ILLEGAL = Metrics.getInstance().counter("chess_moves_illegal_total",
+            "Moves refused as illegal.");
+    private static final Counter FLAGS = Metrics.getInstance().counter("chess_clock_flags_total",
+            "Games lost on time.");
 
-public class GameRoom {
     private final String id;
+    private final Executor shard;
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final Journal.RoomLog log;
+    private final Consumer<GameRecord> archive; // receives the game once it is over
+    private final EnginePool engines; // null when the server has no engine
+    private final MoveHints hints;
+    private final int[] hintMoves = new int[Moves.MAX_MOVES]; // scratch for generating hints on a cache miss
+    private final EventBus bus;
+    private final String node; // this node's name, on the events it publishes
+    private final String topic;
+    private final TimingWheel wheel;
+    private GameClock clock; // null for an untimed game
+    private TimingWheel.Timeout flag; // fires when the side to move runs out of time, while the clock runs
+    private Color engineColor; // the color the engine plays, if it has been invited
+    private final long startedAt = System.currentTimeMillis();
+    private int[] played = new int[64]; // accepted moves, packed as in Moves
     private final Board board = Board.initial();
-    private final Map<Session, Color> playerColors = new ConcurrentHashMap<>();
-    private final Map<Session, String> names = new ConcurrentHashMap<>();
+    private final Map<Session, Outbox> sessions = new HashMap<>(); // players and spectators
+    private final LongAdder backlog = new LongAdder(); // frames queued in the sessions' outboxes
+    private final Map<Session, Color> playerColors = new HashMap<>(); // players only
+    private final Map<Session, String> names = new HashMap<>();
+    private GameStatus status = GameStatus.ONGOING;
+    private long seq; // accepted moves so far; lets clients spot a missed delta
+    private final Piece[] before = new Piece[64]; // mailbox before the current move, for diffing
+    private String snapshot; // spectators' state frame for other nodes, kept while untimed and at snapshotSeq
+    private long snapshotSeq = -1;
+    private volatile RoomState state = RoomState.WAITING;
+    private volatile long lastActivity = System.nanoTime();
+    private boolean retired; // removed from the manager; nothing more is handled
 
-    public GameRoom(String id) {
+    int members; // sessions and watching nodes admitted by the manager; only touched inside its map's compute for this id
+    final Set<String> watchers = new HashSet<>(); // other nodes with spectators; likewise only touched in compute
+    volatile boolean watched; // whether watchers is non-empty, for the room's thread
+
+    GameRoom(String id, Executor shard, Journal.RoomLog log, Consumer<GameRecord> archive, EnginePool engines,
+             MoveHints hints, Cluster cluster, TimingWheel wheel) {
         this.id = Objects.requireNonNull(id);
+        this.shard = Objects.requireNonNull(shard);
+        this.log = Objects.requireNonNull(log);
+        this.archive = Objects.requireNonNull(archive);
+        this.engines = engines;
+        this.hints = Objects.requireNonNull(hints);
+        this.bus = cluster.bus();
+        this.node = cluster.self();
+        this.topic = Cluster.roomTopic(id);
+        this.wheel = Objects.requireNonNull(wheel);
+        for (int m : log.moves()) { // recovered from the journal; empty for a new room
+            board.applyMoveIfLegal(Position.of(Moves.from(m)), Position.of(Moves.to(m)), Moves.promotion(m));
+            record(m);
+        }
+        GameStatus logged = log.status(); // a loss on time leaves no trace on the board
+        status = logged != GameStatus.ONGOING ? logged : board.status();
+        if (status != GameStatus.ONGOING) {
+            state = RoomState.FINISHED;
+        } else if (seq > 0) {
+            state = RoomState.ACTIVE;
+        }
+        TimeControl control = ChessSettings.getInstance().clockDefaultControl();
+        if (control != null && seq == 0) clock = new GameClock(control); // clocks are not journaled
     }
 
+    @Override
     public String id() {
         return id;
     }
 
-    public synchronized void join(Session session) {
-        if (!playerColors.containsKey(session)) {
-            if (!playerColors.containsValue(Color.WHITE)) {
+    public void join(Session session) {
+        tell(() -> onJoin(session));
+    }
+
+    public void leave(Session session) {
+        tell(() -> onLeave(session));
+    }
+
+    /** Seats a matched pair, white first, under their names, and sets the clock to their control. */
+    void seat(Session white, String whiteName, Session black, String blackName, TimeControl control) {
+        tell(() -> {
+            clock = control == null ? null : new GameClock(control);
+            if (whiteName != null) names.put(white, whiteName);
+            if (blackName != null) names.put(black, blackName);
+            onJoin(white);
+            onJoin(black);
+        });
+    }
+
+    /** Parses and handles a raw client frame on the room's thread. */
+    @Override
+    public void handleMessage(Session session, String text) {
+        long received = System.nanoTime();
+        tell(() -> {
+            long start = System.nanoTime();
+            QUEUED.record(start - received);
+            ClientMessage msg;
+            try {
+                msg = Json.fromJson(text, ClientMessage.class);
+            } catch (Exception | StackOverflowError e) { // absurdly nested JSON from one client
+                sendError(session, "Malformed message.");
+                return;
+            }
+            onMessage(session, msg);
+            HANDLE.recordSince(start);
+        });
+    }
+
+    /** Sends a spectator snapshot to {@code requester}, a node with spectators waiting for one. */
+    void sendSnapshot(String requester) {
+        tell(() -> {
+            if (retired) return;
+            bus.publish(Cluster.nodeTopic(requester), new RoomEvent(id, node, RoomEvent.Kind.STATE, spectatorSnapshot()));
+        });
+    }
+
+    /** Closes the room: everyone connected, or still queued to join, is disconnected. */
+    void retire() {
+        tell(this::onRetire);
+    }
+
+    Journal.RoomLog log() {
+        return log;
+    }
+
+    /** Frames queued for this room's sessions and not yet sent. */
+    long backlog() {
+        return backlog.sum();
+    }
+
+    void touch() {
+        lastActivity = System.nanoTime();
+    }
+
+    private void tell(Runnable task) {
+        mailbox.add(task);
+        if (scheduled.compareAndSet(false, true)) shard.execute(this::drain);
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < DRAIN_BATCH; i++) {
+                Runnable task = mailbox.poll();
+                if (task == null) break;
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Room " + id + " failed handling a message", e);
+                }
+            }
+        } finally { // even after an Error, so the room keeps taking messages
+            scheduled.set(false);
+            // A producer may have added after our last poll but seen scheduled still set
+            if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) shard.execute(this::drain);
+        }
+    }
+
+    private void onJoin(Session session) {
+        if (retired) {
+            close(session);
+            return;
+        }
+        lastActivity = System.nanoTime();
+        if (!sessions.containsKey(session)) {
+            sessions.put(session, new Outbox(session, () -> tell(() -> resync(session)), backlog));
+            if (!seated(Color.WHITE)) {
                 playerColors.put(session, Color.WHITE);
-            } else if (!playerColors.containsValue(Color.BLACK)) {
+            } else if (!seated(Color.BLACK)) {
                 playerColors.put(session, Color.BLACK);
-            } else {
-                playerColors.put(session, null); // spectator
             }
+            // otherwise a spectator
+            if (state == RoomState.WAITING && seated(Color.WHITE) && seated(Color.BLACK)) {
+                state = RoomState.ACTIVE;
+                startClock();
+            }
+            log.joined(playerColors.get(session));
         }
         sendStateTo(session, "Welcome to room " + id + ".");
         broadcastInfo(displayName(session) + " joined.");
     }
 
-    public synchronized void leave(Session session) {
-        Color c = playerColors.remove(session);
+    private void onLeave(Session session) {
+        Outbox outbox = sessions.remove(session);
+        if (outbox == null) return;
+        outbox.close();
+        lastActivity = System.nanoTime();
+        playerColors.remove(session);
         String name = names.remove(session);
         broadcastInfo((name != null ? name : "A player") + " left.");
     }
 
-    public synchronized void setName(Session session, String name) {
+    private void setName(Session session, String name) {
         names.put(session, name);
         broadcastInfo(displayName(session) + " is here.");
     }
 
+    public RoomState state() {
+        return state;
+    }
+
+    /** {@link System#nanoTime()} of the last join, leave or message. */
+    public long lastActivityNanos() {
+        return lastActivity;
+    }
+
+    private void onRetire() {
+        retired = true;
+        if (flag != null) flag.cancel();
+        if (watched) bus.publish(topic, new RoomEvent(id, node, RoomEvent.Kind.CLOSED, null));
+        List<Session> remaining = new ArrayList<>(sessions.keySet());
+        for (Outbox outbox : sessions.values()) outbox.close();
+        sessions.clear();
+        playerColors.clear();
+        names.clear();
+        for (Session s : remaining) close(s);
+    }
+
+    private static void close(Session s) {
+        try {
+            s.close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "Room closed"));
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
     private String displayName(Session s) {
         String n = names.get(s);
         Color c = playerColors.get(s);
@@ -62,18 +310,26 @@ public class GameRoom {
         return (n == null || n.isBlank() ? "Player" : n) + " (" + role + ")";
     }
 
-    public synchronized void handleMessage(Session session, ClientMessage msg) {
-        if (msg == null || msg.type == null) return;
+    private void onMessage(Session session, ClientMessage msg) {
+        if (retired || msg == null || msg.type == null) return;
+        lastActivity = System.nanoTime();
         switch (msg.type) {
             case "join" -> {
                 if (msg.name != null) setName(session, msg.name);
                 sendStateTo(session, "Joined room " + id + ".");
             }
+            case "resync" -> resync(session);
+            case "engine" -> seatEngine(session);
+            case "clock" -> setClock(session, msg.control);
             case "move" -> {
                 if (msg.from == null || msg.to == null) {
                     sendError(session, "Invalid move message");
                     return;
                 }
+                if (status != GameStatus.ONGOING) {
+                    sendError(session, "The game is over.");
+                    return;
+                }
                 Color player = playerColors.get(session);
                 if (player == null) {
                     sendError(session, "Spectators cannot move.");
@@ -83,6 +339,7 @@ public class GameRoom {
                     sendError(session, "Not your turn.");
                     return;
                 }
+                if (flagFell(System.nanoTime())) return;
                 Position from = Position.fromAlgebraic(msg.from);
                 Position to = Position.fromAlgebraic(msg.to);
                 Type promo = null;
@@ -93,44 +350,313 @@ public class GameRoom {
                         // default to queen in board
                     }
                 }
-                boolean ok = board.applyMoveIfLegal(new Move(from, to, promo));
-                if (!ok) {
+                if (!play(player, from, to, promo, displayName(session))) {
                     sendError(session, "Illegal move.");
                     return;
                 }
-                broadcastState(displayName(session) + " played " + msg.from + "-" + msg.to + ".");
+                requestEngineMove();
             }
             default -> sendError(session, "Unknown message type: " + msg.type);
         }
     }
 
-    private void send(Session s, ServerMessage m) {
-        try {
-            s.getBasicRemote().sendText(Json.toJson(m));
-        } catch (IOException e) {
-            // Ignore broken sessions
+    /** Applies a move for {@code player} if it is legal, then records and broadcasts it. */
+    private boolean play(Color player, Position from, Position to, Type promo, String who) {
+        board.copySquares(before);
+        long start = System.nanoTime();
+        boolean legal = board.applyMoveIfLegal(from, to, promo);
+        APPLY.recordSince(start);
+        if (!legal) {
+            ILLEGAL.increment();
+            return false;
+        }
+        MOVES.increment();
+        int move = board.lastMove(); // as played: flags set and the promotion resolved
+        record(move);
+        log.moved(move);
+        status = board.status();
+        if (status != GameStatus.ONGOING) finish(player);
+        if (clock != null) {
+            if (status == GameStatus.ONGOING) {
+                clock.press(player, System.nanoTime());
+            } else {
+                clock.stop(System.nanoTime());
+            }
+            armFlag();
         }
+        state = status == GameStatus.ONGOING ? RoomState.ACTIVE : RoomState.FINISHED;
+        String text = who + " played " + from.toAlgebraic() + "-" + to.toAlgebraic() + ".";
+        broadcastState(from, to, status == GameStatus.ONGOING ? text : text + " " + describe(status, player));
+        return true;
+    }
+
+    /** Journals and archives the game just ended; {@code winner} is the last mover unless it was drawn. */
+    private void finish(Color winner) {
+        log.finished(status);
+        archive.accept(new GameRecord(playerName(Color.WHITE), playerName(Color.BLACK), startedAt,
+                GameRecord.result(status, winner), Arrays.copyOf(played, (int) seq)));
+    }
+
+    /**
+     * Sets the time control, or takes the clock away when {@code control} is blank. Only a
+     * player can, and only before the first move.
+     */
+    private void setClock(Session session, String control) {
+        if (playerColors.get(session) == null) {
+            sendError(session, "Spectators cannot set the clock.");
+            return;
+        }
+        if (seq > 0 || status != GameStatus.ONGOING) {
+            sendError(session, "The clock can only be set before the first move.");
+            return;
+        }
+        GameClock next = null;
+        if (control != null && !control.isBlank()) {
+            try {
+                next = new GameClock(TimeControl.parse(control));
+            } catch (IllegalArgumentException e) {
+                sendError(session, "Bad time control; use minutes+increment like 5+3, or minutes d delay like 5d2.");
+                return;
+            }
+        }
+        clock = next;
+        armFlag();
+        if (state == RoomState.ACTIVE) startClock();
+        broadcastSnapshot(displayName(session) + (clock == null ? " turned the clock off."
+                : " set the clock to " + clock.control() + "."));
+    }
+
+    private void startClock() {
+        if (clock == null || clock.running() != null || status != GameStatus.ONGOING) return;
+        clock.start(board.getTurn(), System.nanoTime());
+        armFlag();
+    }
+
+    /** Replaces the flag timeout with one for the side whose clock now runs, if any. */
+    private void armFlag() {
+        if (flag != null) flag.cancel();
+        flag = null;
+        if (clock == null || clock.running() == null) return;
+        long at = seq;
+        flag = wheel.schedule(() -> tell(() -> onFlag(at)), clock.nanosUntilFlag(System.nanoTime()));
+    }
+
+    private void onFlag(long at) {
+        if (retired || seq != at || status != GameStatus.ONGOING) return;
+        if (!flagFell(System.nanoTime())) armFlag(); // the clock was set again meanwhile
+    }
+
+    /** Ends the game if the side to move is out of time at {@code now}; returns whether it did. */
+    private boolean flagFell(long now) {
+        if (clock == null || !clock.flagged(now)) return false;
+        Color winner = clock.running().opposite();
+        clock.stop(now);
+        armFlag();
+        FLAGS.increment();
+        status = GameStatus.TIMEOUT;
+        state = RoomState.FINISHED;
+        finish(winner);
+        broadcastSnapshot(describe(status, winner));
+        return true;
+    }
+
+    private boolean seated(Color color) {
+        return engineColor == color || playerColors.containsValue(color);
+    }
+
+    /** Gives the engine whichever color is still free. */
+    private void seatEngine(Session session) {
+        if (engines == null) {
+            sendError(session, "There is no engine on this server.");
+            return;
+        }
+        if (engineColor != null) {
+            sendError(session, "The engine is already playing.");
+            return;
+        }
+        if (status != GameStatus.ONGOING) {
+            sendError(session, "The game is over.");
+            return;
+        }
+        Color free = !seated(Color.WHITE) ? Color.WHITE : !seated(Color.BLACK) ? Color.BLACK : null;
+        if (free == null) {
+            sendError(session, "Both colors are taken.");
+            return;
+        }
+        engineColor = free;
+        if (state == RoomState.WAITING && seated(Color.WHITE) && seated(Color.BLACK)) {
+            state = RoomState.ACTIVE;
+            startClock();
+        }
+        broadcastInfo("The engine plays " + free.name() + ".");
+        requestEngineMove();
+    }
+
+    /**
+     * Asks the engine pool for a move if it is the engine's turn. The result comes back through
+     * the mailbox and is dropped if the game moved on meanwhile. When the pool is saturated the
+     * engine plays a random legal move right away, without searching on the shard.
+     */
+    private void requestEngineMove() {
+        if (engineColor == null || status != GameStatus.ONGOING || board.getTurn() != engineColor) return;
+        long at = seq;
+        if (!engines.submit(board, result -> tell(() -> onEngineResult(at, result)))) {
+            onEngineResult(at, engines.quickMove(board));
+        }
+    }
+
+    private void onEngineResult(long at, Engine.Result result) {
+        if (retired || seq != at || status != GameStatus.ONGOING || result.move() == Moves.NONE) return;
+        if (flagFell(System.nanoTime())) return;
+        int m = result.move();
+        play(engineColor, Position.of(Moves.from(m)), Position.of(Moves.to(m)), Moves.promotion(m), "Engine");
+    }
+
+    private void record(int move) {
+        if (seq == played.length) played = Arrays.copyOf(played, played.length * 2);
+        played[(int) seq++] = move;
+    }
+
+    private String playerName(Color color) {
+        if (engineColor == color) return "Engine";
+        for (Map.Entry<Session, Color> e : playerColors.entrySet()) {
+            if (e.getValue() != color) continue;
+            String n = names.get(e.getKey());
+            return n == null ? "" : n;
+        }
+        return "";
+    }
+
+    private static String describe(GameStatus status, Color lastMover) {
+        return switch (status) {
+            case CHECKMATE -> "Checkmate. " + (lastMover == Color.WHITE ? "White" : "Black") + " wins.";
+            case STALEMATE -> "Draw by stalemate.";
+            case THREEFOLD_REPETITION -> "Draw by threefold repetition.";
+            case FIFTY_MOVE_RULE -> "Draw by the fifty-move rule.";
+            case TIMEOUT -> (lastMover == Color.WHITE ? "Black ran out of time. White" : "White ran out of time. Black")
+                    + " wins.";
+            case ONGOING -> "";
+        };
+    }
+
+    /** Sends a fresh snapshot; also how a coalesced outbox gets the client back in sync. */
+    private void resync(Session session) {
+        if (sessions.containsKey(session)) sendStateTo(session, null);
+    }
+
+    /** Queues a frame for the session; never blocks on the network. */
+    private void sendText(Session s, String text, Outbox.Kind kind) {
+        Outbox outbox = sessions.get(s);
+        if (outbox != null) outbox.offer(text, kind);
     }
 
     private void sendError(Session s, String text) {
-        send(s, ServerMessage.error(text));
+        sendText(s, Json.toJson(ServerMessage.error(text)), Outbox.Kind.OTHER);
+    }
+
+    private static String role(Color c) {
+        return c == null ? "SPECTATOR" : c.name();
     }
 
     private void sendStateTo(Session s, String info) {
-        String self = Optional.ofNullable(playerColors.get(s)).map(Enum::name).orElse("SPECTATOR");
-        send(s, ServerMessage.state(board.toStringBoard(), board.getTurn().name(), self, info));
+        sendText(s, stateFrame(playerColors.get(s), info), Outbox.Kind.STATE);
+    }
+
+    private String stateFrame(Color self, String info) {
+        return stateFrame(board.toStringBoard(), legal(), clockFrame(), self, info);
+    }
+
+    private String stateFrame(String[][] squares, String[][] legal, ServerMessage.Clock times, Color self,
+                              String info) {
+        ServerMessage m = ServerMessage.state(seq, squares, board.getTurn().name(), role(self), status.name(),
+                legal, info);
+        m.clock = times;
+        return Json.toJson(m);
+    }
+
+    /**
+     * Sends everyone, here and on watching nodes, a fresh snapshot: for changes that are not a
+     * move. Like {@link #broadcastState}, it builds the position once and encodes at most three
+     * frames, one per role; watching nodes get the spectators' one.
+     */
+    private void broadcastSnapshot(String info) {
+        String[][] squares = board.toStringBoard();
+        String[][] legal = legal();
+        ServerMessage.Clock times = clockFrame();
+        String[] frames = new String[3]; // WHITE, BLACK, SPECTATOR
+        for (Map.Entry<Session, Outbox> e : sessions.entrySet()) {
+            Color c = playerColors.get(e.getKey());
+            int slot = c == null ? 2 : c.ordinal();
+            if (frames[slot] == null) frames[slot] = stateFrame(squares, legal, times, c, info);
+            e.getValue().offer(frames[slot], Outbox.Kind.STATE);
+        }
+        if (!watched) return;
+        if (frames[2] == null) frames[2] = stateFrame(squares, legal, times, null, info);
+        bus.publish(topic, new RoomEvent(id, node, RoomEvent.Kind.STATE, frames[2]));
+    }
+
+    /**
+     * The spectators' snapshot for other nodes. A clock keeps running between moves, so only
+     * an untimed game's snapshot is kept, until the next move.
+     */
+    private String spectatorSnapshot() {
+        if (clock != null) return stateFrame(null, null);
+        if (snapshot == null || snapshotSeq != seq) {
+            snapshot = stateFrame(null, null);
+            snapshotSeq = seq;
+        }
+        return snapshot;
+    }
+
+    private ServerMessage.Clock clockFrame() {
+        if (clock == null) return null;
+        long now = System.nanoTime();
+        Color running = clock.running();
+        return ServerMessage.Clock.of(TimeUnit.NANOSECONDS.toMillis(clock.remainingNanos(Color.WHITE, now)),
+                TimeUnit.NANOSECONDS.toMillis(clock.remainingNanos(Color.BLACK, now)),
+                running == null ? null : running.name(), clock.control().toString());
+    }
+
+    private String[][] legal() {
+        return status == GameStatus.ONGOING ? hints.of(board, hintMoves) : null;
     }
 
     private void broadcastInfo(String info) {
-        for (Session s : playerColors.keySet()) {
-            send(s, ServerMessage.info(info));
+        String frame = Json.toJson(ServerMessage.info(info));
+        for (Outbox outbox : sessions.values()) {
+            outbox.offer(frame, Outbox.Kind.OTHER);
         }
+        if (watched) bus.publish(topic, new RoomEvent(id, node, RoomEvent.Kind.INFO, frame));
     }
 
-    private void broadcastState(String info) {
-        for (Session s : playerColors.keySet()) {
-            String self = Optional.ofNullable(playerColors.get(s)).map(Enum::name).orElse("SPECTATOR");
-            send(s, ServerMessage.state(board.toStringBoard(), board.getTurn().name(), self, info));
+    /**
+     * Sends the move just played as a delta frame. The frame is the same for every recipient,
+     * so it is encoded once; clients that see a gap in {@code seq} ask for a snapshot. Runs on
+     * the room's thread; package-private for the benchmarks, which call it on a direct executor.
+     */
+    void broadcastState(Position from, Position to, String info) {
+        long start = System.nanoTime();
+        Color mover = board.getTurn().opposite();
+        List<String[]> changes = new ArrayList<>(4);
+        String captured = null;
+        for (int sq = 0; sq < 64; sq++) {
+            Piece was = before[sq];
+            Piece now = board.get(sq & 7, sq >>> 3);
+            if (was == now) continue;
+            changes.add(new String[]{Position.of(sq).toAlgebraic(), now == null ? null : now.toString()});
+            if (was != null && was.getColor() != mover) captured = was.toString();
+        }
+        Piece moved = board.get(to);
+        Piece original = before[from.square()];
+        String promotion = moved.getType() != original.getType() ? moved.getType().name() : null;
+        ServerMessage delta = ServerMessage.delta(seq, from.toAlgebraic(), to.toAlgebraic(), promotion, captured,
+                changes.toArray(new String[0][]), board.getTurn().name(), status.name(), legal(), info);
+        delta.clock = clockFrame();
+        String frame = Json.toJson(delta);
+        for (Outbox outbox : sessions.values()) {
+            outbox.offer(frame, Outbox.Kind.DELTA);
         }
+        if (watched) bus.publish(topic, new RoomEvent(id, node, RoomEvent.Kind.DELTA, frame));
+        BROADCAST.recordSince(start);
     }
 }
@@ -1,17 +1,457 @@
 package com.example.chess.service;
 
+import com.example.chess.archive.GameArchiveWriter;
+import com.example.chess.archive.GameRecord;
+import com.example.chess.clock.TimingWheel;
+import com.example.chess.cluster.Cluster;
+import com.example.chess.cluster.RoomEvent;
+import com.example.chess.config.ChessSettings;
+import com.example.chess.engine.EnginePool;
+import com.example.chess.engine.OpeningBook;
+import com.example.chess.journal.Journal;
+import com.example.chess.metrics.Metrics;
+import com.example.chess.tablebase.Tablebases;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Owns the live rooms. A room is created by its first join, removed as soon as its last
+ * session leaves, and closed by a background sweeper once it has been idle past its TTL.
+ * The number of live rooms is capped; joins that would create a room beyond the cap are
+ * refused, so arbitrary room ids cannot grow the heap without bound.
+ * <p>
+ * Admission is decided here, atomically per room id, by counting members inside the map's
+ * {@code compute}; what happens in the room itself runs later on the room's actor.
+ * <p>
+ * When a {@link Journal} is configured, the rooms it still holds are rebuilt on startup with
+ * their moves replayed; they wait, empty, for their players to reconnect. Finished games go
+ * to a {@link GameArchiveWriter} when an archive directory is configured.
+ * <p>
+ * The shared instance publishes live rooms, sessions and outbound backlogs as {@link Metrics} gauges.
+ * <p>
+ * In a {@link Cluster}, rooms this node owns are {@link GameRoom}s as above; spectators of
+ * rooms another node owns {@link #watch} them through a {@link RemoteRoom}. The manager
+ * answers the other nodes' requests for its rooms: a node watching a room counts as one
+ * member of it, so the room stays open while any node has spectators, and gets snapshots.
+ */
 public class GameRoomManager {
-    private static final GameRoomManager INSTANCE = new GameRoomManager();
+    private static final Logger LOG = Logger.getLogger(GameRoomManager.class.getName());
+    private static final int MAX_ROOM_ID_LENGTH = 64;
+    private static final GameRoomManager INSTANCE =
+            startSweeper(exportMetrics(new GameRoomManager(ChessSettings.getInstance())));
+
     private final Map<String, GameRoom> rooms = new ConcurrentHashMap<>();
+    private final Map<String, RemoteRoom> remoteRooms = new ConcurrentHashMap<>();
+    private final AtomicInteger live = new AtomicInteger();
+    private final LongAdder sessions = new LongAdder(); // joined and not yet left
+    private final RoomExecutor executor;
+    private final Journal journal;
+    private final GameArchiveWriter archive; // null when finished games are not kept
+    private final Consumer<GameRecord> archiveSink = this::archive;
+    private final EnginePool engines;
+    private final MoveHints hints;
+    private final Cluster cluster;
+    private final TimingWheel wheel; // the flags of every timed game
+    private final int maxRooms;
+    private final long idleTtlNanos;
+    private final long finishedTtlNanos;
+    private final long sweepIntervalMillis;
+
+    private GameRoomManager(ChessSettings settings) {
+        this(settings.virtualThreads() ? RoomExecutor.virtual() : new RoomExecutor(settings.roomShards()),
+                openJournal(settings), openArchive(settings),
+                new EnginePool(settings.engineThreads(), settings.engineQueue(), settings.engineHashMegabytes(),
+                        settings.engineMoveMillis(), openBook(settings), openTablebases(settings)),
+                new MoveHints(settings.hintCacheEntries()), Cluster.fromSettings(settings),
+                TimingWheel.start(settings.clockTickMillis()), settings.maxRooms(),
+                settings.roomIdleTtlMillis(), settings.roomFinishedTtlMillis(), settings.roomSweepIntervalMillis());
+    }
+
+    GameRoomManager(RoomExecutor executor, Journal journal, GameArchiveWriter archive, EnginePool engines,
+                    MoveHints hints, Cluster cluster, TimingWheel wheel, int maxRooms, long idleTtlMillis, long finishedTtlMillis,
+                    long sweepIntervalMillis) {
+        this.executor = executor;
+        this.journal = journal;
+        this.archive = archive;
+        this.engines = engines;
+        this.hints = hints;
+        this.cluster = cluster;
+        this.wheel = wheel;
+        this.maxRooms = maxRooms;
+        this.idleTtlNanos = TimeUnit.MILLISECONDS.toNanos(idleTtlMillis);
+        this.finishedTtlNanos = TimeUnit.MILLISECONDS.toNanos(finishedTtlMillis);
+        this.sweepIntervalMillis = sweepIntervalMillis;
+        for (Journal.RoomLog log : journal.rooms()) {
+            rooms.put(log.id(), new GameRoom(log.id(), executor.shardFor(log.id()), log, archiveSink, engines, hints,
+                    cluster, wheel));
+            live.incrementAndGet();
+        }
+        if (!rooms.isEmpty()) LOG.info("Recovered " + rooms.size() + " rooms from the journal");
+        cluster.bus().subscribe(Cluster.nodeTopic(cluster.self()), this::onRequest);
+    }
+
+    private static Journal openJournal(ChessSettings settings) {
+        if (settings.journalDir() == null) return Journal.disabled();
+        try {
+            return Journal.open(Path.of(settings.journalDir()), settings.journalSegmentBytes(),
+                    settings.journalFlushIntervalMillis());
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.SEVERE, "Cannot open the journal in " + settings.journalDir()
+                    + "; games will not be journaled", e);
+            return Journal.disabled();
+        }
+    }
+
+    private static GameArchiveWriter openArchive(ChessSettings settings) {
+        if (settings.archiveDir() == null) return null;
+        try {
+            Path dir = Files.createDirectories(Path.of(settings.archiveDir()));
+            String stamp = LocalDateTime.now(ZoneOffset.UTC).format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            return new GameArchiveWriter(dir.resolve("games-" + stamp + ".archive"));
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.SEVERE, "Cannot create a game archive in " + settings.archiveDir()
+                    + "; finished games will not be kept", e);
+            return null;
+        }
+    }
+
+    private static OpeningBook openBook(ChessSettings settings) {
+        if (settings.engineBook() == null) return null;
+        try {
+            OpeningBook book = OpeningBook.open(Path.of(settings.engineBook()));
+            LOG.info("Opened opening book " + settings.engineBook() + " (" + book.size() + " entries)");
+            return book;
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.SEVERE, "Cannot open the opening book " + settings.engineBook()
+                    + "; the engine will search every move", e);
+            return null;
+        }
+    }
+
+    private static Tablebases openTablebases(ChessSettings settings) {
+        if (settings.engineTablebases() == null) return null;
+        try {
+            Tablebases tables = Tablebases.load(Path.of(settings.engineTablebases()));
+            LOG.info("Loaded endgame tablebases " + tables.names() + " from " + settings.engineTablebases());
+            return tables.isEmpty() ? null : tables;
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.SEVERE, "Cannot load the endgame tablebases in " + settings.engineTablebases()
+                    + "; the engine will search endgames", e);
+            return null;
+        }
+    }
+
+    private void archive(GameRecord game) {
+        if (archive == null) return;
+        try {
+            archive.append(game);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Archiving a finished game failed", e);
+        }
+    }
 
     public static GameRoomManager getInstance() {
         return INSTANCE;
     }
 
-    public GameRoom getRoom(String id) {
-        return rooms.computeIfAbsent(id, GameRoom::new);
+    private static GameRoomManager exportMetrics(GameRoomManager manager) {
+        Metrics metrics = Metrics.getInstance();
+        metrics.gauge("chess_rooms_live", "Rooms currently open.", manager::size);
+        metrics.gauge("chess_sessions_live", "WebSocket sessions currently in a room.", manager::sessions);
+        metrics.gauge("chess_hint_cache_entries", "Positions with cached legal-move hints.", manager.hints::size);
+        metrics.gauge("chess_outbox_backlog_frames", "Frames queued for all sessions and not yet sent.",
+                manager::backlog);
+        metrics.gauge("chess_room_outbox_backlog_frames", "Frames queued for a room's sessions; rooms with none are left out.",
+                "room", manager::roomBacklogs);
+        metrics.gauge("chess_clock_timers", "Flag timeouts pending on the timing wheel.", manager.wheel::size);
+        return manager;
+    }
+
+    private static GameRoomManager startSweeper(GameRoomManager manager) {
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "room-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = manager.sweepIntervalMillis;
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                manager.sweep(System.nanoTime());
+            } catch (RuntimeException e) {
+                LOG.warning("Room sweep failed: " + e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        return manager;
+    }
+
+    /**
+     * Closes the journal before the container drops its sessions, so the rooms they empty are
+     * still there after a restart, and writes the game archive's index.
+     */
+    public void shutdown() {
+        journal.close();
+        cluster.bus().close();
+        wheel.close();
+        if (archive == null) return;
+        try {
+            archive.close();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Closing the game archive failed", e);
+        }
+    }
+
+    public static boolean isValidRoomId(String id) {
+        return id != null && !id.isBlank() && id.length() <= MAX_ROOM_ID_LENGTH;
+    }
+
+    /**
+     * Joins {@code session} to the room, creating it if needed. Returns {@code null} when the
+     * room does not exist and the server is already at its room cap.
+     */
+    public GameRoom join(String id, Session session) {
+        GameRoom room = rooms.compute(id, (key, existing) -> {
+            GameRoom r = existing;
+            if (r == null) {
+                if (live.incrementAndGet() > maxRooms) {
+                    live.decrementAndGet();
+                    return null;
+                }
+                r = new GameRoom(key, executor.shardFor(key), journal.create(key), archiveSink, engines, hints, cluster,
+                        wheel);
+            }
+            r.members++;
+            r.touch();
+            return r;
+        });
+        if (room != null) {
+            sessions.increment();
+            room.join(session);
+        }
+        return room;
+    }
+
+    /**
+     * Opens a room for a pair the {@link Matchmaker} made and seats the two sessions, white
+     * first, under their names and with their time control. The id is random, among those this
+     * node owns. At the room cap both sessions are closed, to try again later.
+     */
+    GameRoom startMatch(Seek white, Seek black) {
+        GameRoom[] created = new GameRoom[1];
+        boolean[] full = new boolean[1];
+        boolean[] gone = new boolean[2]; // white's and black's sessions closed before they were seated
+        while (created[0] == null && !full[0]) {
+            String id = "m-" + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36);
+            if (!cluster.isLocal(id)) continue;
+            rooms.compute(id, (key, existing) -> {
+                if (existing != null) return existing; // taken, so another id
+                if (live.incrementAndGet() > maxRooms) {
+                    live.decrementAndGet();
+                    full[0] = true;
+                    return null;
+                }
+                GameRoom r = new GameRoom(key, executor.shardFor(key), journal.create(key), archiveSink, engines, hints,
+                        cluster, wheel);
+                r.members = 2;
+                // Before the seating frames go out, so the sessions' replies find the room
+                gone[0] = !white.seated(r);
+                gone[1] = !black.seated(r);
+                // Told inside compute, so the pair is seated before anyone who guesses the id can join
+                r.seat(white.session, white.name, black.session, black.name, white.control);
+                created[0] = r;
+                return r;
+            });
+        }
+        GameRoom room = created[0];
+        if (room == null) {
+            for (Seek seek : new Seek[] {white, black}) {
+                try {
+                    seek.session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Too many rooms"));
+                } catch (IOException e) {
+                    // Already gone
+                }
+            }
+            return null;
+        }
+        sessions.add(2);
+        if (gone[0]) leave(room, white.session);
+        if (gone[1]) leave(room, black.session);
+        return room;
+    }
+
+    public GameRoom find(String id) {
+        return rooms.get(id);
+    }
+
+    public Cluster cluster() {
+        return cluster;
+    }
+
+    /**
+     * Joins {@code session} as a spectator of a room another node owns. Returns {@code null}
+     * when this node has no room for it yet and is at its room cap.
+     */
+    public RemoteRoom watch(String id, Session session) {
+        RemoteRoom room = remoteRooms.compute(id, (key, existing) -> {
+            RemoteRoom r = existing;
+            if (r == null) {
+                if (live.incrementAndGet() > maxRooms) {
+                    live.decrementAndGet();
+                    return null;
+                }
+                r = new RemoteRoom(key, cluster);
+                r.open();
+            }
+            r.members++;
+            return r;
+        });
+        if (room != null) {
+            sessions.increment();
+            room.join(session);
+        }
+        return room;
+    }
+
+    /** Leaves whichever kind of room the session is in. */
+    public void leave(Room room, Session session) {
+        if (room instanceof GameRoom r) {
+            leave(r, session);
+            return;
+        }
+        RemoteRoom remote = (RemoteRoom) room;
+        sessions.decrement();
+        remote.leave(session);
+        remoteRooms.computeIfPresent(remote.id(), (key, r) -> {
+            if (r != remote || --r.members > 0) return r;
+            live.decrementAndGet();
+            r.shut();
+            return null;
+        });
+    }
+
+    public void leave(GameRoom room, Session session) {
+        sessions.decrement();
+        room.leave(session);
+        rooms.computeIfPresent(room.id(), (key, r) -> {
+            if (r != room || --r.members > 0) return r; // already swept and replaced, or others remain
+            live.decrementAndGet();
+            r.log().closed();
+            r.retire(); // nobody left to tell; this stops its clock
+            return null;
+        });
+    }
+
+    /** Live rooms, those watched from other nodes included. */
+    public int size() {
+        return live.get();
+    }
+
+    /** Sessions joined to a room and not yet left. */
+    public long sessions() {
+        return sessions.sum();
+    }
+
+    long backlog() {
+        long total = 0;
+        for (GameRoom room : rooms.values()) total += room.backlog();
+        for (RemoteRoom room : remoteRooms.values()) total += room.backlog();
+        return total;
+    }
+
+    Map<String, Long> roomBacklogs() {
+        Map<String, Long> out = new HashMap<>();
+        for (GameRoom room : rooms.values()) {
+            long b = room.backlog();
+            if (b > 0) out.put(room.id(), b);
+        }
+        for (RemoteRoom room : remoteRooms.values()) {
+            long b = room.backlog();
+            if (b > 0) out.put(room.id(), b);
+        }
+        return out;
+    }
+
+    /** Another node's request about one of our rooms, or its answer to ours; on the bus's thread. */
+    private void onRequest(RoomEvent event) {
+        switch (event.kind()) {
+            case WATCH, SNAPSHOT -> {
+                // A snapshot request from a node we do not know as a watcher (we restarted) re-registers it
+                GameRoom room = rooms.compute(event.room(), (key, existing) -> {
+                    GameRoom r = existing;
+                    if (r == null) {
+                        if (!cluster.isLocal(key)) return null;
+                        if (live.incrementAndGet() > maxRooms) {
+                            live.decrementAndGet();
+                            return null;
+                        }
+                        r = new GameRoom(key, executor.shardFor(key), journal.create(key), archiveSink, engines, hints,
+                                cluster, wheel);
+                    }
+                    if (r.watchers.add(event.node())) {
+                        r.members++;
+                        r.watched = true;
+                    }
+                    r.touch();
+                    return r;
+                });
+                if (room == null) {
+                    LOG.warning("Refused node " + event.node() + " watching room " + event.room());
+                    return;
+                }
+                if (event.kind() == RoomEvent.Kind.SNAPSHOT) room.sendSnapshot(event.node());
+            }
+            case UNWATCH -> rooms.computeIfPresent(event.room(), (key, r) -> {
+                if (!r.watchers.remove(event.node())) return r;
+                r.watched = !r.watchers.isEmpty();
+                if (--r.members > 0) return r;
+                live.decrementAndGet();
+                r.log().closed();
+                r.retire();
+                return null;
+            });
+            case STATE -> { // the snapshot we asked an owner for
+                RemoteRoom remote = remoteRooms.get(event.room());
+                if (remote != null) remote.onSnapshot(event.frame());
+            }
+            default -> { } // frames, meant for watching nodes
+        }
+    }
+
+    /** Closes every room that has been idle past its TTL as of {@code now} (a {@link System#nanoTime()}). */
+    void sweep(long now) {
+        for (GameRoom room : rooms.values()) {
+            long ttl = room.state() == RoomState.FINISHED ? finishedTtlNanos : idleTtlNanos;
+            if (now - room.lastActivityNanos() < ttl) continue;
+            // Re-check under the id's lock so a join that just touched the room keeps it
+            boolean[] evicted = new boolean[1];
+            rooms.computeIfPresent(room.id(), (key, r) -> {
+                if (r != room || now - r.lastActivityNanos() < ttl) return r;
+                evicted[0] = true;
+                r.log().closed();
+                return null;
+            });
+            if (!evicted[0]) continue;
+            live.decrementAndGet();
+            room.retire();
+            LOG.info("Closed idle room " + room.id() + " (" + room.state() + ")");
+        }
     }
 }
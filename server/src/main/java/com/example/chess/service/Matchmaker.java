@@ -0,0 +1,223 @@
+package com.example.chess.service;
+
+import com.example.chess.clock.TimeControl;
+import com.example.chess.config.ChessSettings;
+import com.example.chess.metrics.Counter;
+import com.example.chess.metrics.Histogram;
+import com.example.chess.metrics.Metrics;
+import jakarta.websocket.Session;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Pairs players who ask for a game ({@link Seek seeks}) with an opponent of similar rating and
+ * the same time control, then hands each pair, white first, to a callback that seats them.
+ * <p>
+ * Seeks wait in a pool per time control, split into bands of {@value #BAND} rating points,
+ * each a lock-free queue in arrival order. Two seeks may pair when their ratings differ by no
+ * more than either one's window, which starts at {@code initialWindow} and widens by
+ * {@code widenPerSecond} while the seek waits, up to {@code maxWindow}. A new seek is queued
+ * and then looks for an opponent itself, in its own band and then outwards, so a pair usually
+ * forms on the thread that brought the second seek and costs a few CASes, with no lock.
+ * The sweeper widens the windows of the seeks still waiting and tries them again.
+ * <p>
+ * A pair is taken by claiming both seeks, the older first, and releasing the first if the
+ * second is gone; since every thread claims in the same order, two threads can never each
+ * hold one seek of the other's pair. Seeks that were paired or cancelled are unlinked from
+ * their queue by whoever walks past them next.
+ */
+public final class Matchmaker {
+    private static final Logger LOG = Logger.getLogger(Matchmaker.class.getName());
+    static final int BAND = 50; // rating points per band
+    public static final int MAX_RATING = 4000; // ratings are 0 to MAX_RATING - 1
+    private static final int BANDS = MAX_RATING / BAND;
+    private static final Counter PAIRS = Metrics.getInstance().counter("chess_match_pairs_total",
+            "Pairs made by the matchmaker.");
+    private static final Histogram WAIT = Metrics.getInstance().histogram("chess_match_wait_seconds",
+            "Time from a seek to its pairing, for each of the two seeks.");
+
+    private static final Matchmaker INSTANCE = startSweeper(exportMetrics(new Matchmaker(ChessSettings.getInstance())));
+
+    private final Map<String, Queue<Seek>[]> pools = new ConcurrentHashMap<>(); // by time control, "" when untimed
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong arrivals = new AtomicLong();
+    private final int initialWindow;
+    private final int widenPerSecond;
+    private final int maxWindow;
+    private final long sweepIntervalMillis;
+    private final BiConsumer<Seek, Seek> onPair; // white, then black
+
+    private Matchmaker(ChessSettings settings) {
+        this(settings.matchInitialWindow(), settings.matchWidenPerSecond(), settings.matchMaxWindow(),
+                settings.matchSweepIntervalMillis(), (white, black) -> GameRoomManager.getInstance().startMatch(white, black));
+    }
+
+    Matchmaker(int initialWindow, int widenPerSecond, int maxWindow, long sweepIntervalMillis,
+               BiConsumer<Seek, Seek> onPair) {
+        this.initialWindow = initialWindow;
+        this.widenPerSecond = widenPerSecond;
+        this.maxWindow = Math.max(initialWindow, maxWindow);
+        this.sweepIntervalMillis = sweepIntervalMillis;
+        this.onPair = onPair;
+    }
+
+    public static Matchmaker getInstance() {
+        return INSTANCE;
+    }
+
+    private static Matchmaker exportMetrics(Matchmaker matchmaker) {
+        Metrics.getInstance().gauge("chess_match_seeks_waiting", "Seeks waiting for an opponent.",
+                matchmaker::waiting);
+        return matchmaker;
+    }
+
+    private static Matchmaker startSweeper(Matchmaker matchmaker) {
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "match-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = matchmaker.sweepIntervalMillis;
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                matchmaker.sweep(System.nanoTime());
+            } catch (RuntimeException e) {
+                LOG.warning("Match sweep failed: " + e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        return matchmaker;
+    }
+
+    public static boolean isValidRating(int rating) {
+        return rating >= 0 && rating < MAX_RATING;
+    }
+
+    /** Queues a seek and pairs it at once if an opponent is waiting; the pair callback runs on this thread. */
+    public Seek seek(Session session, String name, int rating, TimeControl control) {
+        if (!isValidRating(rating)) throw new IllegalArgumentException("Rating out of range: " + rating);
+        long now = System.nanoTime();
+        Seek seek = new Seek(session, name, rating, control, now, arrivals.getAndIncrement());
+        Queue<Seek>[] pool = pools.computeIfAbsent(key(control), k -> newPool());
+        waiting.incrementAndGet();
+        pool[rating / BAND].add(seek); // queued before looking, so two seeks arriving together cannot miss each other
+        match(pool, seek, now);
+        return seek;
+    }
+
+    /** Withdraws a seek; returns {@code false} if it was already paired or withdrawn. */
+    public boolean cancel(Seek seek) {
+        while (true) {
+            int s = seek.state.get();
+            if (s == Seek.CLAIMED) {
+                Thread.onSpinWait(); // another thread is deciding, for a few instructions
+            } else if (s != Seek.WAITING) {
+                return false;
+            } else if (seek.state.compareAndSet(Seek.WAITING, Seek.CANCELLED)) {
+                waiting.decrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /** Seeks waiting for an opponent. */
+    public int waiting() {
+        return waiting.get();
+    }
+
+    /** Unlinks finished seeks and tries again the ones whose window has widened since the last sweep. */
+    void sweep(long now) {
+        for (Queue<Seek>[] pool : pools.values()) {
+            for (Queue<Seek> band : pool) {
+                for (Iterator<Seek> it = band.iterator(); it.hasNext(); ) {
+                    Seek seek = it.next();
+                    int s = seek.state.get();
+                    if (s == Seek.MATCHED || s == Seek.CANCELLED) {
+                        it.remove();
+                        continue;
+                    }
+                    int window = window(seek, now);
+                    if (s != Seek.WAITING || window == seek.sweptWindow) continue;
+                    seek.sweptWindow = window;
+                    match(pool, seek, now);
+                }
+            }
+        }
+    }
+
+    /** Finds {@code seek} an opponent, nearest bands first and oldest first within a band. */
+    private void match(Queue<Seek>[] pool, Seek seek, long now) {
+        int window = window(seek, now);
+        int center = seek.rating / BAND;
+        int reach = window / BAND + 1;
+        for (int d = 0; d <= reach; d++) {
+            for (int side = d == 0 ? 1 : 0; side < 2; side++) {
+                int b = side == 0 ? center - d : center + d;
+                if (b < 0 || b >= BANDS) continue;
+                for (Iterator<Seek> it = pool[b].iterator(); it.hasNext(); ) {
+                    Seek other = it.next();
+                    int s = other.state.get();
+                    if (s == Seek.MATCHED || s == Seek.CANCELLED) {
+                        it.remove();
+                        continue;
+                    }
+                    if (other == seek || s != Seek.WAITING) continue;
+                    if (Math.abs(other.rating - seek.rating) > Math.min(window, window(other, now))) continue;
+                    if (pair(seek, other, now)) return;
+                    if (seek.state.get() != Seek.WAITING) return; // paired by someone else, or cancelled
+                }
+            }
+        }
+    }
+
+    /** Claims both seeks, older first, and hands them over; returns {@code false} if either was taken. */
+    private boolean pair(Seek seek, Seek other, long now) {
+        Seek first = seek.order < other.order ? seek : other;
+        Seek second = first == seek ? other : seek;
+        if (!first.claim()) return false;
+        if (!second.claim()) {
+            first.release();
+            return false;
+        }
+        first.state.set(Seek.MATCHED);
+        second.state.set(Seek.MATCHED);
+        waiting.addAndGet(-2);
+        PAIRS.increment();
+        WAIT.record(now - first.since);
+        WAIT.record(now - second.since);
+        if (ThreadLocalRandom.current().nextBoolean()) {
+            onPair.accept(first, second);
+        } else {
+            onPair.accept(second, first);
+        }
+        return true;
+    }
+
+    /** How far from its own rating the seek accepts an opponent at {@code now}. */
+    int window(Seek seek, long now) {
+        long widened = initialWindow + widenPerSecond * Math.max(0, now - seek.since) / TimeUnit.SECONDS.toNanos(1);
+        return (int) Math.min(maxWindow, widened);
+    }
+
+    private static String key(TimeControl control) {
+        return control == null ? "" : control.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Queue<Seek>[] newPool() {
+        Queue<Seek>[] pool = (Queue<Seek>[]) new Queue<?>[BANDS];
+        for (int i = 0; i < BANDS; i++) pool[i] = new ConcurrentLinkedQueue<>();
+        return pool;
+    }
+}
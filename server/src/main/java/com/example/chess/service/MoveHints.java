@@ -0,0 +1,106 @@
+package com.example.chess.service;
+
+import com.example.chess.game.Board;
+import com.example.chess.game.Moves;
+import com.example.chess.game.Position;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Legal destinations for each movable piece, sent with state and delta frames so clients can
+ * reject a mis-drag themselves instead of waiting for "Illegal move." Hints are keyed by the
+ * position's Zobrist key, which covers the side to move, castling and en passant, and kept in a
+ * bounded least-recently-used cache shared by every room. Openings and positions that many rooms
+ * pass through are then generated once.
+ * <p>
+ * The cache is striped: a key's bits pick one of up to {@value #MAX_SEGMENTS} segments, each an
+ * LRU map behind its own lock, so rooms on different shards rarely wait on each other. A miss
+ * is generated outside any lock into the caller's buffer; if two rooms miss the same position
+ * at once, both generate it and the first to store it wins.
+ * <p>
+ * A hint is {@code [square, destination...]} per piece that can move, in square order; a
+ * promotion's destination is listed once. The arrays are shared and must not be modified.
+ */
+final class MoveHints {
+    private static final int MAX_SEGMENTS = 64;
+    private static final int MIN_SEGMENT_ENTRIES = 64; // small caches stay one exact LRU
+
+    private final Segment[] segments;
+
+    MoveHints(int maxEntries) {
+        int n = Math.min(MAX_SEGMENTS, Integer.highestOneBit(Math.max(1, maxEntries / MIN_SEGMENT_ENTRIES)));
+        segments = new Segment[n];
+        for (int i = 0; i < n; i++) segments[i] = new Segment((maxEntries + n - 1) / n);
+    }
+
+    /**
+     * Hints for the side to move; the board is left unchanged. {@code buffer} holds at least
+     * {@link Moves#MAX_MOVES} moves and belongs to the caller, who must not share it between threads.
+     */
+    String[][] of(Board board, int[] buffer) {
+        long key = board.getKey();
+        Segment segment = segments[(int) (key >>> 32) & (segments.length - 1)];
+        String[][] hints = segment.get(key);
+        if (hints != null) return hints;
+        return segment.putIfAbsent(key, generate(board, buffer));
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) size += segment.size();
+        return size;
+    }
+
+    private static String[][] generate(Board board, int[] buffer) {
+        int n = board.generateLegalMoves(buffer);
+        long[] targets = new long[64]; // destinations by origin square
+        int pieces = 0;
+        for (int i = 0; i < n; i++) {
+            int from = Moves.from(buffer[i]);
+            if (targets[from] == 0) pieces++;
+            targets[from] |= 1L << Moves.to(buffer[i]);
+        }
+        String[][] hints = new String[pieces][];
+        int h = 0;
+        for (int from = 0; from < 64; from++) {
+            long bits = targets[from];
+            if (bits == 0) continue;
+            String[] hint = new String[1 + Long.bitCount(bits)];
+            hint[0] = Position.of(from).toAlgebraic();
+            for (int j = 1; bits != 0; bits &= bits - 1) {
+                hint[j++] = Position.of(Long.numberOfTrailingZeros(bits)).toAlgebraic();
+            }
+            hints[h++] = hint;
+        }
+        return hints;
+    }
+
+    /** One stripe: an access-ordered map that drops its least recently used entry when full. */
+    private static final class Segment {
+        private final Map<Long, String[][]> map;
+
+        Segment(int maxEntries) {
+            map = new LinkedHashMap<>(Math.min(maxEntries, 1 << 16), 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, String[][]> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        synchronized String[][] get(long key) {
+            return map.get(key);
+        }
+
+        /** Stores the hints unless another thread got there first; returns whichever is kept. */
+        synchronized String[][] putIfAbsent(long key, String[][] hints) {
+            String[][] present = map.putIfAbsent(key, hints);
+            return present != null ? present : hints;
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+    }
+}
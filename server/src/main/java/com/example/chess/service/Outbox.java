@@ -0,0 +1,192 @@
+package com.example.chess.service;
+
+import com.example.chess.config.ChessSettings;
+import com.example.chess.metrics.Counter;
+import com.example.chess.metrics.Histogram;
+import com.example.chess.metrics.Metrics;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Bounded outbound queue for one session, drained through the async remote with at most one
+ * send in flight. Callers never block on the network: a slow client only grows its own queue.
+ * <p>
+ * Past the high watermark, queued deltas are dropped and the session is marked for a fresh
+ * snapshot, which is requested once the backlog is back under the low watermark. A session
+ * that stays over the limit for too long, or whose queue reaches twice the high watermark,
+ * is disconnected.
+ * <p>
+ * Each send is timed from the call to the async remote to its completion, and the queue's
+ * length is kept in the room's backlog, which outboxes of one room add to together.
+ */
+final class Outbox implements SendHandler {
+    private static final Logger LOG = Logger.getLogger(Outbox.class.getName());
+    private static final Histogram SEND = Metrics.getInstance().histogram("chess_ws_send_seconds",
+            "Time from handing a frame to a session's async remote until the send completes.");
+    private static final Counter SEND_FAILURES = Metrics.getInstance().counter("chess_ws_send_failures_total",
+            "Sends that failed; the session's outbox is closed.");
+    private static final Counter COALESCED = Metrics.getInstance().counter("chess_outbox_coalesced_total",
+            "Times a session went over the high watermark and its queued deltas were dropped for a snapshot.");
+    private static final Counter EVICTIONS = Metrics.getInstance().counter("chess_outbox_evictions_total",
+            "Sessions disconnected for staying too far behind.");
+
+    enum Kind { STATE, DELTA, OTHER }
+
+    private record Frame(String text, Kind kind) {}
+
+    private final Session session;
+    private final Runnable resync;
+    private final LongAdder backlog; // the room's queued frames, this outbox's included
+    private final int high;
+    private final int low;
+    private final long evictAfterNanos;
+    private final ArrayDeque<Frame> queue = new ArrayDeque<>();
+    private boolean sending;
+    private boolean resyncPending;   // deltas were dropped; the client needs a snapshot
+    private boolean resyncRequested; // and it has been asked for
+    private long overSince = -1;
+    private boolean closed;
+    private volatile long sendStarted; // System.nanoTime() of the send in flight
+
+    /**
+     * {@code resync} must eventually offer a {@link Kind#STATE} frame for this session; the
+     * queue's length is added to {@code backlog}.
+     */
+    Outbox(Session session, Runnable resync, LongAdder backlog) {
+        this(session, resync, backlog, ChessSettings.getInstance().outboxHighWatermark(),
+                ChessSettings.getInstance().outboxLowWatermark(), ChessSettings.getInstance().outboxEvictAfterMillis());
+    }
+
+    Outbox(Session session, Runnable resync, LongAdder backlog, int high, int low, long evictAfterMillis) {
+        this.session = session;
+        this.resync = resync;
+        this.backlog = backlog;
+        this.high = high;
+        this.low = low;
+        this.evictAfterNanos = evictAfterMillis * 1_000_000L;
+    }
+
+    void offer(String text, Kind kind) {
+        String next = null;
+        boolean evict;
+        synchronized (this) {
+            if (closed) return;
+            int queued = queue.size();
+            if (kind == Kind.STATE) {
+                // A snapshot supersedes every queued snapshot and delta
+                dropQueued(true);
+                resyncPending = false;
+                resyncRequested = false;
+            }
+            if (kind != Kind.DELTA || !resyncPending) {
+                queue.add(new Frame(text, kind)); // otherwise the pending snapshot will include this move
+            }
+            evict = checkLimits();
+            if (!evict && !sending && !queue.isEmpty()) {
+                sending = true;
+                next = queue.poll().text();
+            }
+            backlog.add(queue.size() - queued);
+        }
+        if (evict) {
+            evict();
+        } else if (next != null) {
+            transmit(next);
+        }
+    }
+
+    @Override
+    public void onResult(SendResult result) {
+        SEND.recordSince(sendStarted);
+        if (!result.isOK()) {
+            SEND_FAILURES.increment();
+            close();
+            return;
+        }
+        String next = null;
+        boolean requestSnapshot = false;
+        synchronized (this) {
+            if (closed) return;
+            Frame f = queue.poll();
+            if (f == null) {
+                sending = false;
+            } else {
+                next = f.text();
+                backlog.decrement();
+            }
+            // Ask only once the backlog is small, so the snapshot isn't itself stuck behind it
+            if (resyncPending && !resyncRequested && queue.size() <= low) {
+                resyncRequested = true;
+                requestSnapshot = true;
+            }
+        }
+        if (next != null) transmit(next);
+        if (requestSnapshot) resync.run();
+    }
+
+    synchronized int backlog() {
+        return queue.size();
+    }
+
+    /** Stops sending; queued frames are discarded. */
+    void close() {
+        synchronized (this) {
+            closed = true;
+            backlog.add(-queue.size());
+            queue.clear();
+        }
+    }
+
+    /** Applies the watermarks after an enqueue; returns whether the session should be dropped. */
+    private boolean checkLimits() {
+        if (queue.size() > high && !resyncPending) {
+            dropQueued(false);
+            resyncPending = true;
+            COALESCED.increment();
+        }
+        if (!resyncPending && queue.size() <= high) {
+            overSince = -1;
+            return false;
+        }
+        long now = System.nanoTime();
+        if (overSince < 0) overSince = now;
+        return queue.size() >= 2 * high || now - overSince > evictAfterNanos;
+    }
+
+    /** Removes queued deltas, and queued snapshots too when {@code snapshots} is set. */
+    private void dropQueued(boolean snapshots) {
+        for (Iterator<Frame> it = queue.iterator(); it.hasNext(); ) {
+            Kind k = it.next().kind();
+            if (k == Kind.DELTA || (snapshots && k == Kind.STATE)) it.remove();
+        }
+    }
+
+    private void transmit(String text) {
+        try {
+            sendStarted = System.nanoTime();
+            session.getAsyncRemote().sendText(text, this);
+        } catch (RuntimeException e) {
+            // Session already closed underneath us
+            close();
+        }
+    }
+
+    private void evict() {
+        close();
+        EVICTIONS.increment();
+        LOG.info("Disconnecting slow session " + session.getId());
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Too far behind"));
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.chess.service;
+
+import com.example.chess.cluster.Cluster;
+import com.example.chess.cluster.EventBus;
+import com.example.chess.cluster.RoomEvent;
+import com.example.chess.util.Json;
+import com.example.chess.ws.dto.ClientMessage;
+import com.example.chess.ws.dto.ServerMessage;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The spectators on this node of a room that another node plays. While it has any, the room
+ * is subscribed to its {@link Cluster#roomTopic(String) topic}, and the frames the owner
+ * publishes there are queued to each spectator's {@link Outbox} as they are.
+ * <p>
+ * A spectator that joins or falls behind waits for a snapshot, which the owner sends to this
+ * node's {@link Cluster#nodeTopic(String) topic} only, and which goes only to the spectators
+ * waiting. One request is outstanding at a time: spectators who start waiting meanwhile get
+ * the same answer, so many joining at once, or one repeating {@code resync}, cost the owner
+ * one snapshot per round trip. A request that got no answer is sent again after
+ * {@value #RETRY_MILLIS} ms, when someone else starts waiting.
+ * <p>
+ * There is no game state here and nothing to order, so instead of a mailbox the sessions are
+ * kept in a concurrent map; outboxes take frames from any thread.
+ */
+public final class RemoteRoom implements Room {
+    private static final long RETRY_MILLIS = 1_000;
+    private static final long NOT_REQUESTED = Long.MIN_VALUE;
+
+    private final String id;
+    private final String owner;
+    private final String node;
+    private final EventBus bus;
+    private final Map<Session, Outbox> sessions = new ConcurrentHashMap<>();
+    private final LongAdder backlog = new LongAdder();
+    private final Set<Session> awaitingSnapshot = ConcurrentHashMap.newKeySet();
+    private final AtomicLong snapshotRequested = new AtomicLong(NOT_REQUESTED); // System.nanoTime() of the request out
+    private EventBus.Subscription subscription; // set by open, cleared by shut; both run in the manager's compute
+
+    int members; // sessions admitted by the manager; only touched inside its map's compute for this id
+
+    RemoteRoom(String id, Cluster cluster) {
+        this.id = id;
+        this.owner = cluster.owner(id);
+        this.node = cluster.self();
+        this.bus = cluster.bus();
+    }
+
+    @Override
+    public String id() {
+        return id;
+    }
+
+    /** The node that plays the room. */
+    public String owner() {
+        return owner;
+    }
+
+    /** Subscribes, then tells the owner to keep the room open for us; the joins ask for a snapshot. */
+    void open() {
+        subscription = bus.subscribe(Cluster.roomTopic(id), this::onEvent);
+        bus.publish(Cluster.nodeTopic(owner), new RoomEvent(id, node, RoomEvent.Kind.WATCH, null));
+    }
+
+    /** The last spectator left: unsubscribes and lets the owner close the room if nobody else is in it. */
+    void shut() {
+        subscription.cancel();
+        subscription = null;
+        bus.publish(Cluster.nodeTopic(owner), new RoomEvent(id, node, RoomEvent.Kind.UNWATCH, null));
+    }
+
+    void join(Session session) {
+        Outbox outbox = new Outbox(session, () -> requestSnapshot(session), backlog);
+        sessions.put(session, outbox);
+        outbox.offer(Json.toJson(ServerMessage.info("Watching room " + id + ", played on node " + owner + ".")),
+                Outbox.Kind.OTHER);
+        requestSnapshot(session);
+    }
+
+    void leave(Session session) {
+        awaitingSnapshot.remove(session);
+        Outbox outbox = sessions.remove(session);
+        if (outbox != null) outbox.close();
+    }
+
+    /** The owner's answer to our request: queued to the spectators waiting for it. */
+    void onSnapshot(String frame) {
+        snapshotRequested.set(NOT_REQUESTED); // whoever starts waiting from here asks again
+        for (Iterator<Session> it = awaitingSnapshot.iterator(); it.hasNext(); ) {
+            Outbox outbox = sessions.get(it.next());
+            it.remove();
+            if (outbox != null) outbox.offer(frame, Outbox.Kind.STATE);
+        }
+    }
+
+    /** Frames queued for this room's sessions and not yet sent. */
+    long backlog() {
+        return backlog.sum();
+    }
+
+    @Override
+    public void handleMessage(Session session, String text) {
+        Outbox outbox = sessions.get(session);
+        if (outbox == null) return;
+        ClientMessage msg;
+        try {
+            msg = Json.fromJson(text, ClientMessage.class);
+        } catch (Exception e) {
+            outbox.offer(Json.toJson(ServerMessage.error("Malformed message.")), Outbox.Kind.OTHER);
+            return;
+        }
+        if (msg == null || msg.type == null) return;
+        switch (msg.type) {
+            case "join", "resync" -> requestSnapshot(session);
+            case "move", "engine" -> outbox.offer(Json.toJson(ServerMessage.error("Spectators cannot move.")),
+                    Outbox.Kind.OTHER);
+            case "clock" -> outbox.offer(Json.toJson(ServerMessage.error("Spectators cannot set the clock.")),
+                    Outbox.Kind.OTHER);
+            default -> outbox.offer(Json.toJson(ServerMessage.error("Unknown message type: " + msg.type)),
+                    Outbox.Kind.OTHER);
+        }
+    }
+
+    /** Marks the session as waiting for a snapshot, and asks the owner unless a request is out. */
+    private void requestSnapshot(Session session) {
+        awaitingSnapshot.add(session);
+        long now = System.nanoTime();
+        long at = snapshotRequested.get();
+        if (at != NOT_REQUESTED && now - at < TimeUnit.MILLISECONDS.toNanos(RETRY_MILLIS)) return;
+        if (!snapshotRequested.compareAndSet(at, now)) return; // another thread just asked
+        bus.publish(Cluster.nodeTopic(owner), new RoomEvent(id, node, RoomEvent.Kind.SNAPSHOT, null));
+    }
+
+    private void onEvent(RoomEvent event) {
+        switch (event.kind()) {
+            case STATE -> { // a change every spectator sees, such as the clock; it serves the waiting too
+                awaitingSnapshot.clear();
+                offerAll(event.frame(), Outbox.Kind.STATE);
+            }
+            case DELTA -> offerAll(event.frame(), Outbox.Kind.DELTA);
+            case INFO -> offerAll(event.frame(), Outbox.Kind.OTHER);
+            case CLOSED -> closeAll();
+            default -> { } // requests, meant for the owner
+        }
+    }
+
+    private void offerAll(String frame, Outbox.Kind kind) {
+        for (Outbox outbox : sessions.values()) outbox.offer(frame, kind);
+    }
+
+    /** The owner closed the room; the sessions' close callbacks take them out of the manager. */
+    private void closeAll() {
+        List<Session> remaining = new ArrayList<>(sessions.keySet());
+        for (Session s : remaining) {
+            try {
+                s.close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "Room closed"));
+            } catch (IOException e) {
+                // Already gone
+            }
+        }
+    }
+}
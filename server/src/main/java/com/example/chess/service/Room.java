@@ -0,0 +1,15 @@
+package com.example.chess.service;
+
+import jakarta.websocket.Session;
+
+/**
+ * What a WebSocket session is connected to: a {@link GameRoom} played on this node, or a
+ * {@link RemoteRoom} watched from here while another node plays it.
+ */
+public interface Room {
+
+    String id();
+
+    /** Handles a raw client frame; never blocks the caller. */
+    void handleMessage(Session session, String text);
+}
@@ -0,0 +1,56 @@
+package com.example.chess.service;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fixed set of single-threaded workers that run room mailboxes. A room is pinned to one shard
+ * by its id, so its tasks never run in parallel and stay on a warm cache; different rooms on
+ * different shards run concurrently.
+ * <p>
+ * In virtual-thread mode there is a single shard that starts a virtual thread per mailbox
+ * drain. A room still never runs two drains at once (the mailbox only schedules one), but
+ * a drain that blocks no longer holds up the other rooms on its shard.
+ */
+final class RoomExecutor {
+    private final ExecutorService[] shards;
+
+    RoomExecutor(int shardCount) {
+        int n = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        shards = new ExecutorService[n];
+        for (int i = 0; i < n; i++) {
+            String name = "room-shard-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private RoomExecutor(ExecutorService single) {
+        shards = new ExecutorService[]{single};
+    }
+
+    /** Fails with {@link IllegalStateException} below Java 21. */
+    static RoomExecutor virtual() {
+        try {
+            // Looked up reflectively so the default build still targets Java 17
+            Object executor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return new RoomExecutor((ExecutorService) executor);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("chess.threads.virtual needs Java 21 or later; running "
+                    + Runtime.version(), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create the virtual-thread executor", e);
+        }
+    }
+
+    Executor shardFor(String roomId) {
+        if (shards.length == 1) return shards[0];
+        int h = roomId.hashCode();
+        h ^= h >>> 16; // spread, as HashMap does, so similar ids don't cluster
+        return shards[Math.floorMod(h, shards.length)];
+    }
+}
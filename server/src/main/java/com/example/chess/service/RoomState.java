@@ -0,0 +1,8 @@
+package com.example.chess.service;
+
+/** Where a {@link GameRoom} is in its life; drives how long the sweeper lets it sit idle. */
+public enum RoomState {
+    WAITING,  // fewer than two players have ever been seated
+    ACTIVE,   // both colors taken, game in progress
+    FINISHED  // checkmate or a draw; kept briefly so late viewers see the result
+}
@@ -0,0 +1,72 @@
+package com.example.chess.service;
+
+import com.example.chess.clock.TimeControl;
+import jakarta.websocket.Session;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One player waiting in the {@link Matchmaker} for an opponent with a similar rating and the
+ * same time control. Once paired, the seek remembers the room it was seated in, so the
+ * session's messages can go there.
+ */
+public final class Seek {
+    static final int WAITING = 0;
+    static final int CLAIMED = 1; // held for a moment by a thread pairing it
+    static final int MATCHED = 2;
+    static final int CANCELLED = 3;
+
+    final Session session;
+    final String name;
+    final int rating;
+    final TimeControl control; // null for an untimed game
+    final long since; // System.nanoTime() when it was made
+    final long order; // arrival order; pairs are claimed older seek first
+    final AtomicInteger state = new AtomicInteger(WAITING);
+    int sweptWindow = -1; // window when the sweeper last tried it; sweeper only
+    private Room room; // guarded by this
+    private boolean closed; // likewise
+
+    Seek(Session session, String name, int rating, TimeControl control, long since, long order) {
+        this.session = session;
+        this.name = name;
+        this.rating = rating;
+        this.control = control;
+        this.since = since;
+        this.order = order;
+    }
+
+    public int rating() {
+        return rating;
+    }
+
+    public TimeControl control() {
+        return control;
+    }
+
+    /** The room the seek was seated in, or {@code null} while it waits. */
+    public synchronized Room room() {
+        return room;
+    }
+
+    /** Records the room; returns {@code false} if the session already closed and must be taken out of it. */
+    synchronized boolean seated(Room room) {
+        if (closed) return false;
+        this.room = room;
+        return true;
+    }
+
+    /** The session closed: returns the room it has to leave, if it was seated in one. */
+    public synchronized Room close() {
+        closed = true;
+        return room;
+    }
+
+    boolean claim() {
+        return state.compareAndSet(WAITING, CLAIMED);
+    }
+
+    void release() {
+        state.set(WAITING);
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.chess.tablebase;
+
+import com.example.chess.game.Color;
+import com.example.chess.game.Type;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One material signature's table: a byte per position, indexed by side to move, white king
+ * square, black king square and the squares of the other pieces. Positions are folded by the
+ * board's symmetries (eight without pawns, the left-right mirror with them) so the white king
+ * only ever stands on 10 or 32 squares.
+ * <p>
+ * Slots are 0 for the white king, 1 for the black king, then white's other pieces and black's,
+ * each side's in {@link Type} order. Names spell white's pieces, {@code v}, then black's, as in
+ * {@code KBNvK}; the stronger side is always white.
+ */
+final class Table {
+    static final int MAX_EXTRA = 2; // pieces besides the kings
+
+    private static final int[] TRIANGLE_INDEX = new int[64];
+    private static final int[] TRIANGLE_SQUARE = new int[10];
+
+    static {
+        int n = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            int f = sq & 7, r = sq >>> 3;
+            TRIANGLE_INDEX[sq] = r <= f && f <= 3 ? n : -1;
+            if (r <= f && f <= 3) TRIANGLE_SQUARE[n++] = sq;
+        }
+    }
+
+    final String name;
+    final int slots;
+    final int[] colors; // 0 white, 1 black
+    final Type[] types;
+    final boolean pawns;
+    final int kingSquares;
+    final byte[] values;
+    int maxPlies; // longest win or loss, set once the table is complete
+
+    Table(String name) {
+        this(name, null);
+    }
+
+    Table(String name, byte[] values) {
+        this.name = name;
+        Type[][] sides = parse(name);
+        slots = 2 + sides[0].length + sides[1].length;
+        if (slots - 2 > MAX_EXTRA) throw new IllegalArgumentException("Too many pieces: " + name);
+        colors = new int[slots];
+        types = new Type[slots];
+        colors[1] = 1;
+        types[0] = types[1] = Type.KING;
+        int s = 2;
+        boolean anyPawn = false;
+        for (int c = 0; c < 2; c++) {
+            for (Type t : sides[c]) {
+                colors[s] = c;
+                types[s++] = t;
+                anyPawn |= t == Type.PAWN;
+            }
+        }
+        pawns = anyPawn;
+        kingSquares = pawns ? 32 : 10;
+        int size = 2 * kingSquares << (6 * (slots - 1));
+        if (values != null && values.length != size) {
+            throw new IllegalArgumentException(name + " needs " + size + " values, not " + values.length);
+        }
+        this.values = values != null ? values : new byte[size];
+    }
+
+    int size() {
+        return values.length;
+    }
+
+    Color color(int slot) {
+        return colors[slot] == 0 ? Color.WHITE : Color.BLACK;
+    }
+
+    /** Index of the position with pieces on {@code sq} (in slot order) and {@code stm} (0 white) to move. */
+    int index(int[] sq, int stm) {
+        int t = transform(sq[0]);
+        int idx = stm * kingSquares + kingIndex(apply(sq[0], t));
+        for (int i = 1; i < slots; i++) idx = (idx << 6) | apply(sq[i], t);
+        return idx;
+    }
+
+    /** Fills {@code sq} with the position at {@code index} and returns its side to move. */
+    int decode(int index, int[] sq) {
+        for (int i = slots - 1; i >= 1; i--) {
+            sq[i] = index & 63;
+            index >>>= 6;
+        }
+        int king = index % kingSquares;
+        sq[0] = pawns ? (king >>> 2) * 8 + (king & 3) : TRIANGLE_SQUARE[king];
+        return index / kingSquares;
+    }
+
+    private int kingIndex(int sq) {
+        return pawns ? (sq >>> 3) * 4 + (sq & 7) : TRIANGLE_INDEX[sq];
+    }
+
+    /** The symmetry (bit 0 mirror files, bit 1 mirror ranks, bit 2 swap them) that brings the white king home. */
+    private int transform(int wk) {
+        int f = wk & 7, r = wk >>> 3, t = 0;
+        if (f > 3) {
+            t = 1;
+            f = 7 - f;
+        }
+        if (pawns) return t;
+        if (r > 3) {
+            t |= 2;
+            r = 7 - r;
+        }
+        return r > f ? t | 4 : t;
+    }
+
+    private static int apply(int sq, int t) {
+        if ((t & 1) != 0) sq ^= 7;
+        if ((t & 2) != 0) sq ^= 56;
+        if ((t & 4) != 0) sq = ((sq & 7) << 3) | (sq >>> 3);
+        return sq;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(Tablebases.MAGIC);
+        out.writeShort(Tablebases.VERSION);
+        out.writeUTF(name);
+        out.writeInt(values.length);
+        out.write(values);
+    }
+
+    static Table read(DataInputStream in) throws IOException {
+        if (in.readInt() != Tablebases.MAGIC) throw new IOException("Not a tablebase file");
+        int version = in.readUnsignedShort();
+        if (version != Tablebases.VERSION) throw new IOException("Unsupported tablebase version " + version);
+        String name = in.readUTF();
+        byte[] values = new byte[in.readInt()];
+        in.readFully(values);
+        Table t = new Table(name, values);
+        t.maxPlies = maxPlies(values);
+        return t;
+    }
+
+    static int maxPlies(byte[] values) {
+        int max = 0;
+        for (byte b : values) {
+            int v = b & 0xFF;
+            if (Tablebases.wdl(v) == Tablebases.WIN || Tablebases.wdl(v) == Tablebases.LOSS) {
+                max = Math.max(max, Tablebases.plies(v));
+            }
+        }
+        return max;
+    }
+
+    // ---- Material names
+
+    private static final String LETTERS = "QRBNP";
+    private static final int[] STRENGTH = {0, 9, 5, 3, 3, 1}; // by Type ordinal
+
+    /** White's and black's pieces other than the king, each in {@link Type} order. */
+    static Type[][] parse(String name) {
+        String s = name.toUpperCase(Locale.ROOT);
+        int split = s.indexOf('V');
+        String white = split >= 0 ? s.substring(0, split) : s.substring(0, Math.max(s.indexOf('K', 1), 0));
+        String black = split >= 0 ? s.substring(split + 1) : s.substring(white.length());
+        if (!white.startsWith("K") || !black.startsWith("K")) {
+            throw new IllegalArgumentException("Not a material signature: " + name);
+        }
+        return new Type[][]{pieces(white.substring(1), name), pieces(black.substring(1), name)};
+    }
+
+    private static Type[] pieces(String letters, String name) {
+        List<Type> out = new ArrayList<>();
+        for (char c : letters.toCharArray()) {
+            int i = LETTERS.indexOf(c);
+            if (i < 0) throw new IllegalArgumentException("Not a material signature: " + name);
+            out.add(Type.values()[i + 1]);
+        }
+        out.sort(null);
+        return out.toArray(new Type[0]);
+    }
+
+    static String side(Type[] pieces) {
+        StringBuilder sb = new StringBuilder("K");
+        for (Type t : pieces) sb.append(LETTERS.charAt(t.ordinal() - 1));
+        return sb.toString();
+    }
+
+    static int strength(Type[] pieces) {
+        int s = 0;
+        for (Type t : pieces) s += STRENGTH[t.ordinal()];
+        return s;
+    }
+
+    /** Whether the colors must be swapped to put the stronger side first. */
+    static boolean flipped(Type[] white, Type[] black) {
+        int w = strength(white), b = strength(black);
+        return b > w || b == w && side(black).compareTo(side(white)) < 0;
+    }
+
+    static String canonical(Type[] white, Type[] black) {
+        return flipped(white, black) ? side(black) + "v" + side(white) : side(white) + "v" + side(black);
+    }
+
+    /** Whether neither side can ever mate: bare kings, or one minor piece against a bare king. */
+    static boolean drawn(Type[] white, Type[] black) {
+        int n = white.length + black.length;
+        if (n == 0) return true;
+        if (n > 1) return false;
+        Type t = white.length == 1 ? white[0] : black[0];
+        return t == Type.BISHOP || t == Type.KNIGHT;
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.chess.tablebase;
+
+import com.example.chess.game.Attacks;
+import com.example.chess.game.Color;
+import com.example.chess.game.Type;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Builds {@link Tablebases} by retrograde analysis: mates and stalemates are found first, and
+ * then each pass resolves the positions exactly one ply further from mate, a win where some move
+ * reaches a loss from the previous pass and a loss where every move reaches a win for the
+ * opponent. Moves that capture or promote leave the table, and are answered from the smaller
+ * table they lead to, which is built first. Whatever is unresolved when the passes stop
+ * finding anything is a draw.
+ * <p>
+ * A pass runs over the whole table in parallel on a fork-join pool. Positions a pass resolves
+ * are only read back by the next one, so the table needs no locking.
+ * <pre>
+ * java -cp target/classes com.example.chess.tablebase.TablebaseGenerator &lt;dir&gt; KQK KRK KPK KBNK ...
+ * </pre>
+ * Tables with pawns of both colors are not supported, as they would need en passant.
+ */
+public final class TablebaseGenerator {
+    private static final Logger LOG = Logger.getLogger(TablebaseGenerator.class.getName());
+    private static final int UNRESOLVED = 0;
+    private static final int STALEMATE = Tablebases.ILLEGAL << 6 | 1; // while generating; a draw
+    private static final int MAX_PLIES = 2 * 63; // six bits of moves
+    private static final int CHUNK = 1 << 14;
+    private static final Type[] PROMOTIONS = {Type.QUEEN, Type.ROOK, Type.BISHOP, Type.KNIGHT};
+
+    private final Tablebases target;
+    private final ForkJoinPool pool;
+
+    public TablebaseGenerator(Tablebases target, int parallelism) {
+        this.target = target;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: TablebaseGenerator <dir> <material>...   e.g. KQK KRK KPK KBNK");
+            System.exit(2);
+        }
+        Path dir = Path.of(args[0]);
+        Tablebases tb = new Tablebases();
+        TablebaseGenerator generator = new TablebaseGenerator(tb, Runtime.getRuntime().availableProcessors());
+        try {
+            for (int i = 1; i < args.length; i++) generator.generate(args[i]);
+        } finally {
+            generator.pool.shutdown();
+        }
+        tb.save(dir);
+    }
+
+    /** Generates the table for {@code material} (e.g. {@code KBNK} or {@code KQvKR}) and every table it needs. */
+    public void generate(String material) {
+        Type[][] sides = Table.parse(material);
+        if (Table.drawn(sides[0], sides[1])) return;
+        String name = Table.canonical(sides[0], sides[1]);
+        if (target.table(name) != null) return;
+        if (Arrays.asList(sides[0]).contains(Type.PAWN) && Arrays.asList(sides[1]).contains(Type.PAWN)) {
+            throw new IllegalArgumentException("Pawns on both sides are not supported: " + material);
+        }
+        long start = System.nanoTime();
+        Builder b = new Builder(new Table(name));
+        b.run();
+        target.add(b.table);
+        LOG.info(String.format(Locale.ROOT, "%s: %,d positions, %s, longest mate %d plies, %.1f s", name,
+                b.table.size(), b.summary(), b.table.maxPlies, (System.nanoTime() - start) / 1e9));
+    }
+
+    /** Where a capture or promotion leads: a smaller table, or {@code null} for a dead draw. */
+    private record Exit(Table table, int[] map, boolean flip) {}
+
+    private final class Builder {
+        final Table table;
+        final byte[] values;
+        final int slots;
+        // [mover][victim + 1][promotion, or 4 for none]; null where the move stays in this table
+        final Exit[][][] exits;
+        int maxExitPlies;
+
+        Builder(Table table) {
+            this.table = table;
+            this.values = table.values;
+            this.slots = table.slots;
+            this.exits = new Exit[slots][slots + 1][5];
+            for (int mover = 0; mover < slots; mover++) {
+                for (int victim = -1; victim < slots; victim++) {
+                    if (victim == 0 || victim == 1 || victim >= 0 && table.colors[victim] == table.colors[mover]) continue;
+                    for (int p = 0; p < 5; p++) {
+                        boolean promotes = p < 4;
+                        if (promotes && table.types[mover] != Type.PAWN || !promotes && victim < 0) continue;
+                        exits[mover][victim + 1][p] = exit(mover, victim, promotes ? PROMOTIONS[p] : null);
+                    }
+                }
+            }
+        }
+
+        private Exit exit(int mover, int victim, Type promotion) {
+            Type[] types = table.types.clone();
+            if (promotion != null) types[mover] = promotion;
+            int[] count = new int[2];
+            for (int s = 2; s < slots; s++) if (s != victim) count[table.colors[s]]++;
+            Type[][] sides = {new Type[count[0]], new Type[count[1]]};
+            int[] fill = new int[2];
+            for (int s = 2; s < slots; s++) {
+                if (s != victim) sides[table.colors[s]][fill[table.colors[s]]++] = types[s];
+            }
+            Arrays.sort(sides[0]);
+            Arrays.sort(sides[1]);
+            if (Table.drawn(sides[0], sides[1])) return new Exit(null, null, false);
+            boolean flip = Table.flipped(sides[0], sides[1]);
+            String name = Table.canonical(sides[0], sides[1]);
+            generate(name);
+            Table sub = target.table(name);
+            maxExitPlies = Math.max(maxExitPlies, sub.maxPlies);
+            // Each slot of the smaller table takes the first unused slot here of the same piece
+            int[] map = new int[sub.slots];
+            boolean[] used = new boolean[slots];
+            if (victim >= 0) used[victim] = true;
+            for (int j = 0; j < sub.slots; j++) {
+                int color = flip ? 1 - sub.colors[j] : sub.colors[j];
+                for (int s = 0; s < slots; s++) {
+                    if (!used[s] && table.colors[s] == color && types[s] == sub.types[j]) {
+                        used[s] = true;
+                        map[j] = s;
+                        break;
+                    }
+                }
+            }
+            return new Exit(sub, map, flip);
+        }
+
+        void run() {
+            int chunks = (table.size() + CHUNK - 1) / CHUNK;
+            pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(this::initialise)).join();
+            int lastChange = 0;
+            for (int pass = 1; pass - lastChange <= 2 || pass <= maxExitPlies + 1; pass++) {
+                if (pass > MAX_PLIES) throw new IllegalStateException(table.name + " has mates longer than 63 moves");
+                int p = pass;
+                long changed = pool.submit(() -> IntStream.range(0, chunks).parallel()
+                        .mapToLong(c -> resolvePass(c, p)).sum()).join();
+                if (changed > 0) lastChange = pass;
+            }
+            for (int i = 0; i < values.length; i++) {
+                if ((values[i] & 0xFF) == STALEMATE) values[i] = (byte) Tablebases.value(Tablebases.DRAW, 0);
+            }
+            table.maxPlies = Table.maxPlies(values);
+        }
+
+        String summary() {
+            long win = 0, draw = 0, loss = 0;
+            for (byte v : values) {
+                switch (Tablebases.wdl(v & 0xFF)) {
+                    case Tablebases.WIN -> win++;
+                    case Tablebases.DRAW -> draw++;
+                    case Tablebases.LOSS -> loss++;
+                    default -> { }
+                }
+            }
+            return String.format(Locale.ROOT, "%,d won, %,d drawn, %,d lost", win, draw, loss);
+        }
+
+        /** Marks illegal positions, mates and stalemates. */
+        private void initialise(int chunk) {
+            int[] sq = new int[slots], next = new int[slots], sub = new int[slots];
+            int end = Math.min(values.length, (chunk + 1) * CHUNK);
+            for (int i = chunk * CHUNK; i < end; i++) {
+                int stm = table.decode(i, sq);
+                long occ = 0;
+                boolean legal = true;
+                for (int s = 0; s < slots; s++) {
+                    occ |= Attacks.bit(sq[s]);
+                    if (table.types[s] == Type.PAWN && (sq[s] < 8 || sq[s] >= 56)) legal = false;
+                }
+                // Squares must be distinct, and the side that just moved cannot be left in check
+                if (!legal || Long.bitCount(occ) != slots || attacked(sq[1 - stm], stm, sq, -1, occ)) {
+                    values[i] = (byte) Tablebases.value(Tablebases.ILLEGAL, 0);
+                } else if (walk(stm, sq, 0, next, sub) == 0) {
+                    values[i] = (byte) (attacked(sq[stm], 1 - stm, sq, -1, occ)
+                            ? Tablebases.value(Tablebases.LOSS, 0) : STALEMATE);
+                }
+            }
+        }
+
+        private long resolvePass(int chunk, int pass) {
+            int[] sq = new int[slots], next = new int[slots], sub = new int[slots];
+            int end = Math.min(values.length, (chunk + 1) * CHUNK);
+            long changed = 0;
+            for (int i = chunk * CHUNK; i < end; i++) {
+                if (values[i] != UNRESOLVED) continue;
+                int v = walk(table.decode(i, sq), sq, pass, next, sub);
+                if (v != UNRESOLVED) {
+                    values[i] = (byte) v;
+                    changed++;
+                }
+            }
+            return changed;
+        }
+
+        /**
+         * Goes through the legal moves of the position. Pass 0 counts them. An odd pass returns a
+         * win if some move reaches a loss of at most {@code pass - 1} plies; an even pass returns
+         * a loss if every move reaches a win of at most {@code pass - 1} plies. Otherwise returns
+         * {@link #UNRESOLVED}.
+         */
+        private int walk(int stm, int[] sq, int pass, int[] next, int[] sub) {
+            boolean winPass = (pass & 1) == 1;
+            int limit = pass - 1;
+            Color color = stm == 0 ? Color.WHITE : Color.BLACK;
+            long occ = 0, own = 0;
+            for (int s = 0; s < slots; s++) {
+                occ |= Attacks.bit(sq[s]);
+                if (table.colors[s] == stm) own |= Attacks.bit(sq[s]);
+            }
+            int legal = 0;
+            for (int s = 0; s < slots; s++) {
+                if (table.colors[s] != stm) continue;
+                int from = sq[s];
+                Type type = table.types[s];
+                long targets;
+                if (type == Type.PAWN) {
+                    int dir = stm == 0 ? 8 : -8;
+                    targets = Attacks.pawn(color, from) & occ & ~own;
+                    int one = from + dir;
+                    if ((occ & Attacks.bit(one)) == 0) {
+                        targets |= Attacks.bit(one);
+                        int home = stm == 0 ? 1 : 6;
+                        if (from >>> 3 == home && (occ & Attacks.bit(one + dir)) == 0) targets |= Attacks.bit(one + dir);
+                    }
+                } else {
+                    targets = attacks(type, color, from, occ) & ~own;
+                }
+                for (; targets != 0; targets &= targets - 1) {
+                    int to = Long.numberOfTrailingZeros(targets);
+                    int victim = -1;
+                    if ((occ & Attacks.bit(to)) != 0) {
+                        for (int v = 2; v < slots; v++) if (sq[v] == to) victim = v;
+                        if (victim < 0) continue; // the enemy king: never in a legal position
+                    }
+                    boolean promotes = type == Type.PAWN && (to < 8 || to >= 56);
+                    long after = occ & ~Attacks.bit(from) | Attacks.bit(to);
+                    System.arraycopy(sq, 0, next, 0, slots);
+                    next[s] = to;
+                    if (attacked(next[stm], 1 - stm, next, victim, after)) continue;
+                    for (int p = promotes ? 0 : 4; p < (promotes ? 4 : 5); p++) {
+                        legal++;
+                        if (pass == 0) continue;
+                        Exit exit = exits[s][victim + 1][p];
+                        int v = exit == null ? values[table.index(next, 1 - stm)] & 0xFF : exitValue(exit, next, stm, sub);
+                        int wdl = Tablebases.wdl(v);
+                        if (winPass) {
+                            if (wdl == Tablebases.LOSS && Tablebases.plies(v) <= limit) {
+                                return Tablebases.value(Tablebases.WIN, (pass + 1) / 2);
+                            }
+                        } else if (wdl != Tablebases.WIN || Tablebases.plies(v) > limit) {
+                            return UNRESOLVED; // this move holds out longer, or does not lose
+                        }
+                    }
+                }
+            }
+            if (pass == 0) return legal;
+            return winPass || legal == 0 ? UNRESOLVED : Tablebases.value(Tablebases.LOSS, pass / 2);
+        }
+
+        private int exitValue(Exit exit, int[] next, int stm, int[] sub) {
+            Table t = exit.table();
+            if (t == null) return Tablebases.value(Tablebases.DRAW, 0);
+            int[] map = exit.map();
+            for (int j = 0; j < map.length; j++) sub[j] = exit.flip() ? next[map[j]] ^ 56 : next[map[j]];
+            return t.values[t.index(sub, exit.flip() ? stm : 1 - stm)] & 0xFF;
+        }
+
+        /** Whether {@code target} is attacked by {@code byColor}'s pieces, leaving out slot {@code skip}. */
+        private boolean attacked(int target, int byColor, int[] sq, int skip, long occ) {
+            Color color = byColor == 0 ? Color.WHITE : Color.BLACK;
+            long bit = Attacks.bit(target);
+            for (int s = 0; s < slots; s++) {
+                if (s == skip || table.colors[s] != byColor) continue;
+                if ((attacks(table.types[s], color, sq[s], occ) & bit) != 0) return true;
+            }
+            return false;
+        }
+    }
+
+    private static long attacks(Type type, Color color, int sq, long occ) {
+        return switch (type) {
+            case KING -> Attacks.king(sq);
+            case QUEEN -> Attacks.queen(sq, occ);
+            case ROOK -> Attacks.rook(sq, occ);
+            case BISHOP -> Attacks.bishop(sq, occ);
+            case KNIGHT -> Attacks.knight(sq);
+            case PAWN -> Attacks.pawn(color, sq);
+        };
+    }
+}
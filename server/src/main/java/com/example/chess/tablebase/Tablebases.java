@@ -0,0 +1,209 @@
+package com.example.chess.tablebase;
+
+import com.example.chess.game.Board;
+import com.example.chess.game.Color;
+import com.example.chess.game.Piece;
+import com.example.chess.game.Type;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Endgame tablebases for positions with at most four pieces, kings included, built by
+ * {@link TablebaseGenerator}. {@link #probe} answers a position in constant time with one
+ * byte: the result for the side to move in bits 6-7 ({@link #WIN}, {@link #DRAW} or
+ * {@link #LOSS}) and the distance to mate in moves in bits 0-5. Positions with castling rights
+ * or an en-passant square are not covered, and the fifty-move rule is ignored.
+ * <p>
+ * Tables are added before the instance is shared; probing is then safe from any thread.
+ */
+public final class Tablebases {
+    public static final int NOT_FOUND = -1;
+    public static final int DRAW = 0;
+    public static final int WIN = 1;
+    public static final int LOSS = 2;
+    static final int ILLEGAL = 3;
+
+    static final int MAGIC = 0x43485442; // "CHTB"
+    static final int VERSION = 1;
+    static final String SUFFIX = ".tb";
+
+    // Material is coded from the sorted kinds (color * 5 + type - 1) of up to two non-king pieces
+    private static final int CODES = 11 * 11;
+
+    private final Map<String, Table> byName = new TreeMap<>();
+    private final Table[] byCode = new Table[CODES];
+    private final boolean[] flipByCode = new boolean[CODES];
+    private final boolean[] drawnByCode = new boolean[CODES];
+    private final ThreadLocal<int[]> scratch = ThreadLocal.withInitial(() -> new int[2 + Table.MAX_EXTRA]);
+
+    public Tablebases() {
+        drawnByCode[0] = true;
+        for (int c = 0; c < 2; c++) {
+            drawnByCode[kind(c, Type.BISHOP) + 1] = true;
+            drawnByCode[kind(c, Type.KNIGHT) + 1] = true;
+        }
+    }
+
+    /** Loads every table file ({@code *.tb}) in {@code dir}. */
+    public static Tablebases load(Path dir) throws IOException {
+        Tablebases tb = new Tablebases();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+                    tb.add(Table.read(in));
+                }
+            }
+        }
+        return tb;
+    }
+
+    /** Writes every table to {@code dir}, one {@code <name>.tb} file each. */
+    public void save(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        for (Table t : byName.values()) {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(dir.resolve(t.name + SUFFIX)), 1 << 16))) {
+                t.write(out);
+            }
+        }
+    }
+
+    /** Names of the tables held, such as {@code KQvK}. */
+    public Collection<String> names() {
+        return byName.keySet();
+    }
+
+    public boolean isEmpty() {
+        return byName.isEmpty();
+    }
+
+    Table table(String canonicalName) {
+        return byName.get(canonicalName);
+    }
+
+    void add(Table t) {
+        byName.put(t.name, t);
+        Type[][] sides = Table.parse(t.name);
+        register(sides[0], sides[1], t, false);
+        register(sides[1], sides[0], t, true);
+    }
+
+    private void register(Type[] white, Type[] black, Table t, boolean flip) {
+        int a = -1, b = -1;
+        for (Type type : white) {
+            int k = kind(0, type);
+            if (a < 0) a = k;
+            else b = k;
+        }
+        for (Type type : black) {
+            int k = kind(1, type);
+            if (a < 0) a = k;
+            else b = k;
+        }
+        int code = code(a, b);
+        if (byCode[code] != null && flip) return; // a symmetric signature such as KRvKR: keep it unflipped
+        byCode[code] = t;
+        flipByCode[code] = flip;
+    }
+
+    private static int kind(int color, Type type) {
+        return color * 5 + type.ordinal() - 1;
+    }
+
+    private static int code(int a, int b) {
+        if (a < 0) return 0;
+        if (b < 0) return a + 1;
+        return Math.min(a, b) * 11 + Math.max(a, b) + 12;
+    }
+
+    /**
+     * The table value of the board's position for the side to move, or {@link #NOT_FOUND} when
+     * no table covers it. Allocation-free.
+     */
+    public int probe(Board board) {
+        long occupied = board.occupied();
+        if (Long.bitCount(occupied) > 2 + Table.MAX_EXTRA
+                || board.getCastlingRights() != 0 || board.getEnPassantSquare() >= 0) {
+            return NOT_FOUND;
+        }
+        int wk = -1, bk = -1, a = -1, b = -1, aSq = -1, bSq = -1;
+        for (long bits = occupied; bits != 0; bits &= bits - 1) {
+            int sq = Long.numberOfTrailingZeros(bits);
+            Piece p = board.get(sq & 7, sq >>> 3);
+            int color = p.getColor() == Color.WHITE ? 0 : 1;
+            if (p.getType() == Type.KING) {
+                if (color == 0) wk = sq;
+                else bk = sq;
+            } else if (a < 0) {
+                a = kind(color, p.getType());
+                aSq = sq;
+            } else {
+                b = kind(color, p.getType());
+                bSq = sq;
+            }
+        }
+        int code = code(a, b);
+        if (drawnByCode[code]) return DRAW << 6;
+        Table t = byCode[code];
+        if (t == null || wk < 0 || bk < 0) return NOT_FOUND;
+        boolean flip = flipByCode[code];
+        int stm = board.getTurn() == Color.WHITE ? 0 : 1;
+        int[] sq = scratch.get();
+        if (flip) {
+            // Swap colors: a kind's color bit flips and squares mirror top to bottom
+            sq[0] = bk ^ 56;
+            sq[1] = wk ^ 56;
+            stm ^= 1;
+            if (a >= 0) {
+                a = (a + 5) % 10;
+                aSq ^= 56;
+            }
+            if (b >= 0) {
+                b = (b + 5) % 10;
+                bSq ^= 56;
+            }
+        } else {
+            sq[0] = wk;
+            sq[1] = bk;
+        }
+        if (b >= 0 && b < a) {
+            sq[2] = bSq;
+            sq[3] = aSq;
+        } else if (a >= 0) {
+            sq[2] = aSq;
+            if (b >= 0) sq[3] = bSq;
+        }
+        int v = t.values[t.index(sq, stm)] & 0xFF;
+        return wdl(v) == ILLEGAL ? NOT_FOUND : v;
+    }
+
+    /** {@link #WIN}, {@link #DRAW} or {@link #LOSS} for the side to move. */
+    public static int wdl(int value) {
+        return value >>> 6;
+    }
+
+    /** Moves to mate, or to being mated; 0 for a draw, or when already mated. */
+    public static int movesToMate(int value) {
+        return value & 63;
+    }
+
+    /** Plies to mate: a win in n moves takes 2n - 1 plies, a loss in n moves 2n. */
+    public static int plies(int value) {
+        int n = movesToMate(value);
+        return wdl(value) == WIN ? 2 * n - 1 : 2 * n;
+    }
+
+    static int value(int wdl, int moves) {
+        return wdl << 6 | moves;
+    }
+}
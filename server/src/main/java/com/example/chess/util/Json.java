@@ -1,25 +1,45 @@
 package com.example.chess.util;
 
+import com.example.chess.metrics.Histogram;
+import com.example.chess.metrics.Metrics;
+import com.example.chess.ws.dto.ClientMessage;
+import com.example.chess.ws.dto.ServerMessage;
 import jakarta.json.bind.Jsonb;
 import jakarta.json.bind.JsonbBuilder;
 
 public final class Json {
+    // Jsonb instances are thread-safe and expensive to build, so one is shared for the JVM's lifetime
+    private static final Jsonb JSONB = JsonbBuilder.create();
+    private static final Histogram ENCODE = Metrics.getInstance().histogram("chess_json_encode_seconds",
+            "Time to encode one object as JSON.");
+    private static final Histogram DECODE = Metrics.getInstance().histogram("chess_json_decode_seconds",
+            "Time to decode one JSON text.");
 
     private Json() {}
 
     public static String toJson(Object o) {
         if (o == null) return "null";
-        try (Jsonb jsonb = JsonbBuilder.create()) {
-            return jsonb.toJson(o);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        long start = System.nanoTime();
+        try {
+            if (o instanceof ServerMessage m) return MessageCodec.getInstance().encode(m);
+            if (o instanceof ClientMessage m) return MessageCodec.getInstance().encode(m);
+            return JSONB.toJson(o);
+        } finally {
+            ENCODE.recordSince(start);
         }
     }
 
     public static <T> T fromJson(String s, Class<T> cls) throws Exception {
         if (s == null) return null;
-        try (Jsonb jsonb = JsonbBuilder.create()) {
-            return jsonb.fromJson(s, cls);
+        long start = System.nanoTime();
+        try {
+            if (cls == ClientMessage.class) {
+                ClientMessage m = MessageCodec.getInstance().decodeClientMessage(s);
+                if (m != null) return cls.cast(m);
+            }
+            return JSONB.fromJson(s, cls);
+        } finally {
+            DECODE.recordSince(start);
         }
     }
 }
@@ -0,0 +1,401 @@
+package com.example.chess.util;
+
+import com.example.chess.ws.dto.ClientMessage;
+import com.example.chess.ws.dto.ServerMessage;
+
+/**
+ * Streaming JSON encoder/decoder for the WebSocket DTOs. Output matches what Yasson produces
+ * for the same objects (properties in lexicographic order, nulls omitted). Decoding tolerates
+ * unknown properties; anything it cannot parse is reported as {@code null} so the caller can
+ * fall back to the general-purpose binding. Stateless apart from per-thread scratch buffers,
+ * so one shared instance serves every thread.
+ */
+public final class MessageCodec {
+    private static final MessageCodec INSTANCE = new MessageCodec();
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final int MAX_SKIPPED_DEPTH = 64; // nesting of unknown values; deeper is left to Yasson
+
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    private MessageCodec() {}
+
+    public static MessageCodec getInstance() {
+        return INSTANCE;
+    }
+
+    public String encode(ServerMessage m) {
+        StringBuilder sb = buffer();
+        sb.append('{');
+        boolean first = true;
+        if (m.board != null) {
+            first = name(sb, "board", first);
+            appendMatrix(sb, m.board);
+        }
+        if (m.captured != null) {
+            first = name(sb, "captured", first);
+            appendString(sb, m.captured);
+        }
+        if (m.changes != null) {
+            first = name(sb, "changes", first);
+            appendMatrix(sb, m.changes);
+        }
+        if (m.clock != null) {
+            first = name(sb, "clock", first);
+            appendClock(sb, m.clock);
+        }
+        if (m.from != null) {
+            first = name(sb, "from", first);
+            appendString(sb, m.from);
+        }
+        if (m.legal != null) {
+            first = name(sb, "legal", first);
+            appendMatrix(sb, m.legal);
+        }
+        if (m.message != null) {
+            first = name(sb, "message", first);
+            appendString(sb, m.message);
+        }
+        if (m.promotion != null) {
+            first = name(sb, "promotion", first);
+            appendString(sb, m.promotion);
+        }
+        if (m.self != null) {
+            first = name(sb, "self", first);
+            appendString(sb, m.self);
+        }
+        if (m.seq != null) {
+            first = name(sb, "seq", first);
+            sb.append(m.seq.longValue());
+        }
+        if (m.status != null) {
+            first = name(sb, "status", first);
+            appendString(sb, m.status);
+        }
+        if (m.to != null) {
+            first = name(sb, "to", first);
+            appendString(sb, m.to);
+        }
+        if (m.turn != null) {
+            first = name(sb, "turn", first);
+            appendString(sb, m.turn);
+        }
+        if (m.type != null) {
+            name(sb, "type", first);
+            appendString(sb, m.type);
+        }
+        return sb.append('}').toString();
+    }
+
+    public String encode(ClientMessage m) {
+        StringBuilder sb = buffer();
+        sb.append('{');
+        boolean first = true;
+        if (m.control != null) {
+            first = name(sb, "control", first);
+            appendString(sb, m.control);
+        }
+        if (m.from != null) {
+            first = name(sb, "from", first);
+            appendString(sb, m.from);
+        }
+        if (m.name != null) {
+            first = name(sb, "name", first);
+            appendString(sb, m.name);
+        }
+        if (m.promotion != null) {
+            first = name(sb, "promotion", first);
+            appendString(sb, m.promotion);
+        }
+        if (m.rating != null) {
+            first = name(sb, "rating", first);
+            sb.append(m.rating.intValue());
+        }
+        if (m.to != null) {
+            first = name(sb, "to", first);
+            appendString(sb, m.to);
+        }
+        if (m.type != null) {
+            name(sb, "type", first);
+            appendString(sb, m.type);
+        }
+        return sb.append('}').toString();
+    }
+
+    /** Parses a client message, or returns {@code null} if the text is not something this codec handles. */
+    public ClientMessage decodeClientMessage(String json) {
+        Reader r = new Reader(json, buffer());
+        try {
+            ClientMessage m = new ClientMessage();
+            r.expect('{');
+            if (r.peek() == '}') {
+                r.pos++;
+                return r.atEnd() ? m : null;
+            }
+            do {
+                String key = r.readString();
+                r.expect(':');
+                switch (key) {
+                    case "type" -> m.type = r.readNullableString();
+                    case "name" -> m.name = r.readNullableString();
+                    case "from" -> m.from = r.readNullableString();
+                    case "to" -> m.to = r.readNullableString();
+                    case "promotion" -> m.promotion = r.readNullableString();
+                    case "control" -> m.control = r.readNullableString();
+                    case "rating" -> m.rating = r.readNullableInt();
+                    default -> r.skipValue();
+                }
+            } while (r.consumeIf(','));
+            r.expect('}');
+            return r.atEnd() ? m : null;
+        } catch (MalformedJson e) {
+            return null;
+        }
+    }
+
+    private StringBuilder buffer() {
+        StringBuilder sb = buffers.get();
+        if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+            // Don't let one huge message pin a large buffer to the thread forever
+            sb = new StringBuilder(1024);
+            buffers.set(sb);
+        }
+        sb.setLength(0);
+        return sb;
+    }
+
+    private static boolean name(StringBuilder sb, String name, boolean first) {
+        if (!first) sb.append(',');
+        sb.append('"').append(name).append("\":");
+        return false;
+    }
+
+    private static void appendMatrix(StringBuilder sb, String[][] rows) {
+        sb.append('[');
+        for (int r = 0; r < rows.length; r++) {
+            if (r > 0) sb.append(',');
+            String[] row = rows[r];
+            if (row == null) {
+                sb.append("null");
+                continue;
+            }
+            sb.append('[');
+            for (int f = 0; f < row.length; f++) {
+                if (f > 0) sb.append(',');
+                if (row[f] == null) sb.append("null");
+                else appendString(sb, row[f]);
+            }
+            sb.append(']');
+        }
+        sb.append(']');
+    }
+
+    private static void appendClock(StringBuilder sb, ServerMessage.Clock c) {
+        sb.append('{');
+        boolean first = true;
+        if (c.black != null) {
+            first = name(sb, "black", first);
+            sb.append(c.black.longValue());
+        }
+        if (c.control != null) {
+            first = name(sb, "control", first);
+            appendString(sb, c.control);
+        }
+        if (c.running != null) {
+            first = name(sb, "running", first);
+            appendString(sb, c.running);
+        }
+        if (c.white != null) {
+            name(sb, "white", first);
+            sb.append(c.white.longValue());
+        }
+        sb.append('}');
+    }
+
+    static void appendString(StringBuilder sb, String s) {
+        sb.append('"');
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') continue;
+            sb.append(s, start, i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                case '\b' -> sb.append("\\b");
+                case '\f' -> sb.append("\\f");
+                default -> sb.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 15]);
+            }
+            start = i + 1;
+        }
+        sb.append(s, start, s.length()).append('"');
+    }
+
+    private static final class MalformedJson extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        MalformedJson() {
+            super(null, null, false, false); // thrown on bad client input, so skip the stack trace
+        }
+    }
+
+    /** Cursor over the input text; string values are sliced straight out of it when they hold no escapes. */
+    private static final class Reader {
+        private final String s;
+        private final StringBuilder scratch;
+        int pos;
+        private int depth; // containers being skipped
+
+        Reader(String s, StringBuilder scratch) {
+            this.s = s;
+            this.scratch = scratch;
+        }
+
+        char peek() throws MalformedJson {
+            skipWhitespace();
+            if (pos >= s.length()) throw new MalformedJson();
+            return s.charAt(pos);
+        }
+
+        void expect(char c) throws MalformedJson {
+            if (peek() != c) throw new MalformedJson();
+            pos++;
+        }
+
+        boolean consumeIf(char c) throws MalformedJson {
+            if (peek() != c) return false;
+            pos++;
+            return true;
+        }
+
+        boolean atEnd() {
+            skipWhitespace();
+            return pos == s.length();
+        }
+
+        String readNullableString() throws MalformedJson {
+            if (peek() == 'n') {
+                literal("null");
+                return null;
+            }
+            return readString();
+        }
+
+        /** An integer written without fraction or exponent; anything else is left to the general parser. */
+        Integer readNullableInt() throws MalformedJson {
+            if (peek() == 'n') {
+                literal("null");
+                return null;
+            }
+            int start = pos;
+            if (s.charAt(pos) == '-') pos++;
+            while (pos < s.length() && s.charAt(pos) >= '0' && s.charAt(pos) <= '9') pos++;
+            if (pos < s.length() && ".eE".indexOf(s.charAt(pos)) >= 0) throw new MalformedJson();
+            try {
+                return Integer.parseInt(s, start, pos, 10);
+            } catch (NumberFormatException e) {
+                throw new MalformedJson();
+            }
+        }
+
+        String readString() throws MalformedJson {
+            expect('"');
+            int start = pos;
+            while (pos < s.length()) {
+                char c = s.charAt(pos);
+                if (c == '"') return s.substring(start, pos++);
+                if (c == '\\') return readEscapedString(start);
+                if (c < 0x20) throw new MalformedJson();
+                pos++;
+            }
+            throw new MalformedJson();
+        }
+
+        private String readEscapedString(int start) throws MalformedJson {
+            scratch.setLength(0);
+            scratch.append(s, start, pos);
+            while (pos < s.length()) {
+                char c = s.charAt(pos++);
+                if (c == '"') return scratch.toString();
+                if (c < 0x20) throw new MalformedJson();
+                if (c != '\\') {
+                    scratch.append(c);
+                    continue;
+                }
+                if (pos >= s.length()) throw new MalformedJson();
+                char e = s.charAt(pos++);
+                switch (e) {
+                    case '"', '\\', '/' -> scratch.append(e);
+                    case 'n' -> scratch.append('\n');
+                    case 'r' -> scratch.append('\r');
+                    case 't' -> scratch.append('\t');
+                    case 'b' -> scratch.append('\b');
+                    case 'f' -> scratch.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > s.length()) throw new MalformedJson();
+                        int cp = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int d = Character.digit(s.charAt(pos++), 16);
+                            if (d < 0) throw new MalformedJson();
+                            cp = (cp << 4) | d;
+                        }
+                        scratch.append((char) cp);
+                    }
+                    default -> throw new MalformedJson();
+                }
+            }
+            throw new MalformedJson();
+        }
+
+        void skipValue() throws MalformedJson {
+            char c = peek();
+            switch (c) {
+                case '"' -> readString();
+                case '{' -> skipContainer('{', '}');
+                case '[' -> skipContainer('[', ']');
+                case 't' -> literal("true");
+                case 'f' -> literal("false");
+                case 'n' -> literal("null");
+                default -> {
+                    int start = pos;
+                    while (pos < s.length() && "+-0123456789.eE".indexOf(s.charAt(pos)) >= 0) pos++;
+                    if (pos == start) throw new MalformedJson();
+                }
+            }
+        }
+
+        private void skipContainer(char open, char close) throws MalformedJson {
+            if (++depth > MAX_SKIPPED_DEPTH) throw new MalformedJson(); // rather than overflow the stack
+            expect(open);
+            if (consumeIf(close)) {
+                depth--;
+                return;
+            }
+            do {
+                if (open == '{') {
+                    readString();
+                    expect(':');
+                }
+                skipValue();
+            } while (consumeIf(','));
+            expect(close);
+            depth--;
+        }
+
+        private void literal(String word) throws MalformedJson {
+            if (!s.startsWith(word, pos)) throw new MalformedJson();
+            pos += word.length();
+        }
+
+        private void skipWhitespace() {
+            while (pos < s.length()) {
+                char c = s.charAt(pos);
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r') return;
+                pos++;
+            }
+        }
+    }
+}
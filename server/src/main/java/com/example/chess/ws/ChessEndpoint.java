@@ -1,9 +1,13 @@
 package com.example.chess.ws;
 
-import com.example.chess.service.GameRoom;
+import com.example.chess.cluster.Cluster;
+import com.example.chess.metrics.Histogram;
+import com.example.chess.metrics.Metrics;
 import com.example.chess.service.GameRoomManager;
-import com.example.chess.ws.dto.ClientMessage;
+import com.example.chess.service.Room;
 import com.example.chess.util.Json;
+import com.example.chess.ws.dto.ServerMessage;
+import jakarta.websocket.CloseReason;
 import jakarta.websocket.OnClose;
 import jakarta.websocket.OnError;
 import jakarta.websocket.OnMessage;
@@ -13,34 +17,96 @@ import jakarta.websocket.Session;
 import jakarta.websocket.server.ServerEndpoint;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
 import java.util.logging.Logger;
 
+/**
+ * Connects a session to its room. In a cluster, a room another node owns is watched from here
+ * when the session asks to spectate ({@code ?spectate=1}); anyone else is sent a
+ * {@code redirect} frame with the owner's URL and closed with {@link #REDIRECT}.
+ */
 @Component
 @ServerEndpoint("/ws/chess/{roomId}")
 public class ChessEndpoint {
     private static final Logger LOG = Logger.getLogger(ChessEndpoint.class.getName());
+    private static final String ROOM = "chess.room"; // user property holding the session's Room
+    static final CloseReason.CloseCode REDIRECT = CloseReason.CloseCodes.getCloseCode(4307);
+    private static final Histogram ON_MESSAGE = Metrics.getInstance().histogram("chess_endpoint_message_seconds",
+            "Time in ChessEndpoint.onMessage, on the container's thread, handing a frame to its room.");
 
     @OnOpen
     public void onOpen(Session session, @PathParam("roomId") String roomId) {
-        GameRoom room = GameRoomManager.getInstance().getRoom(roomId);
-        room.join(session);
+        GameRoomManager manager = GameRoomManager.getInstance();
+        if (!GameRoomManager.isValidRoomId(roomId)) {
+            reject(session, CloseReason.CloseCodes.CANNOT_ACCEPT, "Invalid room id");
+            return;
+        }
+        Cluster cluster = manager.cluster();
+        Room room;
+        if (cluster.isLocal(roomId)) {
+            room = manager.join(roomId, session);
+        } else if (spectating(session)) {
+            room = manager.watch(roomId, session);
+        } else {
+            redirect(session, roomId, cluster.owner(roomId), cluster.address(cluster.owner(roomId)));
+            return;
+        }
+        if (room == null) {
+            reject(session, CloseReason.CloseCodes.TRY_AGAIN_LATER, "Too many rooms");
+            LOG.warning("Refused session " + session.getId() + " for room " + roomId + ": room limit reached");
+            return;
+        }
+        session.getUserProperties().put(ROOM, room);
         LOG.info("Session " + session.getId() + " opened room " + roomId);
     }
 
     @OnMessage
-    public void onMessage(Session session, @PathParam("roomId") String roomId, String message) throws Exception {
-        GameRoom room = GameRoomManager.getInstance().getRoom(roomId);
-        ClientMessage msg = Json.fromJson(message, ClientMessage.class);
-        room.handleMessage(session, msg);
+    public void onMessage(Session session, @PathParam("roomId") String roomId, String message) {
+        long start = System.nanoTime();
+        Room room = (Room) session.getUserProperties().get(ROOM);
+        if (room == null) return;
+        room.handleMessage(session, message); // parsed and handled on the room's shard
+        ON_MESSAGE.recordSince(start);
     }
 
     @OnClose
     public void onClose(Session session, @PathParam("roomId") String roomId) {
-        GameRoom room = GameRoomManager.getInstance().getRoom(roomId);
-        room.leave(session);
+        // Only the room this session actually joined; never create one on the way out
+        Room room = (Room) session.getUserProperties().remove(ROOM);
+        if (room == null) return;
+        GameRoomManager.getInstance().leave(room, session);
         LOG.info("Session " + session.getId() + " closed room " + roomId);
     }
 
+    private static boolean spectating(Session session) {
+        List<String> values = session.getRequestParameterMap().get("spectate");
+        return values != null && !values.isEmpty() && !"0".equals(values.get(0)) && !"false".equals(values.get(0));
+    }
+
+    /** Points the client at the same path and query on the owner's web server, then closes. */
+    private static void redirect(Session session, String roomId, String owner, String address) {
+        URI uri = session.getRequestURI();
+        String query = session.getQueryString();
+        String url = ("wss".equals(uri.getScheme()) ? "wss" : "ws") + "://" + address + uri.getRawPath()
+                + (query == null || query.isEmpty() ? "" : "?" + query);
+        try {
+            session.getBasicRemote().sendText(Json.toJson(ServerMessage.redirect(url)));
+        } catch (IOException e) {
+            return; // already gone
+        }
+        reject(session, REDIRECT, "Room " + roomId + " is on node " + owner);
+    }
+
+    private static void reject(Session session, CloseReason.CloseCode code, String reason) {
+        try {
+            session.close(new CloseReason(code, reason));
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
     @OnError
     public void onError(Session session, @PathParam("roomId") String roomId, Throwable thr) {
         LOG.warning("Error in session " + session.getId() + " room " + roomId + ": " + thr.getMessage());
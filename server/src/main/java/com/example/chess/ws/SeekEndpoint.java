@@ -0,0 +1,112 @@
+package com.example.chess.ws;
+
+import com.example.chess.clock.TimeControl;
+import com.example.chess.config.ChessSettings;
+import com.example.chess.service.GameRoomManager;
+import com.example.chess.service.Matchmaker;
+import com.example.chess.service.Room;
+import com.example.chess.service.Seek;
+import com.example.chess.util.Json;
+import com.example.chess.ws.dto.ClientMessage;
+import com.example.chess.ws.dto.ServerMessage;
+import jakarta.websocket.OnClose;
+import jakarta.websocket.OnError;
+import jakarta.websocket.OnMessage;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.ServerEndpoint;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * Matchmaking. A session sends {@code seek} with its rating and, optionally, a name and time
+ * control, and waits; once the {@link Matchmaker} pairs it, it is seated in a new room and the
+ * same socket carries the game from then on, exactly as if it had joined through
+ * {@link ChessEndpoint}. {@code cancel} withdraws a seek, and so does closing the socket.
+ * <p>
+ * Replies before the pairing are sent synchronously, and only while no seek is queued: once
+ * one is, the room may start writing to the session from another thread at any moment.
+ */
+@Component
+@ServerEndpoint("/ws/seek")
+public class SeekEndpoint {
+    private static final Logger LOG = Logger.getLogger(SeekEndpoint.class.getName());
+    private static final String SEEK = "chess.seek"; // user property holding the session's queued or paired Seek
+
+    @OnMessage
+    public void onMessage(Session session, String message) {
+        Seek seek = (Seek) session.getUserProperties().get(SEEK);
+        Room room = seek == null ? null : seek.room();
+        if (room != null) {
+            room.handleMessage(session, message);
+            return;
+        }
+        ClientMessage msg;
+        try {
+            msg = Json.fromJson(message, ClientMessage.class);
+        } catch (Exception e) {
+            if (seek == null) send(session, ServerMessage.error("Malformed message."));
+            return;
+        }
+        if (msg == null || msg.type == null) return;
+        if ("cancel".equals(msg.type)) {
+            if (seek != null && Matchmaker.getInstance().cancel(seek)) {
+                session.getUserProperties().remove(SEEK);
+                send(session, ServerMessage.info("Seek cancelled."));
+            }
+            return;
+        }
+        if (seek != null) return; // waiting: the pairing may be writing to the session right now
+        if (!"seek".equals(msg.type)) {
+            send(session, ServerMessage.error("Send a seek first."));
+            return;
+        }
+        if (msg.rating == null || !Matchmaker.isValidRating(msg.rating)) {
+            send(session, ServerMessage.error("Rating must be from 0 to " + (Matchmaker.MAX_RATING - 1) + "."));
+            return;
+        }
+        TimeControl control = ChessSettings.getInstance().clockDefaultControl();
+        if (msg.control != null && !msg.control.isBlank()) {
+            try {
+                control = TimeControl.parse(msg.control);
+            } catch (IllegalArgumentException e) {
+                send(session, ServerMessage.error(
+                        "Bad time control; use minutes+increment like 5+3, or minutes d delay like 5d2."));
+                return;
+            }
+        }
+        String name = msg.name == null || msg.name.isBlank() ? null : msg.name;
+        if (!send(session, ServerMessage.info("Looking for an opponent rated about " + msg.rating
+                + (control == null ? ", untimed." : ", playing " + control + ".")))) {
+            return;
+        }
+        session.getUserProperties().put(SEEK, Matchmaker.getInstance().seek(session, name, msg.rating, control));
+    }
+
+    @OnClose
+    public void onClose(Session session) {
+        Seek seek = (Seek) session.getUserProperties().remove(SEEK);
+        if (seek == null) return;
+        Matchmaker.getInstance().cancel(seek);
+        Room room = seek.close();
+        if (room != null) {
+            GameRoomManager.getInstance().leave(room, session);
+            LOG.info("Session " + session.getId() + " closed room " + room.id());
+        }
+    }
+
+    @OnError
+    public void onError(Session session, Throwable thr) {
+        LOG.warning("Error in seeking session " + session.getId() + ": " + thr.getMessage());
+    }
+
+    private static boolean send(Session session, ServerMessage m) {
+        try {
+            session.getBasicRemote().sendText(Json.toJson(m));
+            return true;
+        } catch (IOException e) {
+            return false; // already gone
+        }
+    }
+}
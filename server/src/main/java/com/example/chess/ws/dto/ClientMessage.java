@@ -1,11 +1,15 @@
 package com.example.chess.ws.dto;
 
 public class ClientMessage {
-    public String type; // "join" | "move"
+    public String type; // "join" | "move" | "resync" | "engine" | "clock" | "seek" | "cancel"
     // join
     public String name;
     // move
     public String from; // algebraic e.g., "e2"
     public String to;   // algebraic e.g., "e4"
     public String promotion; // "QUEEN","ROOK","BISHOP","KNIGHT" (optional)
+    // clock
+    public String control; // time control for the game, e.g. "5+3" or "5d2"; only before the first move
+    // seek (also takes name and control)
+    public Integer rating;
 }
@@ -1,20 +1,72 @@
 package com.example.chess.ws.dto;
 
 public class ServerMessage {
-    public String type; // "state" | "info" | "error"
+    public String type; // "state" | "delta" | "info" | "error" | "redirect"
     public String message;
 
+    // For "state" and "delta"
+    public Long seq;         // moves played in the room; a delta carries the number after its move
+    public String turn;      // "WHITE" | "BLACK"
+    public String status;    // GameStatus name, e.g. "ONGOING", "CHECKMATE", "THREEFOLD_REPETITION"
+    public String[][] legal; // [square, destination...] per piece the side to move can move; absent once the game is over
+    public Clock clock;      // absent for untimed games
+
     // For "state"
     public String[][] board; // [rank][file], entries like "wP", "bK", or null
-    public String turn;      // "WHITE" | "BLACK"
     public String self;      // "WHITE" | "BLACK" | "SPECTATOR"
 
-    public static ServerMessage state(String[][] board, String turn, String self, String info) {
+    // For "delta"
+    public String from;      // algebraic
+    public String to;
+    public String promotion; // piece type name, when the move promoted
+    public String captured;  // e.g. "bN", when the move captured
+    public String[][] changes; // [square, piece or null] for every square the move changed
+
+    /** Both sides' time left when the frame was built, in milliseconds. */
+    public static class Clock {
+        public Long white;
+        public Long black;
+        public String running; // "WHITE" | "BLACK", absent while stopped
+        public String control; // e.g. "5+3" (increment) or "5d2" (delay)
+
+        public static Clock of(long white, long black, String running, String control) {
+            Clock c = new Clock();
+            c.white = white;
+            c.black = black;
+            c.running = running;
+            c.control = control;
+            return c;
+        }
+    }
+
+    public static ServerMessage state(long seq, String[][] board, String turn, String self, String status,
+                                      String[][] legal, String info) {
         ServerMessage m = new ServerMessage();
         m.type = "state";
+        m.seq = seq;
         m.board = board;
         m.turn = turn;
         m.self = self;
+        m.status = status;
+        m.legal = legal;
+        m.message = info;
+        return m;
+    }
+
+    public static ServerMessage delta(long seq, String from, String to, String promotion, String captured,
+                                      String[][] changes, String turn, String status, String[][] legal,
+                                      String info) {
+        ServerMessage m = new ServerMessage();
+        m.type = "delta";
+        m.seq = seq;
+        m.from = from;
+        m.to = to;
+        m.promotion = promotion;
+        m.captured = captured;
+        m.changes = changes;
+        m.turn = turn;
+        m.status = status;
+        m.legal = legal;
         m.message = info;
         return m;
     }
@@ -26,6 +78,14 @@ public class ServerMessage {
         return m;
     }
 
+    /** Sent before closing a player's session on a node that does not own its room; {@code url} is the owner's. */
+    public static ServerMessage redirect(String url) {
+        ServerMessage m = new ServerMessage();
+        m.type = "redirect";
+        m.message = url;
+        return m;
+    }
+
     public static ServerMessage error(String text) {
         ServerMessage m = new ServerMessage();
         m.type = "error";
@@ -4,12 +4,19 @@ const roleEl = document.getElementById('role');
 const turnEl = document.getElementById('turn');
 const messagesEl = document.getElementById('messages');
 const connectBtn = document.getElementById('connect');
+const engineBtn = document.getElementById('engine');
+const clocksEl = document.getElementById('clocks');
+const clockBtn = document.getElementById('clock');
 
 let ws = null;
 let state = {
   board: Array.from({length:8}, ()=>Array(8).fill(null)),
   turn: 'WHITE',
-  self: 'SPECTATOR'
+  self: 'SPECTATOR',
+  seq: -1,
+  legal: {}, // square -> legal destinations for the side to move, from the server's hints
+  clock: null, // {white, black, running, control} as of clockAt; null for an untimed game
+  clockAt: 0
 };
 let selected = null; // {f,r}
 
@@ -58,41 +65,109 @@ function pieceIcon(code) {
   return color[map[code[1]]];
 }
 
+// Only the side to move's own pieces with a legal move can be picked up
+function movable(f, r) {
+  return state.self === state.turn && state.legal[algebraic(f, r)] !== undefined;
+}
+
+function select(square) {
+  if (selected) {
+    document.getElementById(squareId(selected.f, selected.r)).classList.remove('selected');
+    for (const t of state.legal[algebraic(selected.f, selected.r)] || []) {
+      document.getElementById(squareId(t.charCodeAt(0) - 97, t.charCodeAt(1) - 49)).classList.remove('target');
+    }
+  }
+  selected = square;
+  if (!selected) return;
+  document.getElementById(squareId(selected.f, selected.r)).classList.add('selected');
+  for (const t of state.legal[algebraic(selected.f, selected.r)]) {
+    document.getElementById(squareId(t.charCodeAt(0) - 97, t.charCodeAt(1) - 49)).classList.add('target');
+  }
+}
+
 function onSquareClick(f, r) {
-  // enforce turn and ownership on selection
   if (!selected) {
-    const piece = state.board[r][f];
-    if (!piece) return;
-    const isWhite = piece[0] === 'w';
-    if ((state.self === 'WHITE' && !isWhite) || (state.self === 'BLACK' && isWhite)) return;
-    if ((state.turn === 'WHITE' && !isWhite) || (state.turn === 'BLACK' && isWhite === true && state.self === 'BLACK')) {
-      // allow only when it's your turn
-    }
-    selected = {f, r};
-    document.getElementById(squareId(f, r)).classList.add('selected');
-  } else {
-    const from = selected;
-    if (from.f === f && from.r === r) {
-      document.getElementById(squareId(f, r)).classList.remove('selected');
-      selected = null;
-      return;
-    }
+    if (movable(f, r)) select({f, r});
+    return;
+  }
+  const from = selected;
+  if (from.f === f && from.r === r) {
+    select(null);
+    return;
+  }
+  if ((state.legal[algebraic(from.f, from.r)] || []).includes(algebraic(f, r))) {
+    select(null);
     sendMove(algebraic(from.f, from.r), algebraic(f, r));
-    document.getElementById(squareId(from.f, from.r)).classList.remove('selected');
-    selected = null;
+  } else {
+    // Not a legal move: never sent; switch to another of our pieces or drop the selection
+    select(movable(f, r) ? {f, r} : null);
   }
 }
 
+// A frame without hints ends the game (or predates them): nothing is movable
+function updateLegal(m) {
+  const legal = {};
+  for (const [square, ...targets] of m.legal || []) legal[square] = targets;
+  state.legal = legal;
+}
+
+function applyDelta(m) {
+  if (m.seq !== state.seq + 1) {
+    // Missed a move (or got one twice); ask for a full snapshot instead of guessing
+    if (m.seq > state.seq) requestResync();
+    return;
+  }
+  for (const [square, piece] of m.changes || []) {
+    const f = square.charCodeAt(0) - 'a'.charCodeAt(0);
+    const r = square.charCodeAt(1) - '1'.charCodeAt(0);
+    state.board[r][f] = piece;
+  }
+  state.seq = m.seq;
+  updateLegal(m);
+  updateState(m);
+}
+
+function requestResync() {
+  if (!ws || ws.readyState !== WebSocket.OPEN) return;
+  ws.send(JSON.stringify({type: 'resync'}));
+}
+
 function updateState(m) {
   if (m.board) state.board = m.board;
+  if (m.type === 'state' && typeof m.seq === 'number') state.seq = m.seq;
+  if (m.type === 'state') updateLegal(m);
   if (m.turn) state.turn = m.turn;
   if (m.self) state.self = m.self;
+  if (m.type === 'state' || m.type === 'delta') {
+    state.clock = m.clock || null;
+    state.clockAt = performance.now();
+    renderClocks();
+  }
+  selected = null; // the board is redrawn, so any selection is gone
   renderBoard();
   roleEl.textContent = state.self;
   turnEl.textContent = state.turn;
   if (m.message) addMessage(m.message, m.type === 'error' ? 'error' : 'info');
 }
 
+function formatMillis(ms) {
+  const s = Math.ceil(Math.max(0, ms) / 1000);
+  return `${Math.floor(s / 60)}:${String(s % 60).padStart(2, '0')}`;
+}
+
+// The server's frames carry the times; between frames the running side is counted down here.
+function renderClocks() {
+  const c = state.clock;
+  if (!c) {
+    clocksEl.textContent = '-';
+    return;
+  }
+  const elapsed = performance.now() - state.clockAt;
+  const white = c.white - (c.running === 'WHITE' ? elapsed : 0);
+  const black = c.black - (c.running === 'BLACK' ? elapsed : 0);
+  clocksEl.textContent = `White ${formatMillis(white)} · Black ${formatMillis(black)} (${c.control})`;
+}
+
 function connect() {
   const name = document.getElementById('name').value.trim();
   let room = document.getElementById('room').value.trim();
@@ -102,8 +177,27 @@ function connect() {
   }
   if (ws) ws.close();
 
-  const proto = location.protocol === 'https:' ? 'wss' : 'ws';
+  let url = wsUrl(`chess/${encodeURIComponent(room)}`);
+  // ?spectate on the page watches the room from whichever server node this is
+  if (new URLSearchParams(location.search).has('spectate')) url += '?spectate=1';
+  openSocket(url, `room "${room}"`, name ? {type: 'join', name} : {type: 'join'});
+}
+
+// Matchmaking: the seek socket becomes the game's socket once the server pairs us.
+function seek() {
+  const name = document.getElementById('name').value.trim();
+  const rating = parseInt(document.getElementById('rating').value, 10);
+  const control = document.getElementById('control').value.trim();
+  if (ws) ws.close();
+  const hello = {type: 'seek', rating: Number.isNaN(rating) ? 1500 : rating};
+  if (name) hello.name = name;
+  if (control) hello.control = control;
+  openSocket(wsUrl('seek'), 'matchmaking', hello);
+}
 
+// The socket URL for a path under /ws on the backend.
+function wsUrl(path) {
+  const proto = location.protocol === 'https:' ? 'wss' : 'ws';
   // Optional override via global or <meta name="ws-base" content="...">
   let wsBase = window.CHESS_WS_BASE;
   if (!wsBase) {
@@ -115,18 +209,17 @@ function connect() {
     wsBase = 'ws://localhost:8080';
   }
 
-  let url;
   if (wsBase) {
     // wsBase can be:
     // - full ws(s)://host[:port][/prefix]
     // - absolute path like /app/ws
     // - host:port
     if (/^wss?:\/\//i.test(wsBase)) {
-      url = `${wsBase.replace(/\/$/, '')}/ws/chess/${encodeURIComponent(room)}`;
+      return `${wsBase.replace(/\/$/, '')}/ws/${path}`;
     } else if (wsBase.startsWith('/')) {
-      url = `${proto}://${location.host}${wsBase.replace(/\/$/, '')}/chess/${encodeURIComponent(room)}`;
+      return `${proto}://${location.host}${wsBase.replace(/\/$/, '')}/${path}`;
     } else {
-      url = `${proto}://${wsBase.replace(/\/$/, '')}/ws/chess/${encodeURIComponent(room)}`;
+      return `${proto}://${wsBase.replace(/\/$/, '')}/ws/${path}`;
     }
   } else {
     // Determine target host automatically and use the page's directory as base when served by backend.
@@ -140,25 +233,31 @@ function connect() {
       basePath = '';
     }
 
-    url = `${proto}://${host}${basePath}/ws/chess/${encodeURIComponent(room)}`;
+    return `${proto}://${host}${basePath}/ws/${path}`;
   }
+}
 
+// In a cluster, a node that does not own the room sends 'redirect' with the owner's URL and closes.
+function openSocket(url, where, hello) {
+  let redirect = null;
   console.debug('WebSocket URL:', url);
   ws = new WebSocket(url);
 
   ws.onopen = () => {
-    statusEl.textContent = `Connected to room "${room}"`;
-    if (name) {
-      ws.send(JSON.stringify({type: 'join', name}));
-    } else {
-      ws.send(JSON.stringify({type: 'join'}));
-    }
+    statusEl.textContent = `Connected to ${where}`;
+    ws.send(JSON.stringify(hello));
   };
 
   ws.onmessage = ev => {
     try {
       const m = JSON.parse(ev.data);
-      updateState(m);
+      if (m.type === 'redirect') {
+        redirect = m.message;
+      } else if (m.type === 'delta') {
+        applyDelta(m);
+      } else {
+        updateState(m);
+      }
     } catch (e) {
       console.error('Bad message', e);
     }
@@ -170,6 +269,11 @@ function connect() {
   };
 
   ws.onclose = (e) => {
+    if (redirect) {
+      statusEl.textContent = `The ${where} is on another server, reconnecting`;
+      openSocket(redirect, where, hello);
+      return;
+    }
     statusEl.textContent = `Disconnected (code ${e.code}${e.reason ? ', ' + e.reason : ''})`;
     console.warn('WebSocket closed:', e);
   };
@@ -181,6 +285,16 @@ function sendMove(from, to) {
 }
 
 connectBtn.addEventListener('click', connect);
+engineBtn.addEventListener('click', () => {
+  if (!ws || ws.readyState !== WebSocket.OPEN) return;
+  ws.send(JSON.stringify({type: 'engine'}));
+});
+document.getElementById('seek').addEventListener('click', seek);
+clockBtn.addEventListener('click', () => {
+  if (!ws || ws.readyState !== WebSocket.OPEN) return;
+  ws.send(JSON.stringify({type: 'clock', control: document.getElementById('control').value.trim()}));
+});
+setInterval(renderClocks, 200);
 
 // Auto-fill room from URL hash ?room=ID or #ID, and allow optional ?wsBase=...
 (function initFromUrl(){
@@ -0,0 +1,117 @@
+package com.example.chess.archive;
+
+import com.example.chess.game.Board;
+import com.example.chess.game.Moves;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameArchiveTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<GameRecord> randomGames(int count) {
+        SplittableRandom rnd = new SplittableRandom(11);
+        int[] legal = new int[Moves.MAX_MOVES];
+        List<GameRecord> games = new ArrayList<>();
+        for (int g = 0; g < count; g++) {
+            Board board = Board.initial();
+            int[] moves = new int[rnd.nextInt(150)];
+            int n = 0;
+            while (n < moves.length) {
+                int legalCount = board.generateLegalMoves(legal);
+                if (legalCount == 0) break;
+                int m = legal[rnd.nextInt(legalCount)];
+                board.makeMove(m);
+                moves[n++] = m & 0x7FFF; // as archived: without the flag
+            }
+            games.add(new GameRecord("white" + g, "black" + g, 1_700_000_000_000L + g, GameRecord.DRAW,
+                    Arrays.copyOf(moves, n)));
+        }
+        return games;
+    }
+
+    private static void assertSameGame(GameRecord expected, GameRecord actual) {
+        assertEquals(expected.white(), actual.white());
+        assertEquals(expected.black(), actual.black());
+        assertEquals(expected.startedAtMillis(), actual.startedAtMillis());
+        assertEquals(expected.result(), actual.result());
+        assertArrayEquals(expected.moves(), actual.moves());
+    }
+
+    @Test
+    void gamesRoundTripByIdAndInOrder() throws Exception {
+        List<GameRecord> games = randomGames(2_000);
+        Path file = dir.resolve("games.archive");
+        long moves = 0;
+        try (GameArchiveWriter writer = new GameArchiveWriter(file)) {
+            for (GameRecord g : games) {
+                writer.append(g);
+                moves += g.moves().length;
+            }
+        }
+        assertTrue(Files.size(file) < moves * 2, "compressed archive should beat two bytes per move");
+        try (GameArchive archive = GameArchive.open(file)) {
+            assertEquals(games.size(), archive.size());
+            for (int id : new int[]{1_999, 0, 777, 778, 3}) assertSameGame(games.get(id), archive.get(id));
+            int i = 0;
+            for (GameRecord g : archive) assertSameGame(games.get(i++), g);
+            assertEquals(games.size(), i);
+
+            PgnWriter pgn = new PgnWriter(Writer.nullWriter());
+            for (GameRecord g : archive) pgn.write(g); // every archived move resolves back to a legal one
+        }
+    }
+
+    @Test
+    void anArchiveWithoutItsIndexIsRebuiltFromTheBlocks() throws Exception {
+        List<GameRecord> games = randomGames(1_500);
+        Path file = dir.resolve("crashed.archive");
+        try (GameArchiveWriter writer = new GameArchiveWriter(file)) {
+            for (GameRecord g : games) writer.append(g);
+        }
+        try (RandomAccessFile f = new RandomAccessFile(file.toFile(), "rw")) {
+            f.seek(f.length() - 20);
+            f.setLength(f.readLong() - 3); // drop the index, the trailer and the end of the last block
+        }
+        try (GameArchive archive = GameArchive.open(file)) {
+            assertTrue(archive.size() > 0 && archive.size() < games.size());
+            long last = archive.size() - 1;
+            assertSameGame(games.get((int) last), archive.get(last));
+            int i = 0;
+            for (GameRecord g : archive) assertSameGame(games.get(i++), g);
+            assertEquals(archive.size(), i);
+        }
+    }
+
+    @Test
+    void exportsPgnWithSan() throws Exception {
+        int[] moves = {
+                Moves.of(12, 28), Moves.of(52, 36),  // e4 e5
+                Moves.of(5, 26), Moves.of(57, 42),   // Bc4 Nc6
+                Moves.of(3, 39), Moves.of(62, 45),   // Qh5 Nf6
+                Moves.of(39, 53),                    // Qxf7#
+        };
+        StringWriter out = new StringWriter();
+        new PgnWriter(out).write(new GameRecord("Ann", "Bob\r\n[Result \"0-1\"]", 0, GameRecord.WHITE_WINS, moves));
+        String pgn = out.toString();
+        assertTrue(pgn.contains("[White \"Ann\"]"), pgn);
+        assertTrue(pgn.contains("[Black \"Bob  [Result \\\"0-1\\\"]\"]\n"), pgn);
+        assertTrue(pgn.contains("[Result \"1-0\"]"), pgn);
+        assertTrue(pgn.contains("1. e4 e5 2. Bc4 Nc6 3. Qh5 Nf6 4. Qxf7# 1-0"), pgn);
+    }
+}
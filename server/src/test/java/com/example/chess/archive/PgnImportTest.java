@@ -0,0 +1,150 @@
+package com.example.chess.archive;
+
+import com.example.chess.game.Board;
+import com.example.chess.game.Moves;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PgnImportTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void exportedGamesImportBackUnchanged() throws Exception {
+        SplittableRandom rnd = new SplittableRandom(3);
+        int[] legal = new int[Moves.MAX_MOVES];
+        List<GameRecord> games = new ArrayList<>();
+        StringWriter pgn = new StringWriter();
+        PgnWriter writer = new PgnWriter(pgn);
+        for (int g = 0; g < 1_000; g++) {
+            Board board = Board.initial();
+            int[] moves = new int[rnd.nextInt(200)];
+            int n = 0;
+            while (n < moves.length) {
+                int count = board.generateLegalMoves(legal);
+                if (count == 0) break;
+                int m = legal[rnd.nextInt(count)];
+                board.makeMove(m);
+                moves[n++] = m & 0x7FFF;
+            }
+            GameRecord game = new GameRecord("W" + g, "B" + g, 0, GameRecord.UNKNOWN, Arrays.copyOf(moves, n));
+            games.add(game);
+            writer.write(game);
+        }
+
+        Path file = dir.resolve("imported.archive");
+        StringWriter rejects = new StringWriter();
+        PgnImport.Stats stats;
+        try (GameArchiveWriter archive = new GameArchiveWriter(file)) {
+            stats = new PgnImport(4).run(new StringReader(pgn.toString()), archive, rejects);
+        }
+        assertEquals(games.size(), stats.accepted());
+        assertEquals(0, stats.rejected(), rejects.toString());
+        try (GameArchive archive = GameArchive.open(file)) {
+            int i = 0;
+            for (GameRecord g : archive) {
+                assertEquals(games.get(i).white(), g.white());
+                assertArrayEquals(games.get(i++).moves(), g.moves());
+            }
+        }
+    }
+
+    @Test
+    void commentsAndVariationsAreSkippedAndIllegalGamesRejected() throws Exception {
+        String pgn = """
+                [Event "Annotated"]
+                [White "Ann"]
+                [Black "Bob"]
+                [Date "2024.05.01"]
+                [Result "1-0"]
+
+                1. e4 {best by test} e5 2. Nf3 (2. f4 exf4 {gambit}) Nc6 $1 3. Bb5 ; Ruy Lopez
+                a6 4. Ba4 Nf6 5. O-O Be7 1-0
+
+                [Event "Broken"]
+                [Result "*"]
+
+                1. e4 e5 2. Ke3 *
+                """;
+        Path file = dir.resolve("mixed.archive");
+        StringWriter rejects = new StringWriter();
+        PgnImport.Stats stats;
+        try (GameArchiveWriter archive = new GameArchiveWriter(file)) {
+            stats = new PgnImport(2).run(new StringReader(pgn), archive, rejects);
+        }
+        assertEquals(1, stats.accepted());
+        assertEquals(1, stats.rejected());
+        assertEquals(10, stats.moves());
+        assertTrue(rejects.toString().contains("rejected: illegal or ambiguous move Ke3 at ply 3"), rejects.toString());
+        assertTrue(rejects.toString().contains("[Event \"Broken\"]"));
+        try (GameArchive archive = GameArchive.open(file)) {
+            GameRecord g = archive.get(0);
+            assertEquals("Ann", g.white());
+            assertEquals(GameRecord.WHITE_WINS, g.result());
+            assertEquals(1_714_521_600_000L, g.startedAtMillis());
+        }
+    }
+
+    @Test
+    void anUnterminatedCommentIsRejectedAndReadingResumesAtTheNextGame() throws Exception {
+        StringBuilder pgn = new StringBuilder("""
+                [Event "Unterminated"]
+                [White "Ann"]
+
+                1. e4 {this comment never ends, so the tags below look like part of it
+                """);
+        int games = 0;
+        while (pgn.length() < 3 << 20) {
+            pgn.append("[Event \"Club\"]\n[White \"W").append(games++).append("\"]\n\n1. d4 d5 2. c4 1/2-1/2\n\n");
+        }
+        Path file = dir.resolve("resumed.archive");
+        StringWriter rejects = new StringWriter();
+        PgnImport.Stats stats;
+        try (GameArchiveWriter archive = new GameArchiveWriter(file)) {
+            stats = new PgnImport(2).run(new StringReader(pgn.toString()), archive, rejects);
+        }
+        assertEquals(1, stats.rejected());
+        assertTrue(rejects.toString().contains("rejected: game longer than"), rejects.toString());
+        assertTrue(rejects.toString().contains("[White \"Ann\"]"));
+        assertFalse(rejects.toString().contains("never ends"), "the cut movetext is left out");
+        assertTrue(stats.accepted() > games / 2, stats.toString());
+        try (GameArchive archive = GameArchive.open(file)) {
+            assertEquals("W" + (games - 1), archive.get(stats.accepted() - 1).white());
+        }
+    }
+
+    @Test
+    void overlongLinesAreCutAndCarriageReturnsEndLines() throws Exception {
+        String pgn = "1. e4 " + "e5 ".repeat(100) + "1-0\r\n"
+                + "[Event \"Next\"]\r\n\r\n1. e4 e5\r2. Nf3 *\r\n";
+        try (PgnReader reader = new PgnReader(new StringReader(pgn), 100, 10_000)) {
+            PgnGame cut = reader.next();
+            assertEquals("line longer than 100 characters", cut.error());
+            assertEquals(List.of(), cut.moves());
+            PgnGame next = reader.next();
+            assertNull(next.error());
+            assertEquals("Next", next.tags().get("Event"));
+            assertEquals(List.of("e4", "e5", "Nf3"), next.moves());
+            assertNull(reader.next());
+        }
+        try (PgnReader reader = new PgnReader(new StringReader("x".repeat(50_000)), 100, 10_000)) {
+            assertEquals("line longer than 100 characters", reader.next().error());
+            assertNull(reader.next());
+        }
+    }
+}
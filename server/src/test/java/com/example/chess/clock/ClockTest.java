@@ -0,0 +1,108 @@
+package com.example.chess.clock;
+
+import com.example.chess.game.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClockTest {
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void parsesAndPrintsTimeControls() {
+        assertEquals(new TimeControl(300_000, 3_000, TimeControl.Mode.INCREMENT), TimeControl.parse("5+3"));
+        assertEquals(new TimeControl(30_000, 2_500, TimeControl.Mode.DELAY), TimeControl.parse(" 0.5d2.5 "));
+        assertEquals("5+3", TimeControl.parse("5+3").toString());
+        assertEquals("0.5d2.5", TimeControl.parse("0.5d2.5").toString());
+        for (String bad : new String[] {"", "5", "+3", "5+", "x+1", "0+1", "5+-1", "2000+0", "5+601", "0.0000001+0"}) {
+            assertThrows(IllegalArgumentException.class, () -> TimeControl.parse(bad), bad);
+        }
+    }
+
+    @Test
+    void incrementIsAddedAfterEachMove() {
+        GameClock clock = new GameClock(TimeControl.parse("1+2"));
+        clock.start(Color.WHITE, 0);
+        assertEquals(60 * SECOND - 5 * SECOND, clock.remainingNanos(Color.WHITE, 5 * SECOND));
+        assertFalse(clock.press(Color.BLACK, 5 * SECOND), "not black's turn");
+        assertTrue(clock.press(Color.WHITE, 5 * SECOND));
+        assertEquals(57 * SECOND, clock.remainingNanos(Color.WHITE, 9 * SECOND));
+        assertEquals(Color.BLACK, clock.running());
+        assertEquals(56 * SECOND, clock.remainingNanos(Color.BLACK, 9 * SECOND));
+        assertEquals(60 * SECOND, clock.nanosUntilFlag(5 * SECOND));
+        assertFalse(clock.flagged(65 * SECOND - 1));
+        assertTrue(clock.flagged(65 * SECOND));
+        assertFalse(clock.press(Color.BLACK, 65 * SECOND), "flag fell");
+        clock.stop(70 * SECOND);
+        assertNull(clock.running());
+        assertEquals(0, clock.remainingNanos(Color.BLACK, 80 * SECOND));
+        assertEquals(Long.MAX_VALUE, clock.nanosUntilFlag(80 * SECOND));
+    }
+
+    @Test
+    void delayRunsOutBeforeTheClockCountsDown() {
+        GameClock clock = new GameClock(TimeControl.parse("1d5"));
+        clock.start(Color.WHITE, 0);
+        assertEquals(60 * SECOND, clock.remainingNanos(Color.WHITE, 4 * SECOND));
+        assertEquals(58 * SECOND, clock.remainingNanos(Color.WHITE, 7 * SECOND));
+        assertTrue(clock.press(Color.WHITE, 7 * SECOND));
+        assertEquals(58 * SECOND, clock.remainingNanos(Color.WHITE, 7 * SECOND), "no increment in delay mode");
+        assertEquals(65 * SECOND, clock.nanosUntilFlag(7 * SECOND));
+        assertTrue(clock.flagged(72 * SECOND));
+    }
+
+    @Test
+    void wheelFiresInDeadlineOrderAcrossLevels() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        List<Long> fired = new ArrayList<>();
+        long[] delays = {70_000_000, 5, 300, 256, 255, 65_536, 1, 0, 1_000};
+        for (long d : delays) wheel.schedule(() -> fired.add(d), d * TICK, 0);
+        assertEquals(delays.length, wheel.size());
+        for (long now = 0; now <= 70_001_000; now += 997) {
+            wheel.advance(now * TICK);
+            for (long d : fired) assertTrue(d <= now, d + " fired early at " + now);
+        }
+        assertEquals(List.of(0L, 1L, 5L, 255L, 256L, 300L, 1_000L, 65_536L, 70_000_000L), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelledTimeoutsNeverFire() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        List<String> fired = new ArrayList<>();
+        TimingWheel.Timeout early = wheel.schedule(() -> fired.add("early"), 10 * TICK, 0);
+        TimingWheel.Timeout placed = wheel.schedule(() -> fired.add("placed"), 1_000 * TICK, 0);
+        wheel.schedule(() -> fired.add("kept"), 1_000 * TICK, 0);
+        assertTrue(early.cancel());
+        assertFalse(early.cancel());
+        wheel.advance(100 * TICK); // places the others, including one that moves down a level later
+        assertTrue(placed.cancel());
+        assertTrue(placed.isCancelled());
+        assertEquals(1, wheel.size());
+        wheel.advance(2_000 * TICK);
+        assertEquals(List.of("kept"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void schedulesFromAnyThreadAgainstARunningWheel() throws Exception {
+        try (TimingWheel wheel = TimingWheel.start(1)) {
+            CountDownLatch done = new CountDownLatch(100);
+            for (int i = 0; i < 100; i++) {
+                long delay = TimeUnit.MILLISECONDS.toNanos(i % 20);
+                new Thread(() -> wheel.schedule(done::countDown, delay)).start();
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+    }
+}
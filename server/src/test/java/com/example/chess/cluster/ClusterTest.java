@@ -0,0 +1,106 @@
+package com.example.chess.cluster;
+
+import com.example.chess.metrics.Counter;
+import com.example.chess.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterTest {
+
+    @Test
+    void ringSpreadsRoomsEvenlyAndMovesFewWhenANodeJoins() {
+        int ids = 30_000;
+        HashRing three = new HashRing(List.of("a", "b", "c"), 160);
+        HashRing four = new HashRing(List.of("a", "b", "c", "d"), 160);
+        Map<String, Integer> counts = new HashMap<>();
+        int moved = 0;
+        for (int i = 0; i < ids; i++) {
+            String id = "room-" + i;
+            String before = three.owner(id);
+            counts.merge(before, 1, Integer::sum);
+            String after = four.owner(id);
+            if (!after.equals(before)) {
+                moved++;
+                assertEquals("d", after, id + " moved between old nodes");
+            }
+        }
+        for (int n : counts.values()) assertTrue(Math.abs(n - ids / 3) < ids / 3 / 4, "uneven: " + counts);
+        assertTrue(moved > ids / 6 && moved < ids / 3, moved + " of " + ids + " moved");
+    }
+
+    @Test
+    void parsesNodesAndAssignsOwners() {
+        Map<String, String> nodes = Cluster.parseNodes("a=127.0.0.1:8080, b=127.0.0.1:8081");
+        assertEquals(Map.of("a", "127.0.0.1:8080", "b", "127.0.0.1:8081"), nodes);
+        assertThrows(IllegalArgumentException.class, () -> Cluster.parseNodes("a=127.0.0.1"));
+        Cluster a = new Cluster("a", nodes, 16, new InMemoryBus());
+        Cluster b = new Cluster("b", nodes, 16, new InMemoryBus());
+        for (int i = 0; i < 100; i++) {
+            String id = "r" + i;
+            assertEquals(a.owner(id), b.owner(id));
+            assertTrue(a.isLocal(id) != b.isLocal(id));
+            assertTrue(Cluster.standalone().isLocal(id));
+        }
+    }
+
+    @Test
+    void tcpBusCarriesEventsInOrderOnlyToSubscribedNodes() throws Exception {
+        Map<String, InetSocketAddress> peers = Map.of("a", new InetSocketAddress("127.0.0.1", freePort()),
+                "b", new InetSocketAddress("127.0.0.1", freePort()));
+        try (TcpBus a = TcpBus.start("a", peers.get("a"), peers); TcpBus b = TcpBus.start("b", peers.get("b"), peers)) {
+            BlockingQueue<RoomEvent> received = new LinkedBlockingQueue<>();
+            EventBus.Subscription subscription = b.subscribe("room/x", received::add);
+
+            // The subscription reaches a once b's writer has connected
+            RoomEvent first = null;
+            for (int i = 0; i < 100 && first == null; i++) {
+                a.publish("room/x", new RoomEvent("x", "a", RoomEvent.Kind.INFO, "hello"));
+                first = received.poll(100, TimeUnit.MILLISECONDS);
+            }
+            assertNotNull(first, "b never got an event");
+            assertEquals("hello", first.frame());
+            Thread.sleep(200);
+            received.clear();
+
+            for (int i = 0; i < 1_000; i++) {
+                a.publish("room/x", new RoomEvent("x", "a", RoomEvent.Kind.DELTA, "{\"seq\":" + i + "}"));
+            }
+            for (int i = 0; i < 1_000; i++) {
+                RoomEvent e = received.poll(5, TimeUnit.SECONDS);
+                assertNotNull(e, "missing event " + i);
+                assertEquals("{\"seq\":" + i + "}", e.frame());
+            }
+
+            Counter sent = Metrics.getInstance().counter("chess_bus_events_sent_total", "");
+            long before = sent.get();
+            a.publish("room/y", new RoomEvent("y", "a", RoomEvent.Kind.CLOSED, null));
+            subscription.cancel();
+            Thread.sleep(200);
+            a.publish("room/x", new RoomEvent("x", "a", RoomEvent.Kind.CLOSED, null));
+            Thread.sleep(200);
+            assertEquals(before, sent.get(), "events went to a node without subscribers");
+            assertNull(received.poll());
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        }
+    }
+}
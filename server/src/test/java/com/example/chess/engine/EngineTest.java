@@ -0,0 +1,68 @@
+package com.example.chess.engine;
+
+import com.example.chess.game.Board;
+import com.example.chess.game.GameStatus;
+import com.example.chess.game.Moves;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EngineTest {
+
+    @Test
+    void solvesTheTacticalSuite() {
+        for (EngineBench.Tactic t : EngineBench.TACTICS) {
+            assertTrue(EngineBench.solves(new Engine(1), t), t.name());
+        }
+    }
+
+    @Test
+    void reportsForcedMates() {
+        Engine.Result r = new Engine(1).search(Board.fromFen("7k/8/8/8/8/8/R7/1R5K w - - 0 1"), 4);
+        assertTrue(r.isMate() && r.score() > 0, "white mates: " + r);
+        Engine.Result stalemated = new Engine(1).search(Board.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"), 3);
+        assertEquals(Moves.NONE, stalemated.move(), "no legal move to play");
+    }
+
+    @Test
+    void alwaysReturnsALegalMoveWithinItsBudget() {
+        Board board = Board.initial();
+        Engine engine = new Engine(1);
+        long start = System.nanoTime();
+        Engine.Result r = engine.think(board, 50);
+        assertTrue(System.nanoTime() - start < 2_000_000_000L, "search overran its budget");
+        assertNotEquals(Moves.NONE, r.move());
+        assertTrue(r.depth() >= 1);
+        assertTrue(board.applyMoveIfLegal(Moves.toMove(r.move())));
+    }
+
+    @Test
+    void parallelSearchSharesItsTableAndAgreesOnTactics() {
+        Engine engine = new Engine(1);
+        for (EngineBench.Tactic t : EngineBench.TACTICS) {
+            engine.clear();
+            Engine.Result r = engine.search(Board.fromFen(t.fen()), t.depth(), 4);
+            assertTrue(List.of(t.best()).contains(Moves.toUci(r.move())), t.name() + ": " + r);
+        }
+        Board board = Board.initial();
+        Engine.Result r = engine.think(board, 50, 3);
+        assertNotEquals(Moves.NONE, r.move());
+        assertTrue(board.applyMoveIfLegal(Moves.toMove(r.move())));
+    }
+
+    @Test
+    void quickMovesAreLegalAndNeverSearch() {
+        EnginePool pool = new EnginePool(1, 1, 1, 50, null, null);
+        Board board = Board.initial();
+        for (int i = 0; i < 20 && board.status() == GameStatus.ONGOING; i++) {
+            Engine.Result r = pool.quickMove(board);
+            assertEquals(0, r.nodes());
+            assertTrue(board.applyMoveIfLegal(Moves.toMove(r.move())), Moves.toUci(r.move()));
+        }
+        assertEquals(Moves.NONE, pool.quickMove(Board.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1")).move());
+    }
+}
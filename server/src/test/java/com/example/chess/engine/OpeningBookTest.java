@@ -0,0 +1,140 @@
+package com.example.chess.engine;
+
+import com.example.chess.archive.GameRecord;
+import com.example.chess.game.Board;
+import com.example.chess.game.Moves;
+import com.example.chess.game.San;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpeningBookTest {
+
+    @TempDir
+    Path dir;
+
+    private static GameRecord game(String result, String... san) {
+        Board board = Board.initial();
+        San parser = new San();
+        int[] moves = new int[san.length];
+        for (int i = 0; i < san.length; i++) {
+            int m = parser.parse(board, san[i]);
+            board.makeMove(m);
+            moves[i] = m & 0x7FFF; // as archived: without the flag
+        }
+        return new GameRecord("w", "b", 0, result, moves);
+    }
+
+    private static Board after(String... san) {
+        Board board = Board.initial();
+        San parser = new San();
+        for (String s : san) board.makeMove(parser.parse(board, s));
+        return board;
+    }
+
+    private OpeningBook build(int minGames) throws Exception {
+        BookBuilder builder = new BookBuilder(12, minGames);
+        for (int i = 0; i < 3; i++) {
+            builder.add(game(GameRecord.WHITE_WINS, "e4", "e5", "Nf3", "Nc6", "Bc4", "Bc5", "O-O"));
+        }
+        builder.add(game(GameRecord.DRAW, "d4", "d5"));
+        builder.add(game(GameRecord.BLACK_WINS, "c4"));
+        Path file = dir.resolve("book.bin");
+        int entries = builder.write(file);
+        assertEquals(entries * OpeningBook.ENTRY_BYTES, Files.size(file));
+        return OpeningBook.open(file);
+    }
+
+    @Test
+    void weightsMovesByResultAndDecodesCastling() throws Exception {
+        OpeningBook book = build(1);
+        List<OpeningBook.BookMove> start = book.lookup(Board.initial());
+        assertEquals(List.of("e2-e4", "d2-d4", "c2-c4"), start.stream().map(b -> b.move().toString()).toList());
+        assertEquals(List.of(6, 1, 0), start.stream().map(OpeningBook.BookMove::weight).toList());
+
+        Board italian = after("e4", "e5", "Nf3", "Nc6", "Bc4", "Bc5");
+        int castle = book.choose(italian, new SplittableRandom(1));
+        assertEquals(Moves.FLAG_CASTLE, Moves.flag(castle));
+        assertEquals("e1g1", Moves.toUci(castle));
+        assertEquals(Moves.NONE, book.choose(after("a3"), new SplittableRandom(1)), "not in the book");
+        assertEquals(0, book.lookup(after("e4", "e5", "Nf3", "Nc6", "Bc4", "Bc5", "O-O", "Nf6")).size());
+    }
+
+    @Test
+    void dropsRareMovesAndNeverPicksWeightlessOnes() throws Exception {
+        OpeningBook book = build(2);
+        assertEquals(List.of("e2-e4"), book.lookup(Board.initial()).stream().map(b -> b.move().toString()).toList());
+
+        OpeningBook all = build(1);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 200; i++) {
+            assertNotEquals("c2c4", Moves.toUci(all.choose(Board.initial(), random)), "c4 only ever lost");
+        }
+    }
+
+    @Test
+    void probesWithoutAllocating() throws Exception {
+        OpeningBook book = build(1);
+        Board board = after("e4", "e5");
+        int[] moves = new int[8], weights = new int[8];
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 20_000; i++) { // warm up, and create the per-thread buffers
+            book.probe(board, moves, weights);
+            book.choose(board, random);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        int found = 0;
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 20_000; i++) {
+            found += book.probe(board, moves, weights);
+            if (book.choose(board, random) != Moves.NONE) found++;
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+        assertEquals(40_000, found);
+        // Any allocation per probe would be at least 16 bytes each; allow a little fixed noise
+        assertTrue(allocated < 40_000, "probes allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void keysMatchPolyglotsReferenceValues() {
+        assertEquals(0x463b96181691fc9cL, PolyglotKey.of(Board.initial()));
+        String[][] reference = {
+                {"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", "823c9b50fd114196"},
+                {"rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2", "0756b94461c50fb0"},
+                {"rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2", "662fafb965db29d4"},
+                {"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3", "22a48b5a8e47ff78"},
+                {"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3", "652a607ca3f242c1"},
+                {"rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4", "00fdd303c946bdd9"},
+                {"rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3", "3c8123ea7b067637"},
+                {"rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4", "5c3f9b829b279560"},
+        };
+        for (String[] r : reference) {
+            assertEquals(Long.parseUnsignedLong(r[1], 16), PolyglotKey.of(Board.fromFen(r[0])), r[0]);
+        }
+        assertEquals(PolyglotKey.of(after("e4")), PolyglotKey.of(Board.fromFen(reference[0][0])), "e3 kept");
+    }
+
+    @Test
+    void readsBooksWrittenElsewhere() throws Exception {
+        Path file = dir.resolve("third-party.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeLong(0x463b96181691fc9cL); // the start position, as any Polyglot tool keys it
+            out.writeShort(28 | 12 << 6); // e2e4
+            out.writeShort(10);
+            out.writeInt(0);
+        }
+        List<OpeningBook.BookMove> start = OpeningBook.open(file).lookup(Board.initial());
+        assertEquals(List.of("e2-e4"), start.stream().map(b -> b.move().toString()).toList());
+    }
+}
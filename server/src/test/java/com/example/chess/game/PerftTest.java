@@ -0,0 +1,53 @@
+package com.example.chess.game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PerftTest {
+
+    // Keeps every position under roughly a million nodes so the suite stays fast
+    private static final long NODE_BUDGET = 1_000_000L;
+
+    @Test
+    void referencePositionsMatchPublishedCounts() {
+        for (Perft.Reference ref : Perft.REFERENCE_POSITIONS) {
+            Board board = Board.fromFen(ref.fen());
+            for (int depth = 1; depth <= ref.nodes().length && ref.nodes()[depth - 1] <= NODE_BUDGET; depth++) {
+                assertEquals(ref.nodes()[depth - 1], Perft.perft(board, depth), ref.name() + " depth " + depth);
+                assertEquals(ref.fen(), board.toFen(), ref.name() + " not restored");
+            }
+        }
+    }
+
+    @Test
+    void applyMoveIfLegalHandlesCastlingAndEnPassant() {
+        Board board = Board.fromFen("r3k2r/8/8/8/3p4/8/4P3/R3K2R w KQkq - 0 1");
+        assertEquals(true, board.applyMoveIfLegal(new Move(Position.fromAlgebraic("e2"), Position.fromAlgebraic("e4"))));
+        assertEquals(Moves.FLAG_DOUBLE_PUSH, Moves.flag(board.lastMove()));
+        assertEquals(true, board.applyMoveIfLegal(new Move(Position.fromAlgebraic("d4"), Position.fromAlgebraic("e3"))));
+        assertEquals(null, board.get(Position.fromAlgebraic("e4")));
+        assertEquals(Moves.FLAG_EN_PASSANT, Moves.flag(board.lastMove()));
+        assertEquals(true, board.applyMoveIfLegal(new Move(Position.fromAlgebraic("e1"), Position.fromAlgebraic("g1"))));
+        assertEquals("r3k2r/8/8/8/8/4p3/8/R4RK1 b kq - 1 2", board.toFen());
+        assertEquals(Moves.of(4, 6, null, Moves.FLAG_CASTLE), board.lastMove());
+    }
+
+    @Test
+    void lastMoveRecordsThePromotionPlayed() {
+        Board board = Board.fromFen("4k3/1P6/8/8/8/8/8/4K3 w - - 0 1");
+        Position b7 = Position.fromAlgebraic("b7"), b8 = Position.fromAlgebraic("b8");
+        assertEquals(Moves.NONE, board.lastMove());
+        Board omitted = board.copy();
+        assertEquals(true, omitted.applyMoveIfLegal(b7, b8, null));
+        assertEquals(Moves.of(49, 57, Type.QUEEN, Moves.FLAG_NORMAL), omitted.lastMove());
+        Board king = board.copy();
+        king.applyMoveIfLegal(b7, b8, Type.KING);
+        assertEquals(Type.QUEEN, Moves.promotion(king.lastMove()));
+        Board knight = board.copy();
+        knight.applyMoveIfLegal(b7, b8, Type.KNIGHT);
+        assertEquals(Type.KNIGHT, Moves.promotion(knight.lastMove()));
+        assertEquals(true, knight.applyMoveIfLegal(Position.fromAlgebraic("e8"), Position.fromAlgebraic("e7"), Type.ROOK));
+        assertEquals(Moves.of(60, 52), knight.lastMove(), "no promotion on a king move");
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.chess.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZobristTest {
+
+    @Test
+    void incrementalKeyMatchesRecomputedKeyAlongRandomGames() {
+        SplittableRandom rnd = new SplittableRandom(7);
+        int[] moves = new int[Moves.MAX_MOVES];
+        for (Perft.Reference ref : Perft.REFERENCE_POSITIONS) {
+            Board board = Board.fromFen(ref.fen());
+            for (int i = 0; i < 200; i++) {
+                int n = board.generateLegalMoves(moves);
+                if (n == 0) break;
+                board.makeMove(moves[rnd.nextInt(n)]);
+                assertEquals(board.computeKey(), board.getKey(), ref.name() + " after " + board.toFen());
+            }
+        }
+    }
+
+    @Test
+    void transpositionsShareAKey() {
+        Board a = Board.initial();
+        play(a, "g1f3", "g8f6", "b1c3");
+        Board b = Board.initial();
+        play(b, "b1c3", "g8f6", "g1f3");
+        assertEquals(a.getKey(), b.getKey());
+        assertNotEquals(Board.initial().getKey(), a.getKey());
+    }
+
+    @Test
+    void detectsThreefoldRepetitionAndFiftyMoveRule() {
+        Board board = Board.initial();
+        for (int i = 0; i < 2; i++) {
+            assertFalse(board.isThreefoldRepetition());
+            play(board, "g1f3", "g8f6", "f3g1", "f6g8");
+        }
+        assertTrue(board.isThreefoldRepetition());
+        assertEquals(GameStatus.THREEFOLD_REPETITION, board.status());
+
+        Board quiet = Board.fromFen("8/8/4k3/8/8/4K3/8/R7 w - - 99 80");
+        assertFalse(quiet.isFiftyMoveRule());
+        play(quiet, "a1a2");
+        assertEquals(GameStatus.FIFTY_MOVE_RULE, quiet.status());
+    }
+
+    private static void play(Board board, String... uci) {
+        for (String m : uci) {
+            Move move = new Move(Position.fromAlgebraic(m.substring(0, 2)), Position.fromAlgebraic(m.substring(2, 4)));
+            assertTrue(board.applyMoveIfLegal(move), m);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.chess.journal;
+
+import com.example.chess.game.Color;
+import com.example.chess.game.GameStatus;
+import com.example.chess.game.Moves;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalTest {
+    private static final int SEGMENT = 1 << 20;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void liveRoomsAndTheirMovesSurviveAReopen() throws Exception {
+        int e4 = Moves.of(12, 28), e5 = Moves.of(52, 36);
+        try (Journal journal = Journal.open(dir, SEGMENT, 5)) {
+            Journal.RoomLog game = journal.create("game");
+            game.joined(Color.WHITE);
+            game.moved(e4);
+            game.moved(e5);
+            Journal.RoomLog gone = journal.create("gone");
+            gone.moved(e4);
+            gone.closed();
+            gone.moved(e5); // a closed room's log ignores late appends
+            Journal.RoomLog done = journal.create("done");
+            done.finished(GameStatus.STALEMATE);
+        }
+        try (Journal journal = Journal.open(dir, SEGMENT, 5)) {
+            List<Journal.RoomLog> rooms = journal.rooms();
+            assertEquals(List.of("game", "done"), rooms.stream().map(Journal.RoomLog::id).toList());
+            assertArrayEquals(new int[]{e4, e5}, rooms.get(0).moves());
+            assertEquals(GameStatus.STALEMATE, rooms.get(1).status());
+        }
+    }
+
+    @Test
+    void fullSegmentsAreCompactedInTheBackground() throws Exception {
+        int moves = 0;
+        try (Journal journal = Journal.open(dir, SEGMENT, 5)) {
+            Journal.RoomLog kept = journal.create("kept");
+            // Churn through rooms until several segments' worth has been written
+            for (int i = 0; i < 40_000; i++) {
+                Journal.RoomLog temp = journal.create("temp-" + i);
+                temp.moved(Moves.of(12, 28));
+                temp.closed();
+                if (i % 100 == 0) {
+                    kept.moved(Moves.of(i % 64, (i + 1) % 64));
+                    moves++;
+                }
+            }
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (files(".log") > 2 && System.nanoTime() < deadline) Thread.sleep(5);
+            assertTrue(files(".log") <= 2, "older segments are deleted once a snapshot covers them");
+            assertEquals(1, files(".snap"));
+        }
+        try (Journal journal = Journal.open(dir, SEGMENT, 5)) {
+            assertEquals(1, journal.rooms().size());
+            assertEquals(moves, journal.rooms().get(0).moves().length);
+        }
+    }
+
+    @Test
+    void replaysAppendsAfterTheSnapshotPosition() throws Exception {
+        int e4 = Moves.of(12, 28), e5 = Moves.of(52, 36);
+        try (Journal journal = Journal.open(dir, SEGMENT, 5)) {
+            journal.create("game").moved(e4);
+        }
+        try (Journal journal = Journal.open(dir, SEGMENT, 5)) { // snapshots the game, then appends after it
+            journal.rooms().get(0).moved(e5);
+            journal.create("next");
+        }
+        try (Journal journal = Journal.open(dir, SEGMENT, 5)) {
+            assertEquals(List.of("game", "next"), journal.rooms().stream().map(Journal.RoomLog::id).toList());
+            assertArrayEquals(new int[]{e4, e5}, journal.rooms().get(0).moves());
+        }
+    }
+
+    private long files(String suffix) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(suffix)).count();
+        }
+    }
+
+    @Test
+    void recoveryStopsAtATornRecord() throws Exception {
+        try (Journal journal = Journal.open(dir, SEGMENT, 5)) {
+            Journal.RoomLog game = journal.create("game");
+            game.moved(Moves.of(12, 28));
+            game.moved(Moves.of(52, 36));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(p -> p.toString().endsWith(".log")).sorted().reduce((a, b) -> b).orElseThrow();
+        }
+        // Corrupt the last byte written (inside the second move's record)
+        try (RandomAccessFile f = new RandomAccessFile(segment.toFile(), "rw")) {
+            long end = 0;
+            for (int len = f.readInt(); len != 0; len = f.readInt()) {
+                end += 8 + len;
+                f.seek(end);
+            }
+            f.seek(end - 1);
+            f.write(0x5a);
+        }
+        try (Journal journal = Journal.open(dir, SEGMENT, 5)) {
+            assertArrayEquals(new int[]{Moves.of(12, 28)}, journal.rooms().get(0).moves());
+        }
+    }
+}
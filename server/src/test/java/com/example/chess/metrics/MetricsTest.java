@@ -0,0 +1,81 @@
+package com.example.chess.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+
+    @Test
+    void bucketsCoverEveryValueWithinAnEighth() {
+        for (int i = 0; i < 100_000; i++) {
+            long v = ThreadLocalRandom.current().nextLong(1L << (ThreadLocalRandom.current().nextInt(40) + 1));
+            int b = Histogram.bucket(v);
+            long upper = Histogram.upperBound(b);
+            long lower = b == 0 ? 0 : Histogram.upperBound(b - 1);
+            assertTrue(lower <= v && v < upper, v + " outside bucket " + b + " [" + lower + ", " + upper + ")");
+            assertTrue(upper - lower <= Math.max(1, lower / 8), "bucket " + b + " too wide");
+        }
+        assertEquals(Histogram.BUCKETS - 1, Histogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    void quantilesAreWithinTheBucketError() {
+        Histogram h = new Histogram();
+        for (long v = 1; v <= 10_000; v++) h.record(v * 1_000);
+        assertEquals(10_000, h.count());
+        assertEquals(50_005_000_000L, h.sum());
+        for (double q : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            double exact = q * 10_000_000;
+            long estimate = h.quantile(q);
+            assertTrue(estimate >= exact && estimate <= exact * 1.125, q + ": " + estimate + " for " + exact);
+        }
+    }
+
+    @Test
+    void scrapesInThePrometheusTextFormat() {
+        Metrics metrics = new Metrics();
+        metrics.counter("test_events_total", "Events.").add(3);
+        metrics.gauge("test_open", "Open things.", () -> 7);
+        metrics.gauge("test_backlog", "Backlog.", "room", () -> Map.of("a\"b", 2L));
+        Histogram h = metrics.histogram("test_latency_seconds", "Latency.");
+        h.record(1_500);
+        h.record(3_000_000_000L);
+
+        String text = metrics.scrape();
+        assertTrue(text.contains("# TYPE test_events_total counter\ntest_events_total 3\n"), text);
+        assertTrue(text.contains("# TYPE test_open gauge\ntest_open 7\n"), text);
+        assertTrue(text.contains("test_backlog{room=\"a\\\"b\"} 2\n"), text);
+        assertTrue(text.contains("test_latency_seconds_bucket{le=\"0.000001024\"} 0\n"), text);
+        assertTrue(text.contains("test_latency_seconds_bucket{le=\"0.000002048\"} 1\n"), text);
+        assertTrue(text.contains("test_latency_seconds_bucket{le=\"2.147483648\"} 1\n"), text);
+        assertTrue(text.contains("test_latency_seconds_bucket{le=\"4.294967296\"} 2\n"), text);
+        assertTrue(text.contains("test_latency_seconds_bucket{le=\"+Inf\"} 2\n"), text);
+        assertTrue(text.contains("test_latency_seconds_sum 3.0000015\ntest_latency_seconds_count 2\n"), text);
+    }
+
+    @Test
+    void servesTheScrapeOverHttp() throws Exception {
+        Metrics metrics = new Metrics();
+        metrics.counter("test_requests_total", "Requests.").increment();
+        MetricsServer server = MetricsServer.start("127.0.0.1", 0, metrics);
+        try {
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + "/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain; version=0.0.4"));
+            assertEquals(metrics.scrape(), response.body());
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.chess.service;
+
+import com.example.chess.clock.TimeControl;
+import com.example.chess.clock.TimingWheel;
+import com.example.chess.cluster.Cluster;
+import com.example.chess.cluster.InMemoryBus;
+import com.example.chess.journal.Journal;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GameRoomManagerTest {
+
+    private static Session session(String id) {
+        Session s = mock(Session.class);
+        when(s.getId()).thenReturn(id);
+        when(s.getUserProperties()).thenReturn(new HashMap<>());
+        return s;
+    }
+
+    /** A session whose frames are sent at once and collected in {@code received}. */
+    private static Session connected(String id, Queue<String> received) {
+        Session s = session(id);
+        RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+        doAnswer(call -> {
+            received.add(call.getArgument(0));
+            call.<SendHandler>getArgument(1).onResult(new SendResult());
+            return null;
+        }).when(remote).sendText(anyString(), any(SendHandler.class));
+        when(s.getAsyncRemote()).thenReturn(remote);
+        return s;
+    }
+
+    private static void await(Queue<String> received, Predicate<String> frame) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            if (received.stream().anyMatch(frame)) return;
+            Thread.sleep(10);
+        }
+        throw new AssertionError("no matching frame in " + received);
+    }
+
+    @Test
+    void emptyRoomsAreRemovedAndTheCapIsEnforced() {
+        GameRoomManager manager = new GameRoomManager(new RoomExecutor(1), Journal.disabled(), null, null, new MoveHints(64), Cluster.standalone(), TimingWheel.start(10), 2, 60_000, 60_000, 60_000);
+        Session a = session("a");
+        Session b = session("b");
+        GameRoom first = manager.join("one", a);
+        assertNotNull(first);
+        assertNotNull(manager.join("two", b));
+        assertNull(manager.join("three", session("c")), "third room should be refused");
+        assertSame(first, manager.join("one", session("d")), "existing rooms still admit joins");
+        assertEquals(3, manager.sessions(), "the refused session is not counted");
+
+        manager.leave(manager.find("two"), b);
+        assertNull(manager.find("two"));
+        assertEquals(1, manager.size());
+        assertEquals(2, manager.sessions());
+        assertNotNull(manager.join("three", session("e")));
+    }
+
+    @Test
+    void sweeperClosesIdleRoomsAndTheirSessions() throws Exception {
+        GameRoomManager manager = new GameRoomManager(new RoomExecutor(1), Journal.disabled(), null, null, new MoveHints(64), Cluster.standalone(), TimingWheel.start(10), 10, 1_000, 1_000, 60_000);
+        Session a = session("a");
+        GameRoom room = manager.join("idle", a);
+        manager.sweep(room.lastActivityNanos() + TimeUnit.MILLISECONDS.toNanos(500));
+        assertSame(room, manager.find("idle"));
+
+        manager.sweep(room.lastActivityNanos() + TimeUnit.SECONDS.toNanos(2));
+        assertNull(manager.find("idle"));
+        assertEquals(0, manager.size());
+        verify(a, timeout(1_000)).close(any()); // on the room's shard
+        assertNotSame(room, manager.join("idle", session("b")), "a retired room is never rejoined");
+    }
+
+    @Test
+    void spectatorsOnAnotherNodeFollowTheGameOverTheBus() throws Exception {
+        InMemoryBus bus = new InMemoryBus();
+        Map<String, String> nodes = Map.of("a", "127.0.0.1:8080", "b", "127.0.0.1:8081");
+        Cluster a = new Cluster("a", nodes, 16, bus);
+        Cluster b = new Cluster("b", nodes, 16, bus);
+        GameRoomManager owner = new GameRoomManager(new RoomExecutor(1), Journal.disabled(), null, null, new MoveHints(64), a, TimingWheel.start(10), 10, 60_000, 60_000, 60_000);
+        GameRoomManager other = new GameRoomManager(new RoomExecutor(1), Journal.disabled(), null, null, new MoveHints(64), b, TimingWheel.start(10), 10, 60_000, 60_000, 60_000);
+        String id = "room";
+        for (int i = 0; !a.isLocal(id); i++) id = "room-" + i;
+
+        Queue<String> toWatcher = new ConcurrentLinkedQueue<>();
+        Session white = connected("white", new ConcurrentLinkedQueue<>());
+        Session black = connected("black", new ConcurrentLinkedQueue<>());
+        Session watcher = connected("watcher", toWatcher);
+        GameRoom room = owner.join(id, white);
+        owner.join(id, black);
+        RemoteRoom remote = other.watch(id, watcher);
+        assertEquals("a", remote.owner());
+        await(toWatcher, f -> f.contains("\"type\":\"state\"") && f.contains("\"self\":\"SPECTATOR\""));
+
+        // Snapshots go to the spectators waiting for one, not to everyone watching from that node
+        Queue<String> toLate = new ConcurrentLinkedQueue<>();
+        Session late = connected("late", toLate);
+        assertSame(remote, other.watch(id, late));
+        for (int i = 0; i < 20; i++) remote.handleMessage(late, "{\"type\":\"resync\"}");
+        await(toLate, f -> f.contains("\"type\":\"state\""));
+        Thread.sleep(50);
+        assertEquals(1, toWatcher.stream().filter(f -> f.contains("\"type\":\"state\"")).count());
+        other.leave((Room) remote, late);
+
+        room.handleMessage(white, "{\"type\":\"move\",\"from\":\"e2\",\"to\":\"e4\"}");
+        await(toWatcher, f -> f.contains("\"type\":\"delta\"") && f.contains("\"seq\":1"));
+        remote.handleMessage(watcher, "{\"type\":\"move\",\"from\":\"e7\",\"to\":\"e5\"}");
+        await(toWatcher, f -> f.contains("Spectators cannot move."));
+
+        // The watching node keeps the room open after its players leave, until its own spectator goes
+        owner.leave(room, white);
+        owner.leave(room, black);
+        assertSame(room, owner.find(id));
+        other.leave((Room) remote, watcher);
+        assertNull(owner.find(id));
+        assertEquals(0, owner.size());
+        assertEquals(0, other.size());
+        assertTrue(toWatcher.stream().noneMatch(f -> f.contains("\"seq\":2")));
+    }
+
+    @Test
+    void theSideToMoveLosesWhenItsFlagFalls() throws Exception {
+        GameRoomManager manager = new GameRoomManager(new RoomExecutor(1), Journal.disabled(), null, null, new MoveHints(64), Cluster.standalone(), TimingWheel.start(1), 10, 60_000, 60_000, 60_000);
+        Queue<String> toWhite = new ConcurrentLinkedQueue<>();
+        Session white = connected("white", toWhite);
+        Session black = connected("black", new ConcurrentLinkedQueue<>());
+        GameRoom room = manager.join("timed", white);
+        manager.join("timed", black);
+        room.handleMessage(white, "{\"type\":\"clock\",\"control\":\"0.005+0\"}");
+        await(toWhite, f -> f.contains("\"control\":\"0.005+0\"") && f.contains("\"running\":\"WHITE\""));
+        room.handleMessage(black, "{\"type\":\"clock\",\"control\":\"5\"}");
+        room.handleMessage(white, "{\"type\":\"move\",\"from\":\"e2\",\"to\":\"e4\"}");
+        await(toWhite, f -> f.contains("\"type\":\"delta\"") && f.contains("\"running\":\"BLACK\""));
+        await(toWhite, f -> f.contains("\"status\":\"TIMEOUT\"") && f.contains("Black ran out of time. White wins."));
+        room.handleMessage(black, "{\"type\":\"move\",\"from\":\"e7\",\"to\":\"e5\"}");
+        room.handleMessage(white, "{\"type\":\"clock\",\"control\":\"5+0\"}");
+        await(toWhite, f -> f.contains("only be set before the first move"));
+        assertTrue(toWhite.stream().noneMatch(f -> f.contains("\"seq\":2")));
+    }
+
+    @Test
+    void matchedSeeksAreSeatedInANewRoom() throws Exception {
+        GameRoomManager manager = new GameRoomManager(new RoomExecutor(1), Journal.disabled(), null, null, new MoveHints(64), Cluster.standalone(), TimingWheel.start(10), 10, 60_000, 60_000, 60_000);
+        Matchmaker matchmaker = new Matchmaker(100, 50, 400, 250, manager::startMatch);
+        Queue<String> toAnn = new ConcurrentLinkedQueue<>();
+        Queue<String> toBob = new ConcurrentLinkedQueue<>();
+        Seek ann = matchmaker.seek(connected("ann", toAnn), "Ann", 1500, TimeControl.parse("3+2"));
+        Seek bob = matchmaker.seek(connected("bob", toBob), "Bob", 1530, TimeControl.parse("3+2"));
+        Room room = ann.room();
+        assertNotNull(room);
+        assertSame(room, bob.room());
+        assertSame(room, manager.find(room.id()));
+        assertEquals(2, manager.sessions());
+        await(toAnn, f -> f.contains("Welcome to room " + room.id()) && f.contains("\"control\":\"3+2\""));
+        await(toBob, f -> f.contains("Bob (") && f.contains(") joined."));
+        String white = toAnn.stream().anyMatch(f -> f.contains("\"self\":\"WHITE\"")) ? "Ann" : "Bob";
+        await(white.equals("Ann") ? toBob : toAnn, f -> f.contains("\"self\":\"BLACK\""));
+        room.handleMessage((white.equals("Ann") ? ann : bob).session, "{\"type\":\"move\",\"from\":\"e2\",\"to\":\"e4\"}");
+        await(toAnn, f -> f.contains("\"type\":\"delta\""));
+
+        // A session that closes while its seek is being paired is taken back out of the room
+        Seek carl = matchmaker.seek(session("carl"), "Carl", 2000, null);
+        assertNull(carl.close());
+        Seek dora = matchmaker.seek(connected("dora", new ConcurrentLinkedQueue<>()), "Dora", 2000, null);
+        assertNotNull(dora.room());
+        assertEquals(3, manager.sessions());
+    }
+
+    @Test
+    void aDeeplyNestedFrameDoesNotStopTheRoom() throws Exception {
+        GameRoomManager manager = new GameRoomManager(new RoomExecutor(1), Journal.disabled(), null, null, new MoveHints(64), Cluster.standalone(), TimingWheel.start(10), 10, 60_000, 60_000, 60_000);
+        Queue<String> toWhite = new ConcurrentLinkedQueue<>();
+        Session white = connected("white", toWhite);
+        GameRoom room = manager.join("nested", white);
+        await(toWhite, f -> f.contains("\"type\":\"state\""));
+        toWhite.clear();
+        room.handleMessage(white, "{\"type\":\"resync\",\"x\":" + "[".repeat(4_000) + "]".repeat(4_000) + "}");
+        room.handleMessage(white, "{\"type\":\"resync\"}");
+        for (int i = 0; i < 200 && toWhite.size() < 2; i++) Thread.sleep(10);
+        assertEquals(2, toWhite.stream().filter(f -> f.contains("\"type\":\"state\"")).count());
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.chess.service;
+
+import com.example.chess.clock.TimeControl;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchmakerTest {
+    private final List<Seek[]> pairs = new CopyOnWriteArrayList<>();
+    private final Matchmaker matchmaker = new Matchmaker(100, 50, 400, 250,
+            (white, black) -> pairs.add(new Seek[] {white, black}));
+
+    @Test
+    void pairsNearRatingsOfTheSameTimeControl() {
+        TimeControl blitz = TimeControl.parse("5+3");
+        Seek a = matchmaker.seek(null, "a", 1500, blitz);
+        Seek untimed = matchmaker.seek(null, "u", 1510, null);
+        Seek rapid = matchmaker.seek(null, "r", 1520, TimeControl.parse("15+10"));
+        Seek far = matchmaker.seek(null, "f", 1750, blitz);
+        assertTrue(pairs.isEmpty());
+        assertEquals(4, matchmaker.waiting());
+
+        Seek b = matchmaker.seek(null, "b", 1580, blitz);
+        assertEquals(1, pairs.size());
+        assertEquals(Set.of(a, b), Set.of(pairs.get(0)));
+        assertEquals(3, matchmaker.waiting());
+
+        assertTrue(matchmaker.cancel(untimed));
+        assertFalse(matchmaker.cancel(untimed));
+        assertFalse(matchmaker.cancel(a), "already paired");
+        matchmaker.seek(null, "v", 1500, null);
+        assertEquals(1, pairs.size(), "a cancelled seek is never paired");
+        assertEquals(3, matchmaker.waiting(), "rapid, far and v wait");
+        assertTrue(rapid.state.get() == Seek.WAITING && far.state.get() == Seek.WAITING);
+    }
+
+    @Test
+    void windowsWidenWhileSeeksWait() {
+        Seek low = matchmaker.seek(null, "low", 1200, null);
+        Seek high = matchmaker.seek(null, "high", 1450, null);
+        long now = System.nanoTime();
+        assertEquals(100, matchmaker.window(low, low.since));
+        assertEquals(400, matchmaker.window(low, low.since + TimeUnit.MINUTES.toNanos(1)));
+        matchmaker.sweep(now + TimeUnit.SECONDS.toNanos(1));
+        assertTrue(pairs.isEmpty(), "150 apart is still too far after a second");
+        matchmaker.sweep(now + TimeUnit.SECONDS.toNanos(4));
+        assertEquals(1, pairs.size());
+        assertEquals(Set.of(low, high), Set.of(pairs.get(0)));
+        assertEquals(0, matchmaker.waiting());
+    }
+
+    @Test
+    void concurrentSeeksArePairedExactlyOnce() throws Exception {
+        int threads = 4;
+        int perThread = 5_000;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger cancelled = new AtomicInteger();
+        List<Seek> all = new CopyOnWriteArrayList<>();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < perThread; i++) {
+                    Seek seek = matchmaker.seek(null, null, 1400 + random.nextInt(200), null);
+                    all.add(seek);
+                    if (random.nextInt(10) == 0 && matchmaker.cancel(seek)) cancelled.incrementAndGet();
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread w : workers) w.join();
+
+        Set<Seek> seen = ConcurrentHashMap.newKeySet();
+        for (Seek[] pair : pairs) {
+            assertNotEquals(pair[0], pair[1]);
+            assertTrue(seen.add(pair[0]) && seen.add(pair[1]), "a seek was paired twice");
+            assertTrue(Math.abs(pair[0].rating - pair[1].rating) <= 400);
+        }
+        assertEquals(threads * perThread, 2 * pairs.size() + cancelled.get() + matchmaker.waiting());
+        // Two seeks that looked at the same moment may each have skipped the other; the sweep pairs them
+        matchmaker.sweep(System.nanoTime());
+        List<Seek> left = all.stream().filter(s -> s.state.get() == Seek.WAITING).toList();
+        assertEquals(matchmaker.waiting(), left.size());
+        for (Seek x : left) {
+            for (Seek y : left) assertTrue(x == y || Math.abs(x.rating - y.rating) > 100, "left unpaired in range");
+        }
+    }
+}
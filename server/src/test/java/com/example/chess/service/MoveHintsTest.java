@@ -0,0 +1,83 @@
+package com.example.chess.service;
+
+import com.example.chess.game.Board;
+import com.example.chess.game.Moves;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoveHintsTest {
+    private final int[] buffer = new int[Moves.MAX_MOVES];
+
+    @Test
+    void listsDestinationsPerPieceOncePerPosition() {
+        MoveHints hints = new MoveHints(16);
+        String[][] start = hints.of(Board.initial(), buffer);
+        assertEquals(10, start.length, "eight pawns and two knights can move");
+        assertArrayEquals(new String[]{"b1", "a3", "c3"}, start[0]);
+        assertEquals(20, Arrays.stream(start).mapToInt(h -> h.length - 1).sum());
+        assertSame(start, hints.of(Board.initial(), buffer), "cached by position");
+
+        String[][] promotion = hints.of(Board.fromFen("8/P7/8/8/8/8/8/k6K w - - 0 1"), buffer);
+        assertEquals(List.of("a7", "a8"), List.of(promotion[1]), "four promotions, one destination");
+        assertEquals(0, hints.of(Board.fromFen("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1"), buffer).length, "mated");
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedPosition() {
+        MoveHints hints = new MoveHints(2);
+        Board a = Board.initial();
+        Board b = Board.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1");
+        Board c = Board.fromFen("rnbqkbnr/pppppppp/8/8/3P4/8/PPP1PPPP/RNBQKBNR b KQkq - 0 1");
+        String[][] first = hints.of(a, buffer);
+        String[][] second = hints.of(b, buffer);
+        hints.of(a, buffer); // a is now the most recent
+        hints.of(c, buffer); // evicts b
+        assertEquals(2, hints.size());
+        assertSame(first, hints.of(a, buffer));
+        assertNotSame(second, hints.of(b, buffer), "generated again");
+    }
+
+    @Test
+    void stripedCacheStaysBoundedUnderConcurrentRooms() throws Exception {
+        MoveHints hints = new MoveHints(256); // four segments of 64
+        Thread[] rooms = new Thread[4];
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        for (int t = 0; t < rooms.length; t++) {
+            long seed = t;
+            rooms[t] = new Thread(() -> {
+                int[] own = new int[Moves.MAX_MOVES];
+                int[] moves = new int[Moves.MAX_MOVES];
+                Random random = new Random(seed);
+                try {
+                    for (int game = 0; game < 50; game++) {
+                        Board board = Board.initial();
+                        for (int ply = 0; ply < 40; ply++) {
+                            String[][] hint = hints.of(board, own);
+                            int n = board.generateLegalMoves(moves);
+                            assertEquals(n == 0, hint.length == 0);
+                            if (n == 0) break;
+                            board.makeMove(moves[random.nextInt(n)]);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            rooms[t].start();
+        }
+        for (Thread room : rooms) room.join();
+        assertEquals(List.of(), failures);
+        assertTrue(hints.size() <= 256, "size " + hints.size());
+        assertSame(hints.of(Board.initial(), buffer), hints.of(Board.initial(), buffer));
+    }
+}
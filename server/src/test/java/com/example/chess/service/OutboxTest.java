@@ -0,0 +1,135 @@
+package com.example.chess.service;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxTest {
+    private static final int HIGH = 4;
+    private static final int LOW = 1;
+
+    private final List<String> sent = new ArrayList<>();
+    private final Queue<SendHandler> inFlight = new ArrayDeque<>(); // sends that complete when the test says
+    private final AtomicInteger resyncs = new AtomicInteger();
+    private final LongAdder backlog = new LongAdder();
+    private final Session session = slowSession();
+
+    private Session slowSession() {
+        Session s = mock(Session.class);
+        when(s.getId()).thenReturn("slow");
+        RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+        doAnswer(call -> {
+            sent.add(call.getArgument(0));
+            inFlight.add(call.getArgument(1));
+            return null;
+        }).when(remote).sendText(anyString(), any(SendHandler.class));
+        when(s.getAsyncRemote()).thenReturn(remote);
+        return s;
+    }
+
+    private Outbox outbox(long evictAfterMillis) {
+        return new Outbox(session, resyncs::incrementAndGet, backlog, HIGH, LOW, evictAfterMillis);
+    }
+
+    /** Completes the send in flight, which may start the next one. */
+    private void complete() {
+        inFlight.remove().onResult(new SendResult());
+    }
+
+    @Test
+    void coalescesDeltasAndAsksForOneSnapshotOnceDrained() throws Exception {
+        Outbox outbox = outbox(60_000);
+        outbox.offer("s0", Outbox.Kind.STATE); // in flight from here on
+        for (int i = 1; i <= HIGH; i++) outbox.offer("d" + i, Outbox.Kind.DELTA);
+        assertEquals(HIGH, outbox.backlog());
+        assertEquals(HIGH, backlog.sum());
+
+        outbox.offer("d5", Outbox.Kind.DELTA); // over the high watermark: every queued delta goes
+        assertEquals(0, outbox.backlog());
+        outbox.offer("d6", Outbox.Kind.DELTA);
+        outbox.offer("o1", Outbox.Kind.OTHER);
+        outbox.offer("o2", Outbox.Kind.OTHER);
+        outbox.offer("o3", Outbox.Kind.OTHER);
+        assertEquals(3, outbox.backlog(), "deltas wait for the snapshot, other frames do not");
+
+        complete(); // s0; two left, above the low watermark
+        assertEquals(0, resyncs.get());
+        complete(); // o1; one left
+        assertEquals(1, resyncs.get());
+        outbox.offer("d7", Outbox.Kind.DELTA);
+        complete();
+        complete();
+        assertEquals(1, resyncs.get(), "asked once");
+
+        outbox.offer("s1", Outbox.Kind.STATE);
+        complete();
+        outbox.offer("d8", Outbox.Kind.DELTA);
+        complete();
+        assertEquals(List.of("s0", "o1", "o2", "o3", "s1", "d8"), sent);
+        assertEquals(0, backlog.sum());
+        verify(session, never()).close(any(CloseReason.class));
+    }
+
+    @Test
+    void snapshotReplacesQueuedSnapshotsAndDeltas() {
+        Outbox outbox = outbox(60_000);
+        outbox.offer("s0", Outbox.Kind.STATE);
+        outbox.offer("d1", Outbox.Kind.DELTA);
+        outbox.offer("s1", Outbox.Kind.STATE);
+        outbox.offer("o", Outbox.Kind.OTHER);
+        outbox.offer("d2", Outbox.Kind.DELTA);
+        outbox.offer("s2", Outbox.Kind.STATE);
+        assertEquals(2, backlog.sum());
+        while (!inFlight.isEmpty()) complete();
+        assertEquals(List.of("s0", "o", "s2"), sent);
+        assertEquals(0, backlog.sum());
+        assertEquals(0, resyncs.get());
+    }
+
+    @Test
+    void evictsAtTwiceTheHighWatermark() throws Exception {
+        Outbox outbox = outbox(60_000);
+        outbox.offer("s0", Outbox.Kind.STATE);
+        for (int i = 1; i < 2 * HIGH; i++) outbox.offer("o" + i, Outbox.Kind.OTHER);
+        verify(session, never()).close(any(CloseReason.class));
+        outbox.offer("last", Outbox.Kind.OTHER);
+        verify(session).close(any(CloseReason.class));
+        assertEquals(0, backlog.sum());
+
+        outbox.offer("late", Outbox.Kind.OTHER);
+        complete(); // s0 completes after the eviction; nothing more is sent
+        assertEquals(List.of("s0"), sent);
+        assertEquals(0, backlog.sum());
+    }
+
+    @Test
+    void evictsWhenOverTheLimitTooLong() throws Exception {
+        Outbox outbox = outbox(20);
+        outbox.offer("s0", Outbox.Kind.STATE);
+        for (int i = 0; i <= HIGH; i++) outbox.offer("o" + i, Outbox.Kind.OTHER);
+        verify(session, never()).close(any(CloseReason.class));
+        Thread.sleep(40);
+        outbox.offer("o", Outbox.Kind.OTHER);
+        verify(session).close(any(CloseReason.class));
+        assertEquals(0, backlog.sum());
+    }
+}
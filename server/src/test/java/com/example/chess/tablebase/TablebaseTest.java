@@ -0,0 +1,79 @@
+package com.example.chess.tablebase;
+
+import com.example.chess.engine.Engine;
+import com.example.chess.game.Board;
+import com.example.chess.game.GameStatus;
+import com.example.chess.game.Moves;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TablebaseTest {
+
+    private static Tablebases tables;
+
+    @BeforeAll
+    static void generate() {
+        tables = new Tablebases();
+        TablebaseGenerator generator = new TablebaseGenerator(tables, 2);
+        for (String material : List.of("KQK", "KRK", "KPK")) generator.generate(material);
+    }
+
+    private static int longestWin(String name) {
+        int max = 0;
+        for (byte b : tables.table(name).values) {
+            if (Tablebases.wdl(b & 0xFF) == Tablebases.WIN) max = Math.max(max, Tablebases.movesToMate(b & 0xFF));
+        }
+        return max;
+    }
+
+    private static int probe(String fen) {
+        return tables.probe(Board.fromFen(fen));
+    }
+
+    @Test
+    void findsTheKnownLongestMates() {
+        assertEquals(List.of("KPvK", "KQvK", "KRvK"), List.copyOf(tables.names()));
+        assertEquals(10, longestWin("KQvK"));
+        assertEquals(16, longestWin("KRvK"));
+    }
+
+    @Test
+    void probesPositionsForEitherColor() {
+        assertEquals(Tablebases.value(Tablebases.LOSS, 0), probe("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1"), "mated");
+        assertEquals(Tablebases.DRAW, Tablebases.wdl(probe("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1")), "stalemate");
+        assertEquals(Tablebases.value(Tablebases.WIN, 1), probe("k7/8/1K6/8/8/8/8/6Q1 w - - 0 1"), "Qg8 mates");
+        assertEquals(Tablebases.value(Tablebases.LOSS, 0), probe("8/8/8/8/8/1k6/1q6/K7 w - - 0 1"), "black's queen");
+
+        assertEquals(Tablebases.WIN, Tablebases.wdl(probe("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1")), "king ahead of pawn");
+        assertEquals(Tablebases.LOSS, Tablebases.wdl(probe("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1")), "for black");
+        assertEquals(Tablebases.DRAW, Tablebases.wdl(probe("4k3/4P3/4K3/8/8/8/8/8 b - - 0 1")), "stalemate");
+        assertEquals(Tablebases.DRAW, Tablebases.wdl(probe("k7/8/K7/P7/8/8/8/8 w - - 0 1")), "rook pawn");
+        assertEquals(Tablebases.DRAW, Tablebases.wdl(probe("8/8/8/3k4/8/8/8/2B1K3 w - - 0 1")), "lone bishop");
+        assertEquals(Tablebases.NOT_FOUND, probe("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1"), "castling rights");
+        assertEquals(Tablebases.NOT_FOUND, probe(Board.START_FEN));
+    }
+
+    @Test
+    void engineMatesFromTheTablesAndTheyRoundTrip(@TempDir Path dir) throws Exception {
+        tables.save(dir);
+        Tablebases loaded = Tablebases.load(dir);
+        assertEquals(tables.names(), loaded.names());
+
+        Board board = Board.fromFen("8/8/8/4k3/8/8/8/R3K3 w - - 0 1");
+        int moves = Tablebases.movesToMate(loaded.probe(board));
+        Engine engine = new Engine(1, loaded);
+        for (int ply = 0; ply < 2 * moves - 1; ply++) {
+            int m = engine.search(board, 1).move();
+            assertTrue(m != Moves.NONE, "no move at ply " + ply);
+            assertTrue(board.applyMoveIfLegal(Moves.toMove(m)));
+        }
+        assertEquals(GameStatus.CHECKMATE, board.status(), "mate in " + moves + " played: " + board.toFen());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.chess.util;
+
+import com.example.chess.game.Board;
+import com.example.chess.ws.dto.ClientMessage;
+import com.example.chess.ws.dto.ServerMessage;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MessageCodecTest {
+    private final MessageCodec codec = MessageCodec.getInstance();
+
+    @Test
+    void encodesServerMessagesExactlyLikeYasson() throws Exception {
+        try (Jsonb jsonb = JsonbBuilder.create()) {
+            ServerMessage[] samples = {
+                    ServerMessage.state(0, Board.initial().toStringBoard(), "WHITE", "SPECTATOR", "ONGOING",
+                            new String[][]{{"b1", "a3", "c3"}, {"e2", "e3", "e4"}}, "Welcome to room r1."),
+                    ServerMessage.info("Ann \"the \\ rook\" joined.\n\t\u0001 ünïcode"),
+                    ServerMessage.error("Illegal move."),
+                    ServerMessage.delta(42, "e7", "f8", "QUEEN", "bN", new String[][]{{"e7", null}, {"f8", "wQ"}},
+                            "BLACK", "ONGOING", new String[0][], "Player (WHITE) played e7-f8."),
+                    timed(ServerMessage.delta(43, "g8", "f6", null, null, new String[][]{{"g8", null}, {"f6", "bN"}},
+                            "WHITE", "ONGOING", null, null), ServerMessage.Clock.of(299_500, 301_250, "WHITE", "5+3")),
+                    timed(ServerMessage.error("Not your turn."), ServerMessage.Clock.of(0, 1, null, "0.5d2")),
+                    new ServerMessage()
+            };
+            for (ServerMessage m : samples) {
+                assertEquals(jsonb.toJson(m), codec.encode(m));
+            }
+        }
+    }
+
+    private static ServerMessage timed(ServerMessage m, ServerMessage.Clock clock) {
+        m.clock = clock;
+        return m;
+    }
+
+    @Test
+    void decodesClientMessagesAndSkipsUnknownProperties() {
+        ClientMessage m = codec.decodeClientMessage(
+                " { \"type\" : \"move\", \"extra\": {\"a\": [1, -2.5e3, true, null, \"x\"]}, \"from\":\"e2\",\"to\":\"e4\","
+                        + "\"promotion\":null, \"name\": \"A\\\"n\\u00e9\\n\" } ");
+        assertEquals("move", m.type);
+        assertEquals("e2", m.from);
+        assertEquals("e4", m.to);
+        assertNull(m.promotion);
+        assertEquals("A\"né\n", m.name);
+    }
+
+    @Test
+    void roundTripsClientMessages() {
+        ClientMessage m = new ClientMessage();
+        m.type = "join";
+        m.name = "Zoë \\ \"Z\"";
+        m.control = "3+2";
+        m.rating = -15;
+        ClientMessage back = codec.decodeClientMessage(codec.encode(m));
+        assertEquals(m.type, back.type);
+        assertEquals(m.name, back.name);
+        assertEquals(m.control, back.control);
+        assertEquals(m.rating, back.rating);
+        assertEquals(1500, codec.decodeClientMessage("{\"type\":\"seek\",\"rating\": 1500 }").rating);
+    }
+
+    @Test
+    void returnsNullOnMalformedInput() {
+        assertNull(codec.decodeClientMessage("{\"type\":\"move\""));
+        assertNull(codec.decodeClientMessage("{\"type\":1}"));
+        assertNull(codec.decodeClientMessage("[]"));
+        assertNull(codec.decodeClientMessage("{} trailing"));
+        assertNull(codec.decodeClientMessage("{\"rating\":1500.5}"), "left to Yasson, which refuses it");
+        assertNull(codec.decodeClientMessage("{\"rating\":99999999999}"));
+    }
+
+    @Test
+    void givesUpOnDeeplyNestedUnknownValues() {
+        String nested = "[".repeat(63) + "{\"a\":1}" + "]".repeat(63);
+        assertEquals("resync", codec.decodeClientMessage("{\"x\":" + nested + ",\"type\":\"resync\"}").type);
+        for (int depth : new int[]{65, 4_000, 100_000}) {
+            String deep = "{\"type\":\"resync\",\"x\":" + "[".repeat(depth) + "]".repeat(depth) + "}";
+            assertNull(codec.decodeClientMessage(deep), depth + " deep");
+        }
+    }
+}
@@ -3,7 +3,8 @@ package com.example.server;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// No metrics server: its fixed default port would collide with parallel builds or a running server
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "chess.metrics.port=-1")
 class ServerApplicationTests {
 
 	@Test